@@ -19,7 +19,8 @@ settings = get_settings()
 # When credentials=true, Allow-Headers cannot be "*"; reflect request's Access-Control-Request-Headers
 CORS_ALLOW_METHODS = "GET, POST, PUT, PATCH, DELETE, OPTIONS, HEAD"
 CORS_DEFAULT_ALLOW_HEADERS = "Accept, Accept-Language, Content-Language, Content-Type, Authorization, Origin, X-Requested-With"
-CORS_EXPOSE_HEADERS = "*"
+# "*" is taken literally for credentialed requests, so headers clients must read are also listed by name
+CORS_EXPOSE_HEADERS = "*, X-Next-Cursor"
 
 
 def _cors_headers(origin: str | None, request: StarletteRequest | None = None) -> dict[str, str]:
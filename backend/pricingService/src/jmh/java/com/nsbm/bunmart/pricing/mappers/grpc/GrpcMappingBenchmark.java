@@ -0,0 +1,84 @@
+package com.nsbm.bunmart.pricing.mappers.grpc;
+
+import com.nsbm.bunmart.pricing.dto.CalculatePriceRequestDTO;
+import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
+import com.nsbm.bunmart.pricing.dto.ProductPriceInfoDTO;
+import com.nsbm.bunmart.pricing.services.PricingCatalog;
+import com.nsbm.bunmart.pricing.v1.CalculateOrderPricingRequest;
+import com.nsbm.bunmart.pricing.v1.CalculateOrderPricingResponse;
+import com.nsbm.bunmart.pricing.v1.GetProductPricesResponse;
+import com.nsbm.bunmart.pricing.v1.LineItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proto mapping on both sides of the pricing RPCs, with inputs precomputed from the synthetic
+ * catalog so only the mapper is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class GrpcMappingBenchmark {
+
+    private static final int SAMPLES = 64;
+
+    private final GRPCMapper grpcMapper = new GRPCMapper();
+    private final List<CalculateOrderPricingRequest> requests = new ArrayList<>(SAMPLES);
+    private final List<CalculatePriceResponseDTO> results = new ArrayList<>(SAMPLES);
+    private final List<List<String>> productIds = new ArrayList<>(SAMPLES);
+    private final List<List<ProductPriceInfoDTO>> prices = new ArrayList<>(SAMPLES);
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(PricingCatalog catalog) {
+        for (int i = 0; i < SAMPLES; i++) {
+            int cart = catalog.nextCart();
+            List<String> ids = catalog.cartProductIds.get(cart);
+            List<Integer> quantities = catalog.cartQuantities.get(cart);
+            String couponCode = catalog.cartCouponCodes.get(cart);
+
+            CalculateOrderPricingRequest.Builder request = CalculateOrderPricingRequest.newBuilder()
+                    .setUserId("user-" + i)
+                    .setCouponCode(couponCode != null ? couponCode : "");
+            for (int line = 0; line < ids.size(); line++) {
+                request.addItems(LineItem.newBuilder().setProductId(ids.get(line)).setQuantity(quantities.get(line)));
+            }
+            requests.add(request.build());
+            results.add(catalog.calculationService.calculate(catalog.snapshot, ids, quantities, couponCode));
+            productIds.add(ids);
+            prices.add(catalog.calculationService.getProductPrices(catalog.snapshot, ids));
+        }
+    }
+
+    @Benchmark
+    public CalculatePriceRequestDTO toCalculatePriceRequestDTO() {
+        return grpcMapper.toCalculatePriceRequestDTO(requests.get(nextSample()));
+    }
+
+    @Benchmark
+    public CalculateOrderPricingResponse toCalculateOrderPricingResponse() {
+        return grpcMapper.toCalculateOrderPricingResponse(results.get(nextSample()));
+    }
+
+    @Benchmark
+    public GetProductPricesResponse toGetProductPricesResponse() {
+        int sample = nextSample();
+        return grpcMapper.toGetProductPricesResponse(productIds.get(sample), prices.get(sample));
+    }
+
+    private int nextSample() {
+        int sample = next;
+        next = (sample + 1) & (SAMPLES - 1);
+        return sample;
+    }
+}
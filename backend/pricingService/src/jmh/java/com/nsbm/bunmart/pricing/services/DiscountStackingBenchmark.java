@@ -0,0 +1,122 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.model.Coupon;
+import com.nsbm.bunmart.pricing.model.Discount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discount stacking for a cart of {@code lines} lines with {@code rulesPerLine} applicable rules
+ * each, half tiers and half product coupons, spread over {@code stackGroups} groups of each kind (0
+ * leaves every rule in its default group). The order coupon's minimum is above what the best line
+ * discounts leave of the subtotal, so {@code order} has to trade line discounts for the coupon.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DiscountStackingBenchmark {
+
+    @Param({"100"})
+    public int lines;
+
+    @Param({"50"})
+    public int rulesPerLine;
+
+    @Param({"0", "5"})
+    public int stackGroups;
+
+    private final List<PricingSnapshot.DiscountTiers> tiers = new ArrayList<>();
+    private final List<List<CouponRegistry.CouponRule>> coupons = new ArrayList<>();
+    private long[] unitPrices;
+    private List<DiscountStacking.LineOptions> options;
+    private long subtotal;
+    private CouponRegistry.CouponRule orderCoupon;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        unitPrices = new long[lines];
+        long id = 1;
+        for (int line = 0; line < lines; line++) {
+            unitPrices[line] = Money.of(BigDecimal.valueOf(100 + random.nextInt(100_000), 2));
+            List<PricingSnapshot.DiscountRule> lineTiers = new ArrayList<>();
+            List<CouponRegistry.CouponRule> lineCoupons = new ArrayList<>();
+            for (int rule = 0; rule < rulesPerLine; rule++) {
+                boolean percent = random.nextBoolean();
+                String group = stackGroups == 0 ? null : (rule % 2 == 0 ? "T" : "C") + random.nextInt(stackGroups);
+                if (rule % 2 == 0) {
+                    lineTiers.add(PricingSnapshot.DiscountRule.of(Discount.builder()
+                            .id(id++)
+                            .productId("p" + line)
+                            .minQuantity(1)
+                            .type(percent ? "PERCENT" : "FIXED")
+                            .value(percent ? BigDecimal.valueOf(random.nextInt(30)) : BigDecimal.valueOf(random.nextInt(500), 2))
+                            .stackGroup(group)
+                            .priority(0)
+                            .isExclusive(random.nextInt(20) == 0)
+                            .build()));
+                } else {
+                    lineCoupons.add(CouponRegistry.CouponRule.of(Coupon.builder()
+                            .id(id++)
+                            .code("CODE" + id)
+                            .productId("p" + line)
+                            .minQuantity(1)
+                            .type(percent ? "PERCENT" : "FIXED")
+                            .value(percent ? BigDecimal.valueOf(random.nextInt(20)) : BigDecimal.valueOf(random.nextInt(300), 2))
+                            .stackGroup(group)
+                            .priority(0)
+                            .isExclusive(false)
+                            .usedCount(0)
+                            .build()));
+                }
+            }
+            lineTiers.sort(Comparator.comparing(PricingSnapshot.DiscountRule::id));
+            tiers.add(new PricingSnapshot.DiscountTiers(lineTiers));
+            coupons.add(lineCoupons);
+        }
+
+        options = lines();
+        long bestTotal = 0;
+        for (int line = 0; line < lines; line++) {
+            subtotal += Money.times(unitPrices[line], 3);
+            bestTotal += options.get(line).amount(0);
+        }
+        orderCoupon = CouponRegistry.CouponRule.of(Coupon.builder()
+                .id(id)
+                .code("ORDER")
+                .type("PERCENT")
+                .value(BigDecimal.valueOf(40))
+                .minOrderAmount(Money.toBigDecimal(subtotal - bestTotal / 2))
+                .usedCount(0)
+                .build());
+    }
+
+    @Benchmark
+    public List<DiscountStacking.LineOptions> lines() {
+        List<DiscountStacking.LineOptions> result = new ArrayList<>(lines);
+        for (int line = 0; line < lines; line++) {
+            result.add(DiscountStacking.line(tiers.get(line), coupons.get(line), unitPrices[line], 3,
+                    FxRateTable.Rate.IDENTITY));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public DiscountStacking.OrderChoice order() {
+        return DiscountStacking.order(options, subtotal, orderCoupon, FxRateTable.Rate.IDENTITY);
+    }
+}
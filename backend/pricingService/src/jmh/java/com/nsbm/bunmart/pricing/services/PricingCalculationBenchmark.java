@@ -0,0 +1,32 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
+import com.nsbm.bunmart.pricing.dto.ProductPriceInfoDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart pricing and product price lookups against an in-memory snapshot, without database or
+ * transport. Run with the gc profiler to see bytes allocated per operation next to ops/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PricingCalculationBenchmark {
+
+    @Benchmark
+    public CalculatePriceResponseDTO calculate(PricingCatalog catalog) {
+        int cart = catalog.nextCart();
+        return catalog.calculationService.calculate(catalog.snapshot, catalog.cartProductIds.get(cart),
+                catalog.cartQuantities.get(cart), catalog.cartCouponCodes.get(cart));
+    }
+
+    @Benchmark
+    public List<ProductPriceInfoDTO> getProductPrices(PricingCatalog catalog) {
+        return catalog.calculationService.getProductPrices(catalog.snapshot, catalog.cartProductIds.get(catalog.nextCart()));
+    }
+}
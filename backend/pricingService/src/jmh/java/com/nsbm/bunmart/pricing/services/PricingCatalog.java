@@ -0,0 +1,161 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.model.Coupon;
+import com.nsbm.bunmart.pricing.model.Discount;
+import com.nsbm.bunmart.pricing.model.Product;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic catalog shared by the pricing benchmarks: {@code products} products, each with
+ * {@code discountsPerProduct} quantity tiers, {@code coupons} coupons (a quarter of them order-level)
+ * and a ring of pre-generated carts of {@code cartSize} lines. Everything is generated from a fixed
+ * seed, so runs with the same parameters price the same carts.
+ */
+@State(Scope.Benchmark)
+public class PricingCatalog {
+
+    private static final int CARTS = 1024;
+
+    @Param({"1000", "100000"})
+    public int products;
+
+    @Param({"0", "3"})
+    public int discountsPerProduct;
+
+    @Param({"0", "1000"})
+    public int coupons;
+
+    @Param({"1", "10", "100"})
+    public int cartSize;
+
+    public PricingSnapshot snapshot;
+    public PricingCalculationService calculationService;
+    public List<List<String>> cartProductIds;
+    public List<List<Integer>> cartQuantities;
+    public List<String> cartCouponCodes;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        List<Product> productRows = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            productRows.add(Product.builder()
+                    .id("p" + i)
+                    .name("Product " + i)
+                    .rawPrice(BigDecimal.valueOf(100 + random.nextInt(1_000_000), 2))
+                    .tax(BigDecimal.valueOf(random.nextInt(4) * 5))
+                    .shippingCost(BigDecimal.valueOf(random.nextInt(1_000), 2))
+                    .currencyCode("USD")
+                    .isActive(true)
+                    .build());
+        }
+
+        List<Discount> discountRows = new ArrayList<>(products * discountsPerProduct);
+        long discountId = 1;
+        for (int i = 0; i < products; i++) {
+            for (int tier = 1; tier <= discountsPerProduct; tier++) {
+                boolean percent = random.nextBoolean();
+                discountRows.add(Discount.builder()
+                        .id(discountId++)
+                        .productId("p" + i)
+                        .minQuantity(tier * 2)
+                        .type(percent ? "PERCENT" : "FIXED")
+                        .value(percent ? BigDecimal.valueOf(tier * 5) : BigDecimal.valueOf(tier * 50, 2))
+                        .description("Buy " + tier * 2 + " save")
+                        .isActive(true)
+                        .build());
+            }
+        }
+
+        List<Coupon> couponRows = new ArrayList<>(coupons);
+        for (long id = 1; id <= coupons; id++) {
+            boolean orderLevel = id % 4 == 0;
+            couponRows.add(Coupon.builder()
+                    .id(id)
+                    .code("CODE" + id)
+                    .productId(orderLevel ? null : "p" + random.nextInt(products))
+                    .minQuantity(1 + random.nextInt(3))
+                    .type(id % 2 == 0 ? "PERCENT" : "FIXED")
+                    .value(id % 2 == 0 ? BigDecimal.TEN : BigDecimal.ONE)
+                    .description("Coupon " + id)
+                    .minOrderAmount(orderLevel ? BigDecimal.valueOf(20) : null)
+                    .usedCount(0)
+                    .isActive(true)
+                    .build());
+        }
+
+        snapshot = PricingSnapshot.build(1, productRows, discountRows);
+        calculationService = new PricingCalculationService(null, new FixedCouponRegistry(couponRows), null, null);
+
+        cartProductIds = new ArrayList<>(CARTS);
+        cartQuantities = new ArrayList<>(CARTS);
+        cartCouponCodes = new ArrayList<>(CARTS);
+        for (int cart = 0; cart < CARTS; cart++) {
+            List<String> ids = new ArrayList<>(cartSize);
+            List<Integer> quantities = new ArrayList<>(cartSize);
+            for (int line = 0; line < cartSize; line++) {
+                ids.add("p" + random.nextInt(products));
+                quantities.add(1 + random.nextInt(8));
+            }
+            cartProductIds.add(ids);
+            cartQuantities.add(quantities);
+            cartCouponCodes.add(coupons > 0 && random.nextBoolean() ? "CODE" + (1 + random.nextInt(coupons)) : null);
+        }
+    }
+
+    /**
+     * Index of the next cart in the ring. Benchmarks run single-threaded per state unless asked
+     * otherwise, so a plain counter is enough.
+     */
+    public int nextCart() {
+        int cart = next;
+        next = (cart + 1) & (CARTS - 1);
+        return cart;
+    }
+
+    /**
+     * Serves a fixed set of coupons, all redeemable, without a database.
+     */
+    private static final class FixedCouponRegistry extends CouponRegistry {
+
+        private final Map<String, List<CouponRule>> byProduct = new HashMap<>();
+        private final Map<String, CouponRule> byCode = new HashMap<>();
+
+        FixedCouponRegistry(List<Coupon> coupons) {
+            super(null, null);
+            for (Coupon coupon : coupons) {
+                CouponRule rule = CouponRule.of(coupon);
+                byCode.put(rule.code(), rule);
+                if (!rule.isOrderLevel()) {
+                    byProduct.computeIfAbsent(rule.productId(), k -> new ArrayList<>()).add(rule);
+                }
+            }
+            byProduct.values().forEach(rules -> rules.sort(Comparator.comparing(CouponRule::id)));
+        }
+
+        @Override
+        public List<CouponRule> productCoupons(String productId, LocalDateTime now) {
+            return byProduct.getOrDefault(productId, List.of());
+        }
+
+        @Override
+        public CouponRule findValid(String code, LocalDateTime now) {
+            return code == null ? null : byCode.get(code);
+        }
+    }
+}
@@ -28,6 +28,42 @@ public class GlobalGrpcExceptionHandler {
         return Status.NOT_FOUND.withDescription(e.getMessage());
     }
 
+    @GrpcExceptionHandler(QuoteNotFoundException.class)
+    public Status handleQuoteNotFoundException(QuoteNotFoundException e) {
+        log.error(e.getMessage());
+        return Status.NOT_FOUND.withDescription(e.getMessage());
+    }
+
+    @GrpcExceptionHandler(CouponReservationNotFoundException.class)
+    public Status handleCouponReservationNotFoundException(CouponReservationNotFoundException e) {
+        log.error(e.getMessage());
+        return Status.NOT_FOUND.withDescription(e.getMessage());
+    }
+
+    @GrpcExceptionHandler({CouponUnavailableException.class, CouponReservationStateException.class})
+    public Status handleCouponConflictException(RuntimeException e) {
+        log.error(e.getMessage());
+        return Status.FAILED_PRECONDITION.withDescription(e.getMessage());
+    }
+
+    @GrpcExceptionHandler(CouponValidationThrottledException.class)
+    public Status handleCouponValidationThrottledException(CouponValidationThrottledException e) {
+        // Not logged per call: CouponValidationMonitor logs once per client and minute
+        return Status.RESOURCE_EXHAUSTED.withDescription(e.getMessage());
+    }
+
+    @GrpcExceptionHandler({FlashSaleNotFoundException.class, FlashSaleClaimNotFoundException.class})
+    public Status handleFlashSaleNotFoundException(RuntimeException e) {
+        log.error(e.getMessage());
+        return Status.NOT_FOUND.withDescription(e.getMessage());
+    }
+
+    @GrpcExceptionHandler({FlashSaleUnavailableException.class, FlashSaleClaimStateException.class})
+    public Status handleFlashSaleConflictException(RuntimeException e) {
+        // Not logged: a sold-out sale turns away every remaining checkout
+        return Status.FAILED_PRECONDITION.withDescription(e.getMessage());
+    }
+
     @GrpcExceptionHandler(DuplicateProductIdException.class)
     public Status handleDuplicateProductIdException(DuplicateProductIdException e) {
         log.error(e.getMessage());
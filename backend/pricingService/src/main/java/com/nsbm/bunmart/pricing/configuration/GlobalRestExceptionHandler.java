@@ -35,6 +35,48 @@ public class GlobalRestExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponseDTO("Coupon not found"));
     }
 
+    @ExceptionHandler(QuoteNotFoundException.class)
+    public ResponseEntity<ErrorResponseDTO> handleQuoteNotFound(QuoteNotFoundException e) {
+        log.error(e.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponseDTO("Quote not found or expired"));
+    }
+
+    @ExceptionHandler(CouponReservationNotFoundException.class)
+    public ResponseEntity<ErrorResponseDTO> handleCouponReservationNotFound(CouponReservationNotFoundException e) {
+        log.error(e.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponseDTO("Coupon reservation not found"));
+    }
+
+    @ExceptionHandler({CouponUnavailableException.class, CouponReservationStateException.class})
+    public ResponseEntity<ErrorResponseDTO> handleCouponConflict(RuntimeException e) {
+        log.error(e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponseDTO(e.getMessage()));
+    }
+
+    @ExceptionHandler(CouponValidationThrottledException.class)
+    public ResponseEntity<ErrorResponseDTO> handleCouponValidationThrottled(CouponValidationThrottledException e) {
+        // Not logged per call: CouponValidationMonitor logs once per client and minute
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(new ErrorResponseDTO(e.getMessage()));
+    }
+
+    @ExceptionHandler(FlashSaleNotFoundException.class)
+    public ResponseEntity<ErrorResponseDTO> handleFlashSaleNotFound(FlashSaleNotFoundException e) {
+        log.error(e.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponseDTO("Flash sale not found"));
+    }
+
+    @ExceptionHandler(FlashSaleClaimNotFoundException.class)
+    public ResponseEntity<ErrorResponseDTO> handleFlashSaleClaimNotFound(FlashSaleClaimNotFoundException e) {
+        log.error(e.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorResponseDTO("Flash sale claim not found"));
+    }
+
+    @ExceptionHandler({FlashSaleUnavailableException.class, FlashSaleClaimStateException.class})
+    public ResponseEntity<ErrorResponseDTO> handleFlashSaleConflict(RuntimeException e) {
+        // Not logged: a sold-out sale turns away every remaining checkout
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponseDTO(e.getMessage()));
+    }
+
     @ExceptionHandler(DuplicateProductIdException.class)
     public ResponseEntity<ErrorResponseDTO> handleDuplicateProductId(DuplicateProductIdException e) {
         log.error(e.getMessage());
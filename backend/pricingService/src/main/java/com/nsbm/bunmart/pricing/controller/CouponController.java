@@ -1,11 +1,13 @@
 package com.nsbm.bunmart.pricing.controller;
 
 import com.nsbm.bunmart.pricing.dto.CouponResponseDTO;
+import com.nsbm.bunmart.pricing.dto.CouponValidationStatsDTO;
 import com.nsbm.bunmart.pricing.dto.CreateCouponRequestDTO;
 import com.nsbm.bunmart.pricing.dto.UpdateCouponRequestDTO;
 import com.nsbm.bunmart.pricing.mappers.rest.PricingMapper;
 import com.nsbm.bunmart.pricing.model.Coupon;
 import com.nsbm.bunmart.pricing.services.CouponService;
+import com.nsbm.bunmart.pricing.services.CouponValidationMonitor;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -21,6 +23,7 @@ import java.util.stream.Collectors;
 public class CouponController {
 
     private final CouponService couponService;
+    private final CouponValidationMonitor couponValidationMonitor;
     private final PricingMapper pricingMapper;
 
     @PostMapping
@@ -34,7 +37,11 @@ public class CouponController {
                 dto.getDescription(),
                 dto.getMinOrderAmount(),
                 dto.getUsageLimit(),
-                dto.getExpiresAt()
+                dto.getPerUserLimit(),
+                dto.getExpiresAt(),
+                dto.getStackGroup(),
+                dto.getPriority(),
+                dto.getIsExclusive()
         );
         return ResponseEntity.status(HttpStatus.CREATED).body(pricingMapper.toCouponResponseDTO(c));
     }
@@ -46,6 +53,18 @@ public class CouponController {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Coupon validation counts, with the {@code limit} clients that had the most codes rejected.
+     */
+    @GetMapping("/validation-stats")
+    public ResponseEntity<CouponValidationStatsDTO> validationStats(@RequestParam(defaultValue = "20") int limit) {
+        List<CouponValidationStatsDTO.ClientDTO> clients = couponValidationMonitor.topClients(limit).stream()
+                .map(pricingMapper::toCouponValidationClientDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(new CouponValidationStatsDTO(couponValidationMonitor.attempts(),
+                couponValidationMonitor.rejected(), couponValidationMonitor.throttled(), clients));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<CouponResponseDTO> getById(@PathVariable Long id) {
         Coupon c = couponService.getById(id);
@@ -64,8 +83,12 @@ public class CouponController {
                 dto.getDescription(),
                 dto.getMinOrderAmount(),
                 dto.getUsageLimit(),
+                dto.getPerUserLimit(),
                 dto.getIsActive(),
-                dto.getExpiresAt()
+                dto.getExpiresAt(),
+                dto.getStackGroup(),
+                dto.getPriority(),
+                dto.getIsExclusive()
         );
         return ResponseEntity.ok(pricingMapper.toCouponResponseDTO(c));
     }
@@ -0,0 +1,57 @@
+package com.nsbm.bunmart.pricing.controller;
+
+import com.nsbm.bunmart.pricing.dto.CouponReservationResponseDTO;
+import com.nsbm.bunmart.pricing.dto.ReserveCouponRequestDTO;
+import com.nsbm.bunmart.pricing.mappers.rest.PricingMapper;
+import com.nsbm.bunmart.pricing.model.CouponReservation;
+import com.nsbm.bunmart.pricing.services.CouponRedemptionService;
+import com.nsbm.bunmart.pricing.services.CouponValidationMonitor;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/pricing/coupons/reservations")
+@RequiredArgsConstructor
+public class CouponReservationController {
+
+    private final CouponRedemptionService couponRedemptionService;
+    private final CouponValidationMonitor couponValidationMonitor;
+    private final PricingMapper pricingMapper;
+
+    @PostMapping
+    public ResponseEntity<CouponReservationResponseDTO> reserve(@Valid @RequestBody ReserveCouponRequestDTO dto,
+                                                                HttpServletRequest request) {
+        String client = couponValidationMonitor.clientKey(
+                request.getRemoteAddr(), request.getHeader(CouponValidationMonitor.CLIENT_HEADER));
+        couponValidationMonitor.resolve(client, dto.getCouponCode());
+        CouponReservation r = couponRedemptionService.reserve(
+                dto.getCouponCode(),
+                dto.getOrderId(),
+                dto.getUserId(),
+                dto.getTtlSeconds()
+        );
+        return ResponseEntity.status(HttpStatus.CREATED).body(pricingMapper.toCouponReservationResponseDTO(r));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<CouponReservationResponseDTO> getById(@PathVariable String id) {
+        CouponReservation r = couponRedemptionService.getReservation(id);
+        return ResponseEntity.ok(pricingMapper.toCouponReservationResponseDTO(r));
+    }
+
+    @PostMapping("/{id}/commit")
+    public ResponseEntity<CouponReservationResponseDTO> commit(@PathVariable String id) {
+        CouponReservation r = couponRedemptionService.commit(id);
+        return ResponseEntity.ok(pricingMapper.toCouponReservationResponseDTO(r));
+    }
+
+    @PostMapping("/{id}/release")
+    public ResponseEntity<CouponReservationResponseDTO> release(@PathVariable String id) {
+        CouponReservation r = couponRedemptionService.release(id);
+        return ResponseEntity.ok(pricingMapper.toCouponReservationResponseDTO(r));
+    }
+}
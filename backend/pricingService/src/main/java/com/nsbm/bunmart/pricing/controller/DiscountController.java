@@ -30,7 +30,10 @@ public class DiscountController {
                 dto.getMinQuantity(),
                 dto.getType(),
                 dto.getValue(),
-                dto.getDescription()
+                dto.getDescription(),
+                dto.getStackGroup(),
+                dto.getPriority(),
+                dto.getIsExclusive()
         );
         return ResponseEntity.status(HttpStatus.CREATED).body(pricingMapper.toDiscountResponseDTO(d));
     }
@@ -57,7 +60,10 @@ public class DiscountController {
                 dto.getType(),
                 dto.getValue(),
                 dto.getDescription(),
-                dto.getIsActive()
+                dto.getIsActive(),
+                dto.getStackGroup(),
+                dto.getPriority(),
+                dto.getIsExclusive()
         );
         return ResponseEntity.ok(pricingMapper.toDiscountResponseDTO(d));
     }
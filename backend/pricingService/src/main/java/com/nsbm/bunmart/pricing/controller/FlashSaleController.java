@@ -0,0 +1,108 @@
+package com.nsbm.bunmart.pricing.controller;
+
+import com.nsbm.bunmart.pricing.dto.ClaimFlashSaleRequestDTO;
+import com.nsbm.bunmart.pricing.dto.CreateFlashSaleRequestDTO;
+import com.nsbm.bunmart.pricing.dto.FlashSaleClaimResponseDTO;
+import com.nsbm.bunmart.pricing.dto.FlashSalePoolStatsDTO;
+import com.nsbm.bunmart.pricing.dto.FlashSaleResponseDTO;
+import com.nsbm.bunmart.pricing.dto.UpdateFlashSaleRequestDTO;
+import com.nsbm.bunmart.pricing.mappers.rest.PricingMapper;
+import com.nsbm.bunmart.pricing.model.FlashSale;
+import com.nsbm.bunmart.pricing.services.FlashSaleClaim;
+import com.nsbm.bunmart.pricing.services.FlashSaleClaimService;
+import com.nsbm.bunmart.pricing.services.FlashSaleService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/v1/pricing/flash-sales")
+@RequiredArgsConstructor
+public class FlashSaleController {
+
+    private final FlashSaleService flashSaleService;
+    private final FlashSaleClaimService flashSaleClaimService;
+    private final PricingMapper pricingMapper;
+
+    @PostMapping
+    public ResponseEntity<FlashSaleResponseDTO> create(@Valid @RequestBody CreateFlashSaleRequestDTO dto) {
+        FlashSale s = flashSaleService.create(
+                dto.getName(),
+                dto.getProductId(),
+                dto.getType(),
+                dto.getValue(),
+                dto.getTokenCount(),
+                dto.getStartsAt(),
+                dto.getEndsAt(),
+                dto.getClaimTtlSeconds()
+        );
+        return ResponseEntity.status(HttpStatus.CREATED).body(pricingMapper.toFlashSaleResponseDTO(s));
+    }
+
+    @GetMapping
+    public List<FlashSaleResponseDTO> getAll() {
+        return flashSaleService.getAll().stream()
+                .map(pricingMapper::toFlashSaleResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<FlashSaleResponseDTO> getById(@PathVariable Long id) {
+        return ResponseEntity.ok(pricingMapper.toFlashSaleResponseDTO(flashSaleService.getById(id)));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<FlashSaleResponseDTO> update(@PathVariable Long id, @RequestBody UpdateFlashSaleRequestDTO dto) {
+        FlashSale s = flashSaleService.update(
+                id,
+                dto.getName(),
+                dto.getType(),
+                dto.getValue(),
+                dto.getTokenCount(),
+                dto.getEndsAt(),
+                dto.getClaimTtlSeconds(),
+                dto.getIsActive()
+        );
+        return ResponseEntity.ok(pricingMapper.toFlashSaleResponseDTO(s));
+    }
+
+    /**
+     * Tokens leased and claimed on this instance.
+     */
+    @GetMapping("/{id}/pool")
+    public ResponseEntity<FlashSalePoolStatsDTO> getPool(@PathVariable Long id) {
+        return ResponseEntity.ok(pricingMapper.toFlashSalePoolStatsDTO(flashSaleClaimService.stats(id)));
+    }
+
+    @PostMapping("/{id}/claims")
+    public ResponseEntity<FlashSaleClaimResponseDTO> claim(@PathVariable Long id, @Valid @RequestBody ClaimFlashSaleRequestDTO dto) {
+        FlashSaleClaim c = flashSaleClaimService.claim(
+                id,
+                dto.getOrderId(),
+                dto.getUserId(),
+                dto.getQuantity(),
+                dto.getTtlSeconds()
+        );
+        return ResponseEntity.status(HttpStatus.CREATED).body(pricingMapper.toFlashSaleClaimResponseDTO(c));
+    }
+
+    @GetMapping("/claims/{claimId}")
+    public ResponseEntity<FlashSaleClaimResponseDTO> getClaim(@PathVariable String claimId) {
+        return ResponseEntity.ok(pricingMapper.toFlashSaleClaimResponseDTO(flashSaleClaimService.getClaim(claimId)));
+    }
+
+    @PostMapping("/claims/{claimId}/commit")
+    public ResponseEntity<FlashSaleClaimResponseDTO> commit(@PathVariable String claimId) {
+        return ResponseEntity.ok(pricingMapper.toFlashSaleClaimResponseDTO(flashSaleClaimService.commit(claimId)));
+    }
+
+    @PostMapping("/claims/{claimId}/release")
+    public ResponseEntity<FlashSaleClaimResponseDTO> release(@PathVariable String claimId) {
+        return ResponseEntity.ok(pricingMapper.toFlashSaleClaimResponseDTO(flashSaleClaimService.release(claimId)));
+    }
+}
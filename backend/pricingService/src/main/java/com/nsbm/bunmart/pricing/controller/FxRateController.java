@@ -0,0 +1,37 @@
+package com.nsbm.bunmart.pricing.controller;
+
+import com.nsbm.bunmart.pricing.dto.FxRatesRequestDTO;
+import com.nsbm.bunmart.pricing.dto.FxRatesResponseDTO;
+import com.nsbm.bunmart.pricing.mappers.rest.PricingMapper;
+import com.nsbm.bunmart.pricing.services.FxRateService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/pricing/fx-rates")
+@RequiredArgsConstructor
+public class FxRateController {
+
+    private final FxRateService fxRateService;
+    private final PricingMapper pricingMapper;
+
+    @GetMapping
+    public ResponseEntity<FxRatesResponseDTO> getCurrent() {
+        return ResponseEntity.ok(pricingMapper.toFxRatesResponseDTO(fxRateService.current()));
+    }
+
+    /**
+     * Replaces every rate; currencies left out can no longer be converted.
+     */
+    @PutMapping
+    public ResponseEntity<FxRatesResponseDTO> replace(@Valid @RequestBody FxRatesRequestDTO dto) {
+        return ResponseEntity.ok(pricingMapper.toFxRatesResponseDTO(fxRateService.replace(dto.getRates(), "api")));
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<FxRatesResponseDTO> reload() {
+        return ResponseEntity.ok(pricingMapper.toFxRatesResponseDTO(fxRateService.reload()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.nsbm.bunmart.pricing.controller;
+
+import com.nsbm.bunmart.pricing.dto.CreatePriceCampaignRequestDTO;
+import com.nsbm.bunmart.pricing.dto.CreatePriceVersionRequestDTO;
+import com.nsbm.bunmart.pricing.dto.EffectivePriceResponseDTO;
+import com.nsbm.bunmart.pricing.dto.PriceCampaignResponseDTO;
+import com.nsbm.bunmart.pricing.dto.PriceVersionResponseDTO;
+import com.nsbm.bunmart.pricing.mappers.rest.PricingMapper;
+import com.nsbm.bunmart.pricing.model.PriceVersion;
+import com.nsbm.bunmart.pricing.services.PriceVersionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/v1/pricing")
+@RequiredArgsConstructor
+public class PriceVersionController {
+
+    private final PriceVersionService priceVersionService;
+    private final PricingMapper pricingMapper;
+
+    @PostMapping("/products/{id}/price-versions")
+    public ResponseEntity<PriceVersionResponseDTO> create(@PathVariable String id,
+                                                          @Valid @RequestBody CreatePriceVersionRequestDTO dto) {
+        PriceVersion v = priceVersionService.create(
+                id,
+                dto.getRawPrice(),
+                dto.getEffectiveFrom(),
+                dto.getEffectiveTo()
+        );
+        return ResponseEntity.status(HttpStatus.CREATED).body(pricingMapper.toPriceVersionResponseDTO(v));
+    }
+
+    @GetMapping("/products/{id}/price-versions")
+    public List<PriceVersionResponseDTO> getByProductId(@PathVariable String id) {
+        return priceVersionService.getByProductId(id).stream()
+                .map(pricingMapper::toPriceVersionResponseDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Price of the product at {@code at}, or now when absent.
+     */
+    @GetMapping("/products/{id}/price")
+    public ResponseEntity<EffectivePriceResponseDTO> priceAt(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(pricingMapper.toEffectivePriceResponseDTO(priceVersionService.priceAt(id, at)));
+    }
+
+    @PostMapping("/price-campaigns")
+    public ResponseEntity<PriceCampaignResponseDTO> createCampaign(@Valid @RequestBody CreatePriceCampaignRequestDTO dto) {
+        List<String> productIds = dto.getPrices().stream()
+                .map(CreatePriceCampaignRequestDTO.PriceDTO::getProductId)
+                .collect(Collectors.toList());
+        List<BigDecimal> prices = dto.getPrices().stream()
+                .map(CreatePriceCampaignRequestDTO.PriceDTO::getRawPrice)
+                .collect(Collectors.toList());
+        List<PriceVersion> versions = priceVersionService.createCampaign(
+                dto.getCampaignId(),
+                dto.getEffectiveFrom(),
+                dto.getEffectiveTo(),
+                productIds,
+                prices
+        );
+        return ResponseEntity.status(HttpStatus.CREATED).body(new PriceCampaignResponseDTO(
+                dto.getCampaignId(), dto.getEffectiveFrom(), dto.getEffectiveTo(), versions.size()));
+    }
+}
@@ -4,7 +4,10 @@ import com.nsbm.bunmart.pricing.dto.CalculatePriceRequestDTO;
 import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
 import com.nsbm.bunmart.pricing.dto.ProductPriceInfoDTO;
 import com.nsbm.bunmart.pricing.dto.ProductPricesRequestDTO;
+import com.nsbm.bunmart.pricing.services.CouponValidationMonitor;
 import com.nsbm.bunmart.pricing.services.PricingCalculationService;
+import com.nsbm.bunmart.pricing.services.PricingQuoteService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -19,20 +22,37 @@ import java.util.stream.Collectors;
 public class PricingController {
 
     private final PricingCalculationService pricingCalculationService;
+    private final PricingQuoteService pricingQuoteService;
+    private final CouponValidationMonitor couponValidationMonitor;
 
     @PostMapping("/calculate")
-    public ResponseEntity<CalculatePriceResponseDTO> calculate(@Valid @RequestBody CalculatePriceRequestDTO dto) {
+    public ResponseEntity<CalculatePriceResponseDTO> calculate(@Valid @RequestBody CalculatePriceRequestDTO dto,
+                                                               HttpServletRequest request) {
         List<String> productIds = dto.getItems().stream()
                 .map(CalculatePriceRequestDTO.LineItemDTO::getProductId)
                 .collect(Collectors.toList());
         List<Integer> quantities = dto.getItems().stream()
                 .map(CalculatePriceRequestDTO.LineItemDTO::getQuantity)
                 .collect(Collectors.toList());
-        CalculatePriceResponseDTO result = pricingCalculationService.calculate(
-                productIds, quantities, dto.getCouponCode());
+        // Priced coupons show whether a code is real, so pricing counts against the same limit as validation
+        String client = couponValidationMonitor.clientKey(
+                request.getRemoteAddr(), request.getHeader(CouponValidationMonitor.CLIENT_HEADER));
+        couponValidationMonitor.resolve(client, dto.getCouponCode());
+        CalculatePriceResponseDTO result = pricingQuoteService.quote(
+                productIds, quantities, dto.getCouponCode(), dto.getCurrencyCode(), dto.getUserId());
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/quotes/{quoteId}")
+    public ResponseEntity<CalculatePriceResponseDTO> getQuote(@PathVariable String quoteId) {
+        return ResponseEntity.ok(pricingQuoteService.getQuote(quoteId));
+    }
+
+    @PostMapping("/quotes/{quoteId}/consume")
+    public ResponseEntity<CalculatePriceResponseDTO> consumeQuote(@PathVariable String quoteId) {
+        return ResponseEntity.ok(pricingQuoteService.consumeQuote(quoteId));
+    }
+
     @PostMapping("/product-prices")
     public ResponseEntity<List<ProductPriceInfoDTO>> getProductPrices(@Valid @RequestBody ProductPricesRequestDTO dto) {
         List<ProductPriceInfoDTO> result = pricingCalculationService.getProductPrices(dto.getProductIds());
@@ -19,6 +19,12 @@ public class CalculatePriceRequestDTO {
     /** Optional coupon code for order-level discount (coupon with null productId). */
     private String couponCode;
 
+    /** Optional ISO currency to price in; products in other currencies are converted at the current rates. */
+    private String currencyCode;
+
+    /** Optional user the cart is priced for; coupons the user has used up to their per-user limit are not applied. */
+    private String userId;
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -17,7 +18,12 @@ public class CalculatePriceResponseDTO {
     private BigDecimal taxTotal;
     private BigDecimal total;
     private String currencyCode;
+    /** Version of the exchange rate table the amounts were converted with; 0 when none was loaded. */
+    private Long fxRatesVersion;
     private List<LineItemPriceDTO> lineItems;
+    /** Signed id under which this result is held until {@code quoteExpiresAt}; see GetQuote/ConsumeQuote. */
+    private String quoteId;
+    private LocalDateTime quoteExpiresAt;
 
     @Data
     @NoArgsConstructor
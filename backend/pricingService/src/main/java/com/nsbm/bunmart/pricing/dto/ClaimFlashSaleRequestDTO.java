@@ -0,0 +1,23 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimFlashSaleRequestDTO {
+    @NotBlank(message = "Order ID is required")
+    private String orderId;
+    private String userId;
+    /** Units to claim; 1 when absent. */
+    @Min(value = 1, message = "Quantity must be at least 1")
+    private Integer quantity;
+    /** Optional hold time; the sale's, or else the configured default, is used when absent. */
+    @Positive(message = "TTL must be positive")
+    private Long ttlSeconds;
+}
@@ -0,0 +1,22 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponReservationResponseDTO {
+    private String id;
+    private Long couponId;
+    private String couponCode;
+    private String orderId;
+    private String userId;
+    private String status;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -21,6 +21,10 @@ public class CouponResponseDTO {
     private BigDecimal minOrderAmount;
     private Integer usageLimit;
     private Integer usedCount;
+    private Integer perUserLimit;
+    private String stackGroup;
+    private Integer priority;
+    private Boolean isExclusive;
     private Boolean isActive;
     private LocalDateTime expiresAt;
     private LocalDateTime createdAt;
@@ -0,0 +1,29 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CouponValidationStatsDTO {
+    private Long attempts;
+    private Long rejected;
+    private Long throttled;
+    private List<ClientDTO> clients;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ClientDTO {
+        private String clientId;
+        private Long attempts;
+        private Long rejected;
+        private Long throttled;
+        private LocalDateTime lastSeen;
+    }
+}
@@ -1,6 +1,7 @@
 package com.nsbm.bunmart.pricing.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -26,5 +27,10 @@ public class CreateCouponRequestDTO {
     private String description;
     private BigDecimal minOrderAmount;
     private Integer usageLimit;
+    @Min(value = 1, message = "Per-user limit must be at least 1")
+    private Integer perUserLimit;
     private LocalDateTime expiresAt;
+    private String stackGroup;
+    private Integer priority;
+    private Boolean isExclusive;
 }
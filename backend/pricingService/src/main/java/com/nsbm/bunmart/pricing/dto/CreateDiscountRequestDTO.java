@@ -25,4 +25,7 @@ public class CreateDiscountRequestDTO {
     @DecimalMin(value = "0", message = "Value must be 0 or greater")
     private BigDecimal value;
     private String description;
+    private String stackGroup;
+    private Integer priority;
+    private Boolean isExclusive;
 }
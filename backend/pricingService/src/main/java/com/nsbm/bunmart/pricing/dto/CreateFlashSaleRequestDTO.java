@@ -0,0 +1,39 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateFlashSaleRequestDTO {
+    @NotBlank(message = "Name is required")
+    private String name;
+    @NotBlank(message = "Product ID is required")
+    private String productId;
+    @NotBlank(message = "Type is required (PERCENT or FIXED)")
+    private String type;
+    @NotNull(message = "Value is required")
+    @DecimalMin(value = "0", message = "Value must be 0 or greater")
+    private BigDecimal value;
+    /** Units on sale; one token is allocated for each. */
+    @NotNull(message = "Token count is required")
+    @Min(value = 1, message = "Token count must be at least 1")
+    private Integer tokenCount;
+    @NotNull(message = "Start time is required")
+    private LocalDateTime startsAt;
+    @NotNull(message = "End time is required")
+    private LocalDateTime endsAt;
+    /** Optional hold time for claims; the configured default is used when absent. */
+    @Positive(message = "Claim TTL must be positive")
+    private Long claimTtlSeconds;
+}
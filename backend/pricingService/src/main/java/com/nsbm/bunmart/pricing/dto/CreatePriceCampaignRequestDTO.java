@@ -0,0 +1,40 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreatePriceCampaignRequestDTO {
+    @NotBlank(message = "Campaign ID is required")
+    private String campaignId;
+    @NotNull(message = "Effective from is required")
+    private LocalDateTime effectiveFrom;
+    /** Exclusive end; the prices apply indefinitely when absent. */
+    private LocalDateTime effectiveTo;
+    @NotEmpty(message = "At least one price is required")
+    @Valid
+    private List<PriceDTO> prices;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceDTO {
+        @NotBlank(message = "Product ID is required")
+        private String productId;
+        @NotNull(message = "Raw price is required")
+        @DecimalMin(value = "0", message = "Raw price must be 0 or greater")
+        private BigDecimal rawPrice;
+    }
+}
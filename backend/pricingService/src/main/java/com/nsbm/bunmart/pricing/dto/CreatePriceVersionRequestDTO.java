@@ -0,0 +1,23 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreatePriceVersionRequestDTO {
+    @NotNull(message = "Raw price is required")
+    @DecimalMin(value = "0", message = "Raw price must be 0 or greater")
+    private BigDecimal rawPrice;
+    @NotNull(message = "Effective from is required")
+    private LocalDateTime effectiveFrom;
+    /** Exclusive end; the price applies indefinitely when absent. */
+    private LocalDateTime effectiveTo;
+}
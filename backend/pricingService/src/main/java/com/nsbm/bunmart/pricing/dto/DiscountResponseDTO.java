@@ -17,6 +17,9 @@ public class DiscountResponseDTO {
     private String type;
     private BigDecimal value;
     private String description;
+    private String stackGroup;
+    private Integer priority;
+    private Boolean isExclusive;
     private Boolean isActive;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
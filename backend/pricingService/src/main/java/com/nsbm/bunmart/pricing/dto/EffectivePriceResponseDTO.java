@@ -0,0 +1,21 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EffectivePriceResponseDTO {
+    private String productId;
+    private LocalDateTime at;
+    private BigDecimal rawPrice;
+    private String currencyCode;
+    /** Null when the product's base price applies. */
+    private Long priceVersionId;
+    private String campaignId;
+}
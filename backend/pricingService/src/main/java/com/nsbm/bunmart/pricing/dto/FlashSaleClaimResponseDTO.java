@@ -0,0 +1,26 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleClaimResponseDTO {
+    private String id;
+    private Long flashSaleId;
+    private String productId;
+    private String orderId;
+    private String userId;
+    private Integer quantity;
+    private BigDecimal unitPrice;
+    private String currencyCode;
+    private String status;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
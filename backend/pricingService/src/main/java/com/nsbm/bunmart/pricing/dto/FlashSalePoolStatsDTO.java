@@ -0,0 +1,20 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A flash sale's tokens as seen by the instance answering: leased and unclaimed, and held by open
+ * claims.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSalePoolStatsDTO {
+    private Long flashSaleId;
+    private Integer available;
+    private Integer claimed;
+    /** No more tokens could be leased when this instance last tried. */
+    private Boolean exhausted;
+}
@@ -0,0 +1,28 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleResponseDTO {
+    private Long id;
+    private String name;
+    private String productId;
+    private String type;
+    private BigDecimal value;
+    private Integer tokenCount;
+    /** Sold tokens counted so far; trails the actual sales by up to one reconcile interval. */
+    private Integer soldCount;
+    private LocalDateTime startsAt;
+    private LocalDateTime endsAt;
+    private Long claimTtlSeconds;
+    private Boolean isActive;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
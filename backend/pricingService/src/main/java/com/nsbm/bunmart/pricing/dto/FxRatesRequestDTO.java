@@ -0,0 +1,20 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRatesRequestDTO {
+    /** Amount of each currency that one unit of the base currency buys, e.g. {@code {"EUR": 0.92}}. */
+    @NotEmpty(message = "Rates are required")
+    private Map<String, @NotNull @Positive BigDecimal> rates;
+}
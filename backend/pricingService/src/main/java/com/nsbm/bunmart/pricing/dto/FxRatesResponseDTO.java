@@ -0,0 +1,20 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FxRatesResponseDTO {
+    private Long version;
+    private String baseCurrency;
+    private Map<String, BigDecimal> rates;
+    private String source;
+    private LocalDateTime loadedAt;
+}
@@ -0,0 +1,17 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceCampaignResponseDTO {
+    private String campaignId;
+    private LocalDateTime effectiveFrom;
+    private LocalDateTime effectiveTo;
+    private Integer priceCount;
+}
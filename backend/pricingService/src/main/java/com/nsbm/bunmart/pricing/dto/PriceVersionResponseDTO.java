@@ -0,0 +1,21 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceVersionResponseDTO {
+    private Long id;
+    private String productId;
+    private BigDecimal rawPrice;
+    private LocalDateTime effectiveFrom;
+    private LocalDateTime effectiveTo;
+    private String campaignId;
+    private LocalDateTime createdAt;
+}
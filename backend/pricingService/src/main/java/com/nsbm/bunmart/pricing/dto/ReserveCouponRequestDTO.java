@@ -0,0 +1,21 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReserveCouponRequestDTO {
+    @NotBlank(message = "Coupon code is required")
+    private String couponCode;
+    @NotBlank(message = "Order ID is required")
+    private String orderId;
+    private String userId;
+    /** Optional hold time; the configured default is used when absent. */
+    @Positive(message = "TTL must be positive")
+    private Long ttlSeconds;
+}
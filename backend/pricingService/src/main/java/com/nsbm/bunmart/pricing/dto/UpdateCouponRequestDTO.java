@@ -19,6 +19,11 @@ public class UpdateCouponRequestDTO {
     private String description;
     private BigDecimal minOrderAmount;
     private Integer usageLimit;
+    /** 0 removes the per-user limit. */
+    private Integer perUserLimit;
     private Boolean isActive;
     private LocalDateTime expiresAt;
+    private String stackGroup;
+    private Integer priority;
+    private Boolean isExclusive;
 }
@@ -17,4 +17,7 @@ public class UpdateDiscountRequestDTO {
     private BigDecimal value;
     private String description;
     private Boolean isActive;
+    private String stackGroup;
+    private Integer priority;
+    private Boolean isExclusive;
 }
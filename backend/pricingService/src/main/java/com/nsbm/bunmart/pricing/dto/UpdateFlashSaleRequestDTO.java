@@ -0,0 +1,23 @@
+package com.nsbm.bunmart.pricing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UpdateFlashSaleRequestDTO {
+    private String name;
+    private String type;
+    private BigDecimal value;
+    /** Can only be raised. */
+    private Integer tokenCount;
+    private LocalDateTime endsAt;
+    /** 0 goes back to the configured default. */
+    private Long claimTtlSeconds;
+    private Boolean isActive;
+}
@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.pricing.errors;
+
+public class CouponReservationNotFoundException extends RuntimeException {
+    public CouponReservationNotFoundException(String message) {
+        super(message);
+    }
+}
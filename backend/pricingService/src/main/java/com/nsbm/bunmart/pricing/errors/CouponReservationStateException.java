@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.pricing.errors;
+
+public class CouponReservationStateException extends RuntimeException {
+    public CouponReservationStateException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.pricing.errors;
+
+public class CouponUnavailableException extends RuntimeException {
+    public CouponUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.pricing.errors;
+
+public class CouponValidationThrottledException extends RuntimeException {
+    public CouponValidationThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.pricing.errors;
+
+public class FlashSaleClaimNotFoundException extends RuntimeException {
+    public FlashSaleClaimNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.pricing.errors;
+
+public class FlashSaleClaimStateException extends RuntimeException {
+    public FlashSaleClaimStateException(String message) {
+        super(message);
+    }
+}
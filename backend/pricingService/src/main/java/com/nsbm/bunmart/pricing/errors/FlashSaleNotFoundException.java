@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.pricing.errors;
+
+public class FlashSaleNotFoundException extends RuntimeException {
+    public FlashSaleNotFoundException(String message) {
+        super(message);
+    }
+}
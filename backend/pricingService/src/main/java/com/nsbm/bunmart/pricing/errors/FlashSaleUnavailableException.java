@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.pricing.errors;
+
+public class FlashSaleUnavailableException extends RuntimeException {
+    public FlashSaleUnavailableException(String message) {
+        super(message);
+    }
+}
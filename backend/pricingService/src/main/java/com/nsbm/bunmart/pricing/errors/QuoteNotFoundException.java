@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.pricing.errors;
+
+public class QuoteNotFoundException extends RuntimeException {
+    public QuoteNotFoundException(String message) {
+        super(message);
+    }
+}
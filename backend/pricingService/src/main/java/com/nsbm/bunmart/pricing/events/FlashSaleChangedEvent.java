@@ -0,0 +1,10 @@
+package com.nsbm.bunmart.pricing.events;
+
+/**
+ * Published by the flash sale service after a sale is written. Flash sales do not change
+ * calculated prices, so this is separate from {@link PricingDataChangedEvent} and does not rebuild
+ * the pricing snapshot; listeners should still use {@code @TransactionalEventListener} so they only
+ * observe committed data.
+ */
+public record FlashSaleChangedEvent(Long flashSaleId) {
+}
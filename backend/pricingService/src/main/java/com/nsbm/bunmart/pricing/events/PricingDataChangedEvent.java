@@ -0,0 +1,16 @@
+package com.nsbm.bunmart.pricing.events;
+
+/**
+ * Published by the product, discount, coupon and price version services after every write.
+ * Listeners that keep derived pricing state should use {@code @TransactionalEventListener} so they
+ * only observe committed data.
+ */
+public record PricingDataChangedEvent(Source source, String id) {
+
+    public enum Source {
+        PRODUCT,
+        DISCOUNT,
+        COUPON,
+        PRICE_VERSION
+    }
+}
@@ -0,0 +1,69 @@
+package com.nsbm.bunmart.pricing.grpc;
+
+import com.nsbm.bunmart.pricing.services.CouponValidationMonitor;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Puts the client each call is limited as in the gRPC {@link Context}, as
+ * {@link CouponValidationMonitor#clientKey} picks it from the caller and the end user the caller
+ * forwarded in metadata. The caller is the principal of its client certificate when it presented
+ * one, otherwise the host of its peer address; the port is left out so a client cannot become
+ * someone new by reconnecting.
+ */
+@GrpcGlobalServerInterceptor
+public class ClientIdentityInterceptor implements ServerInterceptor {
+
+    private static final Context.Key<String> CLIENT = Context.key("pricing-client");
+    private static final Metadata.Key<String> FORWARDED_CLIENT =
+            Metadata.Key.of(CouponValidationMonitor.CLIENT_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+
+    private final CouponValidationMonitor couponValidationMonitor;
+
+    public ClientIdentityInterceptor(CouponValidationMonitor couponValidationMonitor) {
+        this.couponValidationMonitor = couponValidationMonitor;
+    }
+
+    /**
+     * The client of the current call, or null outside a call and for a trusted caller acting for
+     * no end user.
+     */
+    public static String current() {
+        return CLIENT.get();
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        String client = couponValidationMonitor.clientKey(identify(call), headers.get(FORWARDED_CLIENT));
+        Context context = Context.current().withValue(CLIENT, client);
+        return Contexts.interceptCall(context, call, headers, next);
+    }
+
+    private static String identify(ServerCall<?, ?> call) {
+        SSLSession session = call.getAttributes().get(Grpc.TRANSPORT_ATTR_SSL_SESSION);
+        if (session != null) {
+            try {
+                return session.getPeerPrincipal().getName();
+            } catch (SSLPeerUnverifiedException e) {
+                // No client certificate; fall back to the address
+            }
+        }
+        SocketAddress address = call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+        if (address instanceof InetSocketAddress inet) {
+            return inet.getAddress() != null ? inet.getAddress().getHostAddress() : inet.getHostString();
+        }
+        return address != null ? address.toString() : null;
+    }
+}
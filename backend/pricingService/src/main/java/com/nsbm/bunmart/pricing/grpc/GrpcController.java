@@ -3,19 +3,23 @@ package com.nsbm.bunmart.pricing.grpc;
 import com.nsbm.bunmart.pricing.dto.CalculatePriceRequestDTO;
 import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
 import com.nsbm.bunmart.pricing.mappers.grpc.GRPCMapper;
-import com.nsbm.bunmart.pricing.model.Coupon;
+import com.nsbm.bunmart.pricing.model.CouponReservation;
 import com.nsbm.bunmart.pricing.model.Product;
-import com.nsbm.bunmart.pricing.services.CouponService;
-import com.nsbm.bunmart.pricing.services.PricingCalculationService;
+import com.nsbm.bunmart.pricing.services.CouponRedemptionService;
+import com.nsbm.bunmart.pricing.services.CouponRegistry;
+import com.nsbm.bunmart.pricing.services.CouponUsageIndex;
+import com.nsbm.bunmart.pricing.services.CouponValidationMonitor;
+import com.nsbm.bunmart.pricing.services.FlashSaleClaimService;
+import com.nsbm.bunmart.pricing.services.PricingQuoteService;
 import com.nsbm.bunmart.pricing.services.ProductService;
 import com.nsbm.bunmart.pricing.v1.*;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
 
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,9 +28,15 @@ import java.util.stream.Collectors;
 public class GrpcController extends PricingServiceGrpc.PricingServiceImplBase {
 
     private final ProductService productService;
-    private final PricingCalculationService pricingCalculationService;
-    private final CouponService couponService;
+    private final PricingQuoteService pricingQuoteService;
+    private final CouponValidationMonitor couponValidationMonitor;
+    private final CouponUsageIndex couponUsageIndex;
+    private final CouponRedemptionService couponRedemptionService;
+    private final FlashSaleClaimService flashSaleClaimService;
     private final GRPCMapper grpcMapper;
+    private final OrderPricingStreams orderPricingStreams;
+    private final PriceWatchStreams priceWatchStreams;
+    private final ProductPriceStreams productPriceStreams;
 
     @Override
     public void getProductPrice(GetProductPriceRequest request, StreamObserver<GetProductPriceResponse> responseObserver) {
@@ -36,6 +46,18 @@ public class GrpcController extends PricingServiceGrpc.PricingServiceImplBase {
         responseObserver.onCompleted();
     }
 
+    @Override
+    public void getProductPrices(GetProductPricesRequest request, StreamObserver<GetProductPricesResponse> responseObserver) {
+        GetProductPricesResponse response = productPriceStreams.prices(request);
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<GetProductPricesRequest> getProductPricesStream(StreamObserver<GetProductPricesResponse> responseObserver) {
+        return productPriceStreams.open((ServerCallStreamObserver<GetProductPricesResponse>) responseObserver);
+    }
+
     @Override
     public void calculateOrderPricing(CalculateOrderPricingRequest request, StreamObserver<CalculateOrderPricingResponse> responseObserver) {
         CalculatePriceRequestDTO dto = grpcMapper.toCalculatePriceRequestDTO(request);
@@ -45,21 +67,114 @@ public class GrpcController extends PricingServiceGrpc.PricingServiceImplBase {
         List<Integer> quantities = dto.getItems().stream()
                 .map(CalculatePriceRequestDTO.LineItemDTO::getQuantity)
                 .collect(Collectors.toList());
-        CalculatePriceResponseDTO result = pricingCalculationService.calculate(productIds, quantities, dto.getCouponCode());
+        // Priced coupons show whether a code is real, so pricing counts against the same limit as validation
+        couponValidationMonitor.resolve(ClientIdentityInterceptor.current(), dto.getCouponCode());
+        CalculatePriceResponseDTO result = pricingQuoteService.quote(productIds, quantities, dto.getCouponCode(),
+                dto.getCurrencyCode(), dto.getUserId());
         CalculateOrderPricingResponse response = grpcMapper.toCalculateOrderPricingResponse(result);
         responseObserver.onNext(response);
         responseObserver.onCompleted();
     }
 
+    @Override
+    public void getQuote(QuoteRequest request, StreamObserver<CalculateOrderPricingResponse> responseObserver) {
+        CalculatePriceResponseDTO quote = pricingQuoteService.getQuote(request.getQuoteId());
+        responseObserver.onNext(grpcMapper.toCalculateOrderPricingResponse(quote));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void consumeQuote(QuoteRequest request, StreamObserver<CalculateOrderPricingResponse> responseObserver) {
+        CalculatePriceResponseDTO quote = pricingQuoteService.consumeQuote(request.getQuoteId());
+        responseObserver.onNext(grpcMapper.toCalculateOrderPricingResponse(quote));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void calculateOrderPricingBatch(CalculateOrderPricingBatchRequest request, StreamObserver<CalculateOrderPricingBatchResponse> responseObserver) {
+        List<OrderPricingResult> results = orderPricingStreams.priceAll(ClientIdentityInterceptor.current(),
+                request.getRequestsList());
+        CalculateOrderPricingBatchResponse response = CalculateOrderPricingBatchResponse.newBuilder()
+                .addAllResults(results)
+                .build();
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<OrderPricingRequest> calculateOrderPricingStream(StreamObserver<OrderPricingResult> responseObserver) {
+        return orderPricingStreams.open(ClientIdentityInterceptor.current(),
+                (ServerCallStreamObserver<OrderPricingResult>) responseObserver);
+    }
+
+    @Override
+    public void watchPrices(WatchPricesRequest request, StreamObserver<PriceChange> responseObserver) {
+        priceWatchStreams.open(request, (ServerCallStreamObserver<PriceChange>) responseObserver);
+    }
+
     @Override
     public void validateCoupon(ValidateCouponRequest request, StreamObserver<ValidateCouponResponse> responseObserver) {
-        Optional<Coupon> couponOpt = couponService.findByCode(request.getCouponCode());
-        boolean valid = couponOpt.isPresent();
-        String discountAmount = couponOpt
-                .map(c -> c.getValue() != null ? c.getValue().toPlainString() : "0")
-                .orElse("0");
+        // Clients guessing codes are cut off before the lookup
+        CouponRegistry.CouponRule coupon = couponValidationMonitor.resolve(ClientIdentityInterceptor.current(),
+                request.getCouponCode());
+        // A real code the user has used up is not a guess, so it is not counted as a rejection
+        boolean valid = coupon != null
+                && (request.getUserId().isBlank() || couponUsageIndex.allows(coupon, request.getUserId()));
+        String discountAmount = valid && coupon.value() != null ? coupon.value().toPlainString() : "0";
         ValidateCouponResponse response = grpcMapper.toValidateCouponResponse(valid, discountAmount);
         responseObserver.onNext(response);
         responseObserver.onCompleted();
     }
+
+    @Override
+    public void reserveCoupon(ReserveCouponRequest request, StreamObserver<com.nsbm.bunmart.pricing.v1.CouponReservation> responseObserver) {
+        couponValidationMonitor.resolve(ClientIdentityInterceptor.current(), request.getCouponCode());
+        CouponReservation reservation = couponRedemptionService.reserve(
+                request.getCouponCode(),
+                request.getOrderId(),
+                request.getUserId().isBlank() ? null : request.getUserId(),
+                request.getTtlSeconds() > 0 ? request.getTtlSeconds() : null);
+        responseObserver.onNext(grpcMapper.toCouponReservation(reservation));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void commitCouponReservation(CouponReservationRequest request, StreamObserver<com.nsbm.bunmart.pricing.v1.CouponReservation> responseObserver) {
+        CouponReservation reservation = couponRedemptionService.commit(request.getReservationId());
+        responseObserver.onNext(grpcMapper.toCouponReservation(reservation));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void releaseCouponReservation(CouponReservationRequest request, StreamObserver<com.nsbm.bunmart.pricing.v1.CouponReservation> responseObserver) {
+        CouponReservation reservation = couponRedemptionService.release(request.getReservationId());
+        responseObserver.onNext(grpcMapper.toCouponReservation(reservation));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void claimFlashSale(ClaimFlashSaleRequest request, StreamObserver<FlashSaleClaim> responseObserver) {
+        com.nsbm.bunmart.pricing.services.FlashSaleClaim claim = flashSaleClaimService.claim(
+                request.getFlashSaleId(),
+                request.getOrderId(),
+                request.getUserId().isBlank() ? null : request.getUserId(),
+                request.getQuantity() > 0 ? request.getQuantity() : null,
+                request.getTtlSeconds() > 0 ? request.getTtlSeconds() : null);
+        responseObserver.onNext(grpcMapper.toFlashSaleClaim(claim));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void commitFlashSaleClaim(FlashSaleClaimRequest request, StreamObserver<FlashSaleClaim> responseObserver) {
+        com.nsbm.bunmart.pricing.services.FlashSaleClaim claim = flashSaleClaimService.commit(request.getClaimId());
+        responseObserver.onNext(grpcMapper.toFlashSaleClaim(claim));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void releaseFlashSaleClaim(FlashSaleClaimRequest request, StreamObserver<FlashSaleClaim> responseObserver) {
+        com.nsbm.bunmart.pricing.services.FlashSaleClaim claim = flashSaleClaimService.release(request.getClaimId());
+        responseObserver.onNext(grpcMapper.toFlashSaleClaim(claim));
+        responseObserver.onCompleted();
+    }
 }
@@ -0,0 +1,227 @@
+package com.nsbm.bunmart.pricing.grpc;
+
+import com.nsbm.bunmart.pricing.dto.CalculatePriceRequestDTO;
+import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
+import com.nsbm.bunmart.pricing.errors.CouponValidationThrottledException;
+import com.nsbm.bunmart.pricing.mappers.grpc.GRPCMapper;
+import com.nsbm.bunmart.pricing.services.CouponValidationMonitor;
+import com.nsbm.bunmart.pricing.services.FxRateTable;
+import com.nsbm.bunmart.pricing.services.PricingCalculationService;
+import com.nsbm.bunmart.pricing.services.PricingSnapshot;
+import com.nsbm.bunmart.pricing.v1.OrderPricingRequest;
+import com.nsbm.bunmart.pricing.v1.OrderPricingResult;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prices many carts per call for {@code CalculateOrderPricingBatch} and
+ * {@code CalculateOrderPricingStream}. Carts are spread over a fixed pool sized to the cores, and
+ * every cart of a batch, or of a whole stream, is priced against the snapshot and exchange rates
+ * taken when the call started, so one repricing run never mixes old and new prices.
+ * <p>
+ * A stream asks the client for at most {@code max-in-flight} carts at a time and only asks for
+ * more as results are written to a client that is reading, so neither side buffers without bound.
+ * <p>
+ * Coupon codes are counted against the calling client by {@link CouponValidationMonitor} like
+ * single calls; a cart whose client is throttled gets an error result.
+ */
+@Slf4j
+@Component
+public class OrderPricingStreams {
+
+    private final PricingCalculationService pricingCalculationService;
+    private final CouponValidationMonitor couponValidationMonitor;
+    private final GRPCMapper grpcMapper;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final int maxBatchSize;
+
+    public OrderPricingStreams(PricingCalculationService pricingCalculationService,
+                               CouponValidationMonitor couponValidationMonitor, GRPCMapper grpcMapper,
+                               @Value("${pricing.batch.threads:0}") int threads,
+                               @Value("${pricing.batch.stream-max-in-flight:64}") int maxInFlight,
+                               @Value("${pricing.batch.max-requests:1000}") int maxBatchSize) {
+        this.pricingCalculationService = pricingCalculationService;
+        this.couponValidationMonitor = couponValidationMonitor;
+        this.grpcMapper = grpcMapper;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxBatchSize = maxBatchSize;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "order-pricing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Prices every request in parallel and returns the results in request order. A cart that
+     * cannot be priced gets an error result; it does not fail the batch.
+     */
+    public List<OrderPricingResult> priceAll(String clientId, List<OrderPricingRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " requests per batch");
+        }
+        PricingSnapshot snapshot = pricingCalculationService.currentSnapshot();
+        FxRateTable fxRates = pricingCalculationService.currentFxRates();
+        if (requests.size() == 1) {
+            return List.of(price(clientId, snapshot, fxRates, requests.get(0)));
+        }
+        List<CompletableFuture<OrderPricingResult>> pending = new ArrayList<>(requests.size());
+        for (OrderPricingRequest request : requests) {
+            pending.add(CompletableFuture.supplyAsync(() -> price(clientId, snapshot, fxRates, request), executor));
+        }
+        List<OrderPricingResult> results = new ArrayList<>(pending.size());
+        for (CompletableFuture<OrderPricingResult> future : pending) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    /**
+     * Starts a pricing stream and returns the observer for the client's requests. Must be called
+     * from the RPC method so flow control is set up before the first message arrives.
+     */
+    public StreamObserver<OrderPricingRequest> open(String clientId, ServerCallStreamObserver<OrderPricingResult> responses) {
+        PricingStream stream = new PricingStream(clientId, responses, pricingCalculationService.currentSnapshot(),
+                pricingCalculationService.currentFxRates());
+        responses.disableAutoRequest();
+        responses.setOnCancelHandler(stream::cancel);
+        responses.setOnReadyHandler(stream::onReady);
+        responses.request(maxInFlight);
+        return stream;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private OrderPricingResult price(String clientId, PricingSnapshot snapshot, FxRateTable fxRates,
+                                     OrderPricingRequest request) {
+        String requestId = request.getRequestId();
+        try {
+            CalculatePriceRequestDTO dto = grpcMapper.toCalculatePriceRequestDTO(request.getRequest());
+            couponValidationMonitor.resolve(clientId, dto.getCouponCode());
+            List<String> productIds = new ArrayList<>(dto.getItems().size());
+            List<Integer> quantities = new ArrayList<>(dto.getItems().size());
+            for (CalculatePriceRequestDTO.LineItemDTO item : dto.getItems()) {
+                productIds.add(item.getProductId());
+                quantities.add(item.getQuantity());
+            }
+            CalculatePriceResponseDTO result = pricingCalculationService.calculate(snapshot, fxRates, productIds, quantities,
+                    dto.getCouponCode(), dto.getCurrencyCode(), dto.getUserId());
+            return grpcMapper.toOrderPricingResult(requestId, result);
+        } catch (IllegalArgumentException | CouponValidationThrottledException e) {
+            return grpcMapper.toOrderPricingError(requestId, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Pricing request {} failed: {}", requestId, e.getMessage(), e);
+            return grpcMapper.toOrderPricingError(requestId, "Internal server error");
+        }
+    }
+
+    private final class PricingStream implements StreamObserver<OrderPricingRequest> {
+
+        private final String clientId;
+        private final ServerCallStreamObserver<OrderPricingResult> responses;
+        private final PricingSnapshot snapshot;
+        private final FxRateTable fxRates;
+        private int inFlight;
+        private int owed;
+        private boolean halfClosed;
+        private boolean closed;
+
+        private PricingStream(String clientId, ServerCallStreamObserver<OrderPricingResult> responses,
+                              PricingSnapshot snapshot, FxRateTable fxRates) {
+            this.clientId = clientId;
+            this.responses = responses;
+            this.snapshot = snapshot;
+            this.fxRates = fxRates;
+        }
+
+        @Override
+        public void onNext(OrderPricingRequest request) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                inFlight++;
+            }
+            try {
+                executor.execute(() -> complete(price(clientId, snapshot, fxRates, request)));
+            } catch (RejectedExecutionException e) {
+                fail(Status.UNAVAILABLE.withDescription("Pricing is shutting down"));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            cancel();
+        }
+
+        @Override
+        public void onCompleted() {
+            synchronized (this) {
+                halfClosed = true;
+                finishIfDone();
+            }
+        }
+
+        void onReady() {
+            synchronized (this) {
+                // Credit withheld while the client was not reading is handed back now
+                if (!closed && owed > 0 && responses.isReady()) {
+                    responses.request(owed);
+                    owed = 0;
+                }
+            }
+        }
+
+        synchronized void cancel() {
+            closed = true;
+        }
+
+        private synchronized void complete(OrderPricingResult result) {
+            if (closed) {
+                return;
+            }
+            inFlight--;
+            responses.onNext(result);
+            if (responses.isReady()) {
+                responses.request(1);
+            } else {
+                owed++;
+            }
+            finishIfDone();
+        }
+
+        private void finishIfDone() {
+            if (!closed && halfClosed && inFlight == 0) {
+                closed = true;
+                responses.onCompleted();
+            }
+        }
+
+        private synchronized void fail(Status status) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            responses.onError(status.asRuntimeException());
+        }
+    }
+}
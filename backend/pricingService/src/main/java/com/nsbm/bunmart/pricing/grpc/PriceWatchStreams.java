@@ -0,0 +1,197 @@
+package com.nsbm.bunmart.pricing.grpc;
+
+import com.nsbm.bunmart.pricing.mappers.grpc.GRPCMapper;
+import com.nsbm.bunmart.pricing.services.PriceChangeJournal;
+import com.nsbm.bunmart.pricing.v1.PriceChange;
+import com.nsbm.bunmart.pricing.v1.WatchPricesRequest;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves {@code WatchPrices} from the {@link PriceChangeJournal}. Subscribers hold no thread:
+ * each keeps a cursor into the journal, and a small shared pool drains a subscriber only when the
+ * journal grows or its transport becomes writable again. A subscriber that stops reading is simply
+ * not drained; once the journal has moved past its cursor it is sent a {@code RESET} and carries on
+ * from the newest change, so a slow client never holds memory or delays anyone else.
+ */
+@Slf4j
+@Component
+public class PriceWatchStreams {
+
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    private final PriceChangeJournal journal;
+    private final GRPCMapper grpcMapper;
+    private final ExecutorService executor;
+    private final int maxSubscribers;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Runnable onAppend = this::drainAll;
+
+    public PriceWatchStreams(PriceChangeJournal journal, GRPCMapper grpcMapper,
+                             @Value("${pricing.watch.threads:2}") int threads,
+                             @Value("${pricing.watch.max-subscribers:1000}") int maxSubscribers) {
+        this.journal = journal;
+        this.grpcMapper = grpcMapper;
+        this.maxSubscribers = maxSubscribers;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "price-watch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        journal.addListener(onAppend);
+    }
+
+    /**
+     * Registers a subscriber. Must be called from the RPC method so the ready handler is in place
+     * before the call starts.
+     */
+    public void open(WatchPricesRequest request, ServerCallStreamObserver<PriceChange> responses) {
+        if (subscribers.size() >= maxSubscribers) {
+            responses.onError(Status.RESOURCE_EXHAUSTED.withDescription("Too many price watchers").asRuntimeException());
+            return;
+        }
+        long last = journal.lastSequence();
+        boolean resuming = request.getAfterSequence() > 0 || !request.getStreamId().isBlank();
+        boolean sameStream = journal.streamId().equals(request.getStreamId());
+        Subscriber subscriber;
+        if (!resuming) {
+            subscriber = new Subscriber(responses, Set.copyOf(request.getProductIdsList()), last, false);
+        } else if (sameStream && request.getAfterSequence() <= last) {
+            subscriber = new Subscriber(responses, Set.copyOf(request.getProductIdsList()), request.getAfterSequence(), false);
+        } else {
+            // Another process's sequence, or one this journal never issued: the client cannot catch up
+            subscriber = new Subscriber(responses, Set.copyOf(request.getProductIdsList()), last, true);
+        }
+        responses.setOnCancelHandler(() -> subscribers.remove(subscriber));
+        responses.setOnReadyHandler(subscriber::schedule);
+        subscribers.add(subscriber);
+        subscriber.schedule();
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        journal.removeListener(onAppend);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.close(Status.UNAVAILABLE.withDescription("Pricing service is shutting down; resume elsewhere"));
+        }
+        subscribers.clear();
+        executor.shutdownNow();
+    }
+
+    private void drainAll() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.schedule();
+        }
+    }
+
+    private final class Subscriber {
+
+        private final ServerCallStreamObserver<PriceChange> responses;
+        private final Set<String> productIds;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Only touched by the drain, which runs for one subscriber at a time
+        private long cursor;
+        private boolean resetPending;
+        private volatile boolean closed;
+
+        private Subscriber(ServerCallStreamObserver<PriceChange> responses, Set<String> productIds, long cursor,
+                           boolean resetPending) {
+            this.responses = responses;
+            this.productIds = productIds;
+            this.cursor = cursor;
+            this.resetPending = resetPending;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                synchronized (this) {
+                    drainReady();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Price watcher dropped: {}", e.getMessage());
+                subscribers.remove(this);
+                close(Status.INTERNAL.withDescription("Price watch failed"));
+            } finally {
+                scheduled.set(false);
+            }
+            // An append or ready signal that arrived while draining found the flag set; pick it up
+            if (!closed && responses.isReady() && (resetPending || journal.lastSequence() > cursor)) {
+                schedule();
+            }
+        }
+
+        private void drainReady() {
+            while (!closed && !responses.isCancelled() && responses.isReady()) {
+                if (resetPending) {
+                    cursor = journal.lastSequence();
+                    resetPending = false;
+                    responses.onNext(grpcMapper.toPriceChange(journal.streamId(), new PriceChangeJournal.Change(
+                            cursor, PriceChangeJournal.Type.RESET, null, null, false, null, LocalDateTime.now())));
+                    continue;
+                }
+                List<PriceChangeJournal.Change> changes = journal.readAfter(cursor, DRAIN_BATCH_SIZE);
+                if (changes == null) {
+                    resetPending = true;
+                    continue;
+                }
+                if (changes.isEmpty()) {
+                    return;
+                }
+                for (PriceChangeJournal.Change change : changes) {
+                    if (!responses.isReady()) {
+                        return;
+                    }
+                    cursor = change.sequence();
+                    if (matches(change)) {
+                        responses.onNext(grpcMapper.toPriceChange(journal.streamId(), change));
+                    }
+                }
+            }
+        }
+
+        private boolean matches(PriceChangeJournal.Change change) {
+            return productIds.isEmpty() || change.productId() == null || productIds.contains(change.productId());
+        }
+
+        private synchronized void close(Status status) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                responses.onError(status.asRuntimeException());
+            } catch (RuntimeException e) {
+                // Already cancelled by the client
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.nsbm.bunmart.pricing.grpc;
+
+import com.nsbm.bunmart.pricing.dto.ProductPriceInfoDTO;
+import com.nsbm.bunmart.pricing.mappers.grpc.GRPCMapper;
+import com.nsbm.bunmart.pricing.services.PricingCalculationService;
+import com.nsbm.bunmart.pricing.services.PricingSnapshot;
+import com.nsbm.bunmart.pricing.v1.GetProductPricesRequest;
+import com.nsbm.bunmart.pricing.v1.GetProductPricesResponse;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Serves {@code GetProductPrices} and {@code GetProductPricesStream}. Lookups are answered from
+ * the pricing snapshot without database I/O, so requests are priced on the calling gRPC thread; a
+ * stream prices every request against the snapshot taken when it opened, and asks for the next
+ * request only once the client is reading responses.
+ */
+@Component
+public class ProductPriceStreams {
+
+    private final PricingCalculationService pricingCalculationService;
+    private final GRPCMapper grpcMapper;
+    private final int maxProductIds;
+
+    public ProductPriceStreams(PricingCalculationService pricingCalculationService, GRPCMapper grpcMapper,
+                               @Value("${pricing.batch.max-product-ids:5000}") int maxProductIds) {
+        this.pricingCalculationService = pricingCalculationService;
+        this.grpcMapper = grpcMapper;
+        this.maxProductIds = maxProductIds;
+    }
+
+    public GetProductPricesResponse prices(GetProductPricesRequest request) {
+        return prices(pricingCalculationService.currentSnapshot(), request);
+    }
+
+    /**
+     * Starts a price lookup stream and returns the observer for the client's requests. Must be
+     * called from the RPC method so flow control is set up before the first message arrives.
+     */
+    public StreamObserver<GetProductPricesRequest> open(ServerCallStreamObserver<GetProductPricesResponse> responses) {
+        PriceStream stream = new PriceStream(responses, pricingCalculationService.currentSnapshot());
+        responses.disableAutoRequest();
+        responses.setOnReadyHandler(stream::onReady);
+        responses.request(1);
+        return stream;
+    }
+
+    private GetProductPricesResponse prices(PricingSnapshot snapshot, GetProductPricesRequest request) {
+        List<String> productIds = request.getProductIdsList();
+        if (productIds.size() > maxProductIds) {
+            throw new IllegalArgumentException("At most " + maxProductIds + " product ids per request");
+        }
+        List<ProductPriceInfoDTO> prices = pricingCalculationService.getProductPrices(snapshot, productIds);
+        return grpcMapper.toGetProductPricesResponse(productIds, prices);
+    }
+
+    private final class PriceStream implements StreamObserver<GetProductPricesRequest> {
+
+        private final ServerCallStreamObserver<GetProductPricesResponse> responses;
+        private final PricingSnapshot snapshot;
+        private boolean owed;
+        private boolean closed;
+
+        private PriceStream(ServerCallStreamObserver<GetProductPricesResponse> responses, PricingSnapshot snapshot) {
+            this.responses = responses;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public synchronized void onNext(GetProductPricesRequest request) {
+            if (closed) {
+                return;
+            }
+            GetProductPricesResponse response;
+            try {
+                response = prices(snapshot, request);
+            } catch (IllegalArgumentException e) {
+                closed = true;
+                responses.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+                return;
+            }
+            responses.onNext(response);
+            // The next request is only read once this response can be written
+            if (responses.isReady()) {
+                responses.request(1);
+            } else {
+                owed = true;
+            }
+        }
+
+        @Override
+        public synchronized void onError(Throwable t) {
+            closed = true;
+        }
+
+        @Override
+        public synchronized void onCompleted() {
+            if (!closed) {
+                closed = true;
+                responses.onCompleted();
+            }
+        }
+
+        synchronized void onReady() {
+            if (!closed && owed && responses.isReady()) {
+                owed = false;
+                responses.request(1);
+            }
+        }
+    }
+}
@@ -2,12 +2,17 @@ package com.nsbm.bunmart.pricing.mappers.grpc;
 
 import com.nsbm.bunmart.pricing.dto.CalculatePriceRequestDTO;
 import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
+import com.nsbm.bunmart.pricing.dto.ProductPriceInfoDTO;
 import com.nsbm.bunmart.pricing.model.Product;
+import com.nsbm.bunmart.pricing.services.PriceChangeJournal;
+import com.nsbm.bunmart.pricing.services.PricingSnapshot;
 import com.nsbm.bunmart.pricing.v1.*;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -31,14 +36,17 @@ public class GRPCMapper {
         List<CalculatePriceRequestDTO.LineItemDTO> items = request.getItemsList().stream()
                 .map(line -> new CalculatePriceRequestDTO.LineItemDTO(line.getProductId(), line.getQuantity()))
                 .collect(Collectors.toList());
-        return new CalculatePriceRequestDTO(items, null);
+        String couponCode = request.getCouponCode().isBlank() ? null : request.getCouponCode();
+        String currencyCode = request.getCurrencyCode().isBlank() ? null : request.getCurrencyCode();
+        String userId = request.getUserId().isBlank() ? null : request.getUserId();
+        return new CalculatePriceRequestDTO(items, couponCode, currencyCode, userId);
     }
 
     public CalculateOrderPricingResponse toCalculateOrderPricingResponse(CalculatePriceResponseDTO dto) {
         List<LineResult> lines = dto.getLineItems() != null
                 ? dto.getLineItems().stream().map(this::toLineResult).collect(Collectors.toList())
                 : List.of();
-        return CalculateOrderPricingResponse.newBuilder()
+        CalculateOrderPricingResponse.Builder builder = CalculateOrderPricingResponse.newBuilder()
                 .addAllLines(lines)
                 .setSubtotal(dto.getSubtotal() != null ? dto.getSubtotal().toPlainString() : "0")
                 .setDiscountTotal(dto.getDiscountTotal() != null ? dto.getDiscountTotal().toPlainString() : "0")
@@ -46,6 +54,25 @@ public class GRPCMapper {
                 .setTaxTotal(dto.getTaxTotal() != null ? dto.getTaxTotal().toPlainString() : "0")
                 .setTotal(dto.getTotal() != null ? dto.getTotal().toPlainString() : "0")
                 .setCurrencyCode(dto.getCurrencyCode() != null ? dto.getCurrencyCode() : "USD")
+                .setFxRatesVersion(dto.getFxRatesVersion() != null ? dto.getFxRatesVersion() : 0L);
+        if (dto.getQuoteId() != null) {
+            builder.setQuoteId(dto.getQuoteId());
+            builder.setQuoteExpiresAt(dto.getQuoteExpiresAt() != null ? dto.getQuoteExpiresAt().toString() : "");
+        }
+        return builder.build();
+    }
+
+    public OrderPricingResult toOrderPricingResult(String requestId, CalculatePriceResponseDTO dto) {
+        return OrderPricingResult.newBuilder()
+                .setRequestId(requestId)
+                .setResponse(toCalculateOrderPricingResponse(dto))
+                .build();
+    }
+
+    public OrderPricingResult toOrderPricingError(String requestId, String error) {
+        return OrderPricingResult.newBuilder()
+                .setRequestId(requestId)
+                .setError(error != null ? error : "Pricing failed")
                 .build();
     }
 
@@ -64,4 +91,83 @@ public class GRPCMapper {
                 .setDiscountAmount(discountAmount != null ? discountAmount : "0")
                 .build();
     }
+
+    public CouponReservation toCouponReservation(com.nsbm.bunmart.pricing.model.CouponReservation reservation) {
+        return CouponReservation.newBuilder()
+                .setReservationId(reservation.getId())
+                .setCouponCode(reservation.getCouponCode() != null ? reservation.getCouponCode() : "")
+                .setOrderId(reservation.getOrderId() != null ? reservation.getOrderId() : "")
+                .setStatus(reservation.getStatus() != null ? reservation.getStatus().name() : "")
+                .setExpiresAt(reservation.getExpiresAt() != null ? reservation.getExpiresAt().toString() : "")
+                .build();
+    }
+
+    public FlashSaleClaim toFlashSaleClaim(com.nsbm.bunmart.pricing.services.FlashSaleClaim claim) {
+        return FlashSaleClaim.newBuilder()
+                .setClaimId(claim.id())
+                .setFlashSaleId(claim.flashSaleId())
+                .setProductId(claim.productId())
+                .setOrderId(claim.orderId())
+                .setQuantity(claim.quantity())
+                .setUnitPrice(claim.unitPrice().toPlainString())
+                .setCurrencyCode(claim.currencyCode())
+                .setStatus(claim.status().name())
+                .setExpiresAt(claim.expiresAt().toString())
+                .build();
+    }
+
+    public PriceChange toPriceChange(String streamId, PriceChangeJournal.Change change) {
+        PriceChange.Builder builder = PriceChange.newBuilder()
+                .setStreamId(streamId)
+                .setSequence(change.sequence())
+                .setType(change.type().name())
+                .setProductId(change.productId() != null ? change.productId() : "")
+                .setCouponCode(change.couponCode() != null ? change.couponCode() : "")
+                .setRemoved(change.removed())
+                .setChangedAt(change.changedAt() != null ? change.changedAt().toString() : "");
+        PricingSnapshot.PriceEntry product = change.product();
+        if (product != null) {
+            builder.setUnitPrice(product.rawPrice() != null ? product.rawPrice().toPlainString() : "0")
+                    .setTax(product.tax() != null ? product.tax().toPlainString() : "0")
+                    .setCurrencyCode(product.currencyCode() != null ? product.currencyCode() : "USD");
+        }
+        return builder.build();
+    }
+
+    public GetProductPricesResponse toGetProductPricesResponse(List<String> requestedIds, List<ProductPriceInfoDTO> prices) {
+        GetProductPricesResponse.Builder builder = GetProductPricesResponse.newBuilder();
+        Set<String> found = new HashSet<>(prices.size());
+        for (ProductPriceInfoDTO price : prices) {
+            builder.addPrices(toProductPriceInfo(price));
+            found.add(price.getProductId());
+        }
+        for (String productId : requestedIds) {
+            if (!found.contains(productId)) {
+                builder.addMissingProductIds(productId);
+            }
+        }
+        return builder.build();
+    }
+
+    private ProductPriceInfo toProductPriceInfo(ProductPriceInfoDTO dto) {
+        ProductPriceInfo.Builder builder = ProductPriceInfo.newBuilder()
+                .setProductId(dto.getProductId())
+                .setProductName(dto.getProductName() != null ? dto.getProductName() : "")
+                .setCurrentPrice(dto.getCurrentPrice() != null ? dto.getCurrentPrice().toPlainString() : "0")
+                .setRawPrice(dto.getRawPrice() != null ? dto.getRawPrice().toPlainString() : "0")
+                .setTax(dto.getTax() != null ? dto.getTax().toPlainString() : "0")
+                .setDiscountDescription(dto.getDiscountDescription() != null ? dto.getDiscountDescription() : "");
+        if (dto.getDiscounts() != null) {
+            for (ProductPriceInfoDTO.DiscountInfoDTO discount : dto.getDiscounts()) {
+                builder.addDiscounts(DiscountInfo.newBuilder()
+                        .setType(discount.getType() != null ? discount.getType() : "")
+                        .setMinQuantity(discount.getMinQuantity() != null ? discount.getMinQuantity() : 0)
+                        .setDescription(discount.getDescription() != null ? discount.getDescription() : "")
+                        .setValue(discount.getValue() != null ? discount.getValue().toPlainString() : "0")
+                        .setCode(discount.getCode() != null ? discount.getCode() : "")
+                        .build());
+            }
+        }
+        return builder.build();
+    }
 }
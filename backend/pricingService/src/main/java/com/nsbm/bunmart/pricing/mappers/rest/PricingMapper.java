@@ -2,8 +2,16 @@ package com.nsbm.bunmart.pricing.mappers.rest;
 
 import com.nsbm.bunmart.pricing.dto.*;
 import com.nsbm.bunmart.pricing.model.Coupon;
+import com.nsbm.bunmart.pricing.model.CouponReservation;
 import com.nsbm.bunmart.pricing.model.Discount;
+import com.nsbm.bunmart.pricing.model.FlashSale;
+import com.nsbm.bunmart.pricing.model.PriceVersion;
 import com.nsbm.bunmart.pricing.model.Product;
+import com.nsbm.bunmart.pricing.services.CouponValidationMonitor;
+import com.nsbm.bunmart.pricing.services.FlashSaleClaim;
+import com.nsbm.bunmart.pricing.services.FlashSaleClaimService;
+import com.nsbm.bunmart.pricing.services.FxRateTable;
+import com.nsbm.bunmart.pricing.services.PriceVersionService;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -33,6 +41,9 @@ public class PricingMapper {
         dto.setType(d.getType());
         dto.setValue(d.getValue());
         dto.setDescription(d.getDescription());
+        dto.setStackGroup(d.getStackGroup());
+        dto.setPriority(d.getPriority());
+        dto.setIsExclusive(d.getIsExclusive());
         dto.setIsActive(d.getIsActive());
         dto.setCreatedAt(d.getCreatedAt());
         dto.setUpdatedAt(d.getUpdatedAt());
@@ -52,10 +63,112 @@ public class PricingMapper {
         dto.setMinOrderAmount(c.getMinOrderAmount());
         dto.setUsageLimit(c.getUsageLimit());
         dto.setUsedCount(c.getUsedCount());
+        dto.setPerUserLimit(c.getPerUserLimit());
+        dto.setStackGroup(c.getStackGroup());
+        dto.setPriority(c.getPriority());
+        dto.setIsExclusive(c.getIsExclusive());
         dto.setIsActive(c.getIsActive());
         dto.setExpiresAt(c.getExpiresAt());
         dto.setCreatedAt(c.getCreatedAt());
         dto.setUpdatedAt(c.getUpdatedAt());
         return dto;
     }
+
+    public CouponReservationResponseDTO toCouponReservationResponseDTO(CouponReservation r) {
+        if (r == null) return null;
+        CouponReservationResponseDTO dto = new CouponReservationResponseDTO();
+        dto.setId(r.getId());
+        dto.setCouponId(r.getCouponId());
+        dto.setCouponCode(r.getCouponCode());
+        dto.setOrderId(r.getOrderId());
+        dto.setUserId(r.getUserId());
+        dto.setStatus(r.getStatus() != null ? r.getStatus().name() : null);
+        dto.setExpiresAt(r.getExpiresAt());
+        dto.setCreatedAt(r.getCreatedAt());
+        dto.setUpdatedAt(r.getUpdatedAt());
+        return dto;
+    }
+
+    public PriceVersionResponseDTO toPriceVersionResponseDTO(PriceVersion v) {
+        if (v == null) return null;
+        PriceVersionResponseDTO dto = new PriceVersionResponseDTO();
+        dto.setId(v.getId());
+        dto.setProductId(v.getProductId());
+        dto.setRawPrice(v.getRawPrice());
+        dto.setEffectiveFrom(v.getEffectiveFrom());
+        dto.setEffectiveTo(v.getEffectiveTo());
+        dto.setCampaignId(v.getCampaignId());
+        dto.setCreatedAt(v.getCreatedAt());
+        return dto;
+    }
+
+    public CouponValidationStatsDTO.ClientDTO toCouponValidationClientDTO(CouponValidationMonitor.ClientStats s) {
+        if (s == null) return null;
+        return new CouponValidationStatsDTO.ClientDTO(s.clientId(), s.attempts(), s.rejected(), s.throttled(), s.lastSeen());
+    }
+
+    public FlashSaleResponseDTO toFlashSaleResponseDTO(FlashSale s) {
+        if (s == null) return null;
+        FlashSaleResponseDTO dto = new FlashSaleResponseDTO();
+        dto.setId(s.getId());
+        dto.setName(s.getName());
+        dto.setProductId(s.getProductId());
+        dto.setType(s.getType());
+        dto.setValue(s.getValue());
+        dto.setTokenCount(s.getTokenCount());
+        dto.setSoldCount(s.getSoldCount());
+        dto.setStartsAt(s.getStartsAt());
+        dto.setEndsAt(s.getEndsAt());
+        dto.setClaimTtlSeconds(s.getClaimTtlSeconds());
+        dto.setIsActive(s.getIsActive());
+        dto.setCreatedAt(s.getCreatedAt());
+        dto.setUpdatedAt(s.getUpdatedAt());
+        return dto;
+    }
+
+    public FlashSaleClaimResponseDTO toFlashSaleClaimResponseDTO(FlashSaleClaim c) {
+        if (c == null) return null;
+        FlashSaleClaimResponseDTO dto = new FlashSaleClaimResponseDTO();
+        dto.setId(c.id());
+        dto.setFlashSaleId(c.flashSaleId());
+        dto.setProductId(c.productId());
+        dto.setOrderId(c.orderId());
+        dto.setUserId(c.userId());
+        dto.setQuantity(c.quantity());
+        dto.setUnitPrice(c.unitPrice());
+        dto.setCurrencyCode(c.currencyCode());
+        dto.setStatus(c.status().name());
+        dto.setExpiresAt(c.expiresAt());
+        dto.setCreatedAt(c.createdAt());
+        dto.setUpdatedAt(c.updatedAt());
+        return dto;
+    }
+
+    public FlashSalePoolStatsDTO toFlashSalePoolStatsDTO(FlashSaleClaimService.PoolStats s) {
+        if (s == null) return null;
+        return new FlashSalePoolStatsDTO(s.flashSaleId(), s.available(), s.claimed(), s.exhausted());
+    }
+
+    public FxRatesResponseDTO toFxRatesResponseDTO(FxRateTable t) {
+        if (t == null) return null;
+        FxRatesResponseDTO dto = new FxRatesResponseDTO();
+        dto.setVersion(t.version());
+        dto.setBaseCurrency(t.baseCurrency());
+        dto.setRates(t.rates());
+        dto.setSource(t.source());
+        dto.setLoadedAt(t.loadedAt());
+        return dto;
+    }
+
+    public EffectivePriceResponseDTO toEffectivePriceResponseDTO(PriceVersionService.EffectivePrice p) {
+        if (p == null) return null;
+        EffectivePriceResponseDTO dto = new EffectivePriceResponseDTO();
+        dto.setProductId(p.product().id());
+        dto.setAt(p.at());
+        dto.setRawPrice(p.rawPrice());
+        dto.setCurrencyCode(p.product().currencyCode());
+        dto.setPriceVersionId(p.version() != null ? p.version().id() : null);
+        dto.setCampaignId(p.version() != null ? p.version().campaignId() : null);
+        return dto;
+    }
 }
@@ -44,6 +44,29 @@ public class Coupon {
     @Column(name = "used_count")
     private Integer usedCount;
 
+    /**
+     * Permits handed to instances, unused or held by a reserved or committed use; kept at or
+     * below {@code usageLimit}. Null until the first reservation after the coupon was capped.
+     */
+    @Column(name = "permits_leased")
+    private Integer permitsLeased;
+
+    /** Uses allowed to each user; null means no per-user limit. */
+    @Column(name = "per_user_limit")
+    private Integer perUserLimit;
+
+    /** Rules in the same stack group never apply together; null means the default group of the rule's kind. */
+    @Column(name = "stack_group", length = 50)
+    private String stackGroup;
+
+    /** Preferred over an alternative that gives the same discount; higher wins. */
+    @Column(name = "priority")
+    private Integer priority;
+
+    /** An exclusive rule is never combined with any other rule on the same line. */
+    @Column(name = "is_exclusive")
+    private Boolean isExclusive;
+
     @Column(name = "is_active")
     private Boolean isActive;
 
@@ -61,6 +84,8 @@ public class Coupon {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
         if (isActive == null) isActive = true;
+        if (priority == null) priority = 0;
+        if (isExclusive == null) isExclusive = false;
         if (usedCount == null) usedCount = 0;
         if (minOrderAmount == null) minOrderAmount = BigDecimal.ZERO;
     }
@@ -0,0 +1,79 @@
+package com.nsbm.bunmart.pricing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One use of a coupon held for an order. A reservation is taken when the order is created and is
+ * then committed on payment, released on cancellation or expired by the reconciler once
+ * {@code expiresAt} passes.
+ */
+@Entity
+@Table(name = "coupon_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_coupon_reservations_coupon_order", columnNames = {"coupon_id", "order_id"}),
+        indexes = {
+                @Index(name = "idx_coupon_reservations_status_expires", columnList = "status, expires_at"),
+                @Index(name = "idx_coupon_reservations_coupon_status", columnList = "coupon_id, status")
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponReservation {
+
+    public enum Status {
+        RESERVED,
+        COMMITTED,
+        RELEASED,
+        EXPIRED
+    }
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "coupon_code", nullable = false, length = 100)
+    private String couponCode;
+
+    @Column(name = "order_id", nullable = false, length = 100)
+    private String orderId;
+
+    @Column(name = "user_id", length = 100)
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    /** Whether this committed use has been added to {@link Coupon#getUsedCount()}. */
+    @Column(nullable = false)
+    private Boolean counted;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (status == null) status = Status.RESERVED;
+        if (counted == null) counted = false;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,32 @@
+package com.nsbm.bunmart.pricing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Committed uses of a coupon by one user, folded in from reservations by the coupon reconciler
+ * the same way {@link Coupon#getUsedCount()} is.
+ */
+@Entity
+@Table(name = "coupon_user_usages",
+        uniqueConstraints = @UniqueConstraint(name = "uk_coupon_user_usages_coupon_user", columnNames = {"coupon_id", "user_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CouponUserUsage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "coupon_id", nullable = false)
+    private Long couponId;
+
+    @Column(name = "user_id", nullable = false, length = 100)
+    private String userId;
+
+    @Column(name = "used_count", nullable = false)
+    private Integer usedCount;
+}
@@ -34,6 +34,18 @@ public class Discount {
     @Column(length = 500)
     private String description;
 
+    /** Rules in the same stack group never apply together; null means the default group of the rule's kind. */
+    @Column(name = "stack_group", length = 50)
+    private String stackGroup;
+
+    /** Preferred over an alternative that gives the same discount; higher wins. */
+    @Column(name = "priority")
+    private Integer priority;
+
+    /** An exclusive rule is never combined with any other rule on the same line. */
+    @Column(name = "is_exclusive")
+    private Boolean isExclusive;
+
     @Column(name = "is_active")
     private Boolean isActive;
 
@@ -48,6 +60,8 @@ public class Discount {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
         if (isActive == null) isActive = true;
+        if (priority == null) priority = 0;
+        if (isExclusive == null) isExclusive = false;
     }
 
     @PreUpdate
@@ -0,0 +1,77 @@
+package com.nsbm.bunmart.pricing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A limited-quantity sale of one product: {@code tokenCount} units at the sale price, each unit
+ * backed by one pre-allocated {@link FlashSaleToken}.
+ */
+@Entity
+@Table(name = "flash_sales")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FlashSale {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(name = "product_id", nullable = false, length = 36)
+    private String productId;
+
+    /** PERCENT or FIXED, as for coupons. */
+    @Column(nullable = false, length = 50)
+    private String type;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal value;
+
+    @Column(name = "token_count", nullable = false)
+    private Integer tokenCount;
+
+    /** Tokens sold, brought up to date by the flash sale reconciler. */
+    @Column(name = "sold_count")
+    private Integer soldCount;
+
+    @Column(name = "starts_at", nullable = false)
+    private LocalDateTime startsAt;
+
+    @Column(name = "ends_at", nullable = false)
+    private LocalDateTime endsAt;
+
+    /** How long a claim holds its tokens before they return to the pool; null means the configured default. */
+    @Column(name = "claim_ttl_seconds")
+    private Long claimTtlSeconds;
+
+    @Column(name = "is_active")
+    private Boolean isActive;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (isActive == null) isActive = true;
+        if (soldCount == null) soldCount = 0;
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,66 @@
+package com.nsbm.bunmart.pricing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One unit of a flash sale. Tokens are created with the sale and leased in batches by the
+ * instances serving it; a leased token is claimed in memory and only written again once it is
+ * sold.
+ */
+@Entity
+@Table(name = "flash_sale_tokens",
+        uniqueConstraints = @UniqueConstraint(name = "uk_flash_sale_tokens_sale_seq", columnNames = {"flash_sale_id", "seq"}),
+        indexes = {
+                @Index(name = "idx_flash_sale_tokens_sale_status", columnList = "flash_sale_id, status"),
+                @Index(name = "idx_flash_sale_tokens_owner_status", columnList = "lease_owner, status")
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FlashSaleToken {
+
+    public enum Status {
+        AVAILABLE,
+        LEASED,
+        SOLD
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "flash_sale_id", nullable = false)
+    private Long flashSaleId;
+
+    @Column(nullable = false)
+    private Integer seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    /** The instance holding the lease; a lapsed lease may be taken over by another instance. */
+    @Column(name = "lease_owner", length = 36)
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "order_id", length = 100)
+    private String orderId;
+
+    @Column(name = "user_id", length = 100)
+    private String userId;
+
+    @Column(name = "sold_at")
+    private LocalDateTime soldAt;
+
+    /** Whether this sold token has been added to {@link FlashSale#getSoldCount()}. */
+    @Column(nullable = false)
+    private Boolean counted;
+}
@@ -0,0 +1,65 @@
+package com.nsbm.bunmart.pricing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A product price that applies from {@code effectiveFrom} until {@code effectiveTo} (exclusive),
+ * or indefinitely when {@code effectiveTo} is null. Where versions overlap the most recently
+ * created one wins; where none applies the product's own {@code rawPrice} is used. Versions are
+ * never updated, so together they are the price history of the product.
+ * <p>
+ * A {@code basePrice} version records a {@code rawPrice} the product had before it was changed,
+ * over the time it was in force. It ranks below every scheduled version and is written already
+ * ended, so it only answers for past times.
+ */
+@Entity
+@Table(name = "price_versions",
+        indexes = {
+                @Index(name = "idx_price_versions_product_from", columnList = "product_id, effective_from"),
+                @Index(name = "idx_price_versions_to", columnList = "effective_to"),
+                @Index(name = "idx_price_versions_campaign", columnList = "campaign_id")
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceVersion {
+
+    // Sequence ids so a campaign's rows are inserted in JDBC batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_versions_seq")
+    @SequenceGenerator(name = "price_versions_seq", sequenceName = "price_versions_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false, length = 36)
+    private String productId;
+
+    @Column(name = "raw_price", nullable = false, precision = 19, scale = 4)
+    private BigDecimal rawPrice;
+
+    @Column(name = "effective_from", nullable = false)
+    private LocalDateTime effectiveFrom;
+
+    @Column(name = "effective_to")
+    private LocalDateTime effectiveTo;
+
+    @Column(name = "campaign_id", length = 100)
+    private String campaignId;
+
+    @Column(name = "base_price")
+    private Boolean basePrice;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        createdAt = LocalDateTime.now();
+        if (basePrice == null) basePrice = false;
+    }
+}
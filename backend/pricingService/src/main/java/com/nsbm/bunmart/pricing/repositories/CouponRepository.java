@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +26,39 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
     @Transactional
     @Query("UPDATE Coupon c SET c.usedCount = c.usedCount + 1 WHERE c.id = :id")
     int incrementUsageCount(@Param("id") Long id);
-}
\ No newline at end of file
+
+    /**
+     * Adds folded uses; stamps {@code updatedAt} as entity updates do, so other instances see it.
+     */
+    @Modifying
+    @Query("UPDATE Coupon c SET c.usedCount = COALESCE(c.usedCount, 0) + :count, c.updatedAt = :now WHERE c.id = :id")
+    int addUsage(@Param("id") Long id, @Param("count") int count, @Param("now") LocalDateTime now);
+
+    @Query("SELECT c.id FROM Coupon c WHERE c.updatedAt > :since")
+    List<Long> findIdsUpdatedAfter(@Param("since") LocalDateTime since);
+
+    @Query("SELECT c.id FROM Coupon c WHERE c.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Records that every use so far holds a permit. Only the first caller after the coupon was
+     * capped succeeds.
+     */
+    @Modifying
+    @Query("UPDATE Coupon c SET c.permitsLeased = :consumed WHERE c.id = :id AND c.permitsLeased IS NULL")
+    int initPermits(@Param("id") Long id, @Param("consumed") int consumed);
+
+    @Query("SELECT c.usageLimit - c.permitsLeased FROM Coupon c WHERE c.id = :id AND c.usageLimit IS NOT NULL")
+    Optional<Integer> findUnleasedPermits(@Param("id") Long id);
+
+    /**
+     * Leases {@code count} permits, only if that keeps the coupon within its limit.
+     */
+    @Modifying
+    @Query("UPDATE Coupon c SET c.permitsLeased = c.permitsLeased + :count WHERE c.id = :id AND c.usageLimit IS NOT NULL AND c.permitsLeased + :count <= c.usageLimit")
+    int leasePermits(@Param("id") Long id, @Param("count") int count);
+
+    @Modifying
+    @Query("UPDATE Coupon c SET c.permitsLeased = c.permitsLeased - :count WHERE c.id = :id AND c.permitsLeased IS NOT NULL")
+    int returnPermits(@Param("id") Long id, @Param("count") int count);
+}
@@ -0,0 +1,72 @@
+package com.nsbm.bunmart.pricing.repositories;
+
+import com.nsbm.bunmart.pricing.model.CouponReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface CouponReservationRepository extends JpaRepository<CouponReservation, String> {
+
+    interface UserUses {
+        String getUserId();
+
+        long getUses();
+    }
+
+    Optional<CouponReservation> findByCouponIdAndOrderId(Long couponId, String orderId);
+
+    List<CouponReservation> findByStatusAndExpiresAtBefore(CouponReservation.Status status, LocalDateTime now, Limit limit);
+
+    /**
+     * Uses of the coupon not yet reflected in {@code Coupon.usedCount}: open reservations plus
+     * commits the reconciler has not folded in.
+     */
+    @Query("SELECT COUNT(r) FROM CouponReservation r WHERE r.couponId = :couponId AND (r.status = :reserved OR (r.status = :committed AND r.counted = false))")
+    long countPending(@Param("couponId") Long couponId,
+                      @Param("reserved") CouponReservation.Status reserved,
+                      @Param("committed") CouponReservation.Status committed);
+
+    /**
+     * {@link #countPending} per user, for reservations made with a user id.
+     */
+    @Query("SELECT r.userId AS userId, COUNT(r) AS uses FROM CouponReservation r WHERE r.couponId = :couponId AND r.userId IS NOT NULL AND (r.status = :reserved OR (r.status = :committed AND r.counted = false)) GROUP BY r.userId")
+    List<UserUses> countPendingByUser(@Param("couponId") Long couponId,
+                                      @Param("reserved") CouponReservation.Status reserved,
+                                      @Param("committed") CouponReservation.Status committed);
+
+    /**
+     * Locks the rows, so reconcilers on two instances never fold the same use twice.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<CouponReservation> findByCouponIdAndStatusAndCountedFalse(Long couponId, CouponReservation.Status status);
+
+    @Query("SELECT DISTINCT r.couponId FROM CouponReservation r WHERE r.status = :committed AND r.counted = false")
+    List<Long> findCouponIdsWithUncounted(@Param("committed") CouponReservation.Status committed);
+
+    /**
+     * Moves a reservation between states only if it is still in {@code from}, so a commit and a
+     * concurrent expiry or release cannot both win.
+     */
+    @Modifying
+    @Query("UPDATE CouponReservation r SET r.status = :to, r.updatedAt = :now WHERE r.id = :id AND r.status = :from")
+    int transition(@Param("id") String id, @Param("from") CouponReservation.Status from,
+                   @Param("to") CouponReservation.Status to, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CouponReservation r SET r.status = :reserved, r.expiresAt = :expiresAt, r.updatedAt = :now WHERE r.id = :id AND r.status = :from")
+    int reopen(@Param("id") String id, @Param("from") CouponReservation.Status from,
+               @Param("reserved") CouponReservation.Status reserved, @Param("expiresAt") LocalDateTime expiresAt,
+               @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE CouponReservation r SET r.counted = true WHERE r.id IN :ids AND r.status = :committed AND r.counted = false")
+    int markCounted(@Param("ids") List<String> ids, @Param("committed") CouponReservation.Status committed);
+}
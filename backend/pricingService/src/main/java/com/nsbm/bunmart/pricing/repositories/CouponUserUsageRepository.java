@@ -0,0 +1,22 @@
+package com.nsbm.bunmart.pricing.repositories;
+
+import com.nsbm.bunmart.pricing.model.CouponUserUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CouponUserUsageRepository extends JpaRepository<CouponUserUsage, Long> {
+    List<CouponUserUsage> findByCouponId(Long couponId);
+
+    /**
+     * Adds {@code count} uses, creating the row on the user's first use.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO coupon_user_usages (coupon_id, user_id, used_count) VALUES (:couponId, :userId, :count) "
+            + "ON CONFLICT (coupon_id, user_id) DO UPDATE SET used_count = coupon_user_usages.used_count + EXCLUDED.used_count",
+            nativeQuery = true)
+    int addUsage(@Param("couponId") Long couponId, @Param("userId") String userId, @Param("count") int count);
+}
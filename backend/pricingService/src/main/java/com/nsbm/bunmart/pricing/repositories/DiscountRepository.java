@@ -2,10 +2,15 @@ package com.nsbm.bunmart.pricing.repositories;
 
 import com.nsbm.bunmart.pricing.model.Discount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface DiscountRepository extends JpaRepository<Discount, Long> {
     List<Discount> findByProductIdInAndIsActiveTrue(List<String> productIds);
     List<Discount> findByProductIdAndIsActiveTrueOrderByMinQuantityDesc(String productId);
+    List<Discount> findByIsActiveTrue();
+
+    @Query("SELECT COUNT(d) AS total, MAX(d.updatedAt) AS lastChanged FROM Discount d")
+    TableStamp findStamp();
 }
@@ -0,0 +1,13 @@
+package com.nsbm.bunmart.pricing.repositories;
+
+import com.nsbm.bunmart.pricing.model.FlashSale;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface FlashSaleRepository extends JpaRepository<FlashSale, Long> {
+    @Modifying
+    @Query("UPDATE FlashSale s SET s.soldCount = COALESCE(s.soldCount, 0) + :count WHERE s.id = :id")
+    int addSold(@Param("id") Long id, @Param("count") int count);
+}
@@ -0,0 +1,79 @@
+package com.nsbm.bunmart.pricing.repositories;
+
+import com.nsbm.bunmart.pricing.model.FlashSaleToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface FlashSaleTokenRepository extends JpaRepository<FlashSaleToken, Long> {
+
+    /**
+     * Creates tokens {@code from} to {@code to} of the sale in one statement.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO flash_sale_tokens (flash_sale_id, seq, status, counted) "
+            + "SELECT :saleId, s, 'AVAILABLE', false FROM generate_series(:from, :to) s",
+            nativeQuery = true)
+    int allocate(@Param("saleId") Long saleId, @Param("from") int from, @Param("to") int to);
+
+    /**
+     * Locks up to {@code limit} tokens that are free to lease: never leased, or leased by another
+     * instance whose lease has lapsed. Rows locked by a concurrent lease are skipped rather than
+     * waited for, so instances leasing from the same sale never queue behind each other.
+     */
+    @Query(value = "SELECT id FROM flash_sale_tokens WHERE flash_sale_id = :saleId "
+            + "AND (status = 'AVAILABLE' OR (status = 'LEASED' AND lease_owner <> :owner AND lease_expires_at < :now)) "
+            + "ORDER BY seq LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Long> findLeasable(@Param("saleId") Long saleId, @Param("owner") String owner,
+                            @Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE FlashSaleToken t SET t.status = :leased, t.leaseOwner = :owner, t.leaseExpiresAt = :until WHERE t.id IN :ids")
+    int lease(@Param("ids") List<Long> ids, @Param("leased") FlashSaleToken.Status leased,
+              @Param("owner") String owner, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE FlashSaleToken t SET t.leaseExpiresAt = :until WHERE t.leaseOwner = :owner AND t.status = :leased")
+    int renewLeases(@Param("owner") String owner, @Param("leased") FlashSaleToken.Status leased,
+                    @Param("until") LocalDateTime until);
+
+    /**
+     * The tokens among {@code ids} whose lease this instance still holds.
+     */
+    @Query("SELECT t.id FROM FlashSaleToken t WHERE t.id IN :ids AND t.status = :leased AND t.leaseOwner = :owner")
+    List<Long> findHeld(@Param("ids") List<Long> ids, @Param("owner") String owner,
+                        @Param("leased") FlashSaleToken.Status leased);
+
+    /**
+     * Sells the tokens only while this instance still holds their lease, so a token whose lease
+     * was taken over can never be sold twice.
+     */
+    @Modifying
+    @Query("UPDATE FlashSaleToken t SET t.status = :sold, t.orderId = :orderId, t.userId = :userId, t.soldAt = :now, "
+            + "t.leaseExpiresAt = null WHERE t.id IN :ids AND t.status = :leased AND t.leaseOwner = :owner")
+    int sell(@Param("ids") List<Long> ids, @Param("owner") String owner, @Param("leased") FlashSaleToken.Status leased,
+             @Param("sold") FlashSaleToken.Status sold, @Param("orderId") String orderId,
+             @Param("userId") String userId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE FlashSaleToken t SET t.status = :available, t.leaseOwner = null, t.leaseExpiresAt = null "
+            + "WHERE t.id IN :ids AND t.status = :leased AND t.leaseOwner = :owner")
+    int returnLeases(@Param("ids") List<Long> ids, @Param("owner") String owner,
+                     @Param("leased") FlashSaleToken.Status leased, @Param("available") FlashSaleToken.Status available);
+
+    @Query("SELECT DISTINCT t.flashSaleId FROM FlashSaleToken t WHERE t.status = :sold AND t.counted = false")
+    List<Long> findSaleIdsWithUncounted(@Param("sold") FlashSaleToken.Status sold);
+
+    /**
+     * Marks the sale's sold tokens as counted and returns how many were; a row is marked by one
+     * reconciler only, however many run at once.
+     */
+    @Modifying
+    @Query("UPDATE FlashSaleToken t SET t.counted = true WHERE t.flashSaleId = :saleId AND t.status = :sold AND t.counted = false")
+    int markCounted(@Param("saleId") Long saleId, @Param("sold") FlashSaleToken.Status sold);
+}
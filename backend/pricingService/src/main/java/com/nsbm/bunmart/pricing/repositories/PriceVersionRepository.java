@@ -0,0 +1,43 @@
+package com.nsbm.bunmart.pricing.repositories;
+
+import com.nsbm.bunmart.pricing.model.PriceVersion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface PriceVersionRepository extends JpaRepository<PriceVersion, Long> {
+    List<PriceVersion> findByProductIdOrderByEffectiveFromAscIdAsc(String productId);
+
+    /**
+     * Versions in effect at {@code now} or starting later; everything the snapshot can still apply.
+     */
+    @Query("SELECT v FROM PriceVersion v WHERE (v.effectiveTo IS NULL OR v.effectiveTo > :now) AND (v.basePrice IS NULL OR v.basePrice = false)")
+    List<PriceVersion> findCurrentAndFuture(@Param("now") LocalDateTime now);
+
+    /**
+     * The versions of the product covering {@code at}, newest first; the first one applies.
+     */
+    @Query("SELECT v FROM PriceVersion v WHERE v.productId = :productId AND v.effectiveFrom <= :at AND (v.effectiveTo IS NULL OR v.effectiveTo > :at) AND (v.basePrice IS NULL OR v.basePrice = false) ORDER BY v.id DESC")
+    List<PriceVersion> findCovering(@Param("productId") String productId, @Param("at") LocalDateTime at, Limit limit);
+
+    /**
+     * The recorded base price of the product covering {@code at}; base price records never overlap.
+     */
+    @Query("SELECT v FROM PriceVersion v WHERE v.productId = :productId AND v.basePrice = true AND v.effectiveFrom <= :at AND v.effectiveTo > :at")
+    List<PriceVersion> findBaseCovering(@Param("productId") String productId, @Param("at") LocalDateTime at, Limit limit);
+
+    /**
+     * The product's latest base price record, whose end is when its current base price took effect.
+     */
+    Optional<PriceVersion> findFirstByProductIdAndBasePriceTrueOrderByEffectiveToDesc(String productId);
+
+    long countByCampaignId(String campaignId);
+
+    @Query("SELECT COUNT(v) AS total, MAX(v.createdAt) AS lastChanged FROM PriceVersion v")
+    TableStamp findStamp();
+}
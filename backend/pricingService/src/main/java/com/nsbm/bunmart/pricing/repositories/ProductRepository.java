@@ -2,9 +2,15 @@ package com.nsbm.bunmart.pricing.repositories;
 
 import com.nsbm.bunmart.pricing.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, String> {
     List<Product> findByIdInAndIsActiveTrue(List<String> productIds);
+
+    List<Product> findByIsActiveTrue();
+
+    @Query("SELECT COUNT(p) AS total, MAX(p.updatedAt) AS lastChanged FROM Product p")
+    TableStamp findStamp();
 }
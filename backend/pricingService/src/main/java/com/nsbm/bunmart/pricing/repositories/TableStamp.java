@@ -0,0 +1,13 @@
+package com.nsbm.bunmart.pricing.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * How many rows a table holds and when the latest of them was written. Any insert, update or
+ * delete changes one or the other, so comparing two stamps tells whether the table changed.
+ */
+public interface TableStamp {
+    long getTotal();
+
+    LocalDateTime getLastChanged();
+}
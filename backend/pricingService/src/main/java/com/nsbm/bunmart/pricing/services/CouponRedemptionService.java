@@ -0,0 +1,453 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.errors.CouponReservationNotFoundException;
+import com.nsbm.bunmart.pricing.errors.CouponReservationStateException;
+import com.nsbm.bunmart.pricing.errors.CouponUnavailableException;
+import com.nsbm.bunmart.pricing.events.PricingDataChangedEvent;
+import com.nsbm.bunmart.pricing.model.Coupon;
+import com.nsbm.bunmart.pricing.model.CouponReservation;
+import com.nsbm.bunmart.pricing.repositories.CouponRepository;
+import com.nsbm.bunmart.pricing.repositories.CouponReservationRepository;
+import com.nsbm.bunmart.pricing.repositories.CouponUserUsageRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.nsbm.bunmart.pricing.model.CouponReservation.Status.COMMITTED;
+import static com.nsbm.bunmart.pricing.model.CouponReservation.Status.EXPIRED;
+import static com.nsbm.bunmart.pricing.model.CouponReservation.Status.RELEASED;
+import static com.nsbm.bunmart.pricing.model.CouponReservation.Status.RESERVED;
+
+/**
+ * Reserve / commit / release lifecycle for coupon uses.
+ * <p>
+ * Admission for capped coupons happens in memory against permits leased from the database. The
+ * coupon row's {@code permitsLeased} counts every permit handed to any instance, whether still
+ * unused in its pool or held by a reserved or committed use, and a block is only leased with a
+ * conditional update that keeps it at or below {@code usageLimit}. Each instance takes permits
+ * from its own {@link StripedQuota} and goes back to the row once per block, so hundreds of
+ * checkouts on one code contend on striped counters rather than on the coupon row, and however
+ * many instances run, the cap cannot be oversold. A released or expired use hands its permit back
+ * to the row in the same transaction, whichever instance does it; pools left idle for a
+ * reconcile interval, and all pools at shutdown, are handed back too. An instance that dies
+ * strands at most the unused part of its blocks, which can only under-sell.
+ * <p>
+ * The reservation table is the durable record; {@code Coupon.usedCount} is brought up to date by
+ * the periodic {@link #reconcile()}, which also expires abandoned reservations.
+ * <p>
+ * Coupons with a per-user limit also take a use from the user's count in {@link CouponUsageIndex}
+ * before the reservation is written, and the reconciler folds committed uses into each user's
+ * {@code coupon_user_usages} row alongside {@code usedCount}.
+ */
+@Slf4j
+@Service
+public class CouponRedemptionService {
+
+    private static final int EXPIRY_BATCH_SIZE = 500;
+    private static final int LEASE_ATTEMPTS = 5;
+
+    /**
+     * Permits this instance has leased and not used yet. {@code used} is cleared by each reconcile
+     * and set by every acquire, so a pool nobody touched for an interval is handed back.
+     */
+    private static final class PermitPool {
+
+        private final StripedQuota permits = new StripedQuota(0);
+        private volatile boolean used = true;
+    }
+
+    private final CouponRepository couponRepository;
+    private final CouponReservationRepository reservationRepository;
+    private final CouponUserUsageRepository couponUserUsageRepository;
+    private final CouponRegistry couponRegistry;
+    private final CouponUsageIndex couponUsageIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final long defaultTtlSeconds;
+    private final int permitBlockSize;
+    private final Map<Long, PermitPool> pools = new ConcurrentHashMap<>();
+
+    public CouponRedemptionService(CouponRepository couponRepository, CouponReservationRepository reservationRepository,
+                                   CouponUserUsageRepository couponUserUsageRepository, CouponRegistry couponRegistry,
+                                   CouponUsageIndex couponUsageIndex, ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${pricing.coupons.reservation-ttl-seconds:900}") long defaultTtlSeconds,
+                                   @Value("${pricing.coupons.permit-block-size:20}") int permitBlockSize) {
+        this.couponRepository = couponRepository;
+        this.reservationRepository = reservationRepository;
+        this.couponUserUsageRepository = couponUserUsageRepository;
+        this.couponRegistry = couponRegistry;
+        this.couponUsageIndex = couponUsageIndex;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.permitBlockSize = Math.max(1, permitBlockSize);
+    }
+
+    /**
+     * Holds one use of the coupon for the order. Repeating the call for the same order returns the
+     * reservation already held, so callers can retry safely.
+     */
+    public CouponReservation reserve(String couponCode, String orderId, String userId, Long ttlSeconds) {
+        if (couponCode == null || couponCode.isBlank()) {
+            throw new IllegalArgumentException("couponCode is required");
+        }
+        if (orderId == null || orderId.isBlank()) {
+            throw new IllegalArgumentException("orderId is required");
+        }
+        if (ttlSeconds != null && ttlSeconds <= 0) {
+            throw new IllegalArgumentException("ttlSeconds must be positive");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        CouponRegistry.CouponRule coupon = couponRegistry.findValid(couponCode.trim(), now);
+        if (coupon == null) {
+            throw new CouponUnavailableException("Coupon is not valid: " + couponCode);
+        }
+        CouponReservation existing = reservationRepository.findByCouponIdAndOrderId(coupon.id(), orderId).orElse(null);
+        if (existing != null && (existing.getStatus() == RESERVED || existing.getStatus() == COMMITTED)) {
+            return existing;
+        }
+
+        // A reopened reservation keeps the user it was made for
+        String user = existing != null ? existing.getUserId() : userId;
+        boolean perUser = coupon.perUserLimit() != null;
+        if (perUser) {
+            if (user == null || user.isBlank()) {
+                throw new IllegalArgumentException("userId is required for coupon " + coupon.code());
+            }
+            if (!couponUsageIndex.tryAcquire(coupon.id(), user, coupon.perUserLimit())) {
+                throw new CouponUnavailableException("Coupon usage limit per user reached: " + coupon.code());
+            }
+        }
+        PermitPool permits;
+        try {
+            permits = coupon.usageLimit() != null ? acquirePermit(coupon.id(), coupon.code()) : null;
+        } catch (RuntimeException e) {
+            if (perUser) {
+                couponUsageIndex.abandon(coupon.id(), user);
+            }
+            throw e;
+        }
+        LocalDateTime expiresAt = now.plusSeconds(ttlSeconds != null ? ttlSeconds : defaultTtlSeconds);
+        try {
+            CouponReservation saved = transaction.execute(status -> existing != null
+                    ? reopen(existing, expiresAt, now)
+                    : reservationRepository.saveAndFlush(CouponReservation.builder()
+                            .id(UUID.randomUUID().toString())
+                            .couponId(coupon.id())
+                            .couponCode(coupon.code())
+                            .orderId(orderId)
+                            .userId(userId)
+                            .status(RESERVED)
+                            .expiresAt(expiresAt)
+                            .build()));
+            if (saved == null) {
+                throw new CouponReservationStateException("Reservation for order " + orderId + " changed concurrently");
+            }
+            if (perUser) {
+                couponUsageIndex.written(coupon.id(), user);
+            }
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent call for the same order won the insert; its reservation holds the use
+            releasePermit(permits);
+            if (perUser) {
+                couponUsageIndex.abandon(coupon.id(), user);
+            }
+            return reservationRepository.findByCouponIdAndOrderId(coupon.id(), orderId)
+                    .orElseThrow(() -> e);
+        } catch (RuntimeException e) {
+            releasePermit(permits);
+            if (perUser) {
+                couponUsageIndex.abandon(coupon.id(), user);
+            }
+            throw e;
+        }
+    }
+
+    public CouponReservation getReservation(String reservationId) {
+        return reservationRepository.findById(reservationId)
+                .orElseThrow(() -> new CouponReservationNotFoundException("Coupon reservation not found: " + reservationId));
+    }
+
+    /**
+     * Turns the reservation into a permanent use, typically once the order is paid. Committing a
+     * committed reservation is a no-op.
+     */
+    public CouponReservation commit(String reservationId) {
+        return transaction.execute(status -> {
+            CouponReservation reservation = getReservation(reservationId);
+            if (reservation.getStatus() == COMMITTED) {
+                return reservation;
+            }
+            if (reservation.getStatus() != RESERVED
+                    || reservationRepository.transition(reservationId, RESERVED, COMMITTED, LocalDateTime.now()) == 0) {
+                throw new CouponReservationStateException("Coupon reservation " + reservationId + " is no longer held");
+            }
+            reservation.setStatus(COMMITTED);
+            return reservation;
+        });
+    }
+
+    /**
+     * Gives the use back, typically when the order is cancelled. Releasing a reservation that was
+     * already released or has expired is a no-op; a committed use cannot be released.
+     */
+    public CouponReservation release(String reservationId) {
+        long[] stamp = {0};
+        CouponReservation released = transaction.execute(status -> {
+            CouponReservation reservation = getReservation(reservationId);
+            stamp[0] = couponUsageIndex.stamp(reservation.getCouponId());
+            if (reservation.getStatus() == COMMITTED) {
+                throw new CouponReservationStateException("Coupon reservation " + reservationId + " is already committed");
+            }
+            if (reservation.getStatus() != RESERVED
+                    || reservationRepository.transition(reservationId, RESERVED, RELEASED, LocalDateTime.now()) == 0) {
+                return null;
+            }
+            // Committed together with the release, so the permit can never be counted twice
+            couponRepository.returnPermits(reservation.getCouponId(), 1);
+            reservation.setStatus(RELEASED);
+            return reservation;
+        });
+        if (released == null) {
+            return getReservation(reservationId);
+        }
+        couponUsageIndex.release(released.getCouponId(), released.getUserId(), stamp[0]);
+        return released;
+    }
+
+    /**
+     * Expires reservations past their deadline, folds committed uses into {@code Coupon.usedCount}
+     * with one update per coupon, and hands back permits of pools left idle since the last run.
+     */
+    @Scheduled(fixedDelayString = "${pricing.coupons.reconcile-interval-ms:30000}",
+            initialDelayString = "${pricing.coupons.reconcile-interval-ms:30000}")
+    public void reconcile() {
+        try {
+            int expired = expireReservations();
+            int folded = foldCommittedUses();
+            int returned = returnIdlePermits();
+            couponUsageIndex.refresh();
+            if (expired > 0 || folded > 0 || returned > 0) {
+                log.info("Coupon reconcile: {} reservations expired, {} uses counted, {} idle permits returned",
+                        expired, folded, returned);
+            }
+        } catch (RuntimeException e) {
+            log.error("Coupon reconcile failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A coupon edit may have lowered its limit, so this instance stops spending permits leased
+     * under the old one; the next reservation leases against the new limit.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPricingDataChanged(PricingDataChangedEvent event) {
+        if (event.source() != PricingDataChangedEvent.Source.COUPON) {
+            return;
+        }
+        PermitPool pool = pools.get(Long.valueOf(event.id()));
+        if (pool != null) {
+            returnPermits(Long.valueOf(event.id()), pool);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.forEach(this::returnPermits);
+    }
+
+    private CouponReservation reopen(CouponReservation reservation, LocalDateTime expiresAt, LocalDateTime now) {
+        if (reservationRepository.reopen(reservation.getId(), reservation.getStatus(), RESERVED, expiresAt, now) == 0) {
+            return null;
+        }
+        reservation.setStatus(RESERVED);
+        reservation.setExpiresAt(expiresAt);
+        return reservation;
+    }
+
+    private int expireReservations() {
+        int expired = 0;
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            List<CouponReservation> due = reservationRepository.findByStatusAndExpiresAtBefore(RESERVED, now,
+                    Limit.of(EXPIRY_BATCH_SIZE));
+            if (due.isEmpty()) {
+                return expired;
+            }
+            Map<Long, Long> stamps = new HashMap<>();
+            List<CouponReservation> expiredReservations = transaction.execute(status -> {
+                List<CouponReservation> transitioned = new ArrayList<>();
+                Map<Long, Integer> permitsByCoupon = new HashMap<>();
+                for (CouponReservation reservation : due) {
+                    stamps.computeIfAbsent(reservation.getCouponId(), couponUsageIndex::stamp);
+                    // A commit or release that got there first keeps its result
+                    if (reservationRepository.transition(reservation.getId(), RESERVED, EXPIRED, now) == 1) {
+                        transitioned.add(reservation);
+                        permitsByCoupon.merge(reservation.getCouponId(), 1, Integer::sum);
+                    }
+                }
+                permitsByCoupon.forEach(couponRepository::returnPermits);
+                return transitioned;
+            });
+            for (CouponReservation reservation : expiredReservations) {
+                couponUsageIndex.release(reservation.getCouponId(), reservation.getUserId(),
+                        stamps.get(reservation.getCouponId()));
+            }
+            expired += expiredReservations.size();
+            if (due.size() < EXPIRY_BATCH_SIZE) {
+                return expired;
+            }
+        }
+    }
+
+    private int foldCommittedUses() {
+        int folded = 0;
+        for (Long couponId : reservationRepository.findCouponIdsWithUncounted(COMMITTED)) {
+            Integer counted = transaction.execute(status -> {
+                List<CouponReservation> uncounted = reservationRepository.findByCouponIdAndStatusAndCountedFalse(couponId, COMMITTED);
+                if (uncounted.isEmpty()) {
+                    return 0;
+                }
+                // The rows are locked, so every one of them is marked here
+                int count = reservationRepository.markCounted(uncounted.stream().map(CouponReservation::getId).toList(), COMMITTED);
+                if (count > 0) {
+                    couponRepository.addUsage(couponId, count, LocalDateTime.now());
+                    Map<String, Integer> byUser = new HashMap<>();
+                    for (CouponReservation reservation : uncounted) {
+                        if (reservation.getUserId() != null) {
+                            byUser.merge(reservation.getUserId(), 1, Integer::sum);
+                        }
+                    }
+                    byUser.forEach((user, uses) -> couponUserUsageRepository.addUsage(couponId, user, uses));
+                    eventPublisher.publishEvent(new PricingDataChangedEvent(PricingDataChangedEvent.Source.COUPON,
+                            String.valueOf(couponId)));
+                }
+                return count;
+            });
+            folded += counted != null ? counted : 0;
+        }
+        return folded;
+    }
+
+    /**
+     * Takes one permit for a capped coupon, leasing a block from the coupon row when this
+     * instance's pool is empty. Returns null when the coupon turns out not to be capped.
+     */
+    private PermitPool acquirePermit(Long couponId, String couponCode) {
+        PermitPool pool = pools.computeIfAbsent(couponId, id -> new PermitPool());
+        pool.used = true;
+        if (pool.permits.tryAcquire()) {
+            return pool;
+        }
+        synchronized (pool) {
+            // Another thread may have leased a block while this one waited
+            if (pool.permits.tryAcquire()) {
+                return pool;
+            }
+            int leased = leaseBlock(couponId);
+            if (leased < 0) {
+                return null;
+            }
+            if (leased == 0) {
+                throw new CouponUnavailableException("Coupon usage limit reached: " + couponCode);
+            }
+            // One of the block is this caller's
+            pool.permits.adjust(leased - 1);
+            return pool;
+        }
+    }
+
+    /**
+     * Leases up to a block of permits; returns how many, 0 when the cap is reached or -1 when the
+     * coupon has no cap.
+     */
+    private int leaseBlock(Long couponId) {
+        Integer leased = transaction.execute(status -> {
+            Coupon coupon = couponRepository.findById(couponId).orElse(null);
+            if (coupon == null || coupon.getUsageLimit() == null) {
+                return -1;
+            }
+            if (coupon.getPermitsLeased() == null) {
+                // First lease since the coupon was capped: every use so far holds a permit
+                couponRepository.initPermits(couponId, consumed(coupon));
+            }
+            for (int attempt = 0; attempt < LEASE_ATTEMPTS; attempt++) {
+                Integer unleased = couponRepository.findUnleasedPermits(couponId).orElse(null);
+                if (unleased == null) {
+                    return -1;
+                }
+                if (unleased <= 0) {
+                    return 0;
+                }
+                int block = Math.min(permitBlockSize, unleased);
+                // Another instance may lease in between; the update only succeeds within the cap
+                if (couponRepository.leasePermits(couponId, block) == 1) {
+                    return block;
+                }
+            }
+            return 0;
+        });
+        return leased != null ? leased : 0;
+    }
+
+    private int returnIdlePermits() {
+        int returned = 0;
+        for (Map.Entry<Long, PermitPool> entry : pools.entrySet()) {
+            PermitPool pool = entry.getValue();
+            if (pool.used) {
+                pool.used = false;
+            } else {
+                returned += returnPermits(entry.getKey(), pool);
+            }
+        }
+        return returned;
+    }
+
+    private int returnPermits(Long couponId, PermitPool pool) {
+        int drained;
+        synchronized (pool) {
+            drained = pool.permits.drain();
+        }
+        if (drained == 0) {
+            return 0;
+        }
+        try {
+            transaction.executeWithoutResult(status -> couponRepository.returnPermits(couponId, drained));
+            return drained;
+        } catch (RuntimeException e) {
+            // Still leased to this instance, so they can still be used here
+            pool.permits.adjust(drained);
+            log.warn("Permits of coupon {} could not be returned: {}", couponId, e.getMessage());
+            return 0;
+        }
+    }
+
+    private int consumed(Coupon coupon) {
+        int used = coupon.getUsedCount() != null ? coupon.getUsedCount() : 0;
+        return used + (int) reservationRepository.countPending(coupon.getId(), RESERVED, COMMITTED);
+    }
+
+    private static void releasePermit(PermitPool pool) {
+        if (pool != null) {
+            pool.permits.release();
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.events.PricingDataChangedEvent;
+import com.nsbm.bunmart.pricing.model.Coupon;
+import com.nsbm.bunmart.pricing.repositories.CouponRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory registry of the coupons that can currently be redeemed, indexed by code and by
+ * product. Price calculation and coupon validation look up only the coupons for the products and
+ * code in the request instead of loading every valid coupon in the system.
+ * <p>
+ * Coupons with an expiry sit on a timeline ordered by {@code expiresAt}; lookups first drop every
+ * coupon whose time has passed, which costs a single comparison when nothing is due. Coupon writes
+ * reload just the written coupon after commit. Writes committed by other instances, including the
+ * usage counts they fold in, are picked up by a periodic reload of the coupons written since the
+ * last one. Coupons that appear, change or drop out are recorded in the {@link PriceChangeJournal}.
+ */
+@Slf4j
+@Component
+public class CouponRegistry {
+
+    /**
+     * A redeemable coupon; {@code valueUnits} and {@code minOrderUnits} are the same amounts as
+     * {@link Money} units.
+     */
+    public record CouponRule(Long id, String code, String productId, Integer minQuantity, String type,
+                             BigDecimal value, String description, BigDecimal minOrderAmount,
+                             Integer usageLimit, Integer usedCount, LocalDateTime expiresAt,
+                             PricingSnapshot.Adjustment adjustment, long valueUnits, long minOrderUnits,
+                             String stackGroup, int priority, boolean exclusive, Integer perUserLimit) {
+
+        static CouponRule of(Coupon coupon) {
+            return new CouponRule(coupon.getId(), coupon.getCode(), coupon.getProductId(), coupon.getMinQuantity(),
+                    coupon.getType(), coupon.getValue(), coupon.getDescription(), coupon.getMinOrderAmount(),
+                    coupon.getUsageLimit(), coupon.getUsedCount(), coupon.getExpiresAt(),
+                    PricingSnapshot.Adjustment.of(coupon.getType(), coupon.getValue()), Money.of(coupon.getValue()),
+                    Money.of(coupon.getMinOrderAmount()), coupon.getStackGroup(),
+                    coupon.getPriority() != null ? coupon.getPriority() : 0, Boolean.TRUE.equals(coupon.getIsExclusive()),
+                    coupon.getPerUserLimit());
+        }
+
+        /**
+         * Same rule as {@code CouponRepository.findValidCoupons}: not expired and not used up.
+         */
+        public boolean isValidAt(LocalDateTime now) {
+            return (expiresAt == null || expiresAt.isAfter(now))
+                    && (usageLimit == null || (usedCount != null && usedCount < usageLimit));
+        }
+
+        public boolean isOrderLevel() {
+            return productId == null || productId.isBlank();
+        }
+
+        /**
+         * Whether both describe the same discount, ignoring usage counts.
+         */
+        boolean samePricing(CouponRule other) {
+            return Objects.equals(code, other.code) && Objects.equals(productId, other.productId)
+                    && Objects.equals(minQuantity, other.minQuantity) && adjustment == other.adjustment
+                    && valueUnits == other.valueUnits && minOrderUnits == other.minOrderUnits
+                    && Objects.equals(description, other.description) && Objects.equals(expiresAt, other.expiresAt)
+                    && Objects.equals(stackGroup, other.stackGroup) && priority == other.priority
+                    && exclusive == other.exclusive;
+        }
+    }
+
+    private record Expiry(LocalDateTime expiresAt, Long couponId) {
+    }
+
+    private static final int RELOAD_LOCK_STRIPES = 64;
+    // How much further back each refresh looks, for writes committed late or stamped by a clock behind ours
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+    private static final Comparator<CouponRule> BY_ID =
+            Comparator.comparing(CouponRule::id, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final CouponRepository couponRepository;
+    private final PriceChangeJournal priceChangeJournal;
+    private final Map<Long, CouponRule> byId = new ConcurrentHashMap<>();
+    private final Map<String, CouponRule> byCode = new ConcurrentHashMap<>();
+    private final Map<String, List<CouponRule>> byProduct = new ConcurrentHashMap<>();
+    private final PriorityQueue<Expiry> timeline = new PriorityQueue<>(Comparator.comparing(Expiry::expiresAt));
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final Object[] reloadLocks = new Object[RELOAD_LOCK_STRIPES];
+
+    private volatile LocalDateTime nextExpiry;
+    // Coupons written before this are in the registry as written
+    private volatile LocalDateTime refreshedFrom;
+    private volatile boolean loaded;
+    private volatile boolean rebuilding;
+
+    public CouponRegistry(CouponRepository couponRepository, PriceChangeJournal priceChangeJournal) {
+        this.couponRepository = couponRepository;
+        this.priceChangeJournal = priceChangeJournal;
+        for (int i = 0; i < RELOAD_LOCK_STRIPES; i++) {
+            reloadLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Redeemable coupons bound to the product, in id order.
+     */
+    public List<CouponRule> productCoupons(String productId, LocalDateTime now) {
+        prepare(now);
+        List<CouponRule> coupons = productId == null ? null : byProduct.get(productId);
+        if (coupons == null) {
+            return List.of();
+        }
+        List<CouponRule> valid = new ArrayList<>(coupons.size());
+        for (CouponRule coupon : coupons) {
+            if (coupon.isValidAt(now)) {
+                valid.add(coupon);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * The redeemable coupon with this code, or null.
+     */
+    public CouponRule findValid(String code, LocalDateTime now) {
+        prepare(now);
+        CouponRule coupon = code == null ? null : byCode.get(code);
+        return coupon != null && coupon.isValidAt(now) ? coupon : null;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPricingDataChanged(PricingDataChangedEvent event) {
+        if (event.source() != PricingDataChangedEvent.Source.COUPON) {
+            return;
+        }
+        Long couponId = Long.valueOf(event.id());
+        if (rebuilding) {
+            changedDuringRebuild.add(couponId);
+        }
+        reload(couponId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        rebuilding = true;
+        changedDuringRebuild.clear();
+        try {
+            LocalDateTime readAt = LocalDateTime.now();
+            List<Coupon> valid = couponRepository.findValidCoupons(LocalDateTime.now());
+            synchronized (this) {
+                byId.clear();
+                byCode.clear();
+                byProduct.clear();
+                timeline.clear();
+                LocalDateTime now = LocalDateTime.now();
+                valid.forEach(coupon -> put(CouponRule.of(coupon), now));
+                nextExpiry = timeline.isEmpty() ? null : timeline.peek().expiresAt();
+                refreshedFrom = readAt;
+                loaded = true;
+            }
+        } finally {
+            rebuilding = false;
+        }
+        // The bulk load may have read a coupon before a concurrent commit; reload those coupons
+        if (!changedDuringRebuild.isEmpty()) {
+            Set<Long> changed = new HashSet<>(changedDuringRebuild);
+            changedDuringRebuild.removeAll(changed);
+            changed.forEach(this::reload);
+        }
+        log.info("Coupon registry built with {} coupons in {} ms", size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Reloads the coupons written since the last refresh, and those held here that have since been
+     * deleted, so writes made on other instances arrive here too.
+     */
+    @Scheduled(fixedDelayString = "${pricing.coupons.refresh-interval-ms:10000}",
+            initialDelayString = "${pricing.coupons.refresh-interval-ms:10000}")
+    public void refresh() {
+        LocalDateTime from = refreshedFrom;
+        if (from == null) {
+            return;
+        }
+        try {
+            LocalDateTime started = LocalDateTime.now();
+            Set<Long> changed = new HashSet<>(couponRepository.findIdsUpdatedAfter(from.minus(REFRESH_OVERLAP)));
+            Set<Long> held = new HashSet<>(byId.keySet());
+            if (!held.isEmpty()) {
+                couponRepository.findExistingIds(held).forEach(held::remove);
+                changed.addAll(held);
+            }
+            changed.forEach(this::reload);
+            refreshedFrom = started;
+        } catch (RuntimeException e) {
+            log.error("Coupon registry refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void prepare(LocalDateTime now) {
+        if (!loaded) {
+            rebuild();
+        }
+        LocalDateTime due = nextExpiry;
+        if (due != null && !due.isAfter(now)) {
+            expire(now);
+        }
+    }
+
+    /**
+     * Re-reads one coupon and applies it. The read and the apply run under a lock per coupon, so
+     * when two commits race, the reload that reads last also applies last and an older row can
+     * never overwrite a newer one.
+     */
+    private void reload(Long couponId) {
+        synchronized (reloadLocks[Math.floorMod(couponId.hashCode(), RELOAD_LOCK_STRIPES)]) {
+            Coupon coupon = couponRepository.findById(couponId).orElse(null);
+            CouponRule rule = coupon != null && Boolean.TRUE.equals(coupon.getIsActive()) ? CouponRule.of(coupon) : null;
+            synchronized (this) {
+                CouponRule before = remove(couponId);
+                if (rule != null) {
+                    put(rule, LocalDateTime.now());
+                }
+                nextExpiry = timeline.isEmpty() ? null : timeline.peek().expiresAt();
+                priceChangeJournal.recordCoupon(before, byId.get(couponId));
+            }
+        }
+    }
+
+    private synchronized void expire(LocalDateTime now) {
+        int dropped = 0;
+        while (!timeline.isEmpty() && !timeline.peek().expiresAt().isAfter(now)) {
+            Expiry expiry = timeline.poll();
+            CouponRule current = byId.get(expiry.couponId());
+            // Entries left behind by an update that moved the expiry are skipped
+            if (current != null && expiry.expiresAt().equals(current.expiresAt())) {
+                remove(expiry.couponId());
+                priceChangeJournal.recordCoupon(current, null);
+                dropped++;
+            }
+        }
+        nextExpiry = timeline.isEmpty() ? null : timeline.peek().expiresAt();
+        if (dropped > 0) {
+            log.debug("Dropped {} expired coupons", dropped);
+        }
+    }
+
+    private void put(CouponRule rule, LocalDateTime now) {
+        if (rule.id() == null || !rule.isValidAt(now)) {
+            return;
+        }
+        byId.put(rule.id(), rule);
+        if (rule.code() != null) {
+            byCode.put(rule.code(), rule);
+        }
+        if (!rule.isOrderLevel()) {
+            // Lists are replaced, never mutated, so readers iterate them without locking
+            byProduct.compute(rule.productId(), (productId, existing) -> {
+                List<CouponRule> coupons = existing == null ? new ArrayList<>() : new ArrayList<>(existing);
+                coupons.add(rule);
+                coupons.sort(BY_ID);
+                return List.copyOf(coupons);
+            });
+        }
+        if (rule.expiresAt() != null) {
+            timeline.add(new Expiry(rule.expiresAt(), rule.id()));
+        }
+    }
+
+    private CouponRule remove(Long couponId) {
+        CouponRule old = byId.remove(couponId);
+        if (old == null) {
+            return null;
+        }
+        if (old.code() != null) {
+            byCode.remove(old.code(), old);
+        }
+        if (!old.isOrderLevel()) {
+            byProduct.computeIfPresent(old.productId(), (productId, existing) -> {
+                List<CouponRule> coupons = new ArrayList<>(existing);
+                coupons.removeIf(c -> couponId.equals(c.id()));
+                return coupons.isEmpty() ? null : List.copyOf(coupons);
+            });
+        }
+        return old;
+    }
+}
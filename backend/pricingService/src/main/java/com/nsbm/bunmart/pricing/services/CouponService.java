@@ -1,9 +1,11 @@
 package com.nsbm.bunmart.pricing.services;
 
 import com.nsbm.bunmart.pricing.errors.CouponNotFoundException;
+import com.nsbm.bunmart.pricing.events.PricingDataChangedEvent;
 import com.nsbm.bunmart.pricing.model.Coupon;
 import com.nsbm.bunmart.pricing.repositories.CouponRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,9 +20,11 @@ import java.util.Optional;
 public class CouponService {
 
     private final CouponRepository couponRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Coupon create(String code, String productId, Integer minQuantity, String type, BigDecimal value,
-                         String description, BigDecimal minOrderAmount, Integer usageLimit, LocalDateTime expiresAt) {
+                         String description, BigDecimal minOrderAmount, Integer usageLimit, Integer perUserLimit,
+                         LocalDateTime expiresAt, String stackGroup, Integer priority, Boolean isExclusive) {
         Coupon c = new Coupon();
         c.setCode(code);
         c.setProductId(productId);
@@ -30,8 +34,14 @@ public class CouponService {
         c.setDescription(description);
         c.setMinOrderAmount(minOrderAmount != null ? minOrderAmount : BigDecimal.ZERO);
         c.setUsageLimit(usageLimit);
+        c.setPerUserLimit(perUserLimit);
         c.setExpiresAt(expiresAt);
-        return couponRepository.save(c);
+        c.setStackGroup(stackGroup);
+        c.setPriority(priority);
+        c.setIsExclusive(isExclusive);
+        Coupon saved = couponRepository.save(c);
+        publishChanged(saved.getId());
+        return saved;
     }
 
     public Coupon getById(Long id) {
@@ -48,8 +58,9 @@ public class CouponService {
     }
 
     public Coupon update(Long id, String code, String productId, Integer minQuantity, String type, BigDecimal value,
-                         String description, BigDecimal minOrderAmount, Integer usageLimit, Boolean isActive,
-                         LocalDateTime expiresAt) {
+                         String description, BigDecimal minOrderAmount, Integer usageLimit, Integer perUserLimit,
+                         Boolean isActive, LocalDateTime expiresAt, String stackGroup, Integer priority,
+                         Boolean isExclusive) {
         Coupon c = getById(id);
         if (code != null) c.setCode(code);
         if (productId != null) c.setProductId(productId);
@@ -59,13 +70,24 @@ public class CouponService {
         if (description != null) c.setDescription(description);
         if (minOrderAmount != null) c.setMinOrderAmount(minOrderAmount);
         if (usageLimit != null) c.setUsageLimit(usageLimit);
+        if (perUserLimit != null) c.setPerUserLimit(perUserLimit > 0 ? perUserLimit : null);
         if (isActive != null) c.setIsActive(isActive);
         if (expiresAt != null) c.setExpiresAt(expiresAt);
-        return couponRepository.save(c);
+        if (stackGroup != null) c.setStackGroup(stackGroup.isBlank() ? null : stackGroup);
+        if (priority != null) c.setPriority(priority);
+        if (isExclusive != null) c.setIsExclusive(isExclusive);
+        Coupon saved = couponRepository.save(c);
+        publishChanged(saved.getId());
+        return saved;
     }
 
     public void delete(Long id) {
         Coupon c = getById(id);
         couponRepository.delete(c);
+        publishChanged(id);
+    }
+
+    private void publishChanged(Long id) {
+        eventPublisher.publishEvent(new PricingDataChangedEvent(PricingDataChangedEvent.Source.COUPON, String.valueOf(id)));
     }
 }
@@ -0,0 +1,236 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.model.CouponUserUsage;
+import com.nsbm.bunmart.pricing.repositories.CouponReservationRepository;
+import com.nsbm.bunmart.pricing.repositories.CouponUserUsageRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.nsbm.bunmart.pricing.model.CouponReservation.Status.COMMITTED;
+import static com.nsbm.bunmart.pricing.model.CouponReservation.Status.RESERVED;
+
+/**
+ * Per-user use counts of coupons with a per-user limit, held in memory so a limit is checked with
+ * one hash lookup. A coupon's counts are loaded the first time it is checked, from the uses
+ * already folded into {@code coupon_user_usages} plus reservations not yet folded in. From then on
+ * they are updated as reservations are taken and given back, and the database follows behind:
+ * {@link CouponRedemptionService} writes the reservation and its reconciler folds committed uses
+ * into {@code coupon_user_usages}.
+ * <p>
+ * {@link #refresh()} rebuilds each loaded coupon's counts from the database plus the uses this
+ * instance has counted but not yet written, and swaps them in, so uses taken and given back on
+ * other instances show up here. Counts may run ahead of the database for a while but never behind
+ * it: a use is counted before its reservation is written, and a release that a refresh may already
+ * have read from the database is left to the next refresh instead of being subtracted twice.
+ */
+@Component
+public class CouponUsageIndex {
+
+    /**
+     * One coupon's counts. Changes happen under its monitor; {@code counts} is read without it.
+     */
+    private static final class Usage {
+        private volatile Map<String, Integer> counts;
+        // Counted here, reservation not written yet
+        private final Map<String, Integer> unwritten = new HashMap<>();
+        // Unwritten at any time since the running refresh started; null when none is running
+        private Map<String, Integer> carried;
+        // Bumped when a refresh starts and when it swaps in its counts
+        private long stamp;
+
+        private Usage(Map<String, Integer> counts) {
+            this.counts = new ConcurrentHashMap<>(counts);
+        }
+    }
+
+    private final CouponUserUsageRepository usageRepository;
+    private final CouponReservationRepository reservationRepository;
+    private final TransactionTemplate readTransaction;
+    private final Map<Long, Usage> byCoupon = new ConcurrentHashMap<>();
+    private final Object loadLock = new Object();
+
+    public CouponUsageIndex(CouponUserUsageRepository usageRepository, CouponReservationRepository reservationRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.usageRepository = usageRepository;
+        this.reservationRepository = reservationRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        // Both queries see the same moment, so a concurrent fold is counted exactly once
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Whether the user may still use the coupon; always true for a coupon without a per-user limit
+     * or when no user is given.
+     */
+    public boolean allows(CouponRegistry.CouponRule coupon, String userId) {
+        Integer limit = coupon.perUserLimit();
+        if (limit == null || userId == null) {
+            return true;
+        }
+        return usage(coupon.id()).counts.getOrDefault(userId, 0) < limit;
+    }
+
+    /**
+     * The coupons the user may still use, in order; {@code coupons} itself when that is all of them.
+     */
+    public List<CouponRegistry.CouponRule> usable(List<CouponRegistry.CouponRule> coupons, String userId) {
+        if (userId == null) {
+            return coupons;
+        }
+        List<CouponRegistry.CouponRule> usable = null;
+        for (int i = 0; i < coupons.size(); i++) {
+            CouponRegistry.CouponRule coupon = coupons.get(i);
+            if (allows(coupon, userId)) {
+                if (usable != null) {
+                    usable.add(coupon);
+                }
+            } else if (usable == null) {
+                usable = new ArrayList<>(coupons.subList(0, i));
+            }
+        }
+        return usable != null ? usable : coupons;
+    }
+
+    /**
+     * Counts one use by the user unless that would exceed {@code limit}. The caller then reports
+     * the outcome of writing its reservation with {@link #written} or {@link #abandon}.
+     */
+    boolean tryAcquire(Long couponId, String userId, int limit) {
+        Usage usage = usage(couponId);
+        synchronized (usage) {
+            if (usage.counts.getOrDefault(userId, 0) >= limit) {
+                return false;
+            }
+            usage.counts.merge(userId, 1, Integer::sum);
+            usage.unwritten.merge(userId, 1, Integer::sum);
+            if (usage.carried != null) {
+                usage.carried.merge(userId, 1, Integer::sum);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The reservation of a use taken with {@link #tryAcquire} is now in the database.
+     */
+    void written(Long couponId, String userId) {
+        Usage usage = byCoupon.get(couponId);
+        if (usage != null) {
+            synchronized (usage) {
+                decrement(usage.unwritten, userId);
+            }
+        }
+    }
+
+    /**
+     * Gives back a use taken with {@link #tryAcquire} whose reservation was never written.
+     */
+    void abandon(Long couponId, String userId) {
+        Usage usage = byCoupon.get(couponId);
+        if (usage != null) {
+            synchronized (usage) {
+                decrement(usage.counts, userId);
+                decrement(usage.unwritten, userId);
+                if (usage.carried != null) {
+                    decrement(usage.carried, userId);
+                }
+            }
+        }
+    }
+
+    /**
+     * The coupon's refresh stamp, taken before the transaction that releases a reservation and
+     * handed to {@link #release}.
+     */
+    long stamp(Long couponId) {
+        Usage usage = byCoupon.get(couponId);
+        if (usage == null) {
+            return -1;
+        }
+        synchronized (usage) {
+            return usage.stamp;
+        }
+    }
+
+    /**
+     * Gives back a use whose reservation was released or expired, given the {@link #stamp} taken
+     * before the release was committed. When a load or refresh has run since, it may already have
+     * read the release from the database, so the count is left for the next refresh to correct.
+     */
+    void release(Long couponId, String userId, long stamp) {
+        Usage usage = userId != null ? byCoupon.get(couponId) : null;
+        if (usage != null) {
+            synchronized (usage) {
+                if (usage.stamp == stamp) {
+                    decrement(usage.counts, userId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every loaded coupon's counts from the database plus this instance's unwritten uses.
+     */
+    public synchronized void refresh() {
+        for (Map.Entry<Long, Usage> entry : byCoupon.entrySet()) {
+            Usage usage = entry.getValue();
+            synchronized (usage) {
+                usage.stamp++;
+                usage.carried = new HashMap<>(usage.unwritten);
+            }
+            Map<String, Integer> counts;
+            try {
+                counts = load(entry.getKey());
+            } catch (RuntimeException e) {
+                synchronized (usage) {
+                    usage.carried = null;
+                    usage.stamp++;
+                }
+                throw e;
+            }
+            synchronized (usage) {
+                // A use written while the database was read may be counted twice until the next refresh
+                usage.carried.forEach((user, uses) -> counts.merge(user, uses, Integer::sum));
+                usage.counts = new ConcurrentHashMap<>(counts);
+                usage.carried = null;
+                usage.stamp++;
+            }
+        }
+    }
+
+    private Usage usage(Long couponId) {
+        Usage usage = byCoupon.get(couponId);
+        if (usage != null) {
+            return usage;
+        }
+        synchronized (loadLock) {
+            return byCoupon.computeIfAbsent(couponId, id -> new Usage(load(id)));
+        }
+    }
+
+    private static void decrement(Map<String, Integer> counts, String userId) {
+        counts.computeIfPresent(userId, (user, used) -> used > 1 ? used - 1 : null);
+    }
+
+    private Map<String, Integer> load(Long couponId) {
+        return readTransaction.execute(status -> {
+            Map<String, Integer> counts = new HashMap<>();
+            for (CouponReservationRepository.UserUses pending : reservationRepository.countPendingByUser(couponId, RESERVED, COMMITTED)) {
+                counts.merge(pending.getUserId(), (int) pending.getUses(), Integer::sum);
+            }
+            for (CouponUserUsage usage : usageRepository.findByCouponId(couponId)) {
+                counts.merge(usage.getUserId(), usage.getUsedCount(), Integer::sum);
+            }
+            return counts;
+        });
+    }
+}
@@ -0,0 +1,200 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nsbm.bunmart.pricing.errors.CouponValidationThrottledException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Per-client coupon validation counters. Every request that resolves a coupon code, whether it
+ * validates, prices or reserves, is counted against its client, and a client whose codes were
+ * rejected {@code max-rejections-per-minute} times in the current minute is refused for the rest
+ * of that minute without its codes being looked up, so a guessing bot costs one counter check per
+ * attempt.
+ * <p>
+ * Shoppers reach pricing through internal services, so the caller the transport sees, a peer
+ * address or certificate principal, stands for all of them. Callers listed in
+ * {@code trusted-callers} forward the end user or session they act for in the
+ * {@value #CLIENT_HEADER} header, and each forwarded identity is limited on its own; a trusted
+ * call that forwards none, such as a repricing job, is not limited. Any other caller is limited as
+ * itself and what it forwards is ignored, since it could send a new identity with every guess.
+ * <p>
+ * Clients idle for {@link #IDLE} are forgotten, and at most {@code max-clients} are tracked.
+ */
+@Slf4j
+@Service
+public class CouponValidationMonitor {
+
+    private static final Duration IDLE = Duration.ofMinutes(10);
+    private static final String ANONYMOUS = "anonymous";
+
+    /** Header, or gRPC metadata key, in which trusted callers forward the end user or session. */
+    public static final String CLIENT_HEADER = "x-bunmart-client";
+
+    public record ClientStats(String clientId, long attempts, long rejected, long throttled, LocalDateTime lastSeen) {
+    }
+
+    // Guarded by its own monitor
+    private static final class Counters {
+        private long attempts;
+        private long rejected;
+        private long throttled;
+        private long minute;
+        private int rejectedThisMinute;
+        private long lastSeenMillis;
+
+        private void startMinute(long now) {
+            long current = now / 60_000;
+            if (minute != current) {
+                minute = current;
+                rejectedThisMinute = 0;
+            }
+        }
+    }
+
+    private final CouponRegistry couponRegistry;
+    private final int maxRejectionsPerMinute;
+    private final Set<String> trustedCallers;
+    private final Cache<String, Counters> clients;
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    public CouponValidationMonitor(CouponRegistry couponRegistry,
+                                   @Value("${pricing.coupons.validation.max-rejections-per-minute:30}") int maxRejectionsPerMinute,
+                                   @Value("${pricing.coupons.validation.max-clients:100000}") long maxClients,
+                                   @Value("${pricing.coupons.validation.trusted-callers:}") List<String> trustedCallers) {
+        this.couponRegistry = couponRegistry;
+        this.maxRejectionsPerMinute = maxRejectionsPerMinute;
+        this.trustedCallers = trustedCallers.stream()
+                .map(String::trim)
+                .filter(caller -> !caller.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(IDLE)
+                .build();
+    }
+
+    /**
+     * The client a call is limited as: the identity a trusted caller forwarded, null when a trusted
+     * caller forwarded none, and otherwise the caller itself.
+     *
+     * @param caller          the peer principal or address the transport reports
+     * @param forwardedClient the {@value #CLIENT_HEADER} value, if any
+     */
+    public String clientKey(String caller, String forwardedClient) {
+        if (caller != null && trustedCallers.contains(caller)) {
+            return forwardedClient == null || forwardedClient.isBlank() ? null : "client:" + forwardedClient.trim();
+        }
+        return caller == null || caller.isBlank() ? ANONYMOUS : "caller:" + caller.trim();
+    }
+
+    /**
+     * Looks up a coupon code on behalf of a client: admits the client, finds the redeemable coupon
+     * and records whether there was one. Returns null for a blank code, which is not counted; a
+     * null client, from {@link #clientKey}, is not limited.
+     *
+     * @throws CouponValidationThrottledException when the client is over its rejection limit
+     */
+    public CouponRegistry.CouponRule resolve(String clientId, String couponCode) {
+        if (couponCode == null || couponCode.isBlank()) {
+            return null;
+        }
+        if (clientId == null) {
+            return couponRegistry.findValid(couponCode.trim(), LocalDateTime.now());
+        }
+        admit(clientId);
+        CouponRegistry.CouponRule coupon = couponRegistry.findValid(couponCode.trim(), LocalDateTime.now());
+        record(clientId, coupon != null);
+        return coupon;
+    }
+
+    /**
+     * Counts a validation by the client and throws {@link CouponValidationThrottledException} when
+     * it is over its rejection limit for this minute. A blank client id counts as anonymous.
+     */
+    public void admit(String clientId) {
+        String client = client(clientId);
+        Counters counters = clients.get(client, k -> new Counters());
+        long now = System.currentTimeMillis();
+        attempts.increment();
+        synchronized (counters) {
+            counters.attempts++;
+            counters.lastSeenMillis = now;
+            counters.startMinute(now);
+            if (maxRejectionsPerMinute <= 0 || counters.rejectedThisMinute < maxRejectionsPerMinute) {
+                return;
+            }
+            counters.throttled++;
+        }
+        throttled.increment();
+        throw new CouponValidationThrottledException("Too many invalid coupon codes from " + client + "; try again later");
+    }
+
+    /**
+     * Records the outcome of a validation admitted by {@link #admit}.
+     */
+    public void record(String clientId, boolean valid) {
+        if (valid) {
+            return;
+        }
+        rejected.increment();
+        String client = client(clientId);
+        Counters counters = clients.get(client, k -> new Counters());
+        boolean limitReached;
+        synchronized (counters) {
+            counters.rejected++;
+            counters.startMinute(System.currentTimeMillis());
+            limitReached = ++counters.rejectedThisMinute == maxRejectionsPerMinute;
+        }
+        if (limitReached) {
+            log.warn("Coupon validation for {} throttled after {} invalid codes this minute", client, maxRejectionsPerMinute);
+        }
+    }
+
+    public long attempts() {
+        return attempts.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long throttled() {
+        return throttled.sum();
+    }
+
+    /**
+     * The tracked clients with the most rejected codes, most first.
+     */
+    public List<ClientStats> topClients(int limit) {
+        List<ClientStats> stats = new ArrayList<>();
+        clients.asMap().forEach((client, counters) -> {
+            synchronized (counters) {
+                stats.add(new ClientStats(client, counters.attempts, counters.rejected, counters.throttled,
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(counters.lastSeenMillis), ZoneId.systemDefault())));
+            }
+        });
+        stats.sort(Comparator.comparingLong(ClientStats::rejected).reversed()
+                .thenComparing(Comparator.comparingLong(ClientStats::attempts).reversed()));
+        return stats.size() > limit ? new ArrayList<>(stats.subList(0, Math.max(0, limit))) : stats;
+    }
+
+    private static String client(String clientId) {
+        return clientId == null || clientId.isBlank() ? ANONYMOUS : clientId.trim();
+    }
+}
@@ -1,9 +1,11 @@
 package com.nsbm.bunmart.pricing.services;
 
 import com.nsbm.bunmart.pricing.errors.DiscountNotFoundException;
+import com.nsbm.bunmart.pricing.events.PricingDataChangedEvent;
 import com.nsbm.bunmart.pricing.model.Discount;
 import com.nsbm.bunmart.pricing.repositories.DiscountRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,15 +18,22 @@ import java.util.List;
 public class DiscountService {
 
     private final DiscountRepository discountRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public Discount create(String productId, Integer minQuantity, String type, BigDecimal value, String description) {
+    public Discount create(String productId, Integer minQuantity, String type, BigDecimal value, String description,
+                           String stackGroup, Integer priority, Boolean isExclusive) {
         Discount d = new Discount();
         d.setProductId(productId);
         d.setMinQuantity(minQuantity);
         d.setType(type);
         d.setValue(value);
         d.setDescription(description);
-        return discountRepository.save(d);
+        d.setStackGroup(stackGroup);
+        d.setPriority(priority);
+        d.setIsExclusive(isExclusive);
+        Discount saved = discountRepository.save(d);
+        publishChanged(saved.getId());
+        return saved;
     }
 
     public Discount getById(Long id) {
@@ -45,7 +54,8 @@ public class DiscountService {
     }
 
     public Discount update(Long id, String productId, Integer minQuantity, String type, BigDecimal value,
-                           String description, Boolean isActive) {
+                           String description, Boolean isActive, String stackGroup, Integer priority,
+                           Boolean isExclusive) {
         Discount d = getById(id);
         if (productId != null) d.setProductId(productId);
         if (minQuantity != null) d.setMinQuantity(minQuantity);
@@ -53,11 +63,21 @@ public class DiscountService {
         if (value != null) d.setValue(value);
         if (description != null) d.setDescription(description);
         if (isActive != null) d.setIsActive(isActive);
-        return discountRepository.save(d);
+        if (stackGroup != null) d.setStackGroup(stackGroup.isBlank() ? null : stackGroup);
+        if (priority != null) d.setPriority(priority);
+        if (isExclusive != null) d.setIsExclusive(isExclusive);
+        Discount saved = discountRepository.save(d);
+        publishChanged(saved.getId());
+        return saved;
     }
 
     public void delete(Long id) {
         Discount d = getById(id);
         discountRepository.delete(d);
+        publishChanged(id);
+    }
+
+    private void publishChanged(Long id) {
+        eventPublisher.publishEvent(new PricingDataChangedEvent(PricingDataChangedEvent.Source.DISCOUNT, String.valueOf(id)));
     }
 }
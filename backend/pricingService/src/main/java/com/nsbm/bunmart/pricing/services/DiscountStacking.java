@@ -0,0 +1,383 @@
+package com.nsbm.bunmart.pricing.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses which discount tiers and coupons apply to a cart so that it gets the largest discount the
+ * stacking rules allow.
+ * <p>
+ * On a line, at most one rule of each stack group applies; tiers and product coupons without a group
+ * fall into the groups {@code TIER} and {@code COUPON}, so by default one tier stacks with one
+ * coupon. An exclusive rule applies alone, and a line discount never exceeds the line subtotal. The
+ * groups are combined one at a time, keeping only the best combination for each of the largest
+ * reachable amounts, so the work per line is bounded by {@link #LINE_OPTIONS} and the number of
+ * groups rather than growing with the number of combinations. Among combinations worth the same,
+ * the higher total priority wins, then fewer rules, then the one found first: groups are tried
+ * tiers first, and each group's rules largest discount first, then by id.
+ * <p>
+ * An order-level coupon with a minimum order amount can be worth more than the line discounts that
+ * would take the order below that minimum. The order step then picks, from each line's best options,
+ * the combination that gives up the least line discount while keeping the order eligible, and
+ * applies the coupon only if that is worth at least as much as the line discounts alone.
+ */
+final class DiscountStacking {
+
+    /** Distinct amounts each stack group offers a line, and each line offers the order step besides no discount. */
+    static final int LINE_OPTIONS = 8;
+    /** Distinct partial sums kept per line by the order step; beyond this, close sums are merged. */
+    static final int ORDER_STATES = 128;
+
+    private static final String TIER_GROUP = "TIER";
+    private static final String COUPON_GROUP = "COUPON";
+
+    private static final Option EMPTY = new Option(0, 0, 0, -1, null);
+
+    static final LineOptions NONE = new LineOptions(List.of(), new Option[]{EMPTY});
+
+    private static final Comparator<Candidate> BY_ID =
+            Comparator.comparing(Candidate::id, Comparator.nullsLast(Comparator.naturalOrder()));
+    // Sorts are stable, so ties beyond these keep the order in which combinations were found
+    private static final Comparator<Option> BEST_FIRST = (a, b) -> {
+        if (a.amount() != b.amount()) return Long.compare(b.amount(), a.amount());
+        if (a.priority() != b.priority()) return Integer.compare(b.priority(), a.priority());
+        return Integer.compare(a.count(), b.count());
+    };
+
+    private DiscountStacking() {
+    }
+
+    /**
+     * A tier or product coupon that applies to the line, with its line discount in {@link Money} units.
+     */
+    private record Candidate(Long id, String group, int priority, boolean exclusive, long amount, String description) {
+    }
+
+    /**
+     * A combination of candidates: the index of the last candidate added, and the combination it was
+     * added to.
+     */
+    private record Option(long amount, int priority, int count, int rule, Option previous) {
+
+        Option plus(int rule, Candidate candidate, long cap) {
+            return new Option(Math.min(Money.add(amount, candidate.amount()), cap), priority + candidate.priority(),
+                    count + 1, rule, this);
+        }
+    }
+
+    /**
+     * The best combinations for one line, largest discount first; the last one is no discount.
+     */
+    static final class LineOptions {
+
+        private final List<Candidate> candidates;
+        private final Option[] options;
+
+        private LineOptions(List<Candidate> candidates, Option[] options) {
+            this.candidates = candidates;
+            this.options = options;
+        }
+
+        int size() {
+            return options.length;
+        }
+
+        long amount(int option) {
+            return options[option].amount();
+        }
+
+        /**
+         * Descriptions of the rules in the option, tiers before coupons and each in id order.
+         */
+        String description(int option) {
+            Option combination = options[option];
+            if (combination.count() == 1) {
+                return candidates.get(combination.rule()).description();
+            }
+            int[] rules = new int[combination.count()];
+            for (int i = 0; combination.previous() != null; combination = combination.previous()) {
+                rules[i++] = combination.rule();
+            }
+            Arrays.sort(rules);
+            StringBuilder description = new StringBuilder();
+            for (int rule : rules) {
+                if (!description.isEmpty()) description.append("; ");
+                description.append(candidates.get(rule).description());
+            }
+            return description.toString();
+        }
+    }
+
+    /**
+     * Option chosen for each line and the order coupon amount, zero when the coupon is not applied.
+     */
+    record OrderChoice(int[] options, long couponAmount) {
+    }
+
+    /**
+     * Stacking options for {@code qty} units at {@code unitPrice}, from the product's tiers and the
+     * product coupons its quantity reaches. Fixed amounts are in the product's currency and are
+     * converted with {@code rate}, the one {@code unitPrice} was converted with.
+     */
+    static LineOptions line(PricingSnapshot.DiscountTiers tiers, List<CouponRegistry.CouponRule> coupons,
+                            long unitPrice, int qty, FxRateTable.Rate rate) {
+        long subtotal = Money.times(unitPrice, qty);
+        int eligible = tiers.eligible(qty);
+        if (subtotal <= 0 || eligible == 0 && coupons.isEmpty()) {
+            return NONE;
+        }
+
+        List<Candidate> candidates = new ArrayList<>(eligible + coupons.size());
+        for (int i = 0; i < eligible; i++) {
+            PricingSnapshot.DiscountRule tier = tiers.rule(i);
+            long amount = adjustment(tier.adjustment(), tier.valueUnits(), unitPrice, qty, rate);
+            if (amount > 0) {
+                candidates.add(new Candidate(tier.id(), tier.stackGroup() != null ? tier.stackGroup() : TIER_GROUP,
+                        tier.priority(), tier.exclusive(), amount,
+                        tier.description() != null ? tier.description() : "Discount " + tier.type()));
+            }
+        }
+        candidates.sort(BY_ID);
+        int tierCount = candidates.size();
+        for (CouponRegistry.CouponRule coupon : coupons) {
+            if (coupon.minQuantity() == null || qty < coupon.minQuantity()) continue;
+            long amount = adjustment(coupon.adjustment(), coupon.valueUnits(), unitPrice, qty, rate);
+            if (amount > 0) {
+                candidates.add(new Candidate(coupon.id(), coupon.stackGroup() != null ? coupon.stackGroup() : COUPON_GROUP,
+                        coupon.priority(), coupon.exclusive(), amount,
+                        coupon.description() != null ? coupon.description() : "Coupon " + coupon.code()));
+            }
+        }
+        candidates.subList(tierCount, candidates.size()).sort(BY_ID);
+        if (candidates.isEmpty()) {
+            return NONE;
+        }
+
+        Map<String, List<Option>> groups = new LinkedHashMap<>();
+        List<Option> exclusive = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate candidate = candidates.get(i);
+            Option alone = EMPTY.plus(i, candidate, subtotal);
+            if (candidate.exclusive()) {
+                exclusive.add(alone);
+            } else {
+                groups.computeIfAbsent(candidate.group(), k -> new ArrayList<>()).add(alone);
+            }
+        }
+        List<Option> frontier = List.of(EMPTY);
+        for (List<Option> group : groups.values()) {
+            List<Option> members = best(group, LINE_OPTIONS);
+            List<Option> next = new ArrayList<>(frontier.size() * (members.size() + 1));
+            for (Option state : frontier) {
+                next.add(state);
+                for (Option member : members) {
+                    next.add(state.plus(member.rule(), candidates.get(member.rule()), subtotal));
+                }
+            }
+            frontier = best(next, LINE_OPTIONS + 1);
+        }
+        if (!exclusive.isEmpty()) {
+            List<Option> all = new ArrayList<>(frontier);
+            all.addAll(exclusive);
+            frontier = best(all, LINE_OPTIONS + 1);
+        }
+
+        if (frontier.getLast().amount() != 0) {
+            frontier = new ArrayList<>(frontier.subList(0, Math.min(frontier.size(), LINE_OPTIONS)));
+            frontier.add(EMPTY);
+        }
+        return new LineOptions(candidates, frontier.toArray(Option[]::new));
+    }
+
+    /**
+     * Chooses each line's option and whether the order-level {@code coupon} applies, so that the
+     * order's total discount is as large as possible. The coupon's fixed amounts are in the base
+     * currency and are converted into the order's with {@code rate}.
+     */
+    static OrderChoice order(List<LineOptions> lines, long subtotal, CouponRegistry.CouponRule coupon,
+                             FxRateTable.Rate rate) {
+        int[] best = new int[lines.size()];
+        long bestTotal = 0;
+        for (LineOptions line : lines) {
+            bestTotal = Money.add(bestTotal, line.amount(0));
+        }
+        if (coupon == null || !coupon.isOrderLevel()) {
+            return new OrderChoice(best, 0);
+        }
+        // Largest line discount that keeps the order at the coupon's minimum
+        long minOrder = rate.convert(coupon.minOrderUnits());
+        long limit = Money.subtract(subtotal, minOrder);
+        if (limit < 0) {
+            return new OrderChoice(best, 0);
+        }
+
+        int[] chosen;
+        if (coupon.exclusive()) {
+            chosen = new int[lines.size()];
+            for (int i = 0; i < chosen.length; i++) {
+                chosen[i] = lines.get(i).size() - 1;
+            }
+        } else if (bestTotal <= limit) {
+            chosen = best;
+        } else if (Money.add(limit, orderCouponAmount(coupon, minOrder, rate)) < bestTotal) {
+            // Even the most line discount the coupon allows, plus the coupon, loses to the line discounts alone
+            return new OrderChoice(best, 0);
+        } else {
+            chosen = reduceBy(lines, Money.subtract(bestTotal, limit));
+        }
+        long chosenTotal = 0;
+        for (int i = 0; i < chosen.length; i++) {
+            chosenTotal = Money.add(chosenTotal, lines.get(i).amount(chosen[i]));
+        }
+        long couponAmount = orderCouponAmount(coupon, Money.subtract(subtotal, chosenTotal), rate);
+        return Money.add(chosenTotal, couponAmount) >= bestTotal
+                ? new OrderChoice(chosen, couponAmount)
+                : new OrderChoice(best, 0);
+    }
+
+    /**
+     * The line options that give up the least discount, at least {@code excess} in total, relative
+     * to every line's best option. Reductions below {@code excess} reachable after each line are
+     * kept once each, with the choices that reached them; when there are more than
+     * {@link #ORDER_STATES}, only the smallest in each of that many equal slices of the range is
+     * kept. Among equal reductions the one giving more discount to earlier lines wins.
+     */
+    private static int[] reduceBy(List<LineOptions> lines, long excess) {
+        int count = lines.size();
+        int[][] parents = new int[count][];
+        int[][] picks = new int[count][];
+        long[] reductions = {0};
+        long bestReduction = Long.MAX_VALUE;
+        int bestLine = -1;
+        int bestFrom = -1;
+        int bestPick = -1;
+        long[] steps = new long[LINE_OPTIONS + 1];
+        int[] cursors = new int[LINE_OPTIONS + 1];
+        int[] ends = new int[LINE_OPTIONS + 1];
+
+        for (int line = 0; line < count; line++) {
+            LineOptions options = lines.get(line);
+            int optionCount = options.size();
+            int total = 0;
+            // Option o shifts every reduction by steps[o]; each shifted run is sorted, so the runs are merged
+            for (int option = optionCount - 1; option >= 0; option--) {
+                steps[option] = Money.subtract(options.amount(0), options.amount(option));
+                int end = firstAtLeast(reductions, Money.subtract(excess, steps[option]));
+                // The first shifted reduction to cover the excess ends the search on this path
+                if (end < reductions.length && reductions[end] + steps[option] < bestReduction) {
+                    bestReduction = reductions[end] + steps[option];
+                    bestLine = line;
+                    bestFrom = end;
+                    bestPick = option;
+                }
+                cursors[option] = 0;
+                ends[option] = end;
+                total += end;
+            }
+
+            long[] next = new long[total];
+            int[] parent = new int[total];
+            int[] pick = new int[total];
+            int size = 0;
+            while (true) {
+                int min = -1;
+                long minValue = 0;
+                for (int option = 0; option < optionCount; option++) {
+                    if (cursors[option] == ends[option]) continue;
+                    long value = reductions[cursors[option]] + steps[option];
+                    if (min < 0 || value < minValue || value == minValue && cursors[option] < cursors[min]) {
+                        min = option;
+                        minValue = value;
+                    }
+                }
+                if (min < 0) break;
+                if (size == 0 || next[size - 1] != minValue) {
+                    next[size] = minValue;
+                    parent[size] = cursors[min];
+                    pick[size] = min;
+                    size++;
+                }
+                cursors[min]++;
+            }
+            if (size > ORDER_STATES) {
+                long width = excess / ORDER_STATES + 1;
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    if (i == 0 || next[i - 1] / width != next[i] / width) {
+                        next[kept] = next[i];
+                        parent[kept] = parent[i];
+                        pick[kept] = pick[i];
+                        kept++;
+                    }
+                }
+                size = kept;
+            }
+            reductions = Arrays.copyOf(next, size);
+            parents[line] = parent;
+            picks[line] = pick;
+        }
+
+        // Giving up every line's discount always covers the excess, so a best choice exists
+        int[] chosen = new int[count];
+        chosen[bestLine] = bestPick;
+        int at = bestFrom;
+        for (int line = bestLine - 1; line >= 0; line--) {
+            chosen[line] = picks[line][at];
+            at = parents[line][at];
+        }
+        return chosen;
+    }
+
+    private static int firstAtLeast(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Line discount for a discount tier or product coupon: a percentage of the line subtotal, or a
+     * fixed amount off each unit.
+     */
+    static long adjustment(PricingSnapshot.Adjustment type, long value, long unitPrice, int qty, FxRateTable.Rate rate) {
+        return switch (type) {
+            case PERCENT -> Money.percent(Money.times(unitPrice, qty), value);
+            case FIXED -> Money.times(rate.convert(value), qty);
+            case NONE -> 0L;
+        };
+    }
+
+    static long orderCouponAmount(CouponRegistry.CouponRule coupon, long afterLineDiscounts, FxRateTable.Rate rate) {
+        return switch (coupon.adjustment()) {
+            case PERCENT -> Money.percent(afterLineDiscounts, coupon.valueUnits());
+            case FIXED -> Math.min(rate.convert(coupon.valueUnits()), afterLineDiscounts);
+            case NONE -> 0L;
+        };
+    }
+
+    /**
+     * The best option for each of the {@code limit} largest distinct amounts, largest first.
+     */
+    private static List<Option> best(List<Option> options, int limit) {
+        options.sort(BEST_FIRST);
+        List<Option> best = new ArrayList<>(Math.min(options.size(), limit));
+        for (Option option : options) {
+            if (best.isEmpty() || best.getLast().amount() != option.amount()) {
+                if (best.size() == limit) break;
+                best.add(option);
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,106 @@
+package com.nsbm.bunmart.pricing.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flash sale tokens held for an order at the sale price. A claim lives in the memory of the
+ * instance that issued it until it is committed, released or expires; only a commit is written to
+ * the database.
+ */
+public final class FlashSaleClaim {
+
+    public enum Status {
+        CLAIMED,
+        COMMITTED,
+        RELEASED,
+        EXPIRED
+    }
+
+    private final String id;
+    private final Long flashSaleId;
+    private final String productId;
+    private final String orderId;
+    private final String userId;
+    private final long[] tokenIds;
+    private final BigDecimal unitPrice;
+    private final String currencyCode;
+    private final LocalDateTime expiresAt;
+    private final LocalDateTime createdAt;
+    // Changed under the claim's monitor
+    private volatile Status status = Status.CLAIMED;
+    private volatile LocalDateTime updatedAt;
+
+    FlashSaleClaim(String id, Long flashSaleId, String productId, String orderId, String userId, long[] tokenIds,
+                   BigDecimal unitPrice, String currencyCode, LocalDateTime expiresAt, LocalDateTime createdAt) {
+        this.id = id;
+        this.flashSaleId = flashSaleId;
+        this.productId = productId;
+        this.orderId = orderId;
+        this.userId = userId;
+        this.tokenIds = tokenIds;
+        this.unitPrice = unitPrice;
+        this.currencyCode = currencyCode;
+        this.expiresAt = expiresAt;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public Long flashSaleId() {
+        return flashSaleId;
+    }
+
+    public String productId() {
+        return productId;
+    }
+
+    public String orderId() {
+        return orderId;
+    }
+
+    public String userId() {
+        return userId;
+    }
+
+    public int quantity() {
+        return tokenIds.length;
+    }
+
+    /** The sale price of one unit, in {@link #currencyCode()}. */
+    public BigDecimal unitPrice() {
+        return unitPrice;
+    }
+
+    public String currencyCode() {
+        return currencyCode;
+    }
+
+    public LocalDateTime expiresAt() {
+        return expiresAt;
+    }
+
+    public LocalDateTime createdAt() {
+        return createdAt;
+    }
+
+    public Status status() {
+        return status;
+    }
+
+    public LocalDateTime updatedAt() {
+        return updatedAt;
+    }
+
+    long[] tokenIds() {
+        return tokenIds;
+    }
+
+    void status(Status status, LocalDateTime now) {
+        this.status = status;
+        this.updatedAt = now;
+    }
+}
@@ -0,0 +1,476 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nsbm.bunmart.pricing.errors.FlashSaleClaimNotFoundException;
+import com.nsbm.bunmart.pricing.errors.FlashSaleClaimStateException;
+import com.nsbm.bunmart.pricing.errors.FlashSaleNotFoundException;
+import com.nsbm.bunmart.pricing.errors.FlashSaleUnavailableException;
+import com.nsbm.bunmart.pricing.events.FlashSaleChangedEvent;
+import com.nsbm.bunmart.pricing.model.FlashSale;
+import com.nsbm.bunmart.pricing.repositories.FlashSaleRepository;
+import com.nsbm.bunmart.pricing.repositories.FlashSaleTokenRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static com.nsbm.bunmart.pricing.model.FlashSaleToken.Status.AVAILABLE;
+import static com.nsbm.bunmart.pricing.model.FlashSaleToken.Status.LEASED;
+import static com.nsbm.bunmart.pricing.model.FlashSaleToken.Status.SOLD;
+
+/**
+ * Claim / commit / release lifecycle for flash sale tokens.
+ * <p>
+ * Each instance leases a sale's tokens from the database in batches of {@code lease-batch}, locking
+ * them with {@code SKIP LOCKED} so instances never wait on each other, and keeps the leased tokens
+ * in a {@link FlashSalePool}. A claim takes its tokens from the pool with a compare-and-set and is
+ * held in memory only, so claims touch the database once per batch rather than once per checkout,
+ * and no row is shared by concurrent checkouts. Released and expired claims put their tokens back
+ * in the pool.
+ * <p>
+ * A commit sells its tokens with one update of their own rows, conditional on this instance still
+ * holding their lease, so a token is sold at most once even if a lease lapses and is taken over.
+ * Leases are renewed by {@link #reconcile()}, which also folds sold tokens into
+ * {@code FlashSale.soldCount}, hands back the tokens of sales that are no longer running and drops
+ * from the pool tokens whose lapsed lease another instance has taken over; tokens leased by an
+ * instance that stops without handing them back become available again once the lease lapses.
+ * <p>
+ * Claims live in this instance's memory, so a claim must be committed or released through the
+ * instance that issued it, and a claim for the same sale and order returns the claim already held.
+ * Held claims are also kept in deadline order, so expiry looks only at the claims that are due.
+ * A finished claim leaves them at once for a cache bounded by {@code max-finished-claims}, which
+ * answers repeated commits and releases for {@link #RETENTION}.
+ */
+@Slf4j
+@Service
+public class FlashSaleClaimService {
+
+    private static final Duration RETENTION = Duration.ofHours(1);
+    private static final Comparator<FlashSaleClaim> BY_EXPIRY =
+            Comparator.comparing(FlashSaleClaim::expiresAt).thenComparing(FlashSaleClaim::id);
+
+    public record PoolStats(Long flashSaleId, int available, int claimed, boolean exhausted) {
+    }
+
+    private record OrderKey(Long flashSaleId, String orderId) {
+    }
+
+    private final FlashSaleRepository flashSaleRepository;
+    private final FlashSaleTokenRepository tokenRepository;
+    private final PricingSnapshotService snapshotService;
+    private final FxRateService fxRateService;
+    private final TransactionTemplate transaction;
+    private final long defaultTtlSeconds;
+    private final int leaseBatch;
+    private final long leaseSeconds;
+    private final int maxClaimQuantity;
+    // Identifies this instance's leases; a restarted instance leases afresh
+    private final String owner = UUID.randomUUID().toString();
+    private final Map<Long, FlashSalePool> pools = new ConcurrentHashMap<>();
+    // Claims still held, by id, by order and by deadline
+    private final Map<String, FlashSaleClaim> claims = new ConcurrentHashMap<>();
+    private final Map<OrderKey, FlashSaleClaim> claimsByOrder = new ConcurrentHashMap<>();
+    private final NavigableSet<FlashSaleClaim> timeline = new ConcurrentSkipListSet<>(BY_EXPIRY);
+    private final Cache<String, FlashSaleClaim> finished;
+    private final Cache<OrderKey, FlashSaleClaim> committedByOrder;
+
+    public FlashSaleClaimService(FlashSaleRepository flashSaleRepository, FlashSaleTokenRepository tokenRepository,
+                                 PricingSnapshotService snapshotService, FxRateService fxRateService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${pricing.flash-sales.claim-ttl-seconds:300}") long defaultTtlSeconds,
+                                 @Value("${pricing.flash-sales.lease-batch:100}") int leaseBatch,
+                                 @Value("${pricing.flash-sales.lease-seconds:60}") long leaseSeconds,
+                                 @Value("${pricing.flash-sales.max-claim-quantity:10}") int maxClaimQuantity,
+                                 @Value("${pricing.flash-sales.max-finished-claims:100000}") long maxFinishedClaims) {
+        this.flashSaleRepository = flashSaleRepository;
+        this.tokenRepository = tokenRepository;
+        this.snapshotService = snapshotService;
+        this.fxRateService = fxRateService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.leaseBatch = Math.max(1, leaseBatch);
+        this.leaseSeconds = leaseSeconds;
+        this.maxClaimQuantity = maxClaimQuantity;
+        this.finished = Caffeine.newBuilder()
+                .maximumSize(maxFinishedClaims)
+                .expireAfterWrite(RETENTION)
+                .build();
+        this.committedByOrder = Caffeine.newBuilder()
+                .maximumSize(maxFinishedClaims)
+                .expireAfterWrite(RETENTION)
+                .build();
+    }
+
+    /**
+     * Holds {@code quantity} units of the sale for the order at the sale price. Repeating the call
+     * for the same order returns the claim already held, so callers can retry safely.
+     */
+    public FlashSaleClaim claim(Long flashSaleId, String orderId, String userId, Integer quantity, Long ttlSeconds) {
+        if (orderId == null || orderId.isBlank()) {
+            throw new IllegalArgumentException("orderId is required");
+        }
+        int count = quantity != null ? quantity : 1;
+        if (count < 1 || count > maxClaimQuantity) {
+            throw new IllegalArgumentException("quantity must be between 1 and " + maxClaimQuantity);
+        }
+        if (ttlSeconds != null && ttlSeconds <= 0) {
+            throw new IllegalArgumentException("ttlSeconds must be positive");
+        }
+        OrderKey key = new OrderKey(flashSaleId, orderId);
+        FlashSaleClaim existing = claimsByOrder.get(key);
+        if (existing == null) {
+            existing = committedByOrder.getIfPresent(key);
+        }
+        if (existing != null && (existing.status() == FlashSaleClaim.Status.CLAIMED
+                || existing.status() == FlashSaleClaim.Status.COMMITTED)) {
+            return existing;
+        }
+
+        FlashSalePool pool = poolFor(flashSaleId);
+        FlashSalePool.Terms terms = pool.terms();
+        LocalDateTime now = LocalDateTime.now();
+        if (!terms.runningAt(now)) {
+            throw new FlashSaleUnavailableException("Flash sale " + flashSaleId + " is not running");
+        }
+        PricingSnapshot.PriceEntry product = snapshotService.current().product(terms.productId());
+        if (product == null) {
+            throw new FlashSaleUnavailableException("Product " + terms.productId() + " of flash sale " + flashSaleId
+                    + " is not available");
+        }
+        long[] tokens = pool.take(count);
+        if (tokens == null) {
+            lease(pool, count);
+            tokens = pool.take(count);
+        }
+        if (tokens == null) {
+            throw new FlashSaleUnavailableException("Flash sale " + flashSaleId + " is sold out");
+        }
+
+        long ttl = ttlSeconds != null ? ttlSeconds
+                : terms.claimTtlSeconds() != null ? terms.claimTtlSeconds() : defaultTtlSeconds;
+        FlashSaleClaim claim = new FlashSaleClaim(UUID.randomUUID().toString(), flashSaleId, terms.productId(), orderId,
+                userId, tokens, salePrice(product, terms),
+                product.currencyCode() != null ? product.currencyCode() : fxRateService.current().baseCurrency(),
+                now.plusSeconds(ttl), now);
+        // A finished claim for the order may still be on its way out
+        boolean won = existing != null && claimsByOrder.replace(key, existing, claim)
+                || claimsByOrder.putIfAbsent(key, claim) == null;
+        if (!won) {
+            // A concurrent call for the same order got there first; its claim holds the units
+            pool.give(tokens);
+            FlashSaleClaim current = claimsByOrder.get(key);
+            if (current == null) {
+                throw new FlashSaleClaimStateException("Flash sale claim for order " + orderId + " changed concurrently");
+            }
+            return current;
+        }
+        claims.put(claim.id(), claim);
+        timeline.add(claim);
+        return claim;
+    }
+
+    public FlashSaleClaim getClaim(String claimId) {
+        FlashSaleClaim claim = claims.get(claimId);
+        if (claim == null) {
+            claim = finished.getIfPresent(claimId);
+        }
+        if (claim == null) {
+            throw new FlashSaleClaimNotFoundException("Flash sale claim not found: " + claimId);
+        }
+        return claim;
+    }
+
+    /**
+     * Sells the claimed units, typically once the order is paid. Committing a committed claim is a
+     * no-op.
+     */
+    public FlashSaleClaim commit(String claimId) {
+        FlashSaleClaim claim = getClaim(claimId);
+        synchronized (claim) {
+            if (claim.status() == FlashSaleClaim.Status.COMMITTED) {
+                return claim;
+            }
+            if (claim.status() != FlashSaleClaim.Status.CLAIMED) {
+                throw new FlashSaleClaimStateException("Flash sale claim " + claimId + " is no longer held");
+            }
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = ids(claim.tokenIds());
+            Boolean sold = transaction.execute(status -> {
+                if (tokenRepository.sell(ids, owner, LEASED, SOLD, claim.orderId(), claim.userId(), now) == ids.size()) {
+                    return true;
+                }
+                status.setRollbackOnly();
+                return false;
+            });
+            if (!Boolean.TRUE.equals(sold)) {
+                // The lease lapsed and another instance took some tokens over; the rest are handed back
+                claim.status(FlashSaleClaim.Status.EXPIRED, now);
+                retire(claim);
+                transaction.execute(status -> tokenRepository.returnLeases(ids, owner, LEASED, AVAILABLE));
+                throw new FlashSaleClaimStateException("Flash sale claim " + claimId + " lost its units; claim again");
+            }
+            claim.status(FlashSaleClaim.Status.COMMITTED, now);
+            retire(claim);
+            return claim;
+        }
+    }
+
+    /**
+     * Gives the units back, typically when the order is cancelled. Releasing a claim that was
+     * already released or has expired is a no-op; a committed claim cannot be released.
+     */
+    public FlashSaleClaim release(String claimId) {
+        FlashSaleClaim claim = getClaim(claimId);
+        synchronized (claim) {
+            if (claim.status() == FlashSaleClaim.Status.COMMITTED) {
+                throw new FlashSaleClaimStateException("Flash sale claim " + claimId + " is already committed");
+            }
+            if (claim.status() != FlashSaleClaim.Status.CLAIMED) {
+                return claim;
+            }
+            claim.status(FlashSaleClaim.Status.RELEASED, LocalDateTime.now());
+        }
+        retire(claim);
+        giveBack(claim);
+        return claim;
+    }
+
+    public PoolStats stats(Long flashSaleId) {
+        FlashSalePool pool = pools.get(flashSaleId);
+        int claimed = 0;
+        for (FlashSaleClaim claim : claims.values()) {
+            if (claim.flashSaleId().equals(flashSaleId) && claim.status() == FlashSaleClaim.Status.CLAIMED) {
+                claimed += claim.quantity();
+            }
+        }
+        return new PoolStats(flashSaleId, pool != null ? pool.available() : 0, claimed, pool != null && pool.exhausted());
+    }
+
+    /**
+     * Expires claims past their deadline, returning their units to the pool. Claims are visited in
+     * deadline order and the run stops at the first one not yet due.
+     */
+    @Scheduled(fixedDelayString = "${pricing.flash-sales.expiry-interval-ms:1000}",
+            initialDelayString = "${pricing.flash-sales.expiry-interval-ms:1000}")
+    public void expireClaims() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+        for (Iterator<FlashSaleClaim> it = timeline.iterator(); it.hasNext(); ) {
+            FlashSaleClaim claim = it.next();
+            if (!claim.expiresAt().isBefore(now)) {
+                break;
+            }
+            boolean expire;
+            synchronized (claim) {
+                // A commit or release that got there first keeps its result
+                expire = claim.status() == FlashSaleClaim.Status.CLAIMED;
+                if (expire) {
+                    claim.status(FlashSaleClaim.Status.EXPIRED, now);
+                }
+            }
+            if (expire) {
+                retire(claim);
+                giveBack(claim);
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            log.info("Flash sale claims expired: {}", expired);
+        }
+    }
+
+    /**
+     * Renews this instance's leases, picks up sale edits made on other instances, hands back the
+     * unclaimed tokens of sales that are no longer running, and folds sold tokens into
+     * {@code FlashSale.soldCount} with one update per sale.
+     */
+    @Scheduled(fixedDelayString = "${pricing.flash-sales.reconcile-interval-ms:10000}",
+            initialDelayString = "${pricing.flash-sales.reconcile-interval-ms:10000}")
+    public void reconcile() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            transaction.execute(status -> tokenRepository.renewLeases(owner, LEASED, now.plusSeconds(leaseSeconds)));
+            int returned = 0;
+            int lost = 0;
+            if (!pools.isEmpty()) {
+                for (FlashSale sale : flashSaleRepository.findAllById(pools.keySet())) {
+                    FlashSalePool pool = pools.get(sale.getId());
+                    pool.terms(FlashSalePool.Terms.of(sale));
+                    // Sold-out pools look again once per round, in case tokens were added or handed back
+                    pool.exhausted(false);
+                    if (!pool.terms().runningAt(now)) {
+                        returned += returnLeases(pool.drain());
+                    } else {
+                        lost += purgeTakenOver(pool);
+                    }
+                }
+            }
+            int folded = foldSold();
+            if (returned > 0 || lost > 0 || folded > 0) {
+                log.info("Flash sale reconcile: {} tokens handed back, {} taken over by other instances, {} sales counted",
+                        returned, lost, folded);
+            }
+        } catch (RuntimeException e) {
+            log.error("Flash sale reconcile failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Applies a sale edit to its pool once the edit has committed, so claims never see terms that
+     * are rolled back.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlashSaleChanged(FlashSaleChangedEvent event) {
+        FlashSalePool pool = pools.get(event.flashSaleId());
+        if (pool == null) {
+            return;
+        }
+        flashSaleRepository.findById(event.flashSaleId()).ifPresent(sale -> {
+            pool.terms(FlashSalePool.Terms.of(sale));
+            pool.exhausted(false);
+        });
+    }
+
+    /**
+     * Hands unclaimed tokens back so other instances can lease them at once rather than after the
+     * lease lapses.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (FlashSalePool pool : pools.values()) {
+            try {
+                returnLeases(pool.drain());
+            } catch (RuntimeException e) {
+                log.warn("Flash sale {} tokens not handed back: {}", pool.saleId(), e.getMessage());
+            }
+        }
+    }
+
+    private FlashSalePool poolFor(Long flashSaleId) {
+        FlashSalePool pool = pools.get(flashSaleId);
+        if (pool != null) {
+            return pool;
+        }
+        FlashSale sale = flashSaleRepository.findById(flashSaleId)
+                .orElseThrow(() -> new FlashSaleNotFoundException("Flash sale not found: " + flashSaleId));
+        return pools.computeIfAbsent(flashSaleId, id -> new FlashSalePool(id, FlashSalePool.Terms.of(sale)));
+    }
+
+    /**
+     * Leases the next batch of the sale's tokens into the pool. Claims that find the pool empty
+     * wait here for one lease rather than each going to the database.
+     */
+    private void lease(FlashSalePool pool, int count) {
+        synchronized (pool) {
+            if (pool.available() >= count || pool.exhausted()) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            int wanted = Math.max(leaseBatch, count);
+            List<Long> leased = transaction.execute(status -> {
+                List<Long> ids = tokenRepository.findLeasable(pool.saleId(), owner, now, wanted);
+                if (!ids.isEmpty()) {
+                    tokenRepository.lease(ids, LEASED, owner, now.plusSeconds(leaseSeconds));
+                }
+                return ids;
+            });
+            if (leased.size() < wanted) {
+                pool.exhausted(true);
+            }
+            pool.give(leased);
+        }
+    }
+
+    /**
+     * Moves a finished claim from the held claims to the cache of finished ones.
+     */
+    private void retire(FlashSaleClaim claim) {
+        OrderKey key = new OrderKey(claim.flashSaleId(), claim.orderId());
+        finished.put(claim.id(), claim);
+        if (claim.status() == FlashSaleClaim.Status.COMMITTED) {
+            committedByOrder.put(key, claim);
+        }
+        claims.remove(claim.id(), claim);
+        claimsByOrder.remove(key, claim);
+        timeline.remove(claim);
+    }
+
+    /**
+     * Drops available tokens whose lease lapsed and was taken over by another instance, which
+     * could no longer be sold from here.
+     */
+    private int purgeTakenOver(FlashSalePool pool) {
+        List<Long> available = pool.tokens();
+        if (available.isEmpty()) {
+            return 0;
+        }
+        Set<Long> held = new HashSet<>(tokenRepository.findHeld(available, owner, LEASED));
+        if (held.size() == available.size()) {
+            return 0;
+        }
+        return pool.purge(available.stream().filter(id -> !held.contains(id)).toList());
+    }
+
+    private void giveBack(FlashSaleClaim claim) {
+        FlashSalePool pool = pools.get(claim.flashSaleId());
+        if (pool != null && pool.terms().runningAt(LocalDateTime.now())) {
+            pool.give(claim.tokenIds());
+        } else {
+            returnLeases(claim.tokenIds());
+        }
+    }
+
+    private int returnLeases(long[] tokenIds) {
+        if (tokenIds.length == 0) {
+            return 0;
+        }
+        Integer returned = transaction.execute(status ->
+                tokenRepository.returnLeases(ids(tokenIds), owner, LEASED, AVAILABLE));
+        return returned != null ? returned : 0;
+    }
+
+    private int foldSold() {
+        int folded = 0;
+        for (Long saleId : tokenRepository.findSaleIdsWithUncounted(SOLD)) {
+            Integer counted = transaction.execute(status -> {
+                int count = tokenRepository.markCounted(saleId, SOLD);
+                if (count > 0) {
+                    flashSaleRepository.addSold(saleId, count);
+                }
+                return count;
+            });
+            folded += counted != null && counted > 0 ? 1 : 0;
+        }
+        return folded;
+    }
+
+    private static BigDecimal salePrice(PricingSnapshot.PriceEntry product, FlashSalePool.Terms terms) {
+        long price = product.priceUnits();
+        long off = DiscountStacking.adjustment(terms.adjustment(), terms.valueUnits(), price, 1, FxRateTable.Rate.IDENTITY);
+        return Money.toBigDecimal(price - Math.min(off, price));
+    }
+
+    private static List<Long> ids(long[] tokenIds) {
+        return Arrays.stream(tokenIds).boxed().toList();
+    }
+}
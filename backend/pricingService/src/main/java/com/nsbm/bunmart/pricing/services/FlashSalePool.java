@@ -0,0 +1,146 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.model.FlashSale;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The tokens of one flash sale leased by this instance and not claimed. Tokens sit in a lock-free
+ * queue behind a counter: {@link #take} reserves its tokens by decrementing the counter with a
+ * compare-and-set and only then polls them, and {@link #give} offers tokens before counting them,
+ * so the counter never exceeds the queue and a successful take always finds its tokens.
+ * {@link #purge} likewise lowers the counter before it removes a token.
+ */
+final class FlashSalePool {
+
+    /**
+     * The sale fields claims need, replaced as a whole when the sale is edited.
+     */
+    record Terms(String productId, PricingSnapshot.Adjustment adjustment, long valueUnits, LocalDateTime startsAt,
+                 LocalDateTime endsAt, boolean active, Long claimTtlSeconds) {
+
+        static Terms of(FlashSale sale) {
+            return new Terms(sale.getProductId(), PricingSnapshot.Adjustment.of(sale.getType(), sale.getValue()),
+                    Money.of(sale.getValue()), sale.getStartsAt(), sale.getEndsAt(),
+                    Boolean.TRUE.equals(sale.getIsActive()), sale.getClaimTtlSeconds());
+        }
+
+        boolean runningAt(LocalDateTime now) {
+            return active && !now.isBefore(startsAt) && now.isBefore(endsAt);
+        }
+    }
+
+    private final Long saleId;
+    private final ConcurrentLinkedQueue<Long> tokens = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger available = new AtomicInteger();
+    private volatile Terms terms;
+    // Set when a lease found no more tokens, so claims fail fast until the next lease renewal
+    private volatile boolean exhausted;
+
+    FlashSalePool(Long saleId, Terms terms) {
+        this.saleId = saleId;
+        this.terms = terms;
+    }
+
+    Long saleId() {
+        return saleId;
+    }
+
+    Terms terms() {
+        return terms;
+    }
+
+    void terms(Terms terms) {
+        this.terms = terms;
+    }
+
+    boolean exhausted() {
+        return exhausted;
+    }
+
+    void exhausted(boolean exhausted) {
+        this.exhausted = exhausted;
+    }
+
+    int available() {
+        return available.get();
+    }
+
+    /**
+     * Takes {@code count} tokens, or none when fewer are available.
+     */
+    long[] take(int count) {
+        int current = available.get();
+        while (current >= count) {
+            if (available.compareAndSet(current, current - count)) {
+                long[] taken = new long[count];
+                for (int i = 0; i < count; i++) {
+                    taken[i] = tokens.poll();
+                }
+                return taken;
+            }
+            current = available.get();
+        }
+        return null;
+    }
+
+    /**
+     * Takes every available token, for handing the lease back.
+     */
+    long[] drain() {
+        int count = available.getAndSet(0);
+        long[] drained = new long[count];
+        for (int i = 0; i < count; i++) {
+            drained[i] = tokens.poll();
+        }
+        return drained;
+    }
+
+    /**
+     * The tokens available now, for checking their leases.
+     */
+    List<Long> tokens() {
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Removes those of {@code ids} that are still available, such as tokens whose lease another
+     * instance has taken over, and returns how many were removed.
+     */
+    int purge(Collection<Long> ids) {
+        int removed = 0;
+        for (Long id : ids) {
+            int current = available.get();
+            while (current > 0 && !available.compareAndSet(current, current - 1)) {
+                current = available.get();
+            }
+            if (current == 0) {
+                break;
+            }
+            if (tokens.remove(id)) {
+                removed++;
+            } else {
+                // Taken by a claim meanwhile; its commit will find the lease gone
+                available.incrementAndGet();
+            }
+        }
+        return removed;
+    }
+
+    void give(long[] ids) {
+        for (long id : ids) {
+            tokens.offer(id);
+        }
+        available.addAndGet(ids.length);
+    }
+
+    void give(List<Long> ids) {
+        tokens.addAll(ids);
+        available.addAndGet(ids.size());
+    }
+}
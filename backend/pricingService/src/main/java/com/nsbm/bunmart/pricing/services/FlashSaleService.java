@@ -0,0 +1,101 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.errors.FlashSaleNotFoundException;
+import com.nsbm.bunmart.pricing.events.FlashSaleChangedEvent;
+import com.nsbm.bunmart.pricing.model.FlashSale;
+import com.nsbm.bunmart.pricing.repositories.FlashSaleRepository;
+import com.nsbm.bunmart.pricing.repositories.FlashSaleTokenRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Flash sale campaigns. Creating a sale allocates all of its tokens up front, so claims never have
+ * to create rows; see {@link FlashSaleClaimService} for how they are handed out.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class FlashSaleService {
+
+    private final FlashSaleRepository flashSaleRepository;
+    private final FlashSaleTokenRepository flashSaleTokenRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public FlashSale create(String name, String productId, String type, BigDecimal value, Integer tokenCount,
+                            LocalDateTime startsAt, LocalDateTime endsAt, Long claimTtlSeconds) {
+        checkType(type, value);
+        if (!startsAt.isBefore(endsAt)) {
+            throw new IllegalArgumentException("startsAt must be before endsAt");
+        }
+        FlashSale sale = new FlashSale();
+        sale.setName(name);
+        sale.setProductId(productId);
+        sale.setType(type.toUpperCase());
+        sale.setValue(value);
+        sale.setTokenCount(tokenCount);
+        sale.setStartsAt(startsAt);
+        sale.setEndsAt(endsAt);
+        sale.setClaimTtlSeconds(claimTtlSeconds);
+        FlashSale saved = flashSaleRepository.save(sale);
+        flashSaleTokenRepository.allocate(saved.getId(), 1, tokenCount);
+        return saved;
+    }
+
+    public FlashSale getById(Long id) {
+        return flashSaleRepository.findById(id)
+                .orElseThrow(() -> new FlashSaleNotFoundException("Flash sale not found: " + id));
+    }
+
+    public List<FlashSale> getAll() {
+        return flashSaleRepository.findAll();
+    }
+
+    /**
+     * Updates the sale. Its token count can only be raised, since tokens already handed out
+     * cannot be taken back.
+     */
+    public FlashSale update(Long id, String name, String type, BigDecimal value, Integer tokenCount,
+                            LocalDateTime endsAt, Long claimTtlSeconds, Boolean isActive) {
+        FlashSale sale = getById(id);
+        if (type != null || value != null) {
+            checkType(type != null ? type : sale.getType(), value != null ? value : sale.getValue());
+        }
+        if (name != null) sale.setName(name);
+        if (type != null) sale.setType(type.toUpperCase());
+        if (value != null) sale.setValue(value);
+        if (endsAt != null) {
+            if (!sale.getStartsAt().isBefore(endsAt)) {
+                throw new IllegalArgumentException("endsAt must be after startsAt");
+            }
+            sale.setEndsAt(endsAt);
+        }
+        if (claimTtlSeconds != null) sale.setClaimTtlSeconds(claimTtlSeconds > 0 ? claimTtlSeconds : null);
+        if (isActive != null) sale.setIsActive(isActive);
+        if (tokenCount != null && !tokenCount.equals(sale.getTokenCount())) {
+            if (tokenCount < sale.getTokenCount()) {
+                throw new IllegalArgumentException("tokenCount can only be raised, not below " + sale.getTokenCount());
+            }
+            flashSaleTokenRepository.allocate(id, sale.getTokenCount() + 1, tokenCount);
+            sale.setTokenCount(tokenCount);
+        }
+        FlashSale saved = flashSaleRepository.save(sale);
+        // Claims pick the edit up once it commits
+        eventPublisher.publishEvent(new FlashSaleChangedEvent(id));
+        return saved;
+    }
+
+    private static void checkType(String type, BigDecimal value) {
+        if (PricingSnapshot.Adjustment.of(type, value) == PricingSnapshot.Adjustment.NONE) {
+            throw new IllegalArgumentException("Flash sale type must be PERCENT or FIXED: " + type);
+        }
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException("Flash sale value must be 0 or greater");
+        }
+    }
+}
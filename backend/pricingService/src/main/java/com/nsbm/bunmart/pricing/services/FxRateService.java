@@ -0,0 +1,96 @@
+package com.nsbm.bunmart.pricing.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Holds the current {@link FxRateTable}. Rates are loaded from {@code pricing.fx.rates-file} at
+ * startup and on reload, or replaced through the admin API; either way a complete new table with
+ * the next version is published with a single volatile write.
+ * <p>
+ * The rates file is a properties file of {@code CODE=rate} lines, each rate being how much of that
+ * currency one unit of {@code pricing.fx.base-currency} buys.
+ */
+@Slf4j
+@Service
+public class FxRateService {
+
+    private final String ratesFile;
+
+    private volatile FxRateTable table;
+
+    public FxRateService(@Value("${pricing.fx.base-currency:USD}") String baseCurrency,
+                         @Value("${pricing.fx.rates-file:}") String ratesFile) {
+        this.ratesFile = ratesFile == null || ratesFile.isBlank() ? null : ratesFile.trim();
+        this.table = FxRateTable.empty(baseCurrency);
+    }
+
+    public FxRateTable current() {
+        return table;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (ratesFile == null) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // Without rates only carts needing no conversion can be priced, which is safe to serve
+            log.error("Exchange rates not loaded from {}: {}", ratesFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the rates file again and publishes it as the next table.
+     */
+    public FxRateTable reload() {
+        if (ratesFile == null) {
+            throw new IllegalArgumentException("No exchange rates file configured (pricing.fx.rates-file)");
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Path.of(ratesFile), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read exchange rates file " + ratesFile, e);
+        }
+        Map<String, BigDecimal> rates = new LinkedHashMap<>();
+        for (String code : properties.stringPropertyNames()) {
+            try {
+                rates.put(code, new BigDecimal(properties.getProperty(code).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid exchange rate for " + code + " in " + ratesFile);
+            }
+        }
+        return replace(rates, ratesFile);
+    }
+
+    /**
+     * Publishes {@code rates}, per unit of the base currency, as the next table. Currencies left out
+     * can no longer be converted.
+     */
+    public synchronized FxRateTable replace(Map<String, BigDecimal> rates, String source) {
+        FxRateTable current = table;
+        FxRateTable fresh = FxRateTable.of(current.version() + 1, current.baseCurrency(), rates, source, LocalDateTime.now());
+        table = fresh;
+        log.info("Exchange rates version {} published from {} with {} currencies", fresh.version(), source,
+                fresh.rates().size());
+        return fresh;
+    }
+}
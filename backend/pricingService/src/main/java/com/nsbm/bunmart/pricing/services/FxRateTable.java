@@ -0,0 +1,144 @@
+package com.nsbm.bunmart.pricing.services;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable, versioned table of exchange rates, each giving how much of a currency one unit of
+ * the base currency buys. Tables are replaced as a whole, so a calculation that takes one table
+ * converts every line of a cart at the same rates.
+ * <p>
+ * Rates are fixed-point {@code long}s with {@link #RATE_SCALE} decimals, and an amount is converted
+ * as {@code amount * targetRate / sourceRate} with a single HALF_UP rounding, so the same amount,
+ * currencies and table always convert to the same units.
+ */
+public final class FxRateTable {
+
+    public static final int RATE_SCALE = 8;
+    private static final long RATE_ONE = 100_000_000L;
+
+    private final long version;
+    private final String baseCurrency;
+    // Includes the base currency at RATE_ONE
+    private final Map<String, Long> rates;
+    private final String source;
+    private final LocalDateTime loadedAt;
+
+    private FxRateTable(long version, String baseCurrency, Map<String, Long> rates, String source, LocalDateTime loadedAt) {
+        this.version = version;
+        this.baseCurrency = baseCurrency;
+        this.rates = rates;
+        this.source = source;
+        this.loadedAt = loadedAt;
+    }
+
+    /**
+     * A table with no rates: only amounts already in the base currency, or in the currency asked
+     * for, can be priced.
+     */
+    public static FxRateTable empty(String baseCurrency) {
+        String base = currency(baseCurrency);
+        return new FxRateTable(0, base, Map.of(base, RATE_ONE), null, null);
+    }
+
+    /**
+     * Builds a table from rates per unit of {@code baseCurrency}, rounded HALF_UP to
+     * {@link #RATE_SCALE} decimals. A rate given for the base currency itself must be 1.
+     */
+    public static FxRateTable of(long version, String baseCurrency, Map<String, BigDecimal> rates, String source,
+                                 LocalDateTime loadedAt) {
+        String base = currency(baseCurrency);
+        Map<String, Long> units = new HashMap<>(rates.size() * 2);
+        units.put(base, RATE_ONE);
+        rates.forEach((code, rate) -> {
+            String currency = currency(code);
+            if (rate == null || rate.signum() <= 0) {
+                throw new IllegalArgumentException("Exchange rate for " + currency + " must be positive");
+            }
+            long scaled = rate.setScale(RATE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            if (scaled == 0) {
+                throw new IllegalArgumentException("Exchange rate for " + currency + " is below 1e-" + RATE_SCALE);
+            }
+            if (currency.equals(base) && scaled != RATE_ONE) {
+                throw new IllegalArgumentException("Exchange rate for the base currency " + base + " must be 1");
+            }
+            if (units.put(currency, scaled) != null && !currency.equals(base)) {
+                throw new IllegalArgumentException("Duplicate exchange rate for " + currency);
+            }
+        });
+        return new FxRateTable(version, base, Map.copyOf(units), source, loadedAt);
+    }
+
+    /**
+     * Normalizes a currency code to upper case and checks that it is three letters.
+     */
+    public static String currency(String code) {
+        String normalized = code == null ? "" : code.trim().toUpperCase();
+        if (!normalized.matches("[A-Z]{3}")) {
+            throw new IllegalArgumentException("Invalid currency code: " + code);
+        }
+        return normalized;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public String baseCurrency() {
+        return baseCurrency;
+    }
+
+    /** Where the rates came from: a file path, {@code api}, or null for the empty table. */
+    public String source() {
+        return source;
+    }
+
+    public LocalDateTime loadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Every rate, base currency included, sorted by currency code.
+     */
+    public Map<String, BigDecimal> rates() {
+        Map<String, BigDecimal> result = new TreeMap<>();
+        rates.forEach((code, rate) -> result.put(code, BigDecimal.valueOf(rate, RATE_SCALE)));
+        return result;
+    }
+
+    /**
+     * Conversion of amounts in {@code from} into {@code to}; a null {@code from} is the base
+     * currency. Throws {@link IllegalArgumentException} when either rate is missing.
+     */
+    public Rate rate(String from, String to) {
+        String source = from != null ? from : baseCurrency;
+        if (source.equals(to)) {
+            return Rate.IDENTITY;
+        }
+        return new Rate(units(to), units(source));
+    }
+
+    private long units(String currency) {
+        Long rate = rates.get(currency);
+        if (rate == null) {
+            throw new IllegalArgumentException("No exchange rate for " + currency);
+        }
+        return rate;
+    }
+
+    /**
+     * Multiplies {@link Money} units by {@code numerator / denominator}, rounding HALF_UP.
+     */
+    public record Rate(long numerator, long denominator) {
+
+        public static final Rate IDENTITY = new Rate(1, 1);
+
+        public long convert(long units) {
+            return numerator == denominator ? units : Money.multiplyDivide(units, numerator, denominator);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.nsbm.bunmart.pricing.services;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on plain {@code long}s holding ten-thousandths of a currency unit,
+ * the same scale the calculation has always rounded to. Amounts stay primitive through the whole
+ * pricing loop and become {@link BigDecimal} only at the API boundary, so pricing a cart allocates
+ * nothing per line.
+ * <p>
+ * Every operation rounds HALF_UP exactly like {@code BigDecimal.divide(.., 4, HALF_UP)}, so results
+ * are identical to the previous {@code BigDecimal} arithmetic. Results that do not fit in a
+ * {@code long} throw {@link ArithmeticException} instead of wrapping.
+ */
+public final class Money {
+
+    public static final int SCALE = 4;
+    public static final long ONE = 10_000L;
+
+    // A rate of r percent is r * ONE units; applying it divides by 100% in units
+    private static final long HUNDRED_PERCENT = 100 * ONE;
+
+    private Money() {
+    }
+
+    /**
+     * Converts to units, rounding HALF_UP beyond four decimals; null counts as zero.
+     */
+    public static long of(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        try {
+            return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Amount out of range: " + amount.toPlainString());
+        }
+    }
+
+    public static BigDecimal toBigDecimal(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long times(long amount, long quantity) {
+        return Math.multiplyExact(amount, quantity);
+    }
+
+    /**
+     * {@code amount * rate / 100}, where {@code rate} is a percentage in units (20% is
+     * {@code 200_000}).
+     */
+    public static long percent(long amount, long rate) {
+        return multiplyDivide(amount, rate, HUNDRED_PERCENT);
+    }
+
+    /**
+     * {@code a * b / divisor} rounded HALF_UP, with the product carried in 128 bits so only the
+     * result has to fit in a {@code long}. {@code divisor} must be positive.
+     */
+    static long multiplyDivide(long a, long b, long divisor) {
+        long low = a * b;
+        long high = Math.multiplyHigh(a, b);
+        if (high != (low >> 63)) {
+            // Product needs more than 64 bits; rare enough to take the allocating path
+            BigInteger product = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b));
+            return new BigDecimal(product).divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP).longValueExact();
+        }
+        long quotient = low / divisor;
+        long remainder = low % divisor;
+        // HALF_UP rounds ties away from zero for negative amounts too
+        if (Math.abs(remainder) >= divisor - Math.abs(remainder)) {
+            quotient += low < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
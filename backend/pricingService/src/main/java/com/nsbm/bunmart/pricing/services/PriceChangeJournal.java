@@ -0,0 +1,147 @@
+package com.nsbm.bunmart.pricing.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Numbered record of every committed change that can alter a price: product entries and discount
+ * tiers as seen by successive pricing snapshots, and coupons as seen by the coupon registry.
+ * Downstream caches follow it through {@code WatchPrices} and invalidate exactly what changed.
+ * <p>
+ * The most recent {@code journal-size} changes are kept in a ring, so a subscriber that reconnects
+ * can resume after the last sequence it received. Sequences are only meaningful together with
+ * {@link #streamId()}, which is new for every process; a subscriber that resumes against another
+ * stream, or from a sequence that has already been overwritten, has to drop its cache.
+ */
+@Slf4j
+@Service
+public class PriceChangeJournal {
+
+    public enum Type {
+        PRODUCT,
+        DISCOUNT,
+        COUPON,
+        RESET
+    }
+
+    /**
+     * One change. {@code product} is the entry now in effect for PRODUCT changes that are not
+     * removals; {@code productId} is null for order-level coupons.
+     */
+    public record Change(long sequence, Type type, String productId, String couponCode, boolean removed,
+                         PricingSnapshot.PriceEntry product, LocalDateTime changedAt) {
+    }
+
+    private final String streamId = UUID.randomUUID().toString();
+    private final Change[] ring;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private long last;
+
+    public PriceChangeJournal(@Value("${pricing.watch.journal-size:65536}") int journalSize) {
+        this.ring = new Change[Math.max(1, journalSize)];
+    }
+
+    public String streamId() {
+        return streamId;
+    }
+
+    public synchronized long lastSequence() {
+        return last;
+    }
+
+    /**
+     * Runs {@code listener} after every append. Listeners must not block.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Up to {@code max} changes after sequence {@code after}, oldest first, or null when changes
+     * after {@code after} have already been overwritten.
+     */
+    public synchronized List<Change> readAfter(long after, int max) {
+        if (after < last - ring.length || after > last) {
+            return null;
+        }
+        int count = (int) Math.min(max, last - after);
+        List<Change> changes = new ArrayList<>(count);
+        for (long sequence = after + 1; sequence <= after + count; sequence++) {
+            changes.add(ring[(int) (sequence % ring.length)]);
+        }
+        return changes;
+    }
+
+    /**
+     * Records what differs between two consecutive snapshots.
+     */
+    public void recordSnapshot(PricingSnapshot previous, PricingSnapshot current) {
+        if (previous == null || previous == current) {
+            return;
+        }
+        List<Change> changes = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (String productId : current.productsChangedSince(previous)) {
+            PricingSnapshot.PriceEntry entry = current.product(productId);
+            changes.add(new Change(0, Type.PRODUCT, productId, null, entry == null, entry, now));
+        }
+        for (String productId : current.discountsChangedSince(previous)) {
+            boolean removed = current.discounts(productId).all().isEmpty();
+            changes.add(new Change(0, Type.DISCOUNT, productId, null, removed, null, now));
+        }
+        append(changes);
+    }
+
+    /**
+     * Records a coupon that appeared, changed or stopped being redeemable. Changes that do not
+     * affect pricing, such as usage counts, are skipped.
+     */
+    public void recordCoupon(CouponRegistry.CouponRule before, CouponRegistry.CouponRule after) {
+        if (before == null && after == null || before != null && after != null && before.samePricing(after)) {
+            return;
+        }
+        List<Change> changes = new ArrayList<>(2);
+        LocalDateTime now = LocalDateTime.now();
+        if (before != null && (after == null || !Objects.equals(before.code(), after.code())
+                || !Objects.equals(before.productId(), after.productId()))) {
+            changes.add(new Change(0, Type.COUPON, productIdOf(before), before.code(), true, null, now));
+        }
+        if (after != null) {
+            changes.add(new Change(0, Type.COUPON, productIdOf(after), after.code(), false, null, now));
+        }
+        append(changes);
+    }
+
+    private static String productIdOf(CouponRegistry.CouponRule coupon) {
+        return coupon.isOrderLevel() ? null : coupon.productId();
+    }
+
+    private void append(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (Change change : changes) {
+                long sequence = ++last;
+                ring[(int) (sequence % ring.length)] = new Change(sequence, change.type(), change.productId(),
+                        change.couponCode(), change.removed(), change.product(), change.changedAt());
+            }
+        }
+        if (changes.size() > ring.length) {
+            log.warn("{} price changes exceed the journal size of {}; watchers will reset", changes.size(), ring.length);
+        }
+        listeners.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,224 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.model.PriceVersion;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable interval index over {@link PriceVersion}s, answering "which price applies to this
+ * product at time T" with one binary search.
+ * <p>
+ * An index built {@linkplain #build(Collection, LocalDateTime) since} a moment holds only the
+ * versions still in effect or yet to come at that moment, which is all it needs to answer for that
+ * moment and any later one; earlier times are outside what it {@linkplain #covers covers}.
+ * <p>
+ * The possibly overlapping versions of a product are flattened once, at build time, into a
+ * timeline of disjoint segments, each carrying the version that wins there (the highest id among
+ * the versions covering it) or none. Every segment start is also recorded in a global change map,
+ * so the snapshot can find the next moment any price changes, and which products change then,
+ * without scanning products.
+ */
+public final class PriceVersionIndex {
+
+    public record Version(Long id, String productId, BigDecimal rawPrice, LocalDateTime effectiveFrom,
+                          LocalDateTime effectiveTo, String campaignId) {
+
+        static Version of(PriceVersion version) {
+            return new Version(version.getId(), version.getProductId(), version.getRawPrice(),
+                    version.getEffectiveFrom(), version.getEffectiveTo(), version.getCampaignId());
+        }
+
+        boolean endsBy(LocalDateTime time) {
+            return effectiveTo != null && !effectiveTo.isAfter(time);
+        }
+    }
+
+    /**
+     * Disjoint segments of one product: {@code versions[i]} applies from {@code starts[i]} until
+     * {@code starts[i + 1]}, and null means the base price applies.
+     */
+    private static final class Timeline {
+
+        private final LocalDateTime[] starts;
+        private final Version[] versions;
+
+        private Timeline(List<LocalDateTime> starts, List<Version> versions) {
+            this.starts = starts.toArray(LocalDateTime[]::new);
+            this.versions = versions.toArray(Version[]::new);
+        }
+
+        Version at(LocalDateTime time) {
+            int low = 0;
+            int high = starts.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (!starts[mid].isAfter(time)) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found < 0 ? null : versions[found];
+        }
+    }
+
+    private static final Comparator<Version> NEWEST_FIRST =
+            Comparator.comparing(Version::id, Comparator.nullsFirst(Comparator.naturalOrder())).reversed();
+
+    private static final PriceVersionIndex EMPTY =
+            new PriceVersionIndex(Map.of(), Collections.emptyNavigableMap(), 0, LocalDateTime.MIN);
+
+    private final Map<String, Timeline> timelines;
+    private final NavigableMap<LocalDateTime, Set<String>> changes;
+    private final int size;
+    private final LocalDateTime since;
+
+    private PriceVersionIndex(Map<String, Timeline> timelines, NavigableMap<LocalDateTime, Set<String>> changes, int size,
+                              LocalDateTime since) {
+        this.timelines = timelines;
+        this.changes = changes;
+        this.size = size;
+        this.since = since;
+    }
+
+    public static PriceVersionIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Indexes the complete price history.
+     */
+    public static PriceVersionIndex build(Collection<PriceVersion> priceVersions) {
+        return build(priceVersions, LocalDateTime.MIN);
+    }
+
+    /**
+     * Indexes the versions that still matter at {@code since}; versions that had ended by then are
+     * skipped, so the caller may leave them out of {@code priceVersions} altogether.
+     */
+    public static PriceVersionIndex build(Collection<PriceVersion> priceVersions, LocalDateTime since) {
+        Map<String, List<Version>> grouped = new HashMap<>();
+        int size = 0;
+        for (PriceVersion priceVersion : priceVersions) {
+            if (priceVersion.getProductId() == null || priceVersion.getEffectiveFrom() == null
+                    || priceVersion.getRawPrice() == null) {
+                continue;
+            }
+            if (priceVersion.getEffectiveTo() != null && !priceVersion.getEffectiveTo().isAfter(since)) {
+                continue;
+            }
+            size++;
+            grouped.computeIfAbsent(priceVersion.getProductId(), k -> new ArrayList<>()).add(Version.of(priceVersion));
+        }
+        Map<String, Timeline> timelines = new HashMap<>();
+        TreeMap<LocalDateTime, Set<String>> changes = new TreeMap<>();
+        grouped.forEach((productId, versions) -> {
+            Timeline timeline = flatten(versions);
+            timelines.put(productId, timeline);
+            for (LocalDateTime start : timeline.starts) {
+                changes.computeIfAbsent(start, k -> new TreeSet<>()).add(productId);
+            }
+        });
+        changes.replaceAll((time, productIds) -> Set.copyOf(productIds));
+        return new PriceVersionIndex(Map.copyOf(timelines), Collections.unmodifiableNavigableMap(changes), size, since);
+    }
+
+    /**
+     * Sweeps the boundaries of a product's versions in time order, keeping the covering versions
+     * in a heap with the newest on top. Versions that have ended are only dropped once they reach
+     * the top, which is enough because only the top decides the winner.
+     */
+    private static Timeline flatten(List<Version> versions) {
+        versions.sort(Comparator.comparing(Version::effectiveFrom));
+        TreeSet<LocalDateTime> boundaries = new TreeSet<>();
+        for (Version version : versions) {
+            boundaries.add(version.effectiveFrom());
+            if (version.effectiveTo() != null) {
+                boundaries.add(version.effectiveTo());
+            }
+        }
+        PriorityQueue<Version> covering = new PriorityQueue<>(NEWEST_FIRST);
+        List<LocalDateTime> starts = new ArrayList<>();
+        List<Version> winners = new ArrayList<>();
+        Version current = null;
+        int next = 0;
+        for (LocalDateTime boundary : boundaries) {
+            while (next < versions.size() && !versions.get(next).effectiveFrom().isAfter(boundary)) {
+                Version version = versions.get(next++);
+                // An empty or inverted interval never applies
+                if (!version.endsBy(version.effectiveFrom())) {
+                    covering.add(version);
+                }
+            }
+            while (!covering.isEmpty() && covering.peek().endsBy(boundary)) {
+                covering.poll();
+            }
+            Version winner = covering.peek();
+            if (winner != current) {
+                starts.add(boundary);
+                winners.add(winner);
+                current = winner;
+            }
+        }
+        return new Timeline(starts, winners);
+    }
+
+    /**
+     * Whether {@link #at} can answer for {@code time}; versions that ended before the index was
+     * built are not in it.
+     */
+    public boolean covers(LocalDateTime time) {
+        return !time.isBefore(since);
+    }
+
+    /**
+     * The version that applies to the product at {@code time}, or null when its base price does.
+     * Only meaningful for times the index {@link #covers}.
+     */
+    public Version at(String productId, LocalDateTime time) {
+        Timeline timeline = productId == null ? null : timelines.get(productId);
+        return timeline == null ? null : timeline.at(time);
+    }
+
+    /**
+     * The first moment after {@code time} at which any product's price changes, or null.
+     */
+    public LocalDateTime nextChangeAfter(LocalDateTime time) {
+        return changes.higherKey(time);
+    }
+
+    /**
+     * Products whose applicable version changes after {@code from} and no later than {@code to}.
+     */
+    public Set<String> changedBetween(LocalDateTime from, LocalDateTime to) {
+        if (!to.isAfter(from)) {
+            return Set.of();
+        }
+        Collection<Set<String>> due = changes.subMap(from, false, to, true).values();
+        if (due.size() == 1) {
+            return due.iterator().next();
+        }
+        Set<String> changed = new TreeSet<>();
+        due.forEach(changed::addAll);
+        return changed;
+    }
+
+    public int size() {
+        return size;
+    }
+}
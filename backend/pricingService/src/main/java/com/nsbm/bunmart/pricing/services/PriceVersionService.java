@@ -0,0 +1,158 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.errors.ProductNotFoundException;
+import com.nsbm.bunmart.pricing.events.PricingDataChangedEvent;
+import com.nsbm.bunmart.pricing.model.PriceVersion;
+import com.nsbm.bunmart.pricing.model.Product;
+import com.nsbm.bunmart.pricing.repositories.PriceVersionRepository;
+import com.nsbm.bunmart.pricing.repositories.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Scheduled and historical product prices. A version, or a whole campaign of versions, is written
+ * in one transaction and published as one event, so the snapshot is rebuilt once and every price of
+ * a campaign switches in the same snapshot swap when its {@code effectiveFrom} arrives.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class PriceVersionService {
+
+    /**
+     * The price of a product at a point in time; {@code version} is null when the base price applies.
+     */
+    public record EffectivePrice(PricingSnapshot.PriceEntry product, LocalDateTime at, BigDecimal rawPrice,
+                                 PriceVersionIndex.Version version) {
+    }
+
+    private final PriceVersionRepository priceVersionRepository;
+    private final ProductRepository productRepository;
+    private final PricingSnapshotService snapshotService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public PriceVersion create(String productId, BigDecimal rawPrice, LocalDateTime effectiveFrom,
+                               LocalDateTime effectiveTo) {
+        validateInterval(effectiveFrom, effectiveTo);
+        if (!productRepository.existsById(productId)) {
+            throw new ProductNotFoundException("Product not found: " + productId);
+        }
+        PriceVersion saved = priceVersionRepository.save(newVersion(productId, rawPrice, effectiveFrom, effectiveTo, null));
+        publishChanged(String.valueOf(saved.getId()));
+        return saved;
+    }
+
+    /**
+     * Schedules new prices for many products over one interval. Either every price of the campaign
+     * is stored or none is.
+     */
+    public List<PriceVersion> createCampaign(String campaignId, LocalDateTime effectiveFrom, LocalDateTime effectiveTo,
+                                             List<String> productIds, List<BigDecimal> prices) {
+        validateInterval(effectiveFrom, effectiveTo);
+        if (productIds == null || prices == null || productIds.size() != prices.size()) {
+            throw new IllegalArgumentException("productIds and prices must be same size");
+        }
+        if (productIds.isEmpty()) {
+            throw new IllegalArgumentException("A campaign needs at least one price");
+        }
+        Map<String, BigDecimal> pricesByProduct = new LinkedHashMap<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            if (pricesByProduct.putIfAbsent(productIds.get(i), prices.get(i)) != null) {
+                throw new IllegalArgumentException("Product listed twice in campaign: " + productIds.get(i));
+            }
+        }
+        if (priceVersionRepository.countByCampaignId(campaignId) > 0) {
+            throw new IllegalArgumentException("Campaign already exists: " + campaignId);
+        }
+        Set<String> missing = new HashSet<>(pricesByProduct.keySet());
+        for (Product product : productRepository.findAllById(pricesByProduct.keySet())) {
+            missing.remove(product.getId());
+        }
+        if (!missing.isEmpty()) {
+            throw new ProductNotFoundException("Products not found: " + missing);
+        }
+        List<PriceVersion> versions = new ArrayList<>(pricesByProduct.size());
+        pricesByProduct.forEach((productId, rawPrice) ->
+                versions.add(newVersion(productId, rawPrice, effectiveFrom, effectiveTo, campaignId)));
+        List<PriceVersion> saved = priceVersionRepository.saveAll(versions);
+        publishChanged(campaignId);
+        return saved;
+    }
+
+    @Transactional(readOnly = true)
+    public List<PriceVersion> getByProductId(String productId) {
+        return priceVersionRepository.findByProductIdOrderByEffectiveFromAscIdAsc(productId);
+    }
+
+    /**
+     * The price of an active product at {@code at}, answered from the in-memory index, or from the
+     * table for a time before the index was built. Before the first version of a product, or
+     * between versions, the base price it had at that time is reported.
+     */
+    @Transactional(readOnly = true)
+    public EffectivePrice priceAt(String productId, LocalDateTime at) {
+        PricingSnapshot snapshot = snapshotService.current();
+        PricingSnapshot.PriceEntry product = snapshot.baseProduct(productId);
+        if (product == null) {
+            throw new ProductNotFoundException("Product not found: " + productId);
+        }
+        LocalDateTime time = at != null ? at : LocalDateTime.now();
+        PriceVersionIndex.Version version;
+        if (snapshot.priceVersions().covers(time)) {
+            version = snapshot.priceVersions().at(productId, time);
+        } else {
+            version = priceVersionRepository.findCovering(productId, time, Limit.of(1)).stream()
+                    .findFirst()
+                    .map(PriceVersionIndex.Version::of)
+                    .orElse(null);
+        }
+        return new EffectivePrice(product, time, version != null ? version.rawPrice() : basePriceAt(product, time), version);
+    }
+
+    private BigDecimal basePriceAt(PricingSnapshot.PriceEntry product, LocalDateTime time) {
+        if (!time.isBefore(LocalDateTime.now())) {
+            return product.rawPrice();
+        }
+        // Base prices replaced since are recorded as ended versions; none covers the current one
+        return priceVersionRepository.findBaseCovering(product.id(), time, Limit.of(1)).stream()
+                .findFirst()
+                .map(PriceVersion::getRawPrice)
+                .orElse(product.rawPrice());
+    }
+
+    private static void validateInterval(LocalDateTime effectiveFrom, LocalDateTime effectiveTo) {
+        if (effectiveFrom == null) {
+            throw new IllegalArgumentException("effectiveFrom is required");
+        }
+        if (effectiveTo != null && !effectiveTo.isAfter(effectiveFrom)) {
+            throw new IllegalArgumentException("effectiveTo must be after effectiveFrom");
+        }
+    }
+
+    private static PriceVersion newVersion(String productId, BigDecimal rawPrice, LocalDateTime effectiveFrom,
+                                           LocalDateTime effectiveTo, String campaignId) {
+        PriceVersion v = new PriceVersion();
+        v.setProductId(productId);
+        v.setRawPrice(rawPrice);
+        v.setEffectiveFrom(effectiveFrom);
+        v.setEffectiveTo(effectiveTo);
+        v.setCampaignId(campaignId);
+        return v;
+    }
+
+    private void publishChanged(String id) {
+        eventPublisher.publishEvent(new PricingDataChangedEvent(PricingDataChangedEvent.Source.PRICE_VERSION, id));
+    }
+}
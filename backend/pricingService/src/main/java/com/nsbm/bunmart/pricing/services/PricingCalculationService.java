@@ -2,174 +2,237 @@ package com.nsbm.bunmart.pricing.services;
 
 import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
 import com.nsbm.bunmart.pricing.dto.ProductPriceInfoDTO;
-import com.nsbm.bunmart.pricing.model.Coupon;
-import com.nsbm.bunmart.pricing.model.Discount;
-import com.nsbm.bunmart.pricing.model.Product;
-import com.nsbm.bunmart.pricing.repositories.CouponRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PricingCalculationService {
 
-    private static final int SCALE = 4;
-    private static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+    private record LineKey(String productId, int quantity) {
+    }
+
+    private record PricedLine(PricingSnapshot.PriceEntry product, int quantity, long unitPrice, long subtotal,
+                              long shipping) {
+    }
 
-    private final ProductService productService;
-    private final DiscountService discountService;
-    private final CouponRepository couponRepository;
+    // Amounts without a rates table are in the products' own currency, which has always defaulted to USD
+    private static final FxRateTable NO_RATES = FxRateTable.empty("USD");
 
-    public CalculatePriceResponseDTO calculate(List<String> productIds, List<Integer> quantities, String couponCode) {
+    private final PricingSnapshotService snapshotService;
+    private final CouponRegistry couponRegistry;
+    private final FxRateService fxRateService;
+    private final CouponUsageIndex couponUsageIndex;
+
+    public CalculatePriceResponseDTO calculate(List<String> productIds, List<Integer> quantities, String couponCode,
+                                               String currencyCode, String userId) {
+        // One snapshot and one rates table for the whole request: every line sees the same prices, rules and rates
+        return calculate(snapshotService.current(), fxRateService.current(), productIds, quantities, couponCode, currencyCode,
+                userId);
+    }
+
+    /**
+     * Prices a cart in its products' own currency, without exchange rates, so only carts in a single
+     * currency can be priced.
+     */
+    public CalculatePriceResponseDTO calculate(PricingSnapshot snapshot, List<String> productIds, List<Integer> quantities,
+                                               String couponCode) {
+        return calculate(snapshot, NO_RATES, productIds, quantities, couponCode, null, null);
+    }
+
+    /**
+     * Prices a cart against the given snapshot and exchange rates, in {@code currencyCode}. Without
+     * a currency, a cart whose products share one currency is priced in it and any other cart in
+     * the base currency. Batch callers take {@link #currentSnapshot()} and {@link #currentFxRates()}
+     * once so that every cart in the batch is priced from the same prices, rules and rates.
+     * <p>
+     * An order coupon's amounts are in the base currency when the cart had to be converted; a cart
+     * priced in its products' own currency takes them in that currency, without a rate.
+     * <p>
+     * Coupons the user has used up are left out; without a {@code userId} they are all applied,
+     * and the per-user limit is enforced when the coupon is reserved.
+     */
+    public CalculatePriceResponseDTO calculate(PricingSnapshot snapshot, FxRateTable fxRates, List<String> productIds,
+                                               List<Integer> quantities, String couponCode, String currencyCode,
+                                               String userId) {
         if (productIds == null || quantities == null || productIds.size() != quantities.size()) {
             throw new IllegalArgumentException("productIds and quantities must be same size");
         }
-        List<Product> products = productService.getByIds(productIds);
-        List<Discount> allDiscounts = productIds.isEmpty() ? List.of() : discountService.getByProductIds(productIds);
-        List<Coupon> validCoupons = couponRepository.findValidCoupons(LocalDateTime.now());
-
-        BigDecimal subtotal = BigDecimal.ZERO;
-        BigDecimal discountTotal = BigDecimal.ZERO;
-        BigDecimal shippingTotal = BigDecimal.ZERO;
-        BigDecimal taxTotal = BigDecimal.ZERO;
-        List<CalculatePriceResponseDTO.LineItemPriceDTO> lineItems = new ArrayList<>();
-        String currencyCode = "USD";
+        LocalDateTime now = LocalDateTime.now();
+        String target = currencyCode != null && !currencyCode.isBlank()
+                ? FxRateTable.currency(currencyCode)
+                : commonCurrency(snapshot, productIds, fxRates.baseCurrency());
+
+        // All amounts below are Money units (ten-thousandths); BigDecimal only at the boundary
+        long subtotal = 0;
+        List<PricedLine> lines = new ArrayList<>(productIds.size());
+        List<DiscountStacking.LineOptions> lineOptions = new ArrayList<>(productIds.size());
+        Map<LineKey, DiscountStacking.LineOptions> stacked = new HashMap<>();
+        // The rate is looked up again only when a line's currency differs from the previous line's
+        String rateCurrency = target;
+        FxRateTable.Rate rate = FxRateTable.Rate.IDENTITY;
+        boolean converted = false;
 
         for (int i = 0; i < productIds.size(); i++) {
             String pid = productIds.get(i);
             int qty = quantities.get(i) != null ? Math.max(0, quantities.get(i)) : 0;
-            Product product = products.stream().filter(p -> p.getId().equals(pid)).findFirst().orElse(null);
+            PricingSnapshot.PriceEntry product = snapshot.product(pid);
             if (product == null || qty <= 0) continue;
-            if (product.getCurrencyCode() != null) currencyCode = product.getCurrencyCode();
-
-            BigDecimal unitPrice = product.getRawPrice();
-            BigDecimal lineSubtotal = unitPrice.multiply(BigDecimal.valueOf(qty)).setScale(SCALE, ROUNDING);
-            BigDecimal lineDiscount = BigDecimal.ZERO;
-            StringBuilder discountDesc = new StringBuilder();
-
-            List<Discount> productDiscounts = allDiscounts.stream()
-                    .filter(d -> d.getProductId().equals(pid) && qty >= d.getMinQuantity())
-                    .sorted((a, b) -> b.getMinQuantity().compareTo(a.getMinQuantity()))
-                    .collect(Collectors.toList());
-            Discount bestDiscount = productDiscounts.isEmpty() ? null : productDiscounts.get(0);
-            if (bestDiscount != null) {
-                BigDecimal discountAmount = applyDiscount(unitPrice, qty, bestDiscount.getType(), bestDiscount.getValue());
-                lineDiscount = lineDiscount.add(discountAmount);
-                if (discountDesc.length() > 0) discountDesc.append("; ");
-                discountDesc.append(bestDiscount.getDescription() != null ? bestDiscount.getDescription() : "Discount " + bestDiscount.getType());
+            String productCurrency = product.currencyCode() != null ? product.currencyCode() : fxRates.baseCurrency();
+            if (!productCurrency.equals(rateCurrency)) {
+                rate = fxRates.rate(productCurrency, target);
+                rateCurrency = productCurrency;
             }
+            converted |= !productCurrency.equals(target);
+
+            // Converted once per line, so everything below is in the target currency
+            long unitPrice = rate.convert(product.priceUnits());
+            long lineSubtotal = Money.times(unitPrice, qty);
+            FxRateTable.Rate lineRate = rate;
+            // Repeated lines of one product and quantity share a single stacking result
+            DiscountStacking.LineOptions options = stacked.computeIfAbsent(new LineKey(pid, qty), key ->
+                    DiscountStacking.line(snapshot.discounts(pid), productCoupons(pid, now, userId), unitPrice, qty, lineRate));
+            lines.add(new PricedLine(product, qty, unitPrice, lineSubtotal, Money.times(rate.convert(product.shippingUnits()), qty)));
+            lineOptions.add(options);
+            subtotal = Money.add(subtotal, lineSubtotal);
+        }
 
-            List<Coupon> productCoupons = validCoupons.stream()
-                    .filter(c -> pid.equals(c.getProductId()) && c.getMinQuantity() != null && qty >= c.getMinQuantity())
-                    .collect(Collectors.toList());
-            if (!productCoupons.isEmpty()) {
-                Coupon bestCoupon = productCoupons.get(0);
-                BigDecimal couponAmount = applyDiscount(unitPrice, qty, bestCoupon.getType(), bestCoupon.getValue());
-                lineDiscount = lineDiscount.add(couponAmount);
-                if (discountDesc.length() > 0) discountDesc.append("; ");
-                discountDesc.append(bestCoupon.getDescription() != null ? bestCoupon.getDescription() : "Coupon " + bestCoupon.getCode());
-            }
-
-            BigDecimal lineAfterDiscount = lineSubtotal.subtract(lineDiscount).setScale(SCALE, ROUNDING);
-            // Tax is stored as percentage (e.g. 20 = 20%), so divide by 100 when applying
-            BigDecimal taxRate = product.getTax() != null ? product.getTax() : BigDecimal.ZERO;
-            BigDecimal lineTax = lineAfterDiscount.multiply(taxRate).divide(BigDecimal.valueOf(100), SCALE, ROUNDING);
-            BigDecimal lineShipping = (product.getShippingCost() != null ? product.getShippingCost() : BigDecimal.ZERO)
-                    .multiply(BigDecimal.valueOf(qty)).setScale(SCALE, ROUNDING);
-            BigDecimal lineTotal = lineAfterDiscount.add(lineTax).add(lineShipping).setScale(SCALE, ROUNDING);
-
-            subtotal = subtotal.add(lineSubtotal);
-            discountTotal = discountTotal.add(lineDiscount);
-            taxTotal = taxTotal.add(lineTax);
-            shippingTotal = shippingTotal.add(lineShipping);
+        // Order-level coupon (productId == null): may give up line discounts that would miss its minimum
+        CouponRegistry.CouponRule orderCoupon = null;
+        if (couponCode != null && !couponCode.isBlank()) {
+            CouponRegistry.CouponRule coupon = couponRegistry.findValid(couponCode.trim(), now);
+            if (coupon != null && coupon.isOrderLevel() && allows(coupon, userId)) orderCoupon = coupon;
+        }
+        // Only a converted cart needs the coupon's base currency amounts converted too
+        FxRateTable.Rate orderRate = orderCoupon != null && converted
+                ? fxRates.rate(fxRates.baseCurrency(), target)
+                : FxRateTable.Rate.IDENTITY;
+        DiscountStacking.OrderChoice choice = DiscountStacking.order(lineOptions, subtotal, orderCoupon, orderRate);
+
+        long discountTotal = 0;
+        long shippingTotal = 0;
+        long taxTotal = 0;
+        List<CalculatePriceResponseDTO.LineItemPriceDTO> lineItems = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            PricedLine line = lines.get(i);
+            PricingSnapshot.PriceEntry product = line.product();
+            DiscountStacking.LineOptions options = lineOptions.get(i);
+            int option = choice.options()[i];
+            long lineDiscount = options.amount(option);
+            String discountDesc = options.description(option);
+
+            long lineAfterDiscount = Money.subtract(line.subtotal(), lineDiscount);
+            // Tax is stored as percentage (e.g. 20 = 20%)
+            long lineTax = Money.percent(lineAfterDiscount, product.taxRateUnits());
+            long lineShipping = line.shipping();
+            long lineTotal = Money.add(Money.add(lineAfterDiscount, lineTax), lineShipping);
+
+            discountTotal = Money.add(discountTotal, lineDiscount);
+            taxTotal = Money.add(taxTotal, lineTax);
+            shippingTotal = Money.add(shippingTotal, lineShipping);
 
             lineItems.add(new CalculatePriceResponseDTO.LineItemPriceDTO(
-                    pid,
-                    product.getName(),
-                    qty,
-                    unitPrice,
-                    lineSubtotal,
-                    lineDiscount,
-                    lineShipping,
-                    lineTax,
-                    lineTotal,
-                    discountDesc.toString()
+                    product.id(),
+                    product.name(),
+                    line.quantity(),
+                    line.unitPrice() == product.priceUnits() ? product.rawPrice() : Money.toBigDecimal(line.unitPrice()),
+                    Money.toBigDecimal(line.subtotal()),
+                    Money.toBigDecimal(lineDiscount),
+                    Money.toBigDecimal(lineShipping),
+                    Money.toBigDecimal(lineTax),
+                    Money.toBigDecimal(lineTotal),
+                    discountDesc
             ));
         }
+        discountTotal = Money.add(discountTotal, choice.couponAmount());
 
-        // Order-level coupon (productId == null): apply after line items
-        if (couponCode != null && !couponCode.isBlank()) {
-            var orderCouponOpt = couponRepository.findValidCouponByCode(couponCode.trim(), LocalDateTime.now());
-            if (orderCouponOpt.isPresent()) {
-                Coupon coupon = orderCouponOpt.get();
-                if (coupon.getProductId() == null || coupon.getProductId().isBlank()) {
-                    BigDecimal afterProductDiscounts = subtotal.subtract(discountTotal).setScale(SCALE, ROUNDING);
-                    BigDecimal minOrder = coupon.getMinOrderAmount() != null ? coupon.getMinOrderAmount() : BigDecimal.ZERO;
-                    if (afterProductDiscounts.compareTo(minOrder) >= 0) {
-                        BigDecimal orderCouponAmount = BigDecimal.ZERO;
-                        if ("PERCENT".equalsIgnoreCase(coupon.getType()) && coupon.getValue() != null) {
-                            orderCouponAmount = afterProductDiscounts.multiply(coupon.getValue()).divide(BigDecimal.valueOf(100), SCALE, ROUNDING);
-                        } else if ("FIXED".equalsIgnoreCase(coupon.getType()) && coupon.getValue() != null) {
-                            orderCouponAmount = coupon.getValue().min(afterProductDiscounts).setScale(SCALE, ROUNDING);
-                        }
-                        discountTotal = discountTotal.add(orderCouponAmount);
-                    }
-                }
+        long total = Money.add(Money.add(Money.subtract(subtotal, discountTotal), taxTotal), shippingTotal);
+        return new CalculatePriceResponseDTO(Money.toBigDecimal(subtotal), Money.toBigDecimal(discountTotal),
+                Money.toBigDecimal(shippingTotal), Money.toBigDecimal(taxTotal), Money.toBigDecimal(total),
+                target, fxRates.version(), lineItems, null, null);
+    }
+
+    /**
+     * The currency shared by every known product of the cart, or {@code baseCurrency} when they
+     * differ or none is known.
+     */
+    private static String commonCurrency(PricingSnapshot snapshot, List<String> productIds, String baseCurrency) {
+        String common = null;
+        for (String pid : productIds) {
+            PricingSnapshot.PriceEntry product = snapshot.product(pid);
+            if (product == null) continue;
+            String currency = product.currencyCode() != null ? product.currencyCode() : baseCurrency;
+            if (common == null) {
+                common = currency;
+            } else if (!common.equals(currency)) {
+                return baseCurrency;
             }
         }
+        return common != null ? common : baseCurrency;
+    }
+
+    public PricingSnapshot currentSnapshot() {
+        return snapshotService.current();
+    }
 
-        BigDecimal total = subtotal.subtract(discountTotal).add(taxTotal).add(shippingTotal).setScale(SCALE, ROUNDING);
-        return new CalculatePriceResponseDTO(subtotal, discountTotal, shippingTotal, taxTotal, total, currencyCode, lineItems);
+    public FxRateTable currentFxRates() {
+        return fxRateService.current();
     }
 
     public List<ProductPriceInfoDTO> getProductPrices(List<String> productIds) {
-        List<Product> products = productService.getByIds(productIds);
-        List<Discount> discounts = productIds.isEmpty() ? List.of() : discountService.getByProductIds(productIds);
-        List<Coupon> coupons = couponRepository.findByProductIdInAndIsActiveTrue(productIds);
+        return getProductPrices(snapshotService.current(), productIds);
+    }
+
+    private List<CouponRegistry.CouponRule> productCoupons(String productId, LocalDateTime now, String userId) {
+        List<CouponRegistry.CouponRule> coupons = couponRegistry.productCoupons(productId, now);
+        return userId != null && !coupons.isEmpty() ? couponUsageIndex.usable(coupons, userId) : coupons;
+    }
 
-        List<ProductPriceInfoDTO> result = new ArrayList<>();
+    private boolean allows(CouponRegistry.CouponRule coupon, String userId) {
+        return userId == null || couponUsageIndex.allows(coupon, userId);
+    }
+
+    /**
+     * Price and discount info for each known product, in request order; unknown or inactive ids
+     * are skipped.
+     */
+    public List<ProductPriceInfoDTO> getProductPrices(PricingSnapshot snapshot, List<String> productIds) {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<ProductPriceInfoDTO> result = new ArrayList<>(productIds.size());
         for (String pid : productIds) {
-            Product product = products.stream().filter(p -> p.getId().equals(pid)).findFirst().orElse(null);
+            PricingSnapshot.PriceEntry product = snapshot.product(pid);
             if (product == null) continue;
 
             List<ProductPriceInfoDTO.DiscountInfoDTO> discountInfos = new ArrayList<>();
-            discounts.stream().filter(d -> d.getProductId().equals(pid))
-                    .forEach(d -> discountInfos.add(new ProductPriceInfoDTO.DiscountInfoDTO("DISCOUNT", d.getMinQuantity(), d.getDescription(), d.getValue(), null)));
-            coupons.stream().filter(c -> pid.equals(c.getProductId()))
-                    .forEach(c -> discountInfos.add(new ProductPriceInfoDTO.DiscountInfoDTO("COUPON", c.getMinQuantity(), c.getDescription(), c.getValue(), c.getCode())));
+            for (PricingSnapshot.DiscountRule d : snapshot.discounts(pid).all()) {
+                discountInfos.add(new ProductPriceInfoDTO.DiscountInfoDTO("DISCOUNT", d.minQuantity(), d.description(), d.value(), null));
+            }
+            for (CouponRegistry.CouponRule c : couponRegistry.productCoupons(pid, now)) {
+                discountInfos.add(new ProductPriceInfoDTO.DiscountInfoDTO("COUPON", c.minQuantity(), c.description(), c.value(), c.code()));
+            }
 
             String discountDescription = discountInfos.stream()
                     .map(d -> d.getDescription() != null ? d.getDescription() : (d.getType() + " (min qty: " + d.getMinQuantity() + ")"))
                     .collect(Collectors.joining("; "));
 
             result.add(new ProductPriceInfoDTO(
-                    product.getId(),
-                    product.getName(),
-                    product.getRawPrice(),
-                    product.getRawPrice(),
-                    product.getTax(),
+                    product.id(),
+                    product.name(),
+                    product.rawPrice(),
+                    snapshot.baseProduct(pid).rawPrice(),
+                    product.tax(),
                     discountInfos,
                     discountDescription
             ));
         }
         return result;
     }
-
-    private BigDecimal applyDiscount(BigDecimal unitPrice, int qty, String type, BigDecimal value) {
-        if (type == null || value == null) return BigDecimal.ZERO;
-        if ("PERCENT".equalsIgnoreCase(type)) {
-            return unitPrice.multiply(BigDecimal.valueOf(qty)).multiply(value).divide(BigDecimal.valueOf(100), SCALE, ROUNDING);
-        }
-        if ("FIXED".equalsIgnoreCase(type)) {
-            return value.multiply(BigDecimal.valueOf(qty)).setScale(SCALE, ROUNDING);
-        }
-        return BigDecimal.ZERO;
-    }
 }
@@ -0,0 +1,182 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
+import com.nsbm.bunmart.pricing.errors.QuoteNotFoundException;
+import com.nsbm.bunmart.pricing.events.PricingDataChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Price quotes: every calculation is held under a signed quote id for a short TTL, so the order
+ * service can lock in the price with one lookup instead of trusting client totals or recomputing.
+ * <p>
+ * Quote ids have the form {@code nonce.expiresAt.signature}, with an HMAC-SHA256 signature over
+ * the first two parts; forged or expired ids are rejected before the cache is consulted. An
+ * identical cart and coupon inside the TTL reuses the calculation, but every call is issued its own
+ * quote id and expiry, since a quote locks in at most one order. Any committed pricing write starts
+ * a new generation, and a scheduled price change publishes a new snapshot version, so such a repeat
+ * is recalculated rather than served a stale price; the same holds for a new exchange rate table,
+ * whose version is recorded in the quote. Quotes already issued stay valid until they expire.
+ * Quotes are per user, since coupons with a per-user limit apply to some users and not others; the
+ * limit itself is enforced when the coupon is reserved.
+ */
+@Service
+public class PricingQuoteService {
+
+    private static final String HMAC = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private record QuoteKey(long generation, long snapshotVersion, List<String> productIds, List<Integer> quantities,
+                            String couponCode, String currencyCode, long fxRatesVersion, String userId) {
+    }
+
+    private final PricingCalculationService pricingCalculationService;
+    private final Duration ttl;
+    private final SecretKeySpec signingKey;
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong generation = new AtomicLong();
+    private final Cache<String, CalculatePriceResponseDTO> quotes;
+    private final Cache<QuoteKey, CalculatePriceResponseDTO> calculations;
+
+    public PricingQuoteService(PricingCalculationService pricingCalculationService,
+                               @Value("${pricing.quotes.ttl:5m}") Duration ttl,
+                               @Value("${pricing.quotes.max-size:100000}") long maxSize,
+                               @Value("${pricing.quotes.secret:}") String secret) {
+        this.pricingCalculationService = pricingCalculationService;
+        this.ttl = ttl;
+        byte[] key;
+        if (secret == null || secret.isBlank()) {
+            // Quotes live in this instance's memory only, so a per-process key is sufficient
+            key = new byte[32];
+            random.nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.signingKey = new SecretKeySpec(key, HMAC);
+        this.quotes = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.calculations = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Calculates the cart and returns the result under a new quote id, reusing the calculation of
+     * an identical recent request.
+     */
+    public CalculatePriceResponseDTO quote(List<String> productIds, List<Integer> quantities, String couponCode,
+                                           String currencyCode, String userId) {
+        if (productIds == null || quantities == null) {
+            return pricingCalculationService.calculate(productIds, quantities, couponCode, currencyCode, userId);
+        }
+        PricingSnapshot snapshot = pricingCalculationService.currentSnapshot();
+        FxRateTable fxRates = pricingCalculationService.currentFxRates();
+        QuoteKey key = new QuoteKey(generation.get(), snapshot.version(), new ArrayList<>(productIds),
+                new ArrayList<>(quantities), couponCode == null || couponCode.isBlank() ? null : couponCode.trim(),
+                currencyCode == null || currencyCode.isBlank() ? null : FxRateTable.currency(currencyCode),
+                fxRates.version(), userId);
+        CalculatePriceResponseDTO calculation = calculations.get(key, k -> pricingCalculationService.calculate(snapshot,
+                fxRates, productIds, quantities, couponCode, currencyCode, userId));
+        Instant expiresAt = Instant.now().plus(ttl);
+        String quoteId = newQuoteId(expiresAt);
+        // The cached calculation is shared, so each quote gets its own copy to carry its id
+        CalculatePriceResponseDTO result = new CalculatePriceResponseDTO(calculation.getSubtotal(),
+                calculation.getDiscountTotal(), calculation.getShippingTotal(), calculation.getTaxTotal(),
+                calculation.getTotal(), calculation.getCurrencyCode(), calculation.getFxRatesVersion(),
+                calculation.getLineItems(), quoteId, LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()));
+        quotes.put(quoteId, result);
+        return result;
+    }
+
+    public CalculatePriceResponseDTO getQuote(String quoteId) {
+        verify(quoteId);
+        CalculatePriceResponseDTO quote = quotes.getIfPresent(quoteId);
+        if (quote == null) {
+            throw new QuoteNotFoundException("Quote not found or expired: " + quoteId);
+        }
+        return quote;
+    }
+
+    /**
+     * Returns the quote and removes it, so each quote locks in at most one order.
+     */
+    public CalculatePriceResponseDTO consumeQuote(String quoteId) {
+        verify(quoteId);
+        CalculatePriceResponseDTO quote = quotes.asMap().remove(quoteId);
+        if (quote == null) {
+            throw new QuoteNotFoundException("Quote not found, expired or already used: " + quoteId);
+        }
+        return quote;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPricingDataChanged(PricingDataChangedEvent event) {
+        generation.incrementAndGet();
+        calculations.invalidateAll();
+    }
+
+    private String newQuoteId(Instant expiresAt) {
+        byte[] nonce = new byte[16];
+        random.nextBytes(nonce);
+        String payload = ENCODER.encodeToString(nonce) + "." + expiresAt.getEpochSecond();
+        return payload + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    private void verify(String quoteId) {
+        if (quoteId == null || quoteId.isBlank()) {
+            throw new IllegalArgumentException("quoteId is required");
+        }
+        int last = quoteId.lastIndexOf('.');
+        int first = quoteId.indexOf('.');
+        if (first <= 0 || last <= first) {
+            throw new QuoteNotFoundException("Invalid quote id: " + quoteId);
+        }
+        String payload = quoteId.substring(0, last);
+        byte[] signature;
+        long expiresAt;
+        try {
+            signature = DECODER.decode(quoteId.substring(last + 1));
+            expiresAt = Long.parseLong(quoteId.substring(first + 1, last));
+        } catch (IllegalArgumentException e) {
+            throw new QuoteNotFoundException("Invalid quote id: " + quoteId);
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            throw new QuoteNotFoundException("Invalid quote id: " + quoteId);
+        }
+        if (Instant.now().getEpochSecond() >= expiresAt) {
+            throw new QuoteNotFoundException("Quote expired: " + quoteId);
+        }
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(signingKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Quote signing is unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.model.Discount;
+import com.nsbm.bunmart.pricing.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable view of every active product and discount, built in one pass and swapped in whole by
+ * {@link PricingSnapshotService}. Price calculation reads only from here and from
+ * {@link CouponRegistry}, so it does no database I/O and concurrent calculations never contend.
+ * <p>
+ * Discounts of a product are sorted by {@code minQuantity} so the tier for a quantity is a binary
+ * search.
+ * <p>
+ * Product prices are those in effect at {@link #pricesAt()}: the base product row overlaid with
+ * the applicable {@link PriceVersionIndex} version. {@link #advanceTo} derives the snapshot for a
+ * later moment without touching the database, replacing only the products whose version changed.
+ */
+public final class PricingSnapshot {
+
+    /**
+     * How a discount or coupon value is applied. A missing value or an unknown type applies
+     * nothing.
+     */
+    public enum Adjustment {
+        PERCENT,
+        FIXED,
+        NONE;
+
+        public static Adjustment of(String type, BigDecimal value) {
+            if (value == null) return NONE;
+            if ("PERCENT".equalsIgnoreCase(type)) return PERCENT;
+            if ("FIXED".equalsIgnoreCase(type)) return FIXED;
+            return NONE;
+        }
+    }
+
+    /**
+     * Price fields of a product; the {@code *Units} components hold the same amounts as
+     * {@link Money} units for the calculation loop.
+     */
+    public record PriceEntry(String id, String name, BigDecimal rawPrice, BigDecimal tax,
+                             BigDecimal shippingCost, String currencyCode,
+                             long priceUnits, long taxRateUnits, long shippingUnits) {
+
+        static PriceEntry of(Product product) {
+            return new PriceEntry(product.getId(), product.getName(), product.getRawPrice(), product.getTax(),
+                    product.getShippingCost(), currency(product.getCurrencyCode()),
+                    Money.of(product.getRawPrice()), Money.of(product.getTax()), Money.of(product.getShippingCost()));
+        }
+
+        /**
+         * Codes are stored as entered, so " eur" and "EUR" are made the same currency here; blank
+         * means none, like null.
+         */
+        private static String currency(String code) {
+            return code == null || code.isBlank() ? null : code.trim().toUpperCase();
+        }
+
+        PriceEntry withPrice(BigDecimal price) {
+            return new PriceEntry(id, name, price, tax, shippingCost, currencyCode, Money.of(price), taxRateUnits,
+                    shippingUnits);
+        }
+    }
+
+    public record DiscountRule(Long id, String productId, int minQuantity, String type, BigDecimal value,
+                               String description, Adjustment adjustment, long valueUnits,
+                               String stackGroup, int priority, boolean exclusive) {
+
+        static DiscountRule of(Discount discount) {
+            return new DiscountRule(discount.getId(), discount.getProductId(), discount.getMinQuantity(),
+                    discount.getType(), discount.getValue(), discount.getDescription(),
+                    Adjustment.of(discount.getType(), discount.getValue()), Money.of(discount.getValue()),
+                    discount.getStackGroup(), discount.getPriority() != null ? discount.getPriority() : 0,
+                    Boolean.TRUE.equals(discount.getIsExclusive()));
+        }
+    }
+
+    /**
+     * Discount tiers of one product in ascending {@code minQuantity} order.
+     */
+    public static final class DiscountTiers {
+
+        private final DiscountRule[] rules;
+        private final int[] minQuantities;
+
+        DiscountTiers(List<DiscountRule> rules) {
+            this.rules = rules.toArray(DiscountRule[]::new);
+            this.minQuantities = new int[this.rules.length];
+            for (int i = 0; i < this.rules.length; i++) {
+                minQuantities[i] = this.rules[i].minQuantity();
+            }
+        }
+
+        /**
+         * Number of tiers that {@code quantity} reaches; they are the first ones in {@link #rule} order.
+         */
+        public int eligible(int quantity) {
+            int low = 0;
+            int high = minQuantities.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (minQuantities[mid] <= quantity) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        public DiscountRule rule(int index) {
+            return rules[index];
+        }
+
+        public List<DiscountRule> all() {
+            return List.of(rules);
+        }
+
+        boolean sameRules(DiscountTiers other) {
+            return this == other || Arrays.equals(rules, other.rules);
+        }
+    }
+
+    private static final DiscountTiers NO_DISCOUNTS = new DiscountTiers(List.of());
+
+    private final long version;
+    private final LocalDateTime builtAt;
+    private final LocalDateTime pricesAt;
+    private final Map<String, PriceEntry> baseProducts;
+    private final Map<String, PriceEntry> products;
+    private final Map<String, DiscountTiers> discountsByProduct;
+    private final PriceVersionIndex priceVersions;
+
+    private PricingSnapshot(long version, LocalDateTime builtAt, LocalDateTime pricesAt,
+                            Map<String, PriceEntry> baseProducts, Map<String, PriceEntry> products,
+                            Map<String, DiscountTiers> discountsByProduct, PriceVersionIndex priceVersions) {
+        this.version = version;
+        this.builtAt = builtAt;
+        this.pricesAt = pricesAt;
+        this.baseProducts = baseProducts;
+        this.products = products;
+        this.discountsByProduct = discountsByProduct;
+        this.priceVersions = priceVersions;
+    }
+
+    public static PricingSnapshot empty() {
+        LocalDateTime now = LocalDateTime.now();
+        return new PricingSnapshot(0, now, now, Map.of(), Map.of(), Map.of(), PriceVersionIndex.empty());
+    }
+
+    public static PricingSnapshot build(long version, Collection<Product> products, Collection<Discount> discounts) {
+        return build(version, products, discounts, PriceVersionIndex.empty(), LocalDateTime.now());
+    }
+
+    /**
+     * Builds a snapshot from active rows with prices as of {@code pricesAt}. Entities are copied
+     * into records, so nothing in the snapshot is shared with the persistence context.
+     */
+    public static PricingSnapshot build(long version, Collection<Product> products, Collection<Discount> discounts,
+                                        PriceVersionIndex priceVersions, LocalDateTime pricesAt) {
+        Map<String, PriceEntry> baseMap = new HashMap<>();
+        Map<String, PriceEntry> productMap = new HashMap<>();
+        for (Product product : products) {
+            PriceEntry base = PriceEntry.of(product);
+            baseMap.put(product.getId(), base);
+            productMap.put(product.getId(), effective(base, priceVersions, pricesAt));
+        }
+
+        Map<String, List<DiscountRule>> grouped = new HashMap<>();
+        for (Discount discount : discounts) {
+            if (discount.getProductId() == null || discount.getMinQuantity() == null) {
+                continue;
+            }
+            grouped.computeIfAbsent(discount.getProductId(), k -> new ArrayList<>()).add(DiscountRule.of(discount));
+        }
+        Map<String, DiscountTiers> tiers = new HashMap<>();
+        grouped.forEach((productId, rules) -> {
+            rules.sort(Comparator.comparingInt(DiscountRule::minQuantity).thenComparing(DiscountRule::id,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            tiers.put(productId, new DiscountTiers(rules));
+        });
+
+        return new PricingSnapshot(version, LocalDateTime.now(), pricesAt, Map.copyOf(baseMap), Map.copyOf(productMap),
+                Map.copyOf(tiers), priceVersions);
+    }
+
+    /**
+     * This snapshot with prices as of {@code time}, or this snapshot itself when no price changes
+     * in between. Discounts and base rows are shared; only products whose version changed get a
+     * new entry, so a campaign repricing thousands of products still goes live in one swap.
+     */
+    public PricingSnapshot advanceTo(long newVersion, LocalDateTime time) {
+        Set<String> changed = priceVersions.changedBetween(pricesAt, time);
+        if (changed.isEmpty()) {
+            return this;
+        }
+        Map<String, PriceEntry> productMap = new HashMap<>(products);
+        for (String productId : changed) {
+            PriceEntry base = baseProducts.get(productId);
+            if (base != null) {
+                productMap.put(productId, effective(base, priceVersions, time));
+            }
+        }
+        return new PricingSnapshot(newVersion, LocalDateTime.now(), time, baseProducts, Map.copyOf(productMap),
+                discountsByProduct, priceVersions);
+    }
+
+    private static PriceEntry effective(PriceEntry base, PriceVersionIndex priceVersions, LocalDateTime time) {
+        PriceVersionIndex.Version applicable = priceVersions.at(base.id(), time);
+        return applicable == null ? base : base.withPrice(applicable.rawPrice());
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public LocalDateTime builtAt() {
+        return builtAt;
+    }
+
+    public LocalDateTime pricesAt() {
+        return pricesAt;
+    }
+
+    /**
+     * The product with the price in effect at {@link #pricesAt()}.
+     */
+    public PriceEntry product(String productId) {
+        return productId == null ? null : products.get(productId);
+    }
+
+    /**
+     * The product as stored, with its base price and no price version applied.
+     */
+    public PriceEntry baseProduct(String productId) {
+        return productId == null ? null : baseProducts.get(productId);
+    }
+
+    /**
+     * Products added, removed or repriced since {@code previous}: any difference in the entry in
+     * effect, including tax, shipping and currency.
+     */
+    public Set<String> productsChangedSince(PricingSnapshot previous) {
+        Set<String> changed = new TreeSet<>();
+        if (previous.products == products) {
+            return changed;
+        }
+        products.forEach((productId, entry) -> {
+            PriceEntry before = previous.products.get(productId);
+            // Entries carried over by advanceTo are the same instance
+            if (before != entry && !entry.equals(before)) {
+                changed.add(productId);
+            }
+        });
+        previous.products.keySet().forEach(productId -> {
+            if (!products.containsKey(productId)) {
+                changed.add(productId);
+            }
+        });
+        return changed;
+    }
+
+    /**
+     * Products whose discount tiers differ from {@code previous}.
+     */
+    public Set<String> discountsChangedSince(PricingSnapshot previous) {
+        Set<String> changed = new TreeSet<>();
+        if (previous.discountsByProduct == discountsByProduct) {
+            return changed;
+        }
+        discountsByProduct.forEach((productId, tiers) -> {
+            if (!tiers.sameRules(previous.discounts(productId))) {
+                changed.add(productId);
+            }
+        });
+        previous.discountsByProduct.keySet().forEach(productId -> {
+            if (!discountsByProduct.containsKey(productId)) {
+                changed.add(productId);
+            }
+        });
+        return changed;
+    }
+
+    public PriceVersionIndex priceVersions() {
+        return priceVersions;
+    }
+
+    /**
+     * When the next price version starts or ends after {@link #pricesAt()}, or null.
+     */
+    public LocalDateTime nextPriceChange() {
+        return priceVersions.nextChangeAfter(pricesAt);
+    }
+
+    public DiscountTiers discounts(String productId) {
+        return discountsByProduct.getOrDefault(productId, NO_DISCOUNTS);
+    }
+
+    public int productCount() {
+        return products.size();
+    }
+}
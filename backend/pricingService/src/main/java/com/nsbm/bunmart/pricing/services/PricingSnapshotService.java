@@ -0,0 +1,193 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.events.PricingDataChangedEvent;
+import com.nsbm.bunmart.pricing.repositories.DiscountRepository;
+import com.nsbm.bunmart.pricing.repositories.PriceVersionRepository;
+import com.nsbm.bunmart.pricing.repositories.ProductRepository;
+import com.nsbm.bunmart.pricing.repositories.TableStamp;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the current {@link PricingSnapshot}. A new snapshot is built from the database after every
+ * committed pricing write and published with a single volatile write, so readers always see one
+ * complete, consistent snapshot and never wait for a rebuild.
+ * <p>
+ * Writes that arrive while a rebuild is running are folded into one follow-up rebuild instead of
+ * queueing one each.
+ * <p>
+ * Writes committed by other instances publish no event here, so every
+ * {@code pricing.snapshot.refresh-interval-ms} the row count and latest write time of the products,
+ * discounts and price versions tables are compared with those read alongside the snapshot, and the
+ * snapshot is rebuilt when they differ.
+ * <p>
+ * Scheduled price versions need no polling: after every publish a single task is scheduled for the
+ * snapshot's next price change, and at that moment the snapshot is advanced in memory and swapped
+ * in, so every product of a campaign switches price in the same instant.
+ */
+@Slf4j
+@Service
+public class PricingSnapshotService {
+
+    private final ProductRepository productRepository;
+    private final DiscountRepository discountRepository;
+    private final PriceVersionRepository priceVersionRepository;
+    private final TaskScheduler taskScheduler;
+    private final PriceChangeJournal priceChangeJournal;
+    private final TransactionTemplate readTransaction;
+    private final AtomicLong requested = new AtomicLong();
+    private final Object rebuildLock = new Object();
+
+    private volatile PricingSnapshot snapshot;
+    // The tables as the current snapshot was read from them
+    private volatile List<Stamp> loadedStamps;
+    private long built = -1;
+    // Guarded by rebuildLock
+    private long published;
+    private ScheduledFuture<?> nextPriceChange;
+
+    public PricingSnapshotService(ProductRepository productRepository, DiscountRepository discountRepository,
+                                  PriceVersionRepository priceVersionRepository, TaskScheduler taskScheduler,
+                                  PriceChangeJournal priceChangeJournal, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.discountRepository = discountRepository;
+        this.priceVersionRepository = priceVersionRepository;
+        this.taskScheduler = taskScheduler;
+        this.priceChangeJournal = priceChangeJournal;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    public PricingSnapshot current() {
+        PricingSnapshot current = snapshot;
+        if (current == null) {
+            // First use before the ready event: build on the caller's thread
+            rebuild();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPricingDataChanged(PricingDataChangedEvent event) {
+        // Coupons live in CouponRegistry, which reloads them one at a time
+        if (event.source() == PricingDataChangedEvent.Source.COUPON) {
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Rebuilds when another instance has written to the pricing tables since the snapshot was read.
+     */
+    @Scheduled(fixedDelayString = "${pricing.snapshot.refresh-interval-ms:5000}",
+            initialDelayString = "${pricing.snapshot.refresh-interval-ms:5000}")
+    public void refreshIfChanged() {
+        try {
+            List<Stamp> loaded = loadedStamps;
+            if (loaded != null && !loaded.equals(readTransaction.execute(status -> readStamps()))) {
+                log.debug("Pricing tables changed elsewhere; rebuilding snapshot");
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.error("Pricing snapshot refresh failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Rebuilds until no write is left unaccounted for. A caller returning from here is guaranteed
+     * that the published snapshot includes every write committed before its call.
+     */
+    public void rebuild() {
+        long target = requested.incrementAndGet();
+        synchronized (rebuildLock) {
+            if (built >= target) {
+                return;
+            }
+            long covering = requested.get();
+            long started = System.nanoTime();
+            PricingSnapshot fresh = load(published + 1);
+            publish(fresh);
+            built = covering;
+            log.debug("Pricing snapshot {} built with {} products and {} price versions in {} ms",
+                    fresh.version(), fresh.productCount(), fresh.priceVersions().size(),
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    /**
+     * Brings the current snapshot's prices up to now. Runs when the next price version is due.
+     */
+    public void activateDuePrices() {
+        synchronized (rebuildLock) {
+            PricingSnapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            PricingSnapshot advanced = current.advanceTo(published + 1, LocalDateTime.now());
+            if (advanced != current) {
+                log.info("Price changes due at {} activated in snapshot {}", advanced.pricesAt(), advanced.version());
+            }
+            publish(advanced);
+        }
+    }
+
+    private void publish(PricingSnapshot fresh) {
+        PricingSnapshot previous = snapshot;
+        snapshot = fresh;
+        published = fresh.version();
+        // Recorded under rebuildLock, so journal order matches publish order
+        priceChangeJournal.recordSnapshot(previous, fresh);
+        if (nextPriceChange != null) {
+            nextPriceChange.cancel(false);
+        }
+        LocalDateTime due = fresh.nextPriceChange();
+        nextPriceChange = due == null ? null
+                : taskScheduler.schedule(this::activateDuePrices, due.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private PricingSnapshot load(long version) {
+        LocalDateTime now = LocalDateTime.now();
+        // All queries share one read-only transaction and connection. Versions that have ended can
+        // never apply again, so only current and future ones are read; history stays in the table.
+        // The stamps are read first, so a write they miss is seen by the next refresh check
+        return readTransaction.execute(status -> {
+            loadedStamps = readStamps();
+            return PricingSnapshot.build(version,
+                    productRepository.findByIsActiveTrue(),
+                    discountRepository.findByIsActiveTrue(),
+                    PriceVersionIndex.build(priceVersionRepository.findCurrentAndFuture(now), now),
+                    now);
+        });
+    }
+
+    private List<Stamp> readStamps() {
+        return List.of(Stamp.of(productRepository.findStamp()),
+                Stamp.of(discountRepository.findStamp()),
+                Stamp.of(priceVersionRepository.findStamp()));
+    }
+
+    private record Stamp(long total, LocalDateTime lastChanged) {
+        static Stamp of(TableStamp stamp) {
+            return new Stamp(stamp.getTotal(), stamp.getLastChanged());
+        }
+    }
+}
@@ -2,13 +2,18 @@ package com.nsbm.bunmart.pricing.services;
 
 import com.nsbm.bunmart.pricing.errors.ProductNotFoundException;
 import com.nsbm.bunmart.pricing.errors.DuplicateProductIdException;
+import com.nsbm.bunmart.pricing.events.PricingDataChangedEvent;
+import com.nsbm.bunmart.pricing.model.PriceVersion;
 import com.nsbm.bunmart.pricing.model.Product;
+import com.nsbm.bunmart.pricing.repositories.PriceVersionRepository;
 import com.nsbm.bunmart.pricing.repositories.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -17,6 +22,8 @@ import java.util.List;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final PriceVersionRepository priceVersionRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Product create(String id, String name, BigDecimal rawPrice, BigDecimal tax, BigDecimal shippingCost, String currencyCode) {
         if (productRepository.existsById(id)) {
@@ -29,7 +36,9 @@ public class ProductService {
         p.setTax(tax);
         p.setShippingCost(shippingCost != null ? shippingCost : BigDecimal.ZERO);
         p.setCurrencyCode(currencyCode);
-        return productRepository.save(p);
+        Product saved = productRepository.save(p);
+        publishChanged(saved.getId());
+        return saved;
     }
 
     public Product getById(String id) {
@@ -49,16 +58,49 @@ public class ProductService {
                           String currencyCode, Boolean isActive) {
         Product p = getById(id);
         if (name != null) p.setName(name);
-        if (rawPrice != null) p.setRawPrice(rawPrice);
+        if (rawPrice != null && (p.getRawPrice() == null || rawPrice.compareTo(p.getRawPrice()) != 0)) {
+            recordBasePrice(p, LocalDateTime.now());
+            p.setRawPrice(rawPrice);
+        }
         if (tax != null) p.setTax(tax);
         if (shippingCost != null) p.setShippingCost(shippingCost);
         if (currencyCode != null) p.setCurrencyCode(currencyCode);
         if (isActive != null) p.setIsActive(isActive);
-        return productRepository.save(p);
+        Product saved = productRepository.save(p);
+        publishChanged(saved.getId());
+        return saved;
     }
 
     public void delete(String id) {
         Product p = getById(id);
         productRepository.delete(p);
+        publishChanged(id);
+    }
+
+    /**
+     * Keeps the base price being replaced as an ended price version, from when it took effect
+     * until {@code now}, so prices at past times can still be answered.
+     */
+    private void recordBasePrice(Product p, LocalDateTime now) {
+        if (p.getRawPrice() == null) {
+            return;
+        }
+        LocalDateTime from = priceVersionRepository.findFirstByProductIdAndBasePriceTrueOrderByEffectiveToDesc(p.getId())
+                .map(PriceVersion::getEffectiveTo)
+                .orElse(p.getCreatedAt());
+        if (from == null || !from.isBefore(now)) {
+            return;
+        }
+        PriceVersion previous = new PriceVersion();
+        previous.setProductId(p.getId());
+        previous.setRawPrice(p.getRawPrice());
+        previous.setEffectiveFrom(from);
+        previous.setEffectiveTo(now);
+        previous.setBasePrice(true);
+        priceVersionRepository.save(previous);
+    }
+
+    private void publishChanged(String id) {
+        eventPublisher.publishEvent(new PricingDataChangedEvent(PricingDataChangedEvent.Source.PRODUCT, String.valueOf(id)));
     }
 }
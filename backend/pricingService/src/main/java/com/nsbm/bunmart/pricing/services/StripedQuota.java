@@ -0,0 +1,116 @@
+package com.nsbm.bunmart.pricing.services;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A bounded pool of permits split across several stripes. Each thread takes from its own stripe
+ * first, so concurrent acquires on the same pool rarely touch the same cache line, and moves on to
+ * the other stripes only when its own is empty. A permit is taken with a compare-and-set that never
+ * drops a stripe below zero, so the pool can never hand out more permits than it holds.
+ * <p>
+ * Shrinking the pool below what is already handed out is recorded as debt, which returned permits
+ * pay off before they become available again.
+ */
+final class StripedQuota {
+
+    // Stripes sit a cache line apart so neighbouring counters do not false-share
+    private static final int SPACING = 16;
+
+    private final int stripes;
+    private final AtomicIntegerArray permits;
+    private int debt;
+
+    StripedQuota(int available) {
+        this.stripes = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 64));
+        this.permits = new AtomicIntegerArray(stripes * SPACING);
+        if (available >= 0) {
+            for (int i = 0; i < stripes; i++) {
+                permits.set(i * SPACING, available / stripes + (i < available % stripes ? 1 : 0));
+            }
+        } else {
+            debt = -available;
+        }
+    }
+
+    boolean tryAcquire() {
+        int home = home();
+        for (int i = 0; i < stripes; i++) {
+            int slot = ((home + i) % stripes) * SPACING;
+            int current = permits.get(slot);
+            while (current > 0) {
+                if (permits.compareAndSet(slot, current, current - 1)) {
+                    return true;
+                }
+                current = permits.get(slot);
+            }
+        }
+        return false;
+    }
+
+    synchronized void release() {
+        if (debt > 0) {
+            debt--;
+            return;
+        }
+        permits.incrementAndGet(home() * SPACING);
+    }
+
+    /**
+     * Grows or shrinks the pool, for example when the coupon's usage limit is edited.
+     */
+    synchronized void adjust(int delta) {
+        if (delta > 0) {
+            int paid = Math.min(debt, delta);
+            debt -= paid;
+            int remaining = delta - paid;
+            for (int i = 0; i < stripes && remaining > 0; i++) {
+                int share = remaining / (stripes - i) + (remaining % (stripes - i) > 0 ? 1 : 0);
+                permits.addAndGet(i * SPACING, share);
+                remaining -= share;
+            }
+            return;
+        }
+        int needed = -delta;
+        for (int i = 0; i < stripes && needed > 0; i++) {
+            int slot = i * SPACING;
+            int current = permits.get(slot);
+            while (current > 0 && needed > 0) {
+                int taken = Math.min(current, needed);
+                if (permits.compareAndSet(slot, current, current - taken)) {
+                    needed -= taken;
+                }
+                current = permits.get(slot);
+            }
+        }
+        debt += needed;
+    }
+
+    /**
+     * Takes every permit left and returns how many, for handing them back.
+     */
+    synchronized int drain() {
+        int drained = 0;
+        for (int i = 0; i < stripes; i++) {
+            drained += permits.getAndSet(i * SPACING, 0);
+        }
+        int paid = Math.min(debt, drained);
+        debt -= paid;
+        return drained - paid;
+    }
+
+    /**
+     * Permits left, or a negative number when the pool is in debt. Only a moment's view while
+     * acquires are running.
+     */
+    synchronized int available() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += permits.get(i * SPACING);
+        }
+        return total - debt;
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().threadId() % stripes);
+    }
+}
@@ -0,0 +1,272 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.errors.CouponUnavailableException;
+import com.nsbm.bunmart.pricing.model.Coupon;
+import com.nsbm.bunmart.pricing.model.CouponReservation;
+import com.nsbm.bunmart.pricing.repositories.CouponRepository;
+import com.nsbm.bunmart.pricing.repositories.CouponReservationRepository;
+import com.nsbm.bunmart.pricing.repositories.CouponUserUsageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.nsbm.bunmart.pricing.model.CouponReservation.Status.COMMITTED;
+import static com.nsbm.bunmart.pricing.model.CouponReservation.Status.RESERVED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs several service instances, each with its own permit pool, against one in-memory stand-in
+ * for the coupon and reservation tables, and checks that together they never admit more uses than
+ * the coupon's limit.
+ */
+class CouponRedemptionServiceTest {
+
+    private static final long COUPON_ID = 7L;
+    private static final String CODE = "SPRING";
+
+    private final Database database = new Database(50);
+
+    @Test
+    void instancesTogetherNeverExceedTheCap() throws Exception {
+        List<CouponRedemptionService> instances = List.of(instance(7), instance(7), instance(3));
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            CouponRedemptionService service = instances.get(i % instances.size());
+            String orderId = "order-" + i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    service.reserve(CODE, orderId, null, null);
+                    admitted.incrementAndGet();
+                } catch (CouponUnavailableException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(50, admitted.get());
+        assertEquals(350, rejected.get());
+        assertEquals(50, database.active());
+        assertTrue(database.leased() <= 50);
+    }
+
+    @Test
+    void useExpiredByAnotherInstanceCanBeReservedAgain() throws Exception {
+        Database small = new Database(3);
+        CouponRedemptionService first = instance(small, 2);
+        CouponRedemptionService second = instance(small, 2);
+        first.reserve(CODE, "a", null, 1L);
+        first.reserve(CODE, "b", null, 1L);
+        second.reserve(CODE, "c", null, null);
+        assertThrows(CouponUnavailableException.class, () -> first.reserve(CODE, "d", null, null));
+
+        Thread.sleep(1100);
+        // The second instance expires the first instance's reservations; their permits go back to the row
+        second.reconcile();
+        assertEquals(1, small.active());
+
+        // Both freed uses come back as one block to whichever instance leases next
+        first.reserve(CODE, "d", null, null);
+        first.reserve(CODE, "e", null, null);
+        assertThrows(CouponUnavailableException.class, () -> first.reserve(CODE, "f", null, null));
+        assertThrows(CouponUnavailableException.class, () -> second.reserve(CODE, "f", null, null));
+        assertEquals(3, small.active());
+    }
+
+    @Test
+    void releasedUseIsAvailableToEveryInstance() {
+        Database single = new Database(1);
+        CouponRedemptionService first = instance(single, 5);
+        CouponRedemptionService second = instance(single, 5);
+        CouponReservation reservation = first.reserve(CODE, "a", null, null);
+        assertThrows(CouponUnavailableException.class, () -> second.reserve(CODE, "b", null, null));
+
+        first.release(reservation.getId());
+
+        second.reserve(CODE, "b", null, null);
+        assertEquals(1, single.active());
+    }
+
+    @Test
+    void idlePermitsAreHandedBack() {
+        Database shared = new Database(10);
+        CouponRedemptionService first = instance(shared, 8);
+        CouponRedemptionService second = instance(shared, 8);
+        first.reserve(CODE, "a", null, null);
+        assertEquals(8, shared.leased());
+
+        // The first run only marks the pool idle; the second hands its unused permits back
+        first.reconcile();
+        first.reconcile();
+        assertEquals(1, shared.leased());
+
+        for (int i = 0; i < 9; i++) {
+            second.reserve(CODE, "b" + i, null, null);
+        }
+        assertThrows(CouponUnavailableException.class, () -> second.reserve(CODE, "c", null, null));
+    }
+
+    private CouponRedemptionService instance(int blockSize) {
+        return instance(database, blockSize);
+    }
+
+    private static CouponRedemptionService instance(Database database, int blockSize) {
+        CouponRegistry registry = mock(CouponRegistry.class);
+        when(registry.findValid(any(), any())).thenAnswer(invocation -> CouponRegistry.CouponRule.of(database.coupon()));
+        return new CouponRedemptionService(database.coupons, database.reservations, mock(CouponUserUsageRepository.class),
+                registry, mock(CouponUsageIndex.class), mock(ApplicationEventPublisher.class),
+                mock(PlatformTransactionManager.class), 900, blockSize);
+    }
+
+    /**
+     * The rows the service reads and writes, with every statement applied atomically.
+     */
+    private static final class Database {
+
+        private final int usageLimit;
+        private Integer permitsLeased;
+        private final Map<String, CouponReservation> rows = new HashMap<>();
+        final CouponRepository coupons = mock(CouponRepository.class);
+        final CouponReservationRepository reservations = mock(CouponReservationRepository.class);
+
+        Database(int usageLimit) {
+            this.usageLimit = usageLimit;
+            when(coupons.findById(COUPON_ID)).thenAnswer(invocation -> Optional.of(coupon()));
+            when(coupons.initPermits(anyLong(), anyInt())).thenAnswer(invocation -> {
+                synchronized (this) {
+                    if (permitsLeased != null) {
+                        return 0;
+                    }
+                    permitsLeased = invocation.getArgument(1);
+                    return 1;
+                }
+            });
+            when(coupons.findUnleasedPermits(COUPON_ID)).thenAnswer(invocation -> {
+                synchronized (this) {
+                    return Optional.of(usageLimit - permitsLeased);
+                }
+            });
+            when(coupons.leasePermits(anyLong(), anyInt())).thenAnswer(invocation -> {
+                int count = invocation.getArgument(1);
+                synchronized (this) {
+                    if (permitsLeased + count > usageLimit) {
+                        return 0;
+                    }
+                    permitsLeased += count;
+                    return 1;
+                }
+            });
+            when(coupons.returnPermits(anyLong(), anyInt())).thenAnswer(invocation -> {
+                int count = invocation.getArgument(1);
+                synchronized (this) {
+                    permitsLeased -= count;
+                    return 1;
+                }
+            });
+
+            when(reservations.findByCouponIdAndOrderId(anyLong(), anyString())).thenAnswer(invocation -> {
+                synchronized (this) {
+                    return rows.values().stream()
+                            .filter(r -> r.getOrderId().equals(invocation.getArgument(1)))
+                            .findFirst();
+                }
+            });
+            when(reservations.saveAndFlush(any())).thenAnswer(invocation -> {
+                CouponReservation reservation = invocation.getArgument(0);
+                synchronized (this) {
+                    if (rows.values().stream().anyMatch(r -> r.getOrderId().equals(reservation.getOrderId()))) {
+                        throw new DataIntegrityViolationException("uk_coupon_reservations_coupon_order");
+                    }
+                    reservation.setCounted(false);
+                    rows.put(reservation.getId(), reservation);
+                    return reservation;
+                }
+            });
+            when(reservations.findById(anyString())).thenAnswer(invocation -> {
+                synchronized (this) {
+                    return Optional.ofNullable(rows.get(invocation.<String>getArgument(0)));
+                }
+            });
+            when(reservations.transition(anyString(), any(), any(), any())).thenAnswer(invocation -> {
+                synchronized (this) {
+                    CouponReservation reservation = rows.get(invocation.<String>getArgument(0));
+                    if (reservation == null || reservation.getStatus() != invocation.getArgument(1)) {
+                        return 0;
+                    }
+                    reservation.setStatus(invocation.getArgument(2));
+                    return 1;
+                }
+            });
+            when(reservations.findByStatusAndExpiresAtBefore(any(), any(), any())).thenAnswer(invocation -> {
+                LocalDateTime now = invocation.getArgument(1);
+                Limit limit = invocation.getArgument(2);
+                synchronized (this) {
+                    return rows.values().stream()
+                            .filter(r -> r.getStatus() == invocation.getArgument(0) && r.getExpiresAt().isBefore(now))
+                            .limit(limit.max())
+                            .toList();
+                }
+            });
+            when(reservations.countPending(anyLong(), any(), any())).thenAnswer(invocation -> (long) active());
+            when(reservations.findCouponIdsWithUncounted(any())).thenReturn(List.of());
+        }
+
+        synchronized Coupon coupon() {
+            return Coupon.builder()
+                    .id(COUPON_ID)
+                    .code(CODE)
+                    .type("PERCENT")
+                    .value(BigDecimal.TEN)
+                    .minOrderAmount(BigDecimal.ZERO)
+                    .usageLimit(usageLimit)
+                    .usedCount(0)
+                    .permitsLeased(permitsLeased)
+                    .isActive(true)
+                    .build();
+        }
+
+        synchronized int active() {
+            return (int) rows.values().stream()
+                    .filter(r -> r.getStatus() == RESERVED || r.getStatus() == COMMITTED)
+                    .count();
+        }
+
+        synchronized int leased() {
+            return permitsLeased != null ? permitsLeased : 0;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.model.CouponReservation;
+import com.nsbm.bunmart.pricing.repositories.CouponReservationRepository;
+import com.nsbm.bunmart.pricing.repositories.CouponUserUsageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the in-memory counts against a stand-in for the reservation table that other instances
+ * write to as well.
+ */
+class CouponUsageIndexTest {
+
+    private static final long COUPON_ID = 3L;
+
+    // Uses the database records per user, as countPendingByUser reports them
+    private final Map<String, Integer> database = new ConcurrentHashMap<>();
+    private final CouponReservationRepository reservations = mock(CouponReservationRepository.class);
+    private final CouponUserUsageRepository usages = mock(CouponUserUsageRepository.class);
+    private final CouponUsageIndex index;
+
+    // Set to hold up the database read of a refresh
+    private volatile CountDownLatch readStarted;
+    private volatile CountDownLatch readMayFinish;
+
+    CouponUsageIndexTest() {
+        when(usages.findByCouponId(anyLong())).thenReturn(List.of());
+        when(reservations.countPendingByUser(anyLong(), any(CouponReservation.Status.class), any(CouponReservation.Status.class)))
+                .thenAnswer(invocation -> {
+                    List<CouponReservationRepository.UserUses> rows = new ArrayList<>();
+                    database.forEach((user, uses) -> rows.add(row(user, uses)));
+                    CountDownLatch started = readStarted;
+                    if (started != null) {
+                        started.countDown();
+                        readMayFinish.await(10, TimeUnit.SECONDS);
+                    }
+                    return rows;
+                });
+        index = new CouponUsageIndex(usages, reservations, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void reserveStopsAtTheLimitAndReleaseGivesAUseBack() {
+        database.put("u1", 1);
+
+        assertTrue(index.tryAcquire(COUPON_ID, "u1", 2));
+        assertFalse(index.tryAcquire(COUPON_ID, "u1", 2));
+        assertTrue(index.tryAcquire(COUPON_ID, "u2", 2));
+
+        index.release(COUPON_ID, "u1", index.stamp(COUPON_ID));
+        assertUses(1, "u1");
+        index.abandon(COUPON_ID, "u2");
+        assertUses(0, "u2");
+    }
+
+    @Test
+    void refreshDropsUsesReleasedElsewhereAndAddsUsesTakenElsewhere() {
+        database.put("u1", 2);
+        assertUses(2, "u1");
+
+        // Released on another instance
+        database.put("u1", 1);
+        // Taken on another instance
+        database.put("u2", 1);
+        index.refresh();
+
+        assertUses(1, "u1");
+        assertUses(1, "u2");
+    }
+
+    @Test
+    void refreshKeepsUsesWhoseReservationIsNotWrittenYet() {
+        assertTrue(index.tryAcquire(COUPON_ID, "u1", 1));
+
+        index.refresh();
+        assertUses(1, "u1");
+
+        // Once written the database carries it
+        database.put("u1", 1);
+        index.written(COUPON_ID, "u1");
+        index.refresh();
+        assertUses(1, "u1");
+    }
+
+    @Test
+    void reserveDuringRefreshIsKept() throws Exception {
+        assertUses(0, "u1");
+
+        CompletableFuture<Void> refresh = refreshHeldAtTheDatabaseRead();
+        assertTrue(index.tryAcquire(COUPON_ID, "u1", 1));
+        readMayFinish.countDown();
+        refresh.get(10, TimeUnit.SECONDS);
+
+        assertUses(1, "u1");
+        assertFalse(index.tryAcquire(COUPON_ID, "u1", 1));
+    }
+
+    @Test
+    void releaseTheRefreshAlreadyReadIsNotSubtractedAgain() throws Exception {
+        database.put("u1", 2);
+        assertUses(2, "u1");
+
+        // The release commits, a refresh reads it, and only then is it applied in memory
+        long stamp = index.stamp(COUPON_ID);
+        database.put("u1", 1);
+        CompletableFuture<Void> refresh = refreshHeldAtTheDatabaseRead();
+        readMayFinish.countDown();
+        refresh.get(10, TimeUnit.SECONDS);
+        index.release(COUPON_ID, "u1", stamp);
+
+        assertUses(1, "u1");
+    }
+
+    private CompletableFuture<Void> refreshHeldAtTheDatabaseRead() throws InterruptedException {
+        readStarted = new CountDownLatch(1);
+        readMayFinish = new CountDownLatch(1);
+        CompletableFuture<Void> refresh = CompletableFuture.runAsync(index::refresh);
+        assertTrue(readStarted.await(10, TimeUnit.SECONDS));
+        readStarted = null;
+        return refresh;
+    }
+
+    private void assertUses(int uses, String userId) {
+        if (uses > 0) {
+            assertFalse(index.allows(rule(uses), userId), userId + " has fewer than " + uses + " uses");
+        }
+        assertTrue(index.allows(rule(uses + 1), userId), userId + " has more than " + uses + " uses");
+    }
+
+    private static CouponRegistry.CouponRule rule(int perUserLimit) {
+        CouponRegistry.CouponRule rule = mock(CouponRegistry.CouponRule.class);
+        when(rule.id()).thenReturn(COUPON_ID);
+        when(rule.perUserLimit()).thenReturn(perUserLimit);
+        return rule;
+    }
+
+    private static CouponReservationRepository.UserUses row(String userId, long uses) {
+        return new CouponReservationRepository.UserUses() {
+            @Override
+            public String getUserId() {
+                return userId;
+            }
+
+            @Override
+            public long getUses() {
+                return uses;
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.errors.CouponValidationThrottledException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CouponValidationMonitorTest {
+
+    private static final int LIMIT = 3;
+
+    private final CouponRegistry registry = mock(CouponRegistry.class);
+    private final CouponRegistry.CouponRule real = mock(CouponRegistry.CouponRule.class);
+    private CouponValidationMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        when(registry.findValid(anyString(), any(LocalDateTime.class))).thenReturn(null);
+        when(registry.findValid(eq("REAL"), any(LocalDateTime.class))).thenReturn(real);
+        monitor = new CouponValidationMonitor(registry, LIMIT, 1000, List.of("order-service", " "));
+    }
+
+    @Test
+    void clientIsThrottledAfterTheLimitWithoutFurtherLookups() {
+        for (int i = 0; i < LIMIT; i++) {
+            assertNull(monitor.resolve("10.0.0.1", "GUESS" + i));
+        }
+
+        assertThrows(CouponValidationThrottledException.class, () -> monitor.resolve("10.0.0.1", "REAL"));
+        verify(registry, never()).findValid(eq("REAL"), any(LocalDateTime.class));
+        assertEquals(LIMIT + 1, monitor.attempts());
+        assertEquals(LIMIT, monitor.rejected());
+        assertEquals(1, monitor.throttled());
+    }
+
+    @Test
+    void clientsAreCountedSeparately() {
+        for (int i = 0; i < LIMIT; i++) {
+            monitor.resolve("10.0.0.1", "GUESS" + i);
+        }
+
+        assertNotNull(monitor.resolve("10.0.0.2", "REAL"));
+        assertEquals("10.0.0.1", monitor.topClients(1).get(0).clientId());
+    }
+
+    @Test
+    void realAndBlankCodesAreNotRejections() {
+        for (int i = 0; i < LIMIT * 2; i++) {
+            assertNotNull(monitor.resolve("10.0.0.1", " REAL "));
+            assertNull(monitor.resolve("10.0.0.1", " "));
+            assertNull(monitor.resolve("10.0.0.1", null));
+        }
+
+        assertEquals(LIMIT * 2, monitor.attempts());
+        assertEquals(0, monitor.rejected());
+        assertEquals(0, monitor.throttled());
+    }
+
+    @Test
+    void badShopperBehindATrustedCallerDoesNotBlockOtherShoppers() {
+        String guesser = monitor.clientKey("order-service", "user-1");
+        for (int i = 0; i < LIMIT; i++) {
+            monitor.resolve(guesser, "GUESS" + i);
+        }
+
+        assertThrows(CouponValidationThrottledException.class, () -> monitor.resolve(guesser, "REAL"));
+        assertNotNull(monitor.resolve(monitor.clientKey("order-service", "user-2"), "REAL"));
+    }
+
+    @Test
+    void trustedCallerActingForNoShopperIsNotLimited() {
+        for (int i = 0; i < LIMIT * 2; i++) {
+            assertNull(monitor.resolve(monitor.clientKey("order-service", null), "GUESS" + i));
+        }
+
+        assertNotNull(monitor.resolve(monitor.clientKey("order-service", " "), "REAL"));
+        assertEquals(0, monitor.attempts());
+    }
+
+    @Test
+    void untrustedCallerCannotForwardANewShopperPerGuess() {
+        for (int i = 0; i < LIMIT; i++) {
+            monitor.resolve(monitor.clientKey("10.0.0.9", "user-" + i), "GUESS" + i);
+        }
+
+        assertThrows(CouponValidationThrottledException.class,
+                () -> monitor.resolve(monitor.clientKey("10.0.0.9", "someone-else"), "REAL"));
+        assertNull(monitor.clientKey("order-service", null));
+    }
+}
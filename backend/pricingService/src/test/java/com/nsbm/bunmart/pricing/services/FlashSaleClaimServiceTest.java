@@ -0,0 +1,281 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.errors.FlashSaleClaimStateException;
+import com.nsbm.bunmart.pricing.errors.FlashSaleUnavailableException;
+import com.nsbm.bunmart.pricing.model.FlashSale;
+import com.nsbm.bunmart.pricing.model.FlashSaleToken;
+import com.nsbm.bunmart.pricing.model.Product;
+import com.nsbm.bunmart.pricing.repositories.FlashSaleRepository;
+import com.nsbm.bunmart.pricing.repositories.FlashSaleTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.nsbm.bunmart.pricing.model.FlashSaleToken.Status.AVAILABLE;
+import static com.nsbm.bunmart.pricing.model.FlashSaleToken.Status.LEASED;
+import static com.nsbm.bunmart.pricing.model.FlashSaleToken.Status.SOLD;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs several service instances, each with its own token pool, against one in-memory stand-in
+ * for the token table, and checks that no token is ever sold twice.
+ */
+class FlashSaleClaimServiceTest {
+
+    private static final long SALE_ID = 5L;
+
+    @Test
+    void instancesTogetherNeverSellMoreThanTheTokens() throws Exception {
+        Tokens tokens = new Tokens(50);
+        List<FlashSaleClaimService> instances = List.of(instance(tokens, 7), instance(tokens, 7), instance(tokens, 3));
+        AtomicInteger committed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            FlashSaleClaimService service = instances.get(i % instances.size());
+            String orderId = "order-" + i;
+            int quantity = 1 + i % 2;
+            boolean keep = i % 5 != 0;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    FlashSaleClaim claim = service.claim(SALE_ID, orderId, null, quantity, null);
+                    if (keep) {
+                        service.commit(claim.id());
+                        committed.addAndGet(quantity);
+                    } else {
+                        service.release(claim.id());
+                    }
+                } catch (FlashSaleUnavailableException e) {
+                    // Sold out, or the rest is leased by another instance
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(committed.get(), tokens.sold());
+        assertTrue(tokens.sold() <= 50);
+        assertEquals(0, tokens.soldTwice());
+    }
+
+    @Test
+    void tokensTakenOverAfterALapsedLeaseAreDroppedAndNeverSoldTwice() {
+        Tokens tokens = new Tokens(5);
+        FlashSaleClaimService first = instance(tokens, 5);
+        FlashSaleClaimService second = instance(tokens, 5);
+        FlashSaleClaim held = first.claim(SALE_ID, "a", null, 1, null);
+        assertEquals(4, first.stats(SALE_ID).available());
+
+        // The first instance stops renewing; the second takes every token over and sells them
+        tokens.lapseLeases();
+        FlashSaleClaim taken = second.claim(SALE_ID, "b", null, 5, null);
+        second.commit(taken.id());
+        assertSame(taken, second.commit(taken.id()));
+
+        first.reconcile();
+        assertEquals(0, first.stats(SALE_ID).available());
+        assertThrows(FlashSaleClaimStateException.class, () -> first.commit(held.id()));
+        assertThrows(FlashSaleUnavailableException.class, () -> first.claim(SALE_ID, "c", null, 1, null));
+        assertEquals(5, tokens.sold());
+        assertEquals(0, tokens.soldTwice());
+    }
+
+    @Test
+    void reconcileKeepsTokensThisInstanceStillHolds() {
+        Tokens tokens = new Tokens(5);
+        FlashSaleClaimService first = instance(tokens, 3);
+        FlashSaleClaimService second = instance(tokens, 1);
+        FlashSaleClaim held = first.claim(SALE_ID, "a", null, 1, null);
+
+        // The second instance takes over only the token it leases, the one held by the claim
+        tokens.lapseLeases();
+        second.claim(SALE_ID, "b", null, 1, null);
+        first.reconcile();
+
+        assertEquals(2, first.stats(SALE_ID).available());
+        first.commit(first.claim(SALE_ID, "c", null, 1, null).id());
+        assertThrows(FlashSaleClaimStateException.class, () -> first.commit(held.id()));
+        assertEquals(1, tokens.sold());
+    }
+
+    private static FlashSaleClaimService instance(Tokens tokens, int leaseBatch) {
+        LocalDateTime now = LocalDateTime.now();
+        FlashSale sale = FlashSale.builder().id(SALE_ID).name("Sale").productId("p1").type("PERCENT")
+                .value(new BigDecimal("20")).tokenCount(tokens.size()).startsAt(now.minusHours(1))
+                .endsAt(now.plusHours(1)).isActive(true).build();
+        FlashSaleRepository sales = mock(FlashSaleRepository.class);
+        when(sales.findById(SALE_ID)).thenReturn(Optional.of(sale));
+        when(sales.findAllById(any())).thenReturn(List.of(sale));
+        PricingSnapshotService snapshots = mock(PricingSnapshotService.class);
+        Product product = Product.builder().id("p1").name("Product p1").rawPrice(new BigDecimal("10.00"))
+                .currencyCode("USD").isActive(true).build();
+        when(snapshots.current()).thenReturn(PricingSnapshot.build(1, List.of(product), List.of()));
+        FxRateService fxRates = mock(FxRateService.class);
+        when(fxRates.current()).thenReturn(FxRateTable.empty("USD"));
+        // A sale short of the claim marks its transaction rollback-only
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        return new FlashSaleClaimService(sales, tokens.repository, snapshots, fxRates, transactionManager,
+                300, leaseBatch, 60, 10, 1000);
+    }
+
+    /**
+     * The token rows the service reads and writes, with every statement applied atomically.
+     * Finding leasable tokens also locks them to the caller, as {@code FOR UPDATE} does.
+     */
+    private static final class Tokens {
+
+        private static final class Row {
+            private FlashSaleToken.Status status = AVAILABLE;
+            private String owner;
+            private LocalDateTime leaseExpiresAt;
+            private int sales;
+        }
+
+        private final Map<Long, Row> rows = new HashMap<>();
+        final FlashSaleTokenRepository repository = mock(FlashSaleTokenRepository.class);
+
+        Tokens(int count) {
+            for (long id = 1; id <= count; id++) {
+                rows.put(id, new Row());
+            }
+            when(repository.findLeasable(anyLong(), anyString(), any(LocalDateTime.class), anyInt())).thenAnswer(invocation -> {
+                String owner = invocation.getArgument(1);
+                LocalDateTime now = invocation.getArgument(2);
+                int limit = invocation.getArgument(3);
+                synchronized (this) {
+                    List<Long> found = new ArrayList<>();
+                    for (long id = 1; id <= rows.size() && found.size() < limit; id++) {
+                        Row row = rows.get(id);
+                        if (row.status == AVAILABLE || row.status == LEASED && !owner.equals(row.owner)
+                                && row.leaseExpiresAt.isBefore(now)) {
+                            row.status = LEASED;
+                            row.owner = owner;
+                            row.leaseExpiresAt = now;
+                            found.add(id);
+                        }
+                    }
+                    return found;
+                }
+            });
+            when(repository.lease(anyList(), any(), anyString(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+                List<Long> ids = invocation.getArgument(0);
+                LocalDateTime until = invocation.getArgument(3);
+                synchronized (this) {
+                    ids.forEach(id -> rows.get(id).leaseExpiresAt = until);
+                    return ids.size();
+                }
+            });
+            when(repository.renewLeases(anyString(), any(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+                String owner = invocation.getArgument(0);
+                LocalDateTime until = invocation.getArgument(2);
+                synchronized (this) {
+                    int renewed = 0;
+                    for (Row row : rows.values()) {
+                        if (row.status == LEASED && owner.equals(row.owner)) {
+                            row.leaseExpiresAt = until;
+                            renewed++;
+                        }
+                    }
+                    return renewed;
+                }
+            });
+            when(repository.sell(anyList(), anyString(), any(), any(), any(), any(), any(LocalDateTime.class))).thenAnswer(invocation -> {
+                List<Long> ids = invocation.getArgument(0);
+                String owner = invocation.getArgument(1);
+                synchronized (this) {
+                    int held = 0;
+                    for (Long id : ids) {
+                        Row row = rows.get(id);
+                        held += row.status == LEASED && owner.equals(row.owner) ? 1 : 0;
+                    }
+                    // The service rolls back a sale short of the claim, so only a whole one is applied
+                    if (held == ids.size()) {
+                        for (Long id : ids) {
+                            rows.get(id).status = SOLD;
+                            rows.get(id).sales++;
+                        }
+                    }
+                    return held;
+                }
+            });
+            when(repository.returnLeases(anyList(), anyString(), any(), any())).thenAnswer(invocation -> {
+                List<Long> ids = invocation.getArgument(0);
+                String owner = invocation.getArgument(1);
+                synchronized (this) {
+                    int returned = 0;
+                    for (Long id : ids) {
+                        Row row = rows.get(id);
+                        if (row.status == LEASED && owner.equals(row.owner)) {
+                            row.status = AVAILABLE;
+                            row.owner = null;
+                            row.leaseExpiresAt = null;
+                            returned++;
+                        }
+                    }
+                    return returned;
+                }
+            });
+            when(repository.findHeld(anyList(), anyString(), any())).thenAnswer(invocation -> {
+                List<Long> ids = invocation.getArgument(0);
+                String owner = invocation.getArgument(1);
+                synchronized (this) {
+                    return ids.stream()
+                            .filter(id -> rows.get(id).status == LEASED && owner.equals(rows.get(id).owner))
+                            .toList();
+                }
+            });
+            when(repository.findSaleIdsWithUncounted(any())).thenReturn(List.of());
+        }
+
+        int size() {
+            return rows.size();
+        }
+
+        synchronized void lapseLeases() {
+            for (Row row : rows.values()) {
+                if (row.status == LEASED) {
+                    row.leaseExpiresAt = LocalDateTime.now().minusSeconds(1);
+                }
+            }
+        }
+
+        synchronized int sold() {
+            return (int) rows.values().stream().filter(row -> row.status == SOLD).count();
+        }
+
+        synchronized int soldTwice() {
+            return (int) rows.values().stream().filter(row -> row.sales > 1).count();
+        }
+    }
+}
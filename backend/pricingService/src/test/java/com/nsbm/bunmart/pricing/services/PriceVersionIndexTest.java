@@ -0,0 +1,106 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.model.PriceVersion;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceVersionIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @Test
+    void newestOverlappingVersionWinsAndTheOlderOneResumes() {
+        PriceVersionIndex index = PriceVersionIndex.build(List.of(
+                version(1, "p1", "10.00", NOW.minusDays(10), NOW.plusDays(10)),
+                version(2, "p1", "8.00", NOW.minusDays(1), NOW.plusDays(1)),
+                version(3, "p1", "9.00", NOW.plusHours(12), null)), NOW);
+
+        assertEquals(2L, index.at("p1", NOW).id());
+        assertEquals(1L, index.at("p1", NOW.minusDays(2)).id());
+        // The open-ended version 3 is newer than 2 and takes over when it starts
+        assertEquals(3L, index.at("p1", NOW.plusHours(12)).id());
+        assertEquals(3L, index.at("p1", NOW.plusDays(1).minusNanos(1)).id());
+        assertEquals(3L, index.at("p1", NOW.plusYears(5)).id());
+        assertEquals(NOW.plusHours(12), index.nextChangeAfter(NOW));
+        // Version 2 ends while hidden behind 3, and 1 ends behind 3, so no later change shows
+        assertNull(index.nextChangeAfter(NOW.plusHours(12)));
+    }
+
+    @Test
+    void olderVersionResumesWhenTheNewerOneEnds() {
+        PriceVersionIndex index = PriceVersionIndex.build(List.of(
+                version(1, "p1", "10.00", NOW.minusDays(10), null),
+                version(2, "p1", "8.00", NOW.minusHours(1), NOW.plusHours(1))), NOW);
+
+        assertEquals(2L, index.at("p1", NOW.plusHours(1).minusNanos(1)).id());
+        assertEquals(1L, index.at("p1", NOW.plusHours(1)).id());
+        assertEquals(NOW.plusHours(1), index.nextChangeAfter(NOW));
+        assertEquals(Set.of("p1"), index.changedBetween(NOW, NOW.plusHours(1)));
+        assertEquals(Set.of(), index.changedBetween(NOW, NOW.plusHours(1).minusNanos(1)));
+    }
+
+    @Test
+    void versionEndingExactlyNowIsLeftOut() {
+        PriceVersionIndex index = PriceVersionIndex.build(List.of(
+                version(1, "p1", "10.00", NOW.minusDays(1), NOW),
+                version(2, "p2", "5.00", NOW.minusDays(1), NOW.plusNanos(1))), NOW);
+
+        assertNull(index.at("p1", NOW));
+        assertEquals(1, index.size());
+        assertEquals(2L, index.at("p2", NOW).id());
+        assertNull(index.at("p2", NOW.plusNanos(1)));
+    }
+
+    @Test
+    void endIsExclusiveInTheFullHistory() {
+        PriceVersionIndex index = PriceVersionIndex.build(List.of(
+                version(1, "p1", "10.00", NOW.minusDays(1), NOW)));
+
+        assertEquals(1L, index.at("p1", NOW.minusNanos(1)).id());
+        assertNull(index.at("p1", NOW));
+        assertNull(index.at("p1", NOW.minusDays(1).minusNanos(1)));
+        assertTrue(index.covers(LocalDateTime.MIN));
+    }
+
+    @Test
+    void openEndedVersionAppliesFromItsStartOnward() {
+        PriceVersionIndex index = PriceVersionIndex.build(List.of(
+                version(1, "p1", "7.50", NOW.plusMinutes(5), null)), NOW);
+
+        assertNull(index.at("p1", NOW));
+        assertEquals(new BigDecimal("7.50"), index.at("p1", NOW.plusMinutes(5)).rawPrice());
+        assertEquals(1L, index.at("p1", LocalDateTime.MAX).id());
+        assertEquals(NOW.plusMinutes(5), index.nextChangeAfter(NOW));
+        assertNull(index.nextChangeAfter(NOW.plusMinutes(5)));
+    }
+
+    @Test
+    void coversOnlyTimesSinceItWasBuilt() {
+        PriceVersionIndex index = PriceVersionIndex.build(List.of(), NOW);
+
+        assertTrue(index.covers(NOW));
+        assertTrue(index.covers(NOW.plusDays(1)));
+        assertFalse(index.covers(NOW.minusNanos(1)));
+        assertNull(index.at("p1", NOW));
+        assertNull(index.at(null, NOW));
+    }
+
+    private static PriceVersion version(long id, String productId, String price, LocalDateTime from, LocalDateTime to) {
+        return PriceVersion.builder()
+                .id(id)
+                .productId(productId)
+                .rawPrice(new BigDecimal(price))
+                .effectiveFrom(from)
+                .effectiveTo(to)
+                .build();
+    }
+}
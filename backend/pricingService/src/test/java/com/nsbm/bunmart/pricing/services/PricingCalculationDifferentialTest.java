@@ -0,0 +1,741 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
+import com.nsbm.bunmart.pricing.model.Coupon;
+import com.nsbm.bunmart.pricing.model.Discount;
+import com.nsbm.bunmart.pricing.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prices randomized carts with the fixed-point calculation and with a BigDecimal reference that
+ * tries every combination of rules on every line and every choice of line discounts under an order
+ * coupon, and requires the calculation to produce one of the reference's optimal results exactly.
+ * <p>
+ * The reference knows nothing of how the calculation bounds its search. Catalogs give each product
+ * at most three rules and carts with an order coupon at most three lines, few enough combinations
+ * that the bounded search has to be exhaustive, so no result may be approximate.
+ */
+class PricingCalculationDifferentialTest {
+
+    private static final int SCALE = 4;
+    private static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+    private static final String[] TYPES = {"PERCENT", "FIXED", "percent", "OTHER"};
+    private static final String[] GROUPS = {null, null, "SEASON", "MEMBER"};
+
+    private record Catalog(List<Product> products, List<Discount> discounts, List<Coupon> coupons) {
+    }
+
+    @Test
+    void fixedPointTotalsMatchBruteForceAcrossRandomCarts() {
+        Random random = new Random(20240611L);
+        for (int catalogIndex = 0; catalogIndex < 20; catalogIndex++) {
+            Catalog catalog = randomCatalog(random, 30);
+            PricingSnapshot snapshot = PricingSnapshot.build(catalogIndex + 1, catalog.products(), catalog.discounts());
+            PricingCalculationService service =
+                    new PricingCalculationService(null, new FixedCouponRegistry(catalog.coupons()), null, null);
+
+            for (int cart = 0; cart < 500; cart++) {
+                String couponCode = random.nextBoolean()
+                        ? catalog.coupons().get(random.nextInt(catalog.coupons().size())).getCode() : null;
+                boolean orderCoupon = catalog.coupons().stream()
+                        .anyMatch(c -> c.getCode().equals(couponCode) && c.getProductId() == null);
+                List<String> productIds = new ArrayList<>();
+                List<Integer> quantities = new ArrayList<>();
+                int lines = 1 + random.nextInt(orderCoupon ? 3 : 8);
+                for (int i = 0; i < lines; i++) {
+                    productIds.add(random.nextInt(20) == 0 ? "missing"
+                            : catalog.products().get(random.nextInt(catalog.products().size())).getId());
+                    quantities.add(random.nextInt(25) == 0 ? null : random.nextInt(40) - 2);
+                }
+
+                List<Outcome> expected = reference(catalog, productIds, quantities, couponCode);
+                CalculatePriceResponseDTO actual = service.calculate(snapshot, productIds, quantities, couponCode);
+                assertOneOf(expected, actual, "catalog " + catalogIndex + " cart " + cart);
+            }
+        }
+    }
+
+    @Test
+    void exclusiveRuleAppliesAloneWhenItIsWorthMore() {
+        List<Product> products = List.of(product("p1", "100"));
+        List<Coupon> coupons = List.of(productCoupon(1, "p1", "FIXED", "15", "Fifteen off").build());
+
+        CalculatePriceResponseDTO exclusiveWins = price(products, List.of(
+                tier(1, "p1", "PERCENT", "10", "Ten percent").build(),
+                tier(2, "p1", "PERCENT", "30", "Thirty percent").isExclusive(true).build()), coupons, "p1", 1, null);
+        assertAmount(new BigDecimal("30"), exclusiveWins.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("70"), exclusiveWins.getTotal(), "total");
+        assertEquals("Thirty percent", exclusiveWins.getLineItems().getFirst().getDiscountDescription());
+
+        CalculatePriceResponseDTO stackWins = price(products, List.of(
+                tier(1, "p1", "PERCENT", "10", "Ten percent").build(),
+                tier(2, "p1", "PERCENT", "20", "Twenty percent").isExclusive(true).build()), coupons, "p1", 1, null);
+        assertAmount(new BigDecimal("25"), stackWins.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("75"), stackWins.getTotal(), "total");
+        assertEquals("Ten percent; Fifteen off", stackWins.getLineItems().getFirst().getDiscountDescription());
+    }
+
+    @Test
+    void exclusiveOrderCouponReplacesEveryLineDiscount() {
+        List<Product> products = List.of(product("p1", "100"), product("p2", "50"));
+        List<Discount> discounts = List.of(tier(1, "p1", "PERCENT", "10", "Ten percent").build(),
+                tier(2, "p2", "FIXED", "5", "Five off").build());
+        List<Coupon> coupons = List.of(
+                orderCoupon(1, "BIG", "PERCENT", "25", null).isExclusive(true).build(),
+                orderCoupon(2, "SMALL", "PERCENT", "5", null).isExclusive(true).build());
+
+        CalculatePriceResponseDTO big = price(products, discounts, coupons, List.of("p1", "p2"), List.of(1, 1), "BIG");
+        // 25% of 150 beats the 15 of line discounts, which are all given up
+        assertAmount(new BigDecimal("37.5"), big.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("112.5"), big.getTotal(), "total");
+        assertAmount(BigDecimal.ZERO, big.getLineItems().get(0).getLineDiscount(), "line 0");
+        assertAmount(BigDecimal.ZERO, big.getLineItems().get(1).getLineDiscount(), "line 1");
+
+        CalculatePriceResponseDTO small = price(products, discounts, coupons, List.of("p1", "p2"), List.of(1, 1), "SMALL");
+        assertAmount(new BigDecimal("15"), small.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("135"), small.getTotal(), "total");
+    }
+
+    @Test
+    void rulesOfOneGroupNeverStack() {
+        List<Product> products = List.of(product("p1", "100"));
+        List<Discount> discounts = List.of(
+                tier(1, "p1", "PERCENT", "10", "Season ten").stackGroup("SEASON").build(),
+                tier(2, "p1", "PERCENT", "5", "Five percent").build(),
+                tier(3, "p1", "PERCENT", "8", "Eight percent").build());
+        List<Coupon> coupons = List.of(
+                productCoupon(1, "p1", "FIXED", "15", "Season fifteen").stackGroup("SEASON").build());
+
+        CalculatePriceResponseDTO result = price(products, discounts, coupons, "p1", 1, null);
+        // One of the SEASON pair and one of the default tier group: 15 + 8, not 15 + 10 + 8 + 5
+        assertAmount(new BigDecimal("23"), result.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("77"), result.getTotal(), "total");
+        assertEquals("Eight percent; Season fifteen", result.getLineItems().getFirst().getDiscountDescription());
+    }
+
+    @Test
+    void priorityThenFewerRulesBreakTies() {
+        List<Product> products = List.of(product("p1", "100"));
+
+        CalculatePriceResponseDTO byPriority = price(products, List.of(
+                tier(1, "p1", "FIXED", "10", "Plain").stackGroup("G").build(),
+                tier(2, "p1", "PERCENT", "10", "Preferred").stackGroup("G").priority(5).build()),
+                List.of(), "p1", 1, null);
+        assertAmount(new BigDecimal("10"), byPriority.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("90"), byPriority.getTotal(), "total");
+        assertEquals("Preferred", byPriority.getLineItems().getFirst().getDiscountDescription());
+
+        List<Coupon> coupons = List.of(
+                productCoupon(1, "p1", "FIXED", "20", "Solo").isExclusive(true).build(),
+                productCoupon(2, "p1", "FIXED", "10", "Coupon ten").build());
+        CalculatePriceResponseDTO byCount = price(products, List.of(tier(1, "p1", "FIXED", "10", "Tier ten").build()),
+                coupons, "p1", 1, null);
+        assertAmount(new BigDecimal("20"), byCount.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("80"), byCount.getTotal(), "total");
+        assertEquals("Solo", byCount.getLineItems().getFirst().getDiscountDescription());
+
+        CalculatePriceResponseDTO priorityOverCount = price(products,
+                List.of(tier(1, "p1", "FIXED", "10", "Tier ten").priority(3).build()), coupons, "p1", 1, null);
+        assertAmount(new BigDecimal("20"), priorityOverCount.getDiscountTotal(), "discountTotal");
+        assertEquals("Tier ten; Coupon ten", priorityOverCount.getLineItems().getFirst().getDiscountDescription());
+    }
+
+    @Test
+    void orderCouponGivesUpTheLeastLineDiscountThatKeepsTheMinimum() {
+        List<Product> products = List.of(product("p1", "100"), product("p2", "50"));
+        List<Discount> discounts = List.of(tier(1, "p1", "PERCENT", "10", "Ten percent").build(),
+                tier(2, "p2", "FIXED", "20", "Twenty off").build());
+        List<Coupon> coupons = List.of(orderCoupon(1, "LOW", "FIXED", "30", "85").build(),
+                orderCoupon(2, "HIGH", "FIXED", "30", "130").build(),
+                orderCoupon(3, "OUT", "FIXED", "30", "151").build());
+
+        CalculatePriceResponseDTO low = price(products, discounts, coupons, List.of("p1", "p2"), List.of(1, 1), "LOW");
+        assertAmount(new BigDecimal("60"), low.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("90"), low.getTotal(), "total");
+
+        // Only 20 of line discount keeps 130: p2's 20 is kept and p1's 10 given up
+        CalculatePriceResponseDTO high = price(products, discounts, coupons, List.of("p1", "p2"), List.of(1, 1), "HIGH");
+        assertAmount(new BigDecimal("50"), high.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("100"), high.getTotal(), "total");
+        assertAmount(BigDecimal.ZERO, high.getLineItems().get(0).getLineDiscount(), "line 0");
+        assertAmount(new BigDecimal("20"), high.getLineItems().get(1).getLineDiscount(), "line 1");
+
+        CalculatePriceResponseDTO out = price(products, discounts, coupons, List.of("p1", "p2"), List.of(1, 1), "OUT");
+        assertAmount(new BigDecimal("30"), out.getDiscountTotal(), "discountTotal");
+        assertAmount(new BigDecimal("120"), out.getTotal(), "total");
+    }
+
+    @Test
+    void convertedCartsMatchCartsPricedInTheTargetCurrency() {
+        // At 0.5 EUR per USD every EUR amount converts to exactly twice as many USD
+        FxRateTable fxRates = FxRateTable.of(7, "USD", Map.of("EUR", new BigDecimal("0.5")), "test", null);
+        Random random = new Random(20240917L);
+        for (int catalog = 0; catalog < 10; catalog++) {
+            Catalog catalog = randomCatalog(random, 30);
+            List<Product> products = catalog.products();
+            List<Discount> discounts = catalog.discounts();
+            List<Coupon> coupons = catalog.coupons();
+            List<Product> euroProducts = new ArrayList<>();
+            List<Product> dollarProducts = new ArrayList<>();
+            for (Product p : products) {
+                euroProducts.add(Product.builder().id(p.getId()).name(p.getName()).rawPrice(p.getRawPrice()).tax(p.getTax())
+                        .shippingCost(p.getShippingCost()).currencyCode("EUR").isActive(true).build());
+                dollarProducts.add(Product.builder().id(p.getId()).name(p.getName()).rawPrice(twice(p.getRawPrice())).tax(p.getTax())
+                        .shippingCost(twice(p.getShippingCost())).currencyCode("USD").isActive(true).build());
+            }
+            List<Discount> dollarDiscounts = new ArrayList<>();
+            for (Discount d : discounts) {
+                dollarDiscounts.add(Discount.builder().id(d.getId()).productId(d.getProductId()).minQuantity(d.getMinQuantity())
+                        .type(d.getType()).value(d.getType().equalsIgnoreCase("PERCENT") ? d.getValue() : twice(d.getValue()))
+                        .description(d.getDescription()).stackGroup(d.getStackGroup()).priority(d.getPriority())
+                        .isExclusive(d.getIsExclusive()).isActive(true).build());
+            }
+            // Order coupons are in the base currency either way
+            List<Coupon> dollarCoupons = new ArrayList<>();
+            for (Coupon c : coupons) {
+                boolean converted = c.getProductId() != null && !c.getType().equalsIgnoreCase("PERCENT");
+                dollarCoupons.add(Coupon.builder().id(c.getId()).code(c.getCode()).productId(c.getProductId())
+                        .minQuantity(c.getMinQuantity()).type(c.getType()).value(converted ? twice(c.getValue()) : c.getValue())
+                        .description(c.getDescription()).minOrderAmount(c.getMinOrderAmount()).stackGroup(c.getStackGroup())
+                        .priority(c.getPriority()).isExclusive(c.getIsExclusive()).isActive(true).usedCount(0)
+                        .build());
+            }
+            PricingSnapshot euros = PricingSnapshot.build(1, euroProducts, discounts);
+            PricingSnapshot dollars = PricingSnapshot.build(1, dollarProducts, dollarDiscounts);
+            PricingCalculationService euroService = new PricingCalculationService(null, new FixedCouponRegistry(coupons), null, null);
+            PricingCalculationService dollarService = new PricingCalculationService(null, new FixedCouponRegistry(dollarCoupons), null, null);
+
+            for (int cart = 0; cart < 200; cart++) {
+                List<String> productIds = new ArrayList<>();
+                List<Integer> quantities = new ArrayList<>();
+                int lines = 1 + random.nextInt(8);
+                for (int i = 0; i < lines; i++) {
+                    productIds.add(products.get(random.nextInt(products.size())).getId());
+                    quantities.add(1 + random.nextInt(30));
+                }
+                String couponCode = random.nextBoolean() ? coupons.get(random.nextInt(coupons.size())).getCode() : null;
+
+                CalculatePriceResponseDTO expected = dollarService.calculate(dollars, productIds, quantities, couponCode);
+                CalculatePriceResponseDTO actual = euroService.calculate(euros, fxRates, productIds, quantities, couponCode, "usd", null);
+                assertSame(expected, actual, "catalog " + catalog + " cart " + cart);
+                assertEquals(7L, actual.getFxRatesVersion());
+            }
+        }
+    }
+
+    @Test
+    void singleCurrencyCartsOutsideTheBaseCurrencyNeedNoRates() {
+        // Neither table can convert USD order coupon amounts into GBP, and a GBP-only cart must not need them to
+        List<FxRateTable> tables = List.of(FxRateTable.empty("USD"),
+                FxRateTable.of(3, "USD", Map.of("EUR", new BigDecimal("0.9")), "test", null));
+        String[] spellings = {"GBP", " gbp", "Gbp "};
+        Random random = new Random(20241105L);
+        for (int catalogIndex = 0; catalogIndex < 10; catalogIndex++) {
+            Catalog catalog = randomCatalog(random, 20);
+            List<Product> pounds = new ArrayList<>();
+            for (Product p : catalog.products()) {
+                pounds.add(Product.builder().id(p.getId()).name(p.getName()).rawPrice(p.getRawPrice()).tax(p.getTax())
+                        .shippingCost(p.getShippingCost()).currencyCode(spellings[random.nextInt(spellings.length)])
+                        .isActive(true).build());
+            }
+            PricingSnapshot snapshot = PricingSnapshot.build(1, pounds, catalog.discounts());
+            PricingCalculationService service =
+                    new PricingCalculationService(null, new FixedCouponRegistry(catalog.coupons()), null, null);
+            List<Coupon> orderCoupons = catalog.coupons().stream().filter(c -> c.getProductId() == null).toList();
+
+            for (int cart = 0; cart < 200; cart++) {
+                List<String> productIds = new ArrayList<>();
+                List<Integer> quantities = new ArrayList<>();
+                int lines = 1 + random.nextInt(3);
+                for (int i = 0; i < lines; i++) {
+                    productIds.add(pounds.get(random.nextInt(pounds.size())).getId());
+                    quantities.add(1 + random.nextInt(30));
+                }
+                String couponCode = orderCoupons.get(random.nextInt(orderCoupons.size())).getCode();
+
+                List<Outcome> expected = reference(new Catalog(pounds, catalog.discounts(), catalog.coupons()),
+                        productIds, quantities, couponCode);
+                expected.forEach(outcome -> outcome.result().setCurrencyCode("GBP"));
+                for (FxRateTable fxRates : tables) {
+                    CalculatePriceResponseDTO actual = service.calculate(snapshot, fxRates, productIds, quantities,
+                            couponCode, null, null);
+                    assertOneOf(expected, actual, "catalog " + catalogIndex + " cart " + cart + " rates " + fxRates.version());
+                }
+                assertOneOf(expected, service.calculate(snapshot, productIds, quantities, couponCode),
+                        "catalog " + catalogIndex + " cart " + cart + " without rates");
+            }
+        }
+    }
+
+    @Test
+    void multiplyDivideRoundsLikeBigDecimal() {
+        Random random = new Random(7L);
+        long[] divisors = {1, 2, 3, 7, 100, 1_000_000, 999_983};
+        for (int i = 0; i < 200_000; i++) {
+            long a = i % 10 == 0 ? random.nextLong() >> random.nextInt(40) : random.nextLong() >> 34;
+            long b = random.nextLong() >> (20 + random.nextInt(40));
+            long divisor = divisors[random.nextInt(divisors.length)];
+            BigDecimal exact = new BigDecimal(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)))
+                    .divide(BigDecimal.valueOf(divisor), 0, ROUNDING);
+            if (exact.toBigInteger().bitLength() >= 64) {
+                continue;
+            }
+            assertEquals(exact.longValueExact(), Money.multiplyDivide(a, b, divisor), a + " * " + b + " / " + divisor);
+        }
+        // Ties round away from zero in both directions
+        assertEquals(3, Money.multiplyDivide(5, 1, 2));
+        assertEquals(-3, Money.multiplyDivide(-5, 1, 2));
+    }
+
+    private static CalculatePriceResponseDTO price(List<Product> products, List<Discount> discounts, List<Coupon> coupons,
+                                                   String productId, int quantity, String couponCode) {
+        return price(products, discounts, coupons, List.of(productId), List.of(quantity), couponCode);
+    }
+
+    private static CalculatePriceResponseDTO price(List<Product> products, List<Discount> discounts, List<Coupon> coupons,
+                                                   List<String> productIds, List<Integer> quantities, String couponCode) {
+        PricingCalculationService service = new PricingCalculationService(null, new FixedCouponRegistry(coupons), null, null);
+        return service.calculate(PricingSnapshot.build(1, products, discounts), productIds, quantities, couponCode);
+    }
+
+    private static Product product(String id, String price) {
+        return Product.builder().id(id).name("Product " + id).rawPrice(new BigDecimal(price)).currencyCode("USD")
+                .isActive(true).build();
+    }
+
+    private static Discount.DiscountBuilder tier(long id, String productId, String type, String value, String description) {
+        return Discount.builder().id(id).productId(productId).minQuantity(1).type(type).value(new BigDecimal(value))
+                .description(description).isActive(true);
+    }
+
+    private static Coupon.CouponBuilder productCoupon(long id, String productId, String type, String value,
+                                                      String description) {
+        return Coupon.builder().id(id).code("P" + id).productId(productId).minQuantity(1).type(type)
+                .value(new BigDecimal(value)).description(description).isActive(true).usedCount(0);
+    }
+
+    private static Coupon.CouponBuilder orderCoupon(long id, String code, String type, String value, String minOrderAmount) {
+        return Coupon.builder().id(id).code(code).type(type).value(new BigDecimal(value))
+                .minOrderAmount(minOrderAmount != null ? new BigDecimal(minOrderAmount) : null).isActive(true).usedCount(0);
+    }
+
+    private static void assertOneOf(List<Outcome> expected, CalculatePriceResponseDTO actual, String context) {
+        for (Outcome outcome : expected) {
+            if (matches(outcome, actual)) {
+                return;
+            }
+        }
+        // Report the differences from the first optimal result
+        assertSame(expected.getFirst(), actual, context);
+    }
+
+    private static boolean matches(Outcome expected, CalculatePriceResponseDTO actual) {
+        try {
+            assertSame(expected, actual, "");
+            return true;
+        } catch (AssertionError e) {
+            return false;
+        }
+    }
+
+    private static void assertSame(Outcome outcome, CalculatePriceResponseDTO actual, String context) {
+        assertSame(outcome.result(), actual, context, outcome.descriptions());
+    }
+
+    private static void assertSame(CalculatePriceResponseDTO expected, CalculatePriceResponseDTO actual, String context) {
+        List<Set<String>> descriptions = expected.getLineItems().stream()
+                .map(line -> Collections.singleton(line.getDiscountDescription()))
+                .toList();
+        assertSame(expected, actual, context, descriptions);
+    }
+
+    private static void assertSame(CalculatePriceResponseDTO expected, CalculatePriceResponseDTO actual, String context,
+                                   List<Set<String>> descriptions) {
+        assertAmount(expected.getSubtotal(), actual.getSubtotal(), context + " subtotal");
+        assertAmount(expected.getDiscountTotal(), actual.getDiscountTotal(), context + " discountTotal");
+        assertAmount(expected.getShippingTotal(), actual.getShippingTotal(), context + " shippingTotal");
+        assertAmount(expected.getTaxTotal(), actual.getTaxTotal(), context + " taxTotal");
+        assertAmount(expected.getTotal(), actual.getTotal(), context + " total");
+        assertEquals(expected.getCurrencyCode(), actual.getCurrencyCode(), context + " currency");
+        assertEquals(expected.getLineItems().size(), actual.getLineItems().size(), context + " lines");
+        for (int i = 0; i < expected.getLineItems().size(); i++) {
+            CalculatePriceResponseDTO.LineItemPriceDTO e = expected.getLineItems().get(i);
+            CalculatePriceResponseDTO.LineItemPriceDTO a = actual.getLineItems().get(i);
+            String line = context + " line " + i;
+            assertEquals(e.getProductId(), a.getProductId(), line);
+            assertEquals(e.getQuantity(), a.getQuantity(), line);
+            assertAmount(e.getUnitPrice(), a.getUnitPrice(), line + " unitPrice");
+            assertAmount(e.getLineSubtotal(), a.getLineSubtotal(), line + " lineSubtotal");
+            assertAmount(e.getLineDiscount(), a.getLineDiscount(), line + " lineDiscount");
+            assertAmount(e.getLineShipping(), a.getLineShipping(), line + " lineShipping");
+            assertAmount(e.getLineTax(), a.getLineTax(), line + " lineTax");
+            assertAmount(e.getLineTotal(), a.getLineTotal(), line + " lineTotal");
+            assertTrue(descriptions.get(i).contains(a.getDiscountDescription()),
+                    line + " description: expected one of " + descriptions.get(i) + " but was " + a.getDiscountDescription());
+        }
+    }
+
+    private static void assertAmount(BigDecimal expected, BigDecimal actual, String message) {
+        assertTrue(expected.compareTo(actual) == 0, message + ": expected " + expected + " but was " + actual);
+    }
+
+    private static List<Product> randomProducts(Random random, int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            products.add(Product.builder()
+                    .id("p" + i)
+                    .name("Product " + i)
+                    .rawPrice(amount(random, 5_000_000_000L))
+                    .tax(random.nextInt(5) == 0 ? null : amount(random, 300_000L))
+                    .shippingCost(random.nextInt(5) == 0 ? null : amount(random, 500_000L))
+                    .currencyCode(random.nextInt(10) == 0 ? null : "USD")
+                    .isActive(true)
+                    .build());
+        }
+        return products;
+    }
+
+    /**
+     * Products with up to three tiers and product coupons between them, in random stack groups, with
+     * random priorities and some exclusive, plus order-level coupons.
+     */
+    private static Catalog randomCatalog(Random random, int productCount) {
+        List<Product> products = randomProducts(random, productCount);
+        List<Discount> discounts = new ArrayList<>();
+        List<Coupon> coupons = new ArrayList<>();
+        long discountId = 1;
+        long couponId = 1;
+        for (Product product : products) {
+            int rules = random.nextInt(4);
+            for (int r = 0; r < rules; r++) {
+                String type = TYPES[random.nextInt(TYPES.length)];
+                String group = GROUPS[random.nextInt(GROUPS.length)];
+                Integer priority = random.nextInt(3) == 0 ? null : random.nextInt(3);
+                Boolean exclusive = random.nextInt(5) == 0 ? Boolean.TRUE : random.nextBoolean() ? null : Boolean.FALSE;
+                if (random.nextInt(3) == 0) {
+                    long id = couponId++;
+                    coupons.add(Coupon.builder()
+                            .id(id)
+                            .code("C" + id)
+                            .productId(product.getId())
+                            .minQuantity(random.nextInt(6) == 0 ? null : 1 + random.nextInt(10))
+                            .type(type)
+                            .value(BigDecimal.valueOf(random.nextInt(type.equalsIgnoreCase("PERCENT") ? 5_000 : 2_000_000), 2))
+                            .description(random.nextBoolean() ? "Coupon " + id + " text" : null)
+                            .stackGroup(group)
+                            .priority(priority)
+                            .isExclusive(exclusive)
+                            .isActive(true)
+                            .usedCount(0)
+                            .build());
+                } else {
+                    long id = discountId++;
+                    discounts.add(Discount.builder()
+                            .id(id)
+                            .productId(product.getId())
+                            .minQuantity(1 + random.nextInt(12))
+                            .type(type)
+                            .value(type.equalsIgnoreCase("PERCENT") ? amount(random, 600_000L) : amount(random, 200_000L))
+                            .description(random.nextBoolean() ? "Tier " + id : null)
+                            .stackGroup(group)
+                            .priority(priority)
+                            .isExclusive(exclusive)
+                            .isActive(true)
+                            .build());
+                }
+            }
+        }
+        for (int i = 0; i < 12; i++) {
+            long id = couponId++;
+            String type = TYPES[random.nextInt(TYPES.length)];
+            coupons.add(Coupon.builder()
+                    .id(id)
+                    .code("C" + id)
+                    .type(type)
+                    .value(BigDecimal.valueOf(random.nextInt(type.equalsIgnoreCase("PERCENT") ? 5_000 : 2_000_000), 2))
+                    .description(random.nextBoolean() ? "Coupon " + id + " text" : null)
+                    .minOrderAmount(random.nextBoolean() ? null : BigDecimal.valueOf(random.nextInt(5_000_000), 2))
+                    .priority(random.nextInt(3))
+                    .isExclusive(random.nextInt(4) == 0)
+                    .isActive(true)
+                    .usedCount(0)
+                    .build());
+        }
+        return new Catalog(products, discounts, coupons);
+    }
+
+    private static BigDecimal twice(BigDecimal amount) {
+        return amount == null ? null : amount.add(amount);
+    }
+
+    private static BigDecimal amount(Random random, long maxUnits) {
+        return BigDecimal.valueOf((long) (random.nextDouble() * maxUnits), SCALE);
+    }
+
+    /**
+     * A result the calculation may return, with the descriptions each line may carry: rule sets
+     * worth the same, with the same priority and number of rules, are equally good.
+     */
+    private record Outcome(CalculatePriceResponseDTO result, List<Set<String>> descriptions) {
+    }
+
+    /**
+     * A tier or product coupon that applies to a line.
+     */
+    private record Rule(boolean tier, long id, String group, int priority, boolean exclusive, BigDecimal amount,
+                        String description) {
+    }
+
+    /**
+     * The best rule sets worth one amount on a line.
+     */
+    private record Choice(BigDecimal amount, int priority, int count, Set<String> descriptions) {
+    }
+
+    /**
+     * Every optimal result for the cart, in BigDecimal. Each line tries every set of its rules with
+     * at most one rule per stack group, or one exclusive rule alone; among sets worth the same, a
+     * higher total priority and then fewer rules are preferred. With an order coupon, every choice
+     * of line discounts is tried: the coupon applies on top of the largest line discount that keeps
+     * the order at its minimum, if that beats the line discounts alone, and an exclusive coupon
+     * applies on the undiscounted order instead.
+     */
+    private static List<Outcome> reference(Catalog catalog, List<String> productIds, List<Integer> quantities,
+                                           String couponCode) {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        List<Product> lineProducts = new ArrayList<>();
+        List<Integer> lineQuantities = new ArrayList<>();
+        List<BigDecimal> lineSubtotals = new ArrayList<>();
+        List<List<Choice>> lineChoices = new ArrayList<>();
+        String currencyCode = "USD";
+
+        for (int i = 0; i < productIds.size(); i++) {
+            String pid = productIds.get(i);
+            int qty = quantities.get(i) != null ? Math.max(0, quantities.get(i)) : 0;
+            Product product = catalog.products().stream().filter(p -> p.getId().equals(pid)).findFirst().orElse(null);
+            if (product == null || qty <= 0) continue;
+            if (product.getCurrencyCode() != null) currencyCode = product.getCurrencyCode();
+
+            BigDecimal unitPrice = product.getRawPrice();
+            BigDecimal lineSubtotal = unitPrice.multiply(BigDecimal.valueOf(qty)).setScale(SCALE, ROUNDING);
+            List<Rule> rules = new ArrayList<>();
+            for (Discount d : catalog.discounts()) {
+                BigDecimal amount = applyDiscount(unitPrice, qty, d.getType(), d.getValue());
+                if (d.getProductId().equals(pid) && qty >= d.getMinQuantity() && amount.signum() > 0) {
+                    rules.add(new Rule(true, d.getId(), d.getStackGroup() != null ? "group " + d.getStackGroup() : "tiers",
+                            d.getPriority() != null ? d.getPriority() : 0, Boolean.TRUE.equals(d.getIsExclusive()), amount,
+                            d.getDescription() != null ? d.getDescription() : "Discount " + d.getType()));
+                }
+            }
+            for (Coupon c : catalog.coupons()) {
+                BigDecimal amount = applyDiscount(unitPrice, qty, c.getType(), c.getValue());
+                if (pid.equals(c.getProductId()) && c.getMinQuantity() != null && qty >= c.getMinQuantity()
+                        && amount.signum() > 0) {
+                    rules.add(new Rule(false, c.getId(), c.getStackGroup() != null ? "group " + c.getStackGroup() : "coupons",
+                            c.getPriority() != null ? c.getPriority() : 0, Boolean.TRUE.equals(c.getIsExclusive()), amount,
+                            c.getDescription() != null ? c.getDescription() : "Coupon " + c.getCode()));
+                }
+            }
+            // Descriptions list tiers before coupons, each in id order
+            rules.sort(Comparator.comparing((Rule r) -> !r.tier()).thenComparingLong(Rule::id));
+
+            TreeMap<BigDecimal, Choice> byAmount = new TreeMap<>(Comparator.reverseOrder());
+            for (int set = 0; set < 1 << rules.size(); set++) {
+                List<Rule> chosen = new ArrayList<>();
+                for (int r = 0; r < rules.size(); r++) {
+                    if ((set & 1 << r) != 0) chosen.add(rules.get(r));
+                }
+                boolean allowed = chosen.size() <= 1 || chosen.stream().noneMatch(Rule::exclusive)
+                        && chosen.stream().map(Rule::group).distinct().count() == chosen.size();
+                if (!allowed) continue;
+                BigDecimal amount = chosen.stream().map(Rule::amount).reduce(BigDecimal.ZERO, BigDecimal::add).min(lineSubtotal);
+                int priority = chosen.stream().mapToInt(Rule::priority).sum();
+                String description = String.join("; ", chosen.stream().map(Rule::description).toList());
+                Choice current = byAmount.get(amount);
+                if (current == null || priority > current.priority()
+                        || priority == current.priority() && chosen.size() < current.count()) {
+                    byAmount.put(amount, new Choice(amount, priority, chosen.size(), new HashSet<>(Set.of(description))));
+                } else if (priority == current.priority() && chosen.size() == current.count()) {
+                    current.descriptions().add(description);
+                }
+            }
+
+            subtotal = subtotal.add(lineSubtotal);
+            lineProducts.add(product);
+            lineQuantities.add(qty);
+            lineSubtotals.add(lineSubtotal);
+            lineChoices.add(new ArrayList<>(byAmount.values()));
+        }
+
+        // Index 0 is each line's largest discount, the last index none
+        int[] best = new int[lineChoices.size()];
+        BigDecimal bestTotal = total(lineChoices, best);
+        List<int[]> picks = List.of(best);
+        BigDecimal couponAmount = BigDecimal.ZERO;
+        String code = couponCode == null ? null : couponCode.trim();
+        Coupon coupon = catalog.coupons().stream()
+                .filter(c -> c.getCode().equals(code) && (c.getProductId() == null || c.getProductId().isBlank()))
+                .findFirst().orElse(null);
+        if (coupon != null) {
+            BigDecimal minOrder = coupon.getMinOrderAmount() != null ? coupon.getMinOrderAmount() : BigDecimal.ZERO;
+            BigDecimal limit = subtotal.subtract(minOrder);
+            if (limit.signum() >= 0) {
+                List<int[]> candidates = new ArrayList<>();
+                if (Boolean.TRUE.equals(coupon.getIsExclusive())) {
+                    int[] none = new int[lineChoices.size()];
+                    for (int i = 0; i < none.length; i++) none[i] = lineChoices.get(i).size() - 1;
+                    candidates.add(none);
+                } else {
+                    BigDecimal most = null;
+                    for (int[] pick : everyPick(lineChoices)) {
+                        BigDecimal lines = total(lineChoices, pick);
+                        if (lines.compareTo(limit) > 0) continue;
+                        if (most == null || lines.compareTo(most) > 0) {
+                            most = lines;
+                            candidates.clear();
+                        }
+                        if (lines.compareTo(most) == 0) candidates.add(pick);
+                    }
+                }
+                BigDecimal lines = total(lineChoices, candidates.getFirst());
+                BigDecimal amount = orderCouponAmount(coupon, subtotal.subtract(lines).setScale(SCALE, ROUNDING));
+                if (lines.add(amount).compareTo(bestTotal) >= 0) {
+                    picks = candidates;
+                    couponAmount = amount;
+                }
+            }
+        }
+
+        List<Outcome> outcomes = new ArrayList<>();
+        for (int[] pick : picks) {
+            BigDecimal discountTotal = BigDecimal.ZERO;
+            BigDecimal shippingTotal = BigDecimal.ZERO;
+            BigDecimal taxTotal = BigDecimal.ZERO;
+            List<CalculatePriceResponseDTO.LineItemPriceDTO> lineItems = new ArrayList<>();
+            List<Set<String>> descriptions = new ArrayList<>();
+            for (int i = 0; i < lineProducts.size(); i++) {
+                Product product = lineProducts.get(i);
+                int qty = lineQuantities.get(i);
+                Choice choice = lineChoices.get(i).get(pick[i]);
+                BigDecimal lineSubtotal = lineSubtotals.get(i);
+                BigDecimal lineDiscount = choice.amount();
+
+                BigDecimal lineAfterDiscount = lineSubtotal.subtract(lineDiscount).setScale(SCALE, ROUNDING);
+                BigDecimal taxRate = product.getTax() != null ? product.getTax() : BigDecimal.ZERO;
+                BigDecimal lineTax = lineAfterDiscount.multiply(taxRate).divide(BigDecimal.valueOf(100), SCALE, ROUNDING);
+                BigDecimal lineShipping = (product.getShippingCost() != null ? product.getShippingCost() : BigDecimal.ZERO)
+                        .multiply(BigDecimal.valueOf(qty)).setScale(SCALE, ROUNDING);
+                BigDecimal lineTotal = lineAfterDiscount.add(lineTax).add(lineShipping).setScale(SCALE, ROUNDING);
+
+                discountTotal = discountTotal.add(lineDiscount);
+                taxTotal = taxTotal.add(lineTax);
+                shippingTotal = shippingTotal.add(lineShipping);
+                lineItems.add(new CalculatePriceResponseDTO.LineItemPriceDTO(product.getId(), product.getName(), qty,
+                        product.getRawPrice(), lineSubtotal, lineDiscount, lineShipping, lineTax, lineTotal,
+                        choice.descriptions().iterator().next()));
+                descriptions.add(choice.descriptions());
+            }
+            discountTotal = discountTotal.add(couponAmount);
+            BigDecimal total = subtotal.subtract(discountTotal).add(taxTotal).add(shippingTotal).setScale(SCALE, ROUNDING);
+            outcomes.add(new Outcome(new CalculatePriceResponseDTO(subtotal, discountTotal, shippingTotal, taxTotal, total,
+                    currencyCode, 0L, lineItems, null, null), descriptions));
+        }
+        return outcomes;
+    }
+
+    private static BigDecimal total(List<List<Choice>> lineChoices, int[] pick) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < pick.length; i++) {
+            total = total.add(lineChoices.get(i).get(pick[i]).amount());
+        }
+        return total;
+    }
+
+    private static List<int[]> everyPick(List<List<Choice>> lineChoices) {
+        List<int[]> picks = new ArrayList<>();
+        picks.add(new int[0]);
+        for (List<Choice> choices : lineChoices) {
+            List<int[]> next = new ArrayList<>();
+            for (int[] pick : picks) {
+                for (int c = 0; c < choices.size(); c++) {
+                    int[] extended = Arrays.copyOf(pick, pick.length + 1);
+                    extended[pick.length] = c;
+                    next.add(extended);
+                }
+            }
+            picks = next;
+        }
+        return picks;
+    }
+
+    private static BigDecimal orderCouponAmount(Coupon coupon, BigDecimal afterLineDiscounts) {
+        if ("PERCENT".equalsIgnoreCase(coupon.getType()) && coupon.getValue() != null) {
+            return afterLineDiscounts.multiply(coupon.getValue()).divide(BigDecimal.valueOf(100), SCALE, ROUNDING);
+        }
+        if ("FIXED".equalsIgnoreCase(coupon.getType()) && coupon.getValue() != null) {
+            return coupon.getValue().min(afterLineDiscounts).setScale(SCALE, ROUNDING);
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private static BigDecimal applyDiscount(BigDecimal unitPrice, int qty, String type, BigDecimal value) {
+        if (type == null || value == null) return BigDecimal.ZERO;
+        if ("PERCENT".equalsIgnoreCase(type)) {
+            return unitPrice.multiply(BigDecimal.valueOf(qty)).multiply(value).divide(BigDecimal.valueOf(100), SCALE, ROUNDING);
+        }
+        if ("FIXED".equalsIgnoreCase(type)) {
+            return value.multiply(BigDecimal.valueOf(qty)).setScale(SCALE, ROUNDING);
+        }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * Serves a fixed set of coupons, all redeemable, without a database.
+     */
+    private static final class FixedCouponRegistry extends CouponRegistry {
+
+        private final Map<String, List<CouponRule>> byProduct = new HashMap<>();
+        private final Map<String, CouponRule> byCode = new HashMap<>();
+
+        FixedCouponRegistry(List<Coupon> coupons) {
+            super(null, null);
+            for (Coupon coupon : coupons) {
+                CouponRule rule = CouponRule.of(coupon);
+                byCode.put(rule.code(), rule);
+                if (!rule.isOrderLevel()) {
+                    byProduct.computeIfAbsent(rule.productId(), k -> new ArrayList<>()).add(rule);
+                }
+            }
+            byProduct.values().forEach(rules -> rules.sort(Comparator.comparing(CouponRule::id)));
+        }
+
+        @Override
+        public List<CouponRule> productCoupons(String productId, LocalDateTime now) {
+            return byProduct.getOrDefault(productId, List.of());
+        }
+
+        @Override
+        public CouponRule findValid(String code, LocalDateTime now) {
+            return byCode.get(code);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.dto.CalculatePriceResponseDTO;
+import com.nsbm.bunmart.pricing.errors.QuoteNotFoundException;
+import com.nsbm.bunmart.pricing.events.PricingDataChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PricingQuoteServiceTest {
+
+    private static final List<String> PRODUCTS = List.of("p1", "p2");
+    private static final List<Integer> QUANTITIES = List.of(1, 3);
+
+    private final PricingCalculationService calculationService = mock(PricingCalculationService.class);
+
+    @BeforeEach
+    void setUp() {
+        when(calculationService.currentSnapshot()).thenReturn(PricingSnapshot.build(1, List.of(), List.of()));
+        when(calculationService.currentFxRates()).thenReturn(FxRateTable.empty("USD"));
+        when(calculationService.calculate(any(PricingSnapshot.class), any(FxRateTable.class), anyList(), anyList(),
+                any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    CalculatePriceResponseDTO result = new CalculatePriceResponseDTO();
+                    result.setTotal(new BigDecimal("42.00"));
+                    result.setCurrencyCode("USD");
+                    result.setLineItems(List.of());
+                    return result;
+                });
+    }
+
+    @Test
+    void repeatedRequestReusesTheCalculationUnderNewQuoteIds() {
+        PricingQuoteService service = new PricingQuoteService(calculationService, Duration.ofMinutes(5), 100, "secret");
+
+        CalculatePriceResponseDTO first = service.quote(PRODUCTS, QUANTITIES, null, null, "u1");
+        CalculatePriceResponseDTO second = service.quote(PRODUCTS, QUANTITIES, null, null, "u1");
+
+        verify(calculationService, times(1)).calculate(any(PricingSnapshot.class), any(FxRateTable.class), anyList(),
+                anyList(), any(), any(), any());
+        assertNotEquals(first.getQuoteId(), second.getQuoteId());
+        assertNotSame(first, second);
+        assertEquals(first.getTotal(), second.getTotal());
+        assertEquals(first.getQuoteId(), service.getQuote(first.getQuoteId()).getQuoteId());
+        assertEquals(second.getQuoteId(), service.getQuote(second.getQuoteId()).getQuoteId());
+    }
+
+    @Test
+    void eachQuoteLocksInOneOrder() {
+        PricingQuoteService service = new PricingQuoteService(calculationService, Duration.ofMinutes(5), 100, "secret");
+        String first = service.quote(PRODUCTS, QUANTITIES, null, null, "u1").getQuoteId();
+        String second = service.quote(PRODUCTS, QUANTITIES, null, null, "u1").getQuoteId();
+
+        assertEquals(first, service.consumeQuote(first).getQuoteId());
+        assertThrows(QuoteNotFoundException.class, () -> service.consumeQuote(first));
+        assertThrows(QuoteNotFoundException.class, () -> service.getQuote(first));
+        // A second checkout of the same cart holds its own quote
+        assertEquals(second, service.consumeQuote(second).getQuoteId());
+    }
+
+    @Test
+    void tamperedOrForeignQuoteIdsAreRejected() {
+        PricingQuoteService service = new PricingQuoteService(calculationService, Duration.ofMinutes(5), 100, "secret");
+        PricingQuoteService other = new PricingQuoteService(calculationService, Duration.ofMinutes(5), 100, "other");
+        String quoteId = service.quote(PRODUCTS, QUANTITIES, null, null, "u1").getQuoteId();
+        String[] parts = quoteId.split("\\.");
+
+        String extended = parts[0] + "." + (Long.parseLong(parts[1]) + 3600) + "." + parts[2];
+        assertThrows(QuoteNotFoundException.class, () -> service.getQuote(extended));
+        char flipped = parts[0].charAt(0) == 'A' ? 'B' : 'A';
+        String renonced = flipped + parts[0].substring(1) + "." + parts[1] + "." + parts[2];
+        assertThrows(QuoteNotFoundException.class, () -> service.consumeQuote(renonced));
+        assertThrows(QuoteNotFoundException.class, () -> service.getQuote(parts[0] + "." + parts[1] + ".!!"));
+        assertThrows(QuoteNotFoundException.class, () -> service.getQuote("not-a-quote"));
+        assertThrows(QuoteNotFoundException.class, () -> other.getQuote(quoteId));
+        assertThrows(IllegalArgumentException.class, () -> service.getQuote(" "));
+        // The genuine id is still intact
+        assertEquals(quoteId, service.consumeQuote(quoteId).getQuoteId());
+    }
+
+    @Test
+    void everyQuoteCarriesItsOwnExpiry() throws Exception {
+        PricingQuoteService service = new PricingQuoteService(calculationService, Duration.ofSeconds(1), 100, "secret");
+        CalculatePriceResponseDTO first = service.quote(PRODUCTS, QUANTITIES, null, null, "u1");
+        Thread.sleep(1100);
+        CalculatePriceResponseDTO second = service.quote(PRODUCTS, QUANTITIES, null, null, "u1");
+
+        assertThrows(QuoteNotFoundException.class, () -> service.getQuote(first.getQuoteId()));
+        assertEquals(second.getQuoteId(), service.getQuote(second.getQuoteId()).getQuoteId());
+        long expiresAt = Long.parseLong(second.getQuoteId().split("\\.")[1]);
+        assertEquals(Instant.now().plusSeconds(1).getEpochSecond(), expiresAt, 1);
+    }
+
+    @Test
+    void pricingChangeRecalculates() {
+        PricingQuoteService service = new PricingQuoteService(calculationService, Duration.ofMinutes(5), 100, "secret");
+        service.quote(PRODUCTS, QUANTITIES, null, null, "u1");
+        service.onPricingDataChanged(new PricingDataChangedEvent(PricingDataChangedEvent.Source.COUPON, "1"));
+        service.quote(PRODUCTS, QUANTITIES, null, null, "u1");
+
+        verify(calculationService, times(2)).calculate(any(PricingSnapshot.class), any(FxRateTable.class), anyList(),
+                anyList(), any(), any(), any());
+    }
+}
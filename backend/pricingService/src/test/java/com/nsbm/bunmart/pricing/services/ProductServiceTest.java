@@ -0,0 +1,73 @@
+package com.nsbm.bunmart.pricing.services;
+
+import com.nsbm.bunmart.pricing.model.PriceVersion;
+import com.nsbm.bunmart.pricing.model.Product;
+import com.nsbm.bunmart.pricing.repositories.PriceVersionRepository;
+import com.nsbm.bunmart.pricing.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductServiceTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.now().minusDays(30);
+
+    private final List<PriceVersion> versions = new ArrayList<>();
+    private final Product product = Product.builder().id("p1").name("Bun").rawPrice(new BigDecimal("10.00"))
+            .currencyCode("USD").isActive(true).createdAt(CREATED).build();
+    private final ProductService service;
+
+    ProductServiceTest() {
+        ProductRepository products = mock(ProductRepository.class);
+        when(products.findById("p1")).thenReturn(Optional.of(product));
+        when(products.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        PriceVersionRepository priceVersions = mock(PriceVersionRepository.class);
+        when(priceVersions.save(any(PriceVersion.class))).thenAnswer(invocation -> {
+            versions.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(priceVersions.findFirstByProductIdAndBasePriceTrueOrderByEffectiveToDesc(anyString()))
+                .thenAnswer(invocation -> versions.stream().max(Comparator.comparing(PriceVersion::getEffectiveTo)));
+        service = new ProductService(products, priceVersions, mock(ApplicationEventPublisher.class));
+    }
+
+    @Test
+    void replacedBasePricesAreKeptBackToBack() throws InterruptedException {
+        service.update("p1", null, new BigDecimal("12.00"), null, null, null, null);
+        // A price in force for no time at all is not recorded
+        Thread.sleep(2);
+        service.update("p1", null, new BigDecimal("11.00"), null, null, null, null);
+
+        assertEquals(2, versions.size());
+        PriceVersion first = versions.get(0);
+        PriceVersion second = versions.get(1);
+        assertEquals(new BigDecimal("10.00"), first.getRawPrice());
+        assertEquals(CREATED, first.getEffectiveFrom());
+        assertEquals(new BigDecimal("12.00"), second.getRawPrice());
+        assertEquals(first.getEffectiveTo(), second.getEffectiveFrom());
+        assertTrue(second.getEffectiveTo().isAfter(second.getEffectiveFrom()));
+        assertTrue(versions.stream().allMatch(PriceVersion::getBasePrice));
+        assertEquals(new BigDecimal("11.00"), product.getRawPrice());
+    }
+
+    @Test
+    void unchangedBasePriceRecordsNothing() {
+        service.update("p1", "Bun", new BigDecimal("10.0"), null, null, null, null);
+        service.update("p1", "Bun", null, null, null, null, null);
+
+        assertTrue(versions.isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package com.nsbm.bunmart.product.configuration;
+
+import com.nsbm.bunmart.product.model.CatalogVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Seeds the catalog change feed for catalogs that existed before it did: when the feed is empty,
+ * every category and product gets an entry so that a consumer starting from version 0 receives the
+ * whole catalog. Also creates the version counter row so writers never race to insert it.
+ */
+@Slf4j
+@Component
+public class CatalogChangeBackfill {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CatalogChangeBackfill(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        jdbcTemplate.update("INSERT INTO catalog_version (id, current_version) VALUES (?, 0) ON CONFLICT (id) DO NOTHING",
+                CatalogVersion.SINGLETON_ID);
+        Integer seeded = transactionTemplate.execute(status -> {
+            Long base = jdbcTemplate.queryForObject(
+                    "SELECT current_version FROM catalog_version WHERE id = ? FOR UPDATE", Long.class,
+                    CatalogVersion.SINGLETON_ID);
+            Integer existing = jdbcTemplate.queryForObject("SELECT count(*) FROM catalog_changes", Integer.class);
+            if (base == null || existing == null || existing > 0) {
+                return 0;
+            }
+            // Categories first, so a consumer replaying in order never sees a product before its category
+            int categories = jdbcTemplate.update(
+                    "INSERT INTO catalog_changes (change_key, entity_type, entity_id, version, deleted, changed_at) "
+                            + "SELECT 'CATEGORY:' || id, 'CATEGORY', CAST(id AS VARCHAR), ? + row_number() OVER (ORDER BY id), false, now() "
+                            + "FROM categories", base);
+            int products = jdbcTemplate.update(
+                    "INSERT INTO catalog_changes (change_key, entity_type, entity_id, version, deleted, changed_at) "
+                            + "SELECT 'PRODUCT:' || id, 'PRODUCT', id, ? + row_number() OVER (ORDER BY id), false, now() "
+                            + "FROM products", base + categories);
+            jdbcTemplate.update("UPDATE catalog_version SET current_version = ? WHERE id = ?",
+                    base + categories + products, CatalogVersion.SINGLETON_ID);
+            return categories + products;
+        });
+        if (seeded != null && seeded > 0) {
+            log.info("Seeded the catalog change feed with {} existing records", seeded);
+        }
+    }
+}
@@ -64,6 +64,18 @@ public class GlobalGrpcExceptionHandler {
         return Status.INVALID_ARGUMENT.withDescription(e.getMessage());
     }
 
+    @GrpcExceptionHandler(InvalidPageRequestException.class)
+    public Status handleInvalidPageRequestException(InvalidPageRequestException e) {
+        log.error(e.getMessage());
+        return Status.INVALID_ARGUMENT.withDescription(e.getMessage());
+    }
+
+    @GrpcExceptionHandler(InvalidProductRequestException.class)
+    public Status handleInvalidProductRequestException(InvalidProductRequestException e) {
+        log.error(e.getMessage());
+        return Status.INVALID_ARGUMENT.withDescription(e.getMessage());
+    }
+
     @GrpcExceptionHandler(Exception.class)
     public Status handleGenericException(Exception e) {
         log.error("Unexpected gRPC error: {}", e.getMessage(), e);
@@ -0,0 +1,79 @@
+package com.nsbm.bunmart.product.configuration;
+
+import com.nsbm.bunmart.product.errors.InvalidImageException;
+import com.nsbm.bunmart.product.errors.ProductNotSavedException;
+import com.nsbm.bunmart.product.services.ImageStorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves images still held in the legacy {@code products.image_base64} TEXT column into the
+ * {@link ImageStorageService} and clears the column. Runs once per startup and is a no-op when
+ * the column is gone or already empty.
+ */
+@Slf4j
+@Component
+public class LegacyImageMigration {
+
+    private static final int BATCH_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageStorageService imageStorageService;
+
+    public LegacyImageMigration(JdbcTemplate jdbcTemplate, ImageStorageService imageStorageService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.imageStorageService = imageStorageService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        Integer columns = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM information_schema.columns WHERE table_name = 'products' AND column_name = 'image_base64'",
+                Integer.class);
+        if (columns == null || columns == 0) {
+            return;
+        }
+        int migrated = 0;
+        List<String> ids;
+        do {
+            // Only ids are listed so that a single batch of images is in memory at a time
+            ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM products WHERE image_base64 IS NOT NULL LIMIT " + BATCH_SIZE, String.class);
+            for (String id : ids) {
+                try {
+                    migrateOne(id);
+                } catch (ProductNotSavedException e) {
+                    log.error("Legacy image migration stopped at product {}: {}", id, e.getMessage());
+                    return;
+                }
+                migrated++;
+            }
+        } while (!ids.isEmpty());
+        if (migrated > 0) {
+            log.info("Moved {} legacy base64 product images into the image store", migrated);
+        }
+    }
+
+    private void migrateOne(String productId) {
+        String imageBase64 = jdbcTemplate.queryForObject(
+                "SELECT image_base64 FROM products WHERE id = ?", String.class, productId);
+        try {
+            ImageStorageService.StoredImage image = imageStorageService.storeBase64(imageBase64);
+            try {
+                jdbcTemplate.update(
+                        "UPDATE products SET image_hash = ?, image_content_type = ?, image_size = ?, image_base64 = NULL WHERE id = ?",
+                        image.hash(), image.contentType(), image.size(), productId);
+            } finally {
+                imageStorageService.release(image.hash());
+            }
+        } catch (InvalidImageException e) {
+            log.warn("Dropping unreadable legacy image for product {}: {}", productId, e.getMessage());
+            jdbcTemplate.update("UPDATE products SET image_base64 = NULL WHERE id = ?", productId);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.nsbm.bunmart.product.controller;
+
+import com.nsbm.bunmart.product.dto.CacheStatsResponseDTO;
+import com.nsbm.bunmart.product.services.ProductCatalogCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/cache")
+public class CacheController {
+
+    private final ProductCatalogCache catalogCache;
+
+    public CacheController(ProductCatalogCache catalogCache) {
+        this.catalogCache = catalogCache;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheStatsResponseDTO>> getStats() {
+        List<CacheStatsResponseDTO> stats = catalogCache.stats().entrySet().stream()
+                .map(entry -> new CacheStatsResponseDTO(
+                        entry.getKey(),
+                        catalogCache.estimatedSize(entry.getKey()),
+                        entry.getValue().hitCount(),
+                        entry.getValue().missCount(),
+                        entry.getValue().hitRate(),
+                        entry.getValue().evictionCount(),
+                        entry.getValue().averageLoadPenalty() / 1_000_000.0))
+                .toList();
+        return ResponseEntity.ok(stats);
+    }
+}
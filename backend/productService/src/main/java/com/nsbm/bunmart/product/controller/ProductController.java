@@ -1,22 +1,55 @@
 package com.nsbm.bunmart.product.controller;
 
 import com.nsbm.bunmart.product.dto.AddProductRequestDTO;
+import com.nsbm.bunmart.product.dto.CatalogChangesResponseDTO;
 import com.nsbm.bunmart.product.dto.ImageResponseDTO;
+import com.nsbm.bunmart.product.dto.ProductFacetsResponseDTO;
+import com.nsbm.bunmart.product.dto.ProductImportReportDTO;
 import com.nsbm.bunmart.product.dto.ProductResponseDTO;
 import com.nsbm.bunmart.product.dto.UpdateImageRequestDTO;
 import com.nsbm.bunmart.product.dto.UpdateProductRequestDTO;
 import com.nsbm.bunmart.product.errors.InvalidImageException;
+import com.nsbm.bunmart.product.errors.InvalidPageRequestException;
+import com.nsbm.bunmart.product.errors.InvalidProductRequestException;
+import com.nsbm.bunmart.product.mappers.rest.CatalogChangeMapper;
 import com.nsbm.bunmart.product.mappers.rest.ProductMapper;
 import com.nsbm.bunmart.product.model.Product;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangePage;
+import com.nsbm.bunmart.product.repositories.projections.ProductCursor;
+import com.nsbm.bunmart.product.repositories.projections.ProductFacets;
+import com.nsbm.bunmart.product.repositories.projections.ProductPage;
+import com.nsbm.bunmart.product.repositories.projections.ProductPageQuery;
+import com.nsbm.bunmart.product.repositories.projections.ProductSortKey;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import com.nsbm.bunmart.product.services.ImageDerivativeService;
+import com.nsbm.bunmart.product.services.ProductBulkService;
+import com.nsbm.bunmart.product.services.ImageStorageService;
+import com.nsbm.bunmart.product.services.ProductFacetIndex;
+import com.nsbm.bunmart.product.services.ProductSearchIndex;
 import com.nsbm.bunmart.product.services.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Sort;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,34 +57,136 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/v1/products")
 public class ProductController {
 
+    // Tomcat request attributes for sendfile (zero-copy) responses, see org.apache.coyote.Constants
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String DERIVATIVE_RETRY_AFTER_SECONDS = "1";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int DEFAULT_CHANGES_LIMIT = 500;
+    private static final int MAX_CHANGES_LIMIT = 2000;
+
     private final ProductService productService;
     private final ProductMapper productMapper;
+    private final ImageStorageService imageStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductBulkService productBulkService;
+    private final CatalogChangeMapper catalogChangeMapper;
 
-    public ProductController(ProductService productService, ProductMapper productMapper) {
+    public ProductController(ProductService productService, ProductMapper productMapper,
+                             ImageStorageService imageStorageService, ImageDerivativeService imageDerivativeService,
+                             ProductSearchIndex productSearchIndex, ProductFacetIndex productFacetIndex,
+                             ProductBulkService productBulkService, CatalogChangeMapper catalogChangeMapper) {
         this.productService = productService;
         this.productMapper = productMapper;
+        this.imageStorageService = imageStorageService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.productSearchIndex = productSearchIndex;
+        this.productFacetIndex = productFacetIndex;
+        this.productBulkService = productBulkService;
+        this.catalogChangeMapper = catalogChangeMapper;
     }
 
     @GetMapping
     public ResponseEntity<List<ProductResponseDTO>> getProducts(
             @RequestParam(required = false) Integer categoryId,
             @RequestParam(required = false, defaultValue = "false") Boolean availableOnly,
-            @RequestParam(required = false) String sort) {
-        Sort sortObj = parseSort(sort);
-        List<Product> products;
-        if (categoryId != null) {
-            products = productService.getProductsByCategory(categoryId, sortObj);
-        } else if (Boolean.TRUE.equals(availableOnly)) {
-            products = productService.getProductsAvailable(sortObj);
-        } else {
-            products = productService.getProducts(sortObj);
-        }
-        List<ProductResponseDTO> dtos = products.stream()
-                .map(productMapper::productToProductResponseDTO)
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        ProductPageQuery query = parsePageQuery(categoryId, availableOnly, sort, limit, cursor);
+        ProductPage page = productService.getProductPage(query);
+        List<ProductResponseDTO> dtos = page.items().stream()
+                .map(productMapper::summaryToProductResponseDTO)
+                .collect(Collectors.toList());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.next() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.next().encode());
+        }
+        return response.body(dtos);
+    }
+
+    /**
+     * The products with the given ids, in the order asked; unknown ids are skipped. At most
+     * {@value #MAX_PAGE_SIZE} ids per call.
+     */
+    @GetMapping("/by-ids")
+    public ResponseEntity<List<ProductResponseDTO>> getProductsByIds(@RequestParam List<String> ids) {
+        if (ids.size() > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException("At most " + MAX_PAGE_SIZE + " ids per request");
+        }
+        Set<String> wanted = new LinkedHashSet<>(ids);
+        Map<String, ProductSummary> products = productService.getProductSummaries(wanted);
+        List<ProductResponseDTO> dtos = wanted.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::summaryToProductResponseDTO)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(dtos);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<ProductResponseDTO>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(required = false, defaultValue = "false") Boolean availableOnly,
+            @RequestParam(required = false) Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new InvalidPageRequestException("limit must be at least 1");
+        }
+        int size = limit == null ? DEFAULT_SEARCH_LIMIT : Math.min(limit, MAX_SEARCH_LIMIT);
+        boolean onlyAvailable = categoryId != null || Boolean.TRUE.equals(availableOnly);
+        List<ProductResponseDTO> dtos = productSearchIndex.search(query, categoryId, onlyAvailable, size).stream()
+                .map(productMapper::summaryToProductResponseDTO)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(dtos);
     }
 
+    /**
+     * Faceted browse: products carrying every tag in {@code tags}, filtered by category and
+     * availability, with counts per tag and category. {@code limit=0} returns counts only.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<ProductFacetsResponseDTO> getFacets(
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(required = false, defaultValue = "false") Boolean availableOnly,
+            @RequestParam(required = false, defaultValue = "0") Integer offset,
+            @RequestParam(required = false) Integer limit) {
+        if (offset < 0 || (limit != null && limit < 0)) {
+            throw new InvalidPageRequestException("offset and limit must not be negative");
+        }
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        ProductFacets facets = productFacetIndex.browse(tags, categoryId, Boolean.TRUE.equals(availableOnly), offset, size);
+        return ResponseEntity.ok(productMapper.facetsToProductFacetsResponseDTO(facets));
+    }
+
+    /**
+     * Products and categories changed after {@code since}; start from 0 for a full snapshot and pass
+     * the returned version back on the next call.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<CatalogChangesResponseDTO> getChanges(
+            @RequestParam(required = false, defaultValue = "0") Long since,
+            @RequestParam(required = false) Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new InvalidPageRequestException("limit must be at least 1");
+        }
+        int size = limit == null ? DEFAULT_CHANGES_LIMIT : Math.min(limit, MAX_CHANGES_LIMIT);
+        CatalogChangePage page = productService.getCatalogChanges(since, size);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(catalogChangeMapper.pageToCatalogChangesResponseDTO(page));
+    }
+
     @PostMapping()
     public ResponseEntity<ProductResponseDTO> addProduct(@Valid @RequestBody AddProductRequestDTO request) {
         if (request.getImageBase64() == null || request.getImageBase64().isBlank()) {
@@ -69,6 +204,29 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(productMapper.productToProductResponseDTO(product));
     }
 
+    /**
+     * Bulk import from an NDJSON ({@code application/x-ndjson}) or CSV ({@code text/csv}) body.
+     * Bad rows are skipped and listed in the report; the rest are imported.
+     */
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ProductImportReportDTO> importProducts(HttpServletRequest request) throws IOException {
+        ProductBulkService.Format format = ProductBulkService.Format.fromContentType(request.getContentType())
+                .orElseThrow(() -> new InvalidProductRequestException("Unsupported import content type: " + request.getContentType()));
+        ProductBulkService.ImportReport report = productBulkService.importProducts(request.getInputStream(), format);
+        return ResponseEntity.ok(productMapper.importReportToProductImportReportDTO(report));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(required = false, defaultValue = "ndjson") String format) {
+        ProductBulkService.Format exportFormat = ProductBulkService.Format.fromParam(format)
+                .orElseThrow(() -> new InvalidProductRequestException("Unsupported export format: " + format));
+        StreamingResponseBody body = out -> productBulkService.exportProducts(out, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(body);
+    }
+
     @PutMapping("/{productId}")
     public ResponseEntity<ProductResponseDTO> updateProduct(
             @PathVariable String productId,
@@ -104,28 +262,110 @@ public class ProductController {
 
     @GetMapping("/{productId}/image")
     public ResponseEntity<ImageResponseDTO> getProductImage(@PathVariable String productId) {
-        Product product = productService.getProduct(productId);
-        ImageResponseDTO imageResponse = productMapper.productToImageResponseDTO(product);
+        Optional<byte[]> image = productService.getImage(productId)
+                .flatMap(stored -> imageStorageService.read(stored.hash()));
+        ImageResponseDTO imageResponse = productMapper.imageToImageResponseDTO(image.orElse(null));
         if (imageResponse == null) {
             return ResponseEntity.notFound().build();
         }
         return ResponseEntity.ok(imageResponse);
     }
 
-    private static Sort parseSort(String sortParam) {
-        if (sortParam == null || sortParam.isBlank()) {
-            return Sort.unsorted();
+    @GetMapping("/{productId}/image/raw")
+    public ResponseEntity<Resource> getProductImageRaw(
+            @PathVariable String productId,
+            WebRequest webRequest,
+            HttpServletRequest request) {
+        Optional<ImageStorageService.StoredImage> stored = productService.getImage(productId);
+        Optional<Path> file = stored.flatMap(image -> imageStorageService.find(image.hash()));
+        if (file.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ImageStorageService.StoredImage image = stored.get();
+        // Content-addressed: the hash is a strong validator for the bytes
+        String etag = "\"" + image.hash() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.contentType()))
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .eTag(etag);
+        return sendFile(response, file.get(), request);
+    }
+
+    @GetMapping("/{productId}/image/{variant}")
+    public ResponseEntity<Resource> getProductImageVariant(
+            @PathVariable String productId,
+            @PathVariable String variant,
+            WebRequest webRequest,
+            HttpServletRequest request) {
+        ImageDerivativeService.Variant size = ImageDerivativeService.Variant.fromParam(variant)
+                .orElseThrow(() -> new InvalidImageException("Unknown image variant: " + variant));
+        Optional<ImageStorageService.StoredImage> stored = productService.getImage(productId);
+        if (stored.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ImageDerivativeService.Derivative derivative = imageDerivativeService.getDerivative(stored.get().hash(), size);
+        if (derivative.state() == ImageDerivativeService.Derivative.State.PENDING) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.RETRY_AFTER, DERIVATIVE_RETRY_AFTER_SECONDS)
+                    .cacheControl(CacheControl.noStore())
+                    .build();
+        }
+        if (derivative.state() == ImageDerivativeService.Derivative.State.UNAVAILABLE) {
+            // Formats the resizer cannot decode are served as the original
+            return getProductImageRaw(productId, webRequest, request);
+        }
+        Path file = derivative.file();
+        String etag = "\"" + stored.get().hash() + "-" + size.getParam() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        String contentType = imageStorageService.contentTypeOf(file);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .eTag(etag);
+        return sendFile(response, file, request);
+    }
+
+    private static ResponseEntity<Resource> sendFile(ResponseEntity.BodyBuilder response, Path file,
+                                                     HttpServletRequest request) {
+        long length;
+        try {
+            length = Files.size(file);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+        response.contentLength(length);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toString());
+            request.setAttribute(SENDFILE_START_ATTR, 0L);
+            request.setAttribute(SENDFILE_END_ATTR, length);
+            return response.build();
         }
-        String[] parts = sortParam.trim().split(",");
-        if (parts.length == 1) {
-            return Sort.by(Sort.Direction.ASC, parts[0].trim());
+        return response.body(new FileSystemResource(file));
+    }
+
+    private static ProductPageQuery parsePageQuery(Integer categoryId, Boolean availableOnly, String sortParam,
+                                                   Integer limit, String cursor) {
+        ProductSortKey sortKey = ProductSortKey.NAME;
+        boolean descending = false;
+        if (sortParam != null && !sortParam.isBlank()) {
+            String[] parts = sortParam.trim().split(",");
+            sortKey = ProductSortKey.fromParam(parts[0].trim())
+                    .orElseThrow(() -> new InvalidPageRequestException("Unsupported sort field: " + parts[0].trim()));
+            descending = parts.length >= 2 && "desc".equalsIgnoreCase(parts[1].trim());
         }
-        if (parts.length >= 2) {
-            Sort.Direction direction = "desc".equalsIgnoreCase(parts[1].trim())
-                    ? Sort.Direction.DESC
-                    : Sort.Direction.ASC;
-            return Sort.by(direction, parts[0].trim());
+        if (limit != null && limit < 1) {
+            throw new InvalidPageRequestException("limit must be at least 1");
         }
-        return Sort.unsorted();
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        ProductCursor after = cursor == null || cursor.isBlank() ? null : ProductCursor.decode(cursor.trim());
+        // Category listings have always been limited to available products
+        boolean onlyAvailable = categoryId != null || Boolean.TRUE.equals(availableOnly);
+        return new ProductPageQuery(categoryId, onlyAvailable, sortKey, descending, after, pageSize);
     }
 }
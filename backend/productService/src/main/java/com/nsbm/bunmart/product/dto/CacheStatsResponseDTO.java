@@ -0,0 +1,81 @@
+package com.nsbm.bunmart.product.dto;
+
+public class CacheStatsResponseDTO {
+    private String name;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    private double averageLoadMillis;
+
+    public CacheStatsResponseDTO() {
+    }
+
+    public CacheStatsResponseDTO(String name, long size, long hitCount, long missCount, double hitRate,
+                                 long evictionCount, double averageLoadMillis) {
+        this.name = name;
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.hitRate = hitRate;
+        this.evictionCount = evictionCount;
+        this.averageLoadMillis = averageLoadMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(long missCount) {
+        this.missCount = missCount;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public void setHitRate(double hitRate) {
+        this.hitRate = hitRate;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public void setEvictionCount(long evictionCount) {
+        this.evictionCount = evictionCount;
+    }
+
+    public double getAverageLoadMillis() {
+        return averageLoadMillis;
+    }
+
+    public void setAverageLoadMillis(double averageLoadMillis) {
+        this.averageLoadMillis = averageLoadMillis;
+    }
+}
@@ -0,0 +1,71 @@
+package com.nsbm.bunmart.product.dto;
+
+public class CatalogChangeDTO {
+    private long version;
+    private String type;
+    private String id;
+    private boolean deleted;
+    private ProductResponseDTO product;
+    private CategoryResponseDTO category;
+
+    public CatalogChangeDTO() {
+    }
+
+    public CatalogChangeDTO(long version, String type, String id, boolean deleted,
+                            ProductResponseDTO product, CategoryResponseDTO category) {
+        this.version = version;
+        this.type = type;
+        this.id = id;
+        this.deleted = deleted;
+        this.product = product;
+        this.category = category;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public ProductResponseDTO getProduct() {
+        return product;
+    }
+
+    public void setProduct(ProductResponseDTO product) {
+        this.product = product;
+    }
+
+    public CategoryResponseDTO getCategory() {
+        return category;
+    }
+
+    public void setCategory(CategoryResponseDTO category) {
+        this.category = category;
+    }
+}
@@ -0,0 +1,42 @@
+package com.nsbm.bunmart.product.dto;
+
+import java.util.List;
+
+public class CatalogChangesResponseDTO {
+    private List<CatalogChangeDTO> changes;
+    private long version;
+    private boolean hasMore;
+
+    public CatalogChangesResponseDTO() {
+    }
+
+    public CatalogChangesResponseDTO(List<CatalogChangeDTO> changes, long version, boolean hasMore) {
+        this.changes = changes;
+        this.version = version;
+        this.hasMore = hasMore;
+    }
+
+    public List<CatalogChangeDTO> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<CatalogChangeDTO> changes) {
+        this.changes = changes;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,30 @@
+package com.nsbm.bunmart.product.dto;
+
+public class FacetCountDTO {
+    private String value;
+    private int count;
+
+    public FacetCountDTO() {
+    }
+
+    public FacetCountDTO(String value, int count) {
+        this.value = value;
+        this.count = count;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
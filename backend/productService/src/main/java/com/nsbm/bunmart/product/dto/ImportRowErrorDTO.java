@@ -0,0 +1,30 @@
+package com.nsbm.bunmart.product.dto;
+
+public class ImportRowErrorDTO {
+    private long row;
+    private String message;
+
+    public ImportRowErrorDTO() {
+    }
+
+    public ImportRowErrorDTO(long row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,63 @@
+package com.nsbm.bunmart.product.dto;
+
+import java.util.List;
+
+public class ProductFacetsResponseDTO {
+    private int total;
+    private int availableCount;
+    private List<FacetCountDTO> tags;
+    private List<FacetCountDTO> categories;
+    private List<ProductResponseDTO> products;
+
+    public ProductFacetsResponseDTO() {
+    }
+
+    public ProductFacetsResponseDTO(int total, int availableCount, List<FacetCountDTO> tags,
+                                    List<FacetCountDTO> categories, List<ProductResponseDTO> products) {
+        this.total = total;
+        this.availableCount = availableCount;
+        this.tags = tags;
+        this.categories = categories;
+        this.products = products;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getAvailableCount() {
+        return availableCount;
+    }
+
+    public void setAvailableCount(int availableCount) {
+        this.availableCount = availableCount;
+    }
+
+    public List<FacetCountDTO> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<FacetCountDTO> tags) {
+        this.tags = tags;
+    }
+
+    public List<FacetCountDTO> getCategories() {
+        return categories;
+    }
+
+    public void setCategories(List<FacetCountDTO> categories) {
+        this.categories = categories;
+    }
+
+    public List<ProductResponseDTO> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<ProductResponseDTO> products) {
+        this.products = products;
+    }
+}
@@ -0,0 +1,63 @@
+package com.nsbm.bunmart.product.dto;
+
+import java.util.List;
+
+public class ProductImportReportDTO {
+    private long rows;
+    private long imported;
+    private long failed;
+    private List<ImportRowErrorDTO> errors;
+    private boolean errorsTruncated;
+
+    public ProductImportReportDTO() {
+    }
+
+    public ProductImportReportDTO(long rows, long imported, long failed, List<ImportRowErrorDTO> errors,
+                                  boolean errorsTruncated) {
+        this.rows = rows;
+        this.imported = imported;
+        this.failed = failed;
+        this.errors = errors;
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public List<ImportRowErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ImportRowErrorDTO> errors) {
+        this.errors = errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+}
@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.product.errors;
+
+public class InvalidPageRequestException extends RuntimeException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.nsbm.bunmart.product.errors;
+
+public class InvalidProductRequestException extends RuntimeException {
+    public InvalidProductRequestException(String message) {
+        super(message);
+    }
+}
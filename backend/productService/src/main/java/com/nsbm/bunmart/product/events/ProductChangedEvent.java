@@ -0,0 +1,25 @@
+package com.nsbm.bunmart.product.events;
+
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+
+/**
+ * Published by {@code ProductService} whenever a product is created, updated or deleted.
+ * Listeners that keep derived read models should use {@code @TransactionalEventListener}
+ * so they only observe committed state.
+ *
+ * @param product the committed state, or null when the product was deleted
+ */
+public record ProductChangedEvent(String productId, ProductSummary product) {
+
+    public static ProductChangedEvent upserted(ProductSummary product) {
+        return new ProductChangedEvent(product.id(), product);
+    }
+
+    public static ProductChangedEvent deleted(String productId) {
+        return new ProductChangedEvent(productId, null);
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
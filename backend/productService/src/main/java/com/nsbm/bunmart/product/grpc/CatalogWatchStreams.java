@@ -0,0 +1,142 @@
+package com.nsbm.bunmart.product.grpc;
+
+import com.nsbm.bunmart.product.mappers.grpc.GRPCMapper;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangePage;
+import com.nsbm.bunmart.product.services.CatalogChangeFeed;
+import com.nsbm.bunmart.product.services.ProductService;
+import com.nsbm.bunmart.product.v1.WatchCatalogResponse;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open {@code WatchCatalog} streams. Each stream replays the feed from the client's version and is
+ * then poked by {@link CatalogChangeFeed} after every committed write. Pokes are coalesced and
+ * drained on a small shared pool; a stream whose client is not reading is skipped until gRPC
+ * reports it ready again, so a slow consumer never buffers the feed in memory.
+ */
+@Slf4j
+@Component
+public class CatalogWatchStreams {
+
+    private final ProductService productService;
+    private final CatalogChangeFeed changeFeed;
+    private final GRPCMapper grpcMapper;
+    private final ExecutorService executor;
+    private final int batchSize;
+
+    public CatalogWatchStreams(ProductService productService, CatalogChangeFeed changeFeed, GRPCMapper grpcMapper,
+                               @Value("${product.changes.watch.threads:2}") int threads,
+                               @Value("${product.changes.watch.batch-size:200}") int batchSize) {
+        this.productService = productService;
+        this.changeFeed = changeFeed;
+        this.grpcMapper = grpcMapper;
+        this.batchSize = batchSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "catalog-watch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts streaming changes after {@code sinceVersion}. Must be called from the RPC method so
+     * the handlers are registered before it returns.
+     */
+    public void open(long sinceVersion, ServerCallStreamObserver<WatchCatalogResponse> observer) {
+        // Validates the version up front so a bad request fails through the normal error mapping
+        CatalogChangePage first = productService.getCatalogChanges(sinceVersion, batchSize);
+        Watch watch = new Watch(observer, sinceVersion);
+        // Always answered, even when empty, so the client knows it has caught up
+        watch.send(first);
+        observer.setOnCancelHandler(watch::close);
+        observer.setOnReadyHandler(watch::schedule);
+        watch.unsubscribe = changeFeed.subscribe(watch::schedule);
+        watch.schedule();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private final class Watch {
+
+        private final ServerCallStreamObserver<WatchCatalogResponse> observer;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile Runnable unsubscribe;
+        private long version;
+
+        private Watch(ServerCallStreamObserver<WatchCatalogResponse> observer, long version) {
+            this.observer = observer;
+            this.version = version;
+        }
+
+        void schedule() {
+            if (closed || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                fail(Status.UNAVAILABLE.withDescription("Catalog watch is shutting down"));
+            }
+        }
+
+        private synchronized void drain() {
+            // Cleared first so a commit that lands while draining schedules another pass
+            scheduled.set(false);
+            try {
+                while (!closed && observer.isReady()) {
+                    CatalogChangePage page = productService.getCatalogChanges(version, batchSize);
+                    if (page.changes().isEmpty()) {
+                        return;
+                    }
+                    send(page);
+                    if (!page.hasMore()) {
+                        return;
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Catalog watch failed at version {}: {}", version, e.getMessage());
+                fail(Status.INTERNAL.withDescription("Catalog watch failed; reconnect from version " + version));
+            }
+        }
+
+        private synchronized void send(CatalogChangePage page) {
+            if (closed) {
+                return;
+            }
+            observer.onNext(grpcMapper.toWatchCatalogResponse(page));
+            version = page.version();
+        }
+
+        private void fail(Status status) {
+            if (closed) {
+                return;
+            }
+            close();
+            observer.onError(status.asRuntimeException());
+        }
+
+        void close() {
+            closed = true;
+            Runnable remove = unsubscribe;
+            if (remove != null) {
+                remove.run();
+            }
+        }
+    }
+}
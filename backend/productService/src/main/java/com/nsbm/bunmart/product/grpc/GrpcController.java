@@ -1,31 +1,145 @@
 package com.nsbm.bunmart.product.grpc;
 
+import com.nsbm.bunmart.product.errors.InvalidProductRequestException;
 import com.nsbm.bunmart.product.mappers.grpc.GRPCMapper;
-import com.nsbm.bunmart.product.model.Product;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
 import com.nsbm.bunmart.product.services.ProductService;
 import com.nsbm.bunmart.product.v1.GetProductRequest;
 import com.nsbm.bunmart.product.v1.GetProductResponse;
+import com.nsbm.bunmart.product.v1.GetProductsRequest;
+import com.nsbm.bunmart.product.v1.GetProductsResponse;
 import com.nsbm.bunmart.product.v1.ProductCatalogServiceGrpc;
+import com.nsbm.bunmart.product.v1.WatchCatalogRequest;
+import com.nsbm.bunmart.product.v1.WatchCatalogResponse;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.server.service.GrpcService;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @GrpcService
 @RequiredArgsConstructor
 public class GrpcController extends ProductCatalogServiceGrpc.ProductCatalogServiceImplBase {
 
+    /** Larger lists should use StreamProducts. */
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int STREAM_CHUNK_SIZE = 100;
+
     private final ProductService productService;
     private final GRPCMapper grpcMapper;
+    private final CatalogWatchStreams catalogWatchStreams;
 
     @Override
-    @Transactional(readOnly = true)
     public void getProduct(GetProductRequest request, StreamObserver<GetProductResponse> responseObserver) {
-        Product product = productService.getProduct(request.getProductId());
+        ProductSummary product = productService.getProductSummary(request.getProductId());
         GetProductResponse response = grpcMapper.toGetProductResponse(product);
         responseObserver.onNext(response);
         responseObserver.onCompleted();
     }
+
+    @Override
+    public void getProducts(GetProductsRequest request, StreamObserver<GetProductsResponse> responseObserver) {
+        List<String> ids = distinctIds(request.getProductIdsList());
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new InvalidProductRequestException(
+                    "At most " + MAX_BATCH_SIZE + " product ids per GetProducts call; use StreamProducts for more");
+        }
+        responseObserver.onNext(lookup(ids));
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Sends one chunk per message, and only while the client is reading: when gRPC reports the
+     * stream not ready the loop stops and resumes from the ready handler, so a slow client never
+     * makes the server buffer the whole result.
+     */
+    @Override
+    public void streamProducts(GetProductsRequest request, StreamObserver<GetProductsResponse> responseObserver) {
+        ServerCallStreamObserver<GetProductsResponse> serverObserver =
+                (ServerCallStreamObserver<GetProductsResponse>) responseObserver;
+        List<String> ids = distinctIds(request.getProductIdsList());
+        ProductStream stream = new ProductStream(serverObserver, ids);
+        serverObserver.setOnCancelHandler(stream::cancel);
+        // Also invoked once the call is first ready, after this method returns
+        serverObserver.setOnReadyHandler(stream::drain);
+    }
+    @Override
+    public void watchCatalog(WatchCatalogRequest request, StreamObserver<WatchCatalogResponse> responseObserver) {
+        // Never completed by the server; the stream ends when the client cancels it
+        catalogWatchStreams.open(request.getSinceVersion(),
+                (ServerCallStreamObserver<WatchCatalogResponse>) responseObserver);
+    }
+
+    private GetProductsResponse lookup(List<String> ids) {
+        Map<String, ProductSummary> found = productService.getProductSummaries(ids);
+        List<ProductSummary> products = new ArrayList<>(found.size());
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            ProductSummary product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missing.add(id);
+            }
+        }
+        return grpcMapper.toGetProductsResponse(products, missing);
+    }
+
+    private static List<String> distinctIds(List<String> ids) {
+        LinkedHashSet<String> distinct = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null && !id.isBlank()) {
+                distinct.add(id);
+            }
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    private final class ProductStream {
+
+        private final ServerCallStreamObserver<GetProductsResponse> observer;
+        private final List<String> ids;
+        private int from;
+        private boolean done;
+
+        private ProductStream(ServerCallStreamObserver<GetProductsResponse> observer, List<String> ids) {
+            this.observer = observer;
+            this.ids = ids;
+        }
+
+        synchronized void drain() {
+            try {
+                // Chunks are loaded one at a time so a large request never holds the whole result in memory
+                while (!done && observer.isReady()) {
+                    if (from >= ids.size()) {
+                        done = true;
+                        observer.onCompleted();
+                        return;
+                    }
+                    int to = Math.min(from + STREAM_CHUNK_SIZE, ids.size());
+                    GetProductsResponse chunk = lookup(ids.subList(from, to));
+                    from = to;
+                    observer.onNext(chunk);
+                }
+            } catch (RuntimeException e) {
+                log.error("StreamProducts failed after {} of {} ids: {}", from, ids.size(), e.getMessage());
+                done = true;
+                observer.onError(Status.INTERNAL.withDescription("StreamProducts failed").asRuntimeException());
+            }
+        }
+
+        synchronized void cancel() {
+            if (!done) {
+                log.debug("StreamProducts cancelled by client after {} of {} ids", from, ids.size());
+            }
+            done = true;
+        }
+    }
 }
@@ -1,8 +1,16 @@
 package com.nsbm.bunmart.product.mappers.grpc;
 
+import com.nsbm.bunmart.product.model.Category;
 import com.nsbm.bunmart.product.model.Product;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangeEntry;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangePage;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import com.nsbm.bunmart.product.v1.CatalogChange;
+import com.nsbm.bunmart.product.v1.CategoryInfo;
 import com.nsbm.bunmart.product.v1.GetProductResponse;
+import com.nsbm.bunmart.product.v1.GetProductsResponse;
 import com.nsbm.bunmart.product.v1.ProductInfo;
+import com.nsbm.bunmart.product.v1.WatchCatalogResponse;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -19,6 +27,37 @@ public class GRPCMapper {
                 .build();
     }
 
+    public GetProductResponse toGetProductResponse(ProductSummary product) {
+        return GetProductResponse.newBuilder()
+                .setProduct(toProductInfo(product))
+                .build();
+    }
+
+    public GetProductsResponse toGetProductsResponse(List<ProductSummary> products, List<String> missingProductIds) {
+        GetProductsResponse.Builder builder = GetProductsResponse.newBuilder()
+                .addAllMissingProductIds(missingProductIds);
+        for (ProductSummary product : products) {
+            builder.addProducts(toProductInfo(product));
+        }
+        return builder.build();
+    }
+
+    public ProductInfo toProductInfo(ProductSummary product) {
+        if (product == null) {
+            return ProductInfo.getDefaultInstance();
+        }
+        return ProductInfo.newBuilder()
+                .setProductId(product.id())
+                .setName(product.name() != null ? product.name() : "")
+                .setDescription(product.description() != null ? product.description() : "")
+                .addAllTags(product.tags())
+                .setWeight(product.weight() != null ? product.weight() : "")
+                .setAvailability(Boolean.TRUE.equals(product.availability()))
+                .setCategoryId(product.categoryId() != null ? String.valueOf(product.categoryId()) : "")
+                .setHasImage(product.hasImage())
+                .build();
+    }
+
     public ProductInfo toProductInfo(Product product) {
         if (product == null) {
             return ProductInfo.getDefaultInstance();
@@ -27,7 +66,7 @@ public class GRPCMapper {
                 ? String.valueOf(product.getCategory().getId())
                 : "";
         List<String> tags = product.getTags() != null ? product.getTags() : List.of();
-        boolean hasImage = product.getImageBase64() != null && !product.getImageBase64().isBlank();
+        boolean hasImage = product.hasImage();
         return ProductInfo.newBuilder()
                 .setProductId(product.getId())
                 .setName(product.getName() != null ? product.getName() : "")
@@ -39,4 +78,36 @@ public class GRPCMapper {
                 .setHasImage(hasImage)
                 .build();
     }
+
+    public WatchCatalogResponse toWatchCatalogResponse(CatalogChangePage page) {
+        WatchCatalogResponse.Builder builder = WatchCatalogResponse.newBuilder()
+                .setVersion(page.version());
+        for (CatalogChangeEntry entry : page.changes()) {
+            builder.addChanges(toCatalogChange(entry));
+        }
+        return builder.build();
+    }
+
+    public CatalogChange toCatalogChange(CatalogChangeEntry entry) {
+        CatalogChange.Builder builder = CatalogChange.newBuilder()
+                .setVersion(entry.version())
+                .setEntityType(entry.entityType().name())
+                .setEntityId(entry.entityId())
+                .setDeleted(entry.deleted());
+        if (entry.product() != null) {
+            builder.setProduct(toProductInfo(entry.product()));
+        }
+        if (entry.category() != null) {
+            builder.setCategory(toCategoryInfo(entry.category()));
+        }
+        return builder.build();
+    }
+
+    public CategoryInfo toCategoryInfo(Category category) {
+        return CategoryInfo.newBuilder()
+                .setCategoryId(category.getId() != null ? String.valueOf(category.getId()) : "")
+                .setName(category.getName() != null ? category.getName() : "")
+                .setDescription(category.getDescription() != null ? category.getDescription() : "")
+                .build();
+    }
 }
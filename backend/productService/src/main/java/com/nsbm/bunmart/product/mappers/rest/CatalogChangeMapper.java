@@ -0,0 +1,39 @@
+package com.nsbm.bunmart.product.mappers.rest;
+
+import com.nsbm.bunmart.product.dto.CatalogChangeDTO;
+import com.nsbm.bunmart.product.dto.CatalogChangesResponseDTO;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangeEntry;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangePage;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+public class CatalogChangeMapper {
+
+    private final ProductMapper productMapper;
+    private final CategoryMapper categoryMapper;
+
+    public CatalogChangeMapper(ProductMapper productMapper, CategoryMapper categoryMapper) {
+        this.productMapper = productMapper;
+        this.categoryMapper = categoryMapper;
+    }
+
+    public CatalogChangesResponseDTO pageToCatalogChangesResponseDTO(CatalogChangePage page) {
+        List<CatalogChangeDTO> changes = page.changes().stream()
+                .map(this::entryToCatalogChangeDTO)
+                .collect(Collectors.toList());
+        return new CatalogChangesResponseDTO(changes, page.version(), page.hasMore());
+    }
+
+    public CatalogChangeDTO entryToCatalogChangeDTO(CatalogChangeEntry entry) {
+        return new CatalogChangeDTO(
+                entry.version(),
+                entry.entityType().name(),
+                entry.entityId(),
+                entry.deleted(),
+                productMapper.summaryToProductResponseDTO(entry.product()),
+                categoryMapper.categoryToCategoryResponseDTO(entry.category()));
+    }
+}
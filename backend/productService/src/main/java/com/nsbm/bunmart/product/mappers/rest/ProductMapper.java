@@ -1,12 +1,22 @@
 package com.nsbm.bunmart.product.mappers.rest;
 
+import com.nsbm.bunmart.product.dto.FacetCountDTO;
 import com.nsbm.bunmart.product.dto.ImageResponseDTO;
+import com.nsbm.bunmart.product.dto.ImportRowErrorDTO;
+import com.nsbm.bunmart.product.dto.ProductFacetsResponseDTO;
+import com.nsbm.bunmart.product.dto.ProductImportReportDTO;
 import com.nsbm.bunmart.product.dto.ProductResponseDTO;
 import com.nsbm.bunmart.product.model.Product;
+import com.nsbm.bunmart.product.repositories.projections.ProductFacets;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import com.nsbm.bunmart.product.services.ProductBulkService;
 import org.springframework.stereotype.Component;
 
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Component
 public class ProductMapper {
@@ -16,7 +26,7 @@ public class ProductMapper {
             return null;
         }
         Integer categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
-        boolean hasImage = product.getImageBase64() != null && !product.getImageBase64().isBlank();
+        boolean hasImage = product.hasImage();
         List<String> tags = product.getTags() != null ? product.getTags() : Collections.emptyList();
         return new ProductResponseDTO(
                 product.getId(),
@@ -29,14 +39,57 @@ public class ProductMapper {
                 hasImage);
     }
 
-    public ImageResponseDTO productToImageResponseDTO(Product product) {
-        if (product == null) {
+    public ProductResponseDTO summaryToProductResponseDTO(ProductSummary summary) {
+        if (summary == null) {
             return null;
         }
-        String imageBase64 = product.getImageBase64();
-        if (imageBase64 == null || imageBase64.isBlank()) {
+        return new ProductResponseDTO(
+                summary.id(),
+                summary.name(),
+                summary.description(),
+                summary.tags(),
+                summary.weight(),
+                summary.availability(),
+                summary.categoryId(),
+                summary.hasImage());
+    }
+
+    public ProductFacetsResponseDTO facetsToProductFacetsResponseDTO(ProductFacets facets) {
+        List<ProductResponseDTO> products = facets.products().stream()
+                .map(this::summaryToProductResponseDTO)
+                .collect(Collectors.toList());
+        return new ProductFacetsResponseDTO(
+                facets.total(),
+                facets.availableCount(),
+                toFacetCounts(facets.tagCounts()),
+                toFacetCounts(facets.categoryCounts()),
+                products);
+    }
+
+    /**
+     * Most frequent values first; ties broken by value so the order is stable between calls.
+     */
+    private static <K> List<FacetCountDTO> toFacetCounts(Map<K, Integer> counts) {
+        return counts.entrySet().stream()
+                .map(entry -> new FacetCountDTO(String.valueOf(entry.getKey()), entry.getValue()))
+                .sorted((a, b) -> a.getCount() != b.getCount()
+                        ? Integer.compare(b.getCount(), a.getCount())
+                        : a.getValue().compareTo(b.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    public ProductImportReportDTO importReportToProductImportReportDTO(ProductBulkService.ImportReport report) {
+        List<ImportRowErrorDTO> errors = report.errors().stream()
+                .map(error -> new ImportRowErrorDTO(error.row(), error.message()))
+                .collect(Collectors.toList());
+        return new ProductImportReportDTO(report.rows(), report.imported(), report.failed(), errors,
+                report.errorsTruncated());
+    }
+
+    public ImageResponseDTO imageToImageResponseDTO(byte[] image) {
+        if (image == null || image.length == 0) {
             return null;
         }
-        return new ImageResponseDTO(imageBase64);
+        return new ImageResponseDTO(Base64.getEncoder().encodeToString(image));
     }
 }
@@ -0,0 +1,91 @@
+package com.nsbm.bunmart.product.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Latest change recorded for one catalog record. There is a single row per product or category,
+ * so the feed stays compacted: a consumer that is far behind only receives the newest state of
+ * each record. Deleted records keep their row as a tombstone.
+ */
+@Entity
+@Table(name = "catalog_changes", indexes = {
+        @Index(name = "idx_catalog_changes_version", columnList = "version", unique = true)
+})
+public class CatalogChange {
+
+    public enum EntityType {
+        PRODUCT,
+        CATEGORY
+    }
+
+    @Id
+    @Column(name = "change_key", length = 80)
+    private String changeKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private EntityType entityType;
+
+    @Column(name = "entity_id", nullable = false, length = 64)
+    private String entityId;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false)
+    private Boolean deleted = false;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    public CatalogChange() {
+    }
+
+    public CatalogChange(EntityType entityType, String entityId) {
+        this.changeKey = keyOf(entityType, entityId);
+        this.entityType = entityType;
+        this.entityId = entityId;
+    }
+
+    public static String keyOf(EntityType entityType, String entityId) {
+        return entityType.name() + ":" + entityId;
+    }
+
+    public String getChangeKey() {
+        return changeKey;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Boolean getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(Boolean deleted) {
+        this.deleted = deleted != null ? deleted : false;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    public void setChangedAt(Instant changedAt) {
+        this.changedAt = changedAt;
+    }
+}
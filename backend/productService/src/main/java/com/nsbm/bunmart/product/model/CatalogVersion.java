@@ -0,0 +1,50 @@
+package com.nsbm.bunmart.product.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Single-row counter holding the last catalog version handed out. Writers lock the row for the
+ * rest of their transaction, so versions become visible in the same order they were assigned.
+ */
+@Entity
+@Table(name = "catalog_version")
+public class CatalogVersion {
+
+    public static final int SINGLETON_ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "current_version", nullable = false)
+    private Long currentVersion = 0L;
+
+    public CatalogVersion() {
+    }
+
+    public CatalogVersion(Integer id, Long currentVersion) {
+        this.id = id;
+        this.currentVersion = currentVersion;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+
+    public long next() {
+        currentVersion = currentVersion + 1;
+        return currentVersion;
+    }
+
+    /**
+     * Hands out {@code count} consecutive versions and returns the first of them.
+     */
+    public long reserve(int count) {
+        long first = currentVersion + 1;
+        currentVersion = currentVersion + count;
+        return first;
+    }
+}
@@ -1,12 +1,19 @@
 package com.nsbm.bunmart.product.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_name_id", columnList = "name, id"),
+        @Index(name = "idx_products_availability_name_id", columnList = "availability, name, id"),
+        @Index(name = "idx_products_category_name_id", columnList = "category_id, name, id"),
+        @Index(name = "idx_products_category_id_id", columnList = "category_id, id"),
+        @Index(name = "idx_products_image_hash", columnList = "image_hash")
+})
 public class Product {
 
     @Id
@@ -16,14 +23,21 @@ public class Product {
     @Column(nullable = false)
     private String name;
 
-    @Lob
-    @Column(name = "image_base64", columnDefinition = "TEXT")
-    private String imageBase64;
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    @Column(name = "image_content_type", length = 50)
+    private String imageContentType;
+
+    @Column(name = "image_size")
+    private Long imageSize;
 
     @Column(length = 2000)
     private String description;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    // Lazy and batch-fetched: listings read tags through one bulk query, never one per product
+    @ElementCollection(fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @CollectionTable(name = "product_tags", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "tag")
     private List<String> tags = new ArrayList<>();
@@ -41,11 +55,10 @@ public class Product {
     public Product() {
     }
 
-    public Product(String id, String name, String imageBase64, String description, List<String> tags,
+    public Product(String id, String name, String description, List<String> tags,
                   String weight, Boolean availability, Category category) {
         this.id = id;
         this.name = name;
-        this.imageBase64 = imageBase64;
         this.description = description;
         this.tags = tags != null ? tags : new ArrayList<>();
         this.weight = weight;
@@ -69,12 +82,32 @@ public class Product {
         this.name = name;
     }
 
-    public String getImageBase64() {
-        return imageBase64;
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+
+    public String getImageContentType() {
+        return imageContentType;
+    }
+
+    public void setImageContentType(String imageContentType) {
+        this.imageContentType = imageContentType;
+    }
+
+    public Long getImageSize() {
+        return imageSize;
+    }
+
+    public void setImageSize(Long imageSize) {
+        this.imageSize = imageSize;
     }
 
-    public void setImageBase64(String imageBase64) {
-        this.imageBase64 = imageBase64;
+    public boolean hasImage() {
+        return imageHash != null;
     }
 
     public String getDescription() {
@@ -0,0 +1,14 @@
+package com.nsbm.bunmart.product.repositories;
+
+import com.nsbm.bunmart.product.model.CatalogChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CatalogChangeRepository extends JpaRepository<CatalogChange, String> {
+
+    List<CatalogChange> findByVersionGreaterThanOrderByVersionAsc(Long version, Limit limit);
+}
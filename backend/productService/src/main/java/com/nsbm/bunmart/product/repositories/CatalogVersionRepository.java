@@ -0,0 +1,21 @@
+package com.nsbm.bunmart.product.repositories;
+
+import com.nsbm.bunmart.product.model.CatalogVersion;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM CatalogVersion v WHERE v.id = " + CatalogVersion.SINGLETON_ID)
+    Optional<CatalogVersion> lockCurrent();
+
+    @Query("SELECT v.currentVersion FROM CatalogVersion v WHERE v.id = " + CatalogVersion.SINGLETON_ID)
+    Optional<Long> findCurrentVersion();
+}
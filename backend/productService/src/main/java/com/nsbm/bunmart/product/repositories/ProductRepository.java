@@ -1,14 +1,18 @@
 package com.nsbm.bunmart.product.repositories;
 
 import com.nsbm.bunmart.product.model.Product;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, String> {
+public interface ProductRepository extends JpaRepository<Product, String>, ProductSummaryRepository {
 
     Optional<Product> findByIdAndAvailabilityTrue(String id);
 
@@ -29,4 +33,19 @@ public interface ProductRepository extends JpaRepository<Product, String> {
     boolean existsByCategoryId(Integer categoryId);
 
     boolean existsByCategory_IdAndName(Integer categoryId, String name);
+
+    boolean existsByImageHash(String imageHash);
+
+    String SUMMARY_SELECT = "SELECT new com.nsbm.bunmart.product.repositories.projections.ProductSummary("
+            + "p.id, p.name, p.description, p.weight, p.availability, p.category.id, "
+            + "CASE WHEN p.imageHash IS NOT NULL THEN true ELSE false END) FROM Product p";
+
+    @Query(SUMMARY_SELECT + " WHERE p.id IN :ids")
+    List<ProductSummary> findSummariesByIdIn(@Param("ids") Collection<String> ids);
+
+    /**
+     * Returns {@code [productId, tag]} pairs for the given products in a single query.
+     */
+    @Query("SELECT p.id, t FROM Product p JOIN p.tags t WHERE p.id IN :ids")
+    List<Object[]> findTagsByProductIdIn(@Param("ids") Collection<String> ids);
 }
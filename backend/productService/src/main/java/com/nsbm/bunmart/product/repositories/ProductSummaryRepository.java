@@ -0,0 +1,18 @@
+package com.nsbm.bunmart.product.repositories;
+
+import com.nsbm.bunmart.product.repositories.projections.ProductPageQuery;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+
+import java.util.List;
+
+/**
+ * Keyset (seek) pagination over product summaries. Implemented by {@link ProductSummaryRepositoryImpl}.
+ */
+public interface ProductSummaryRepository {
+
+    /**
+     * Returns up to {@code query.limit()} summaries ordered by (sort key, id), strictly after
+     * {@code query.after()}. Tags are not populated.
+     */
+    List<ProductSummary> findSummaryPage(ProductPageQuery query);
+}
@@ -0,0 +1,60 @@
+package com.nsbm.bunmart.product.repositories;
+
+import com.nsbm.bunmart.product.repositories.projections.ProductCursor;
+import com.nsbm.bunmart.product.repositories.projections.ProductPageQuery;
+import com.nsbm.bunmart.product.repositories.projections.ProductSortKey;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+
+public class ProductSummaryRepositoryImpl implements ProductSummaryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductSummary> findSummaryPage(ProductPageQuery query) {
+        ProductSortKey key = query.sortKey();
+        String direction = query.descending() ? "DESC" : "ASC";
+        String comparator = query.descending() ? "<" : ">";
+        ProductCursor after = query.after();
+
+        StringBuilder jpql = new StringBuilder(ProductRepository.SUMMARY_SELECT).append(" WHERE 1 = 1");
+        if (query.categoryId() != null) {
+            jpql.append(" AND p.category.id = :categoryId");
+        }
+        if (query.availableOnly()) {
+            jpql.append(" AND p.availability = true");
+        }
+        if (after != null) {
+            if (key == ProductSortKey.ID) {
+                jpql.append(" AND p.id ").append(comparator).append(" :afterId");
+            } else {
+                // Leading inclusive bound keeps this an index range scan on (key, id)
+                jpql.append(" AND ").append(key.getPath()).append(' ').append(comparator).append("= :afterValue")
+                        .append(" AND (").append(key.getPath()).append(' ').append(comparator).append(" :afterValue")
+                        .append(" OR p.id ").append(comparator).append(" :afterId)");
+            }
+        }
+        jpql.append(" ORDER BY ");
+        if (key != ProductSortKey.ID) {
+            jpql.append(key.getPath()).append(' ').append(direction).append(", ");
+        }
+        jpql.append("p.id ").append(direction);
+
+        TypedQuery<ProductSummary> typed = entityManager.createQuery(jpql.toString(), ProductSummary.class);
+        if (query.categoryId() != null) {
+            typed.setParameter("categoryId", query.categoryId());
+        }
+        if (after != null) {
+            typed.setParameter("afterId", after.id());
+            if (key != ProductSortKey.ID) {
+                typed.setParameter("afterValue", after.sortValue());
+            }
+        }
+        return typed.setMaxResults(query.limit()).getResultList();
+    }
+}
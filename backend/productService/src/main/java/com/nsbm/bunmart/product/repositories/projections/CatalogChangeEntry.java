@@ -0,0 +1,21 @@
+package com.nsbm.bunmart.product.repositories.projections;
+
+import com.nsbm.bunmart.product.model.CatalogChange;
+import com.nsbm.bunmart.product.model.Category;
+
+/**
+ * One record of the change feed. Exactly one of {@code product} and {@code category} is set
+ * unless the record was deleted, in which case both are null.
+ */
+public record CatalogChangeEntry(
+        long version,
+        CatalogChange.EntityType entityType,
+        String entityId,
+        boolean deleted,
+        ProductSummary product,
+        Category category) {
+
+    public static CatalogChangeEntry deleted(long version, CatalogChange.EntityType entityType, String entityId) {
+        return new CatalogChangeEntry(version, entityType, entityId, true, null, null);
+    }
+}
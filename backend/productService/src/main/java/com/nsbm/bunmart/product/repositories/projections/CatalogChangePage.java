@@ -0,0 +1,11 @@
+package com.nsbm.bunmart.product.repositories.projections;
+
+import java.util.List;
+
+/**
+ * Changes after a given version in version order. {@code version} is what the consumer passes as
+ * {@code since} on its next call; {@code hasMore} tells whether that call would return more
+ * changes right away.
+ */
+public record CatalogChangePage(List<CatalogChangeEntry> changes, long version, boolean hasMore) {
+}
@@ -0,0 +1,45 @@
+package com.nsbm.bunmart.product.repositories.projections;
+
+import com.nsbm.bunmart.product.errors.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last row of a keyset page: the sort column value and the product id that
+ * breaks ties. Clients only see it as an opaque token, which also pins the sort it was issued for.
+ */
+public record ProductCursor(ProductSortKey sortKey, boolean descending, String sortValue, String id) {
+
+    private static final String VERSION = "v1";
+
+    public static ProductCursor after(ProductSummary last, ProductSortKey sortKey, boolean descending) {
+        String value = switch (sortKey) {
+            case NAME -> last.name();
+            case ID -> last.id();
+        };
+        return new ProductCursor(sortKey, descending, value, last.id());
+    }
+
+    public String encode() {
+        String raw = String.join(":", VERSION, sortKey.getParam(), descending ? "d" : "a", id, sortValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) throws InvalidPageRequestException {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Invalid cursor");
+        }
+        // The sort value goes last so it may itself contain ':'
+        String[] parts = raw.split(":", 5);
+        if (parts.length != 5 || !VERSION.equals(parts[0])) {
+            throw new InvalidPageRequestException("Invalid cursor");
+        }
+        ProductSortKey key = ProductSortKey.fromParam(parts[1])
+                .orElseThrow(() -> new InvalidPageRequestException("Invalid cursor"));
+        return new ProductCursor(key, "d".equals(parts[2]), parts[4], parts[3]);
+    }
+}
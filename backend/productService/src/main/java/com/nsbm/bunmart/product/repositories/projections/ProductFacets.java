@@ -0,0 +1,16 @@
+package com.nsbm.bunmart.product.repositories.projections;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One faceted-browse result: the total selection, the requested slice of it, and counts per tag,
+ * per category and for available products. Facet values with no matches are omitted.
+ */
+public record ProductFacets(
+        int total,
+        List<ProductSummary> products,
+        Map<String, Integer> tagCounts,
+        Map<Integer, Integer> categoryCounts,
+        int availableCount) {
+}
@@ -0,0 +1,9 @@
+package com.nsbm.bunmart.product.repositories.projections;
+
+import java.util.List;
+
+/**
+ * A page of products plus the cursor of the next page, or null when this is the last page.
+ */
+public record ProductPage(List<ProductSummary> items, ProductCursor next) {
+}
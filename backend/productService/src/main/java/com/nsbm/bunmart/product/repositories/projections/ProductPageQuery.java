@@ -0,0 +1,13 @@
+package com.nsbm.bunmart.product.repositories.projections;
+
+/**
+ * One keyset page of the product catalog. {@code after} is null for the first page.
+ */
+public record ProductPageQuery(
+        Integer categoryId,
+        boolean availableOnly,
+        ProductSortKey sortKey,
+        boolean descending,
+        ProductCursor after,
+        int limit) {
+}
@@ -0,0 +1,38 @@
+package com.nsbm.bunmart.product.repositories.projections;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Columns the product catalog may be sorted by. Every key is backed by an index ending in
+ * {@code id} (see {@code Product}), so keyset pages are served by an index range scan.
+ */
+public enum ProductSortKey {
+    NAME("name", "p.name"),
+    ID("id", "p.id");
+
+    private final String param;
+    private final String path;
+
+    ProductSortKey(String param, String path) {
+        this.param = param;
+        this.path = path;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * JPQL path of the column; only ever taken from this whitelist, never from user input.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public static Optional<ProductSortKey> fromParam(String param) {
+        return Arrays.stream(values())
+                .filter(key -> key.param.equalsIgnoreCase(param))
+                .findFirst();
+    }
+}
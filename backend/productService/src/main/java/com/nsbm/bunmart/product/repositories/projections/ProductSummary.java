@@ -0,0 +1,48 @@
+package com.nsbm.bunmart.product.repositories.projections;
+
+import com.nsbm.bunmart.product.model.Product;
+
+import java.util.List;
+
+/**
+ * Read-only view of a product for listings. Selected with a JPQL constructor expression so the
+ * listing never hydrates {@code Product} entities; tags are attached from one batched query.
+ */
+public record ProductSummary(
+        String id,
+        String name,
+        String description,
+        List<String> tags,
+        String weight,
+        Boolean availability,
+        Integer categoryId,
+        boolean hasImage) {
+
+    public ProductSummary {
+        tags = tags != null ? List.copyOf(tags) : List.of();
+    }
+
+    /**
+     * Used by repository constructor expressions; {@code hasImage} is computed in SQL.
+     */
+    public ProductSummary(String id, String name, String description, String weight,
+                          Boolean availability, Integer categoryId, Boolean hasImage) {
+        this(id, name, description, List.of(), weight, availability, categoryId, Boolean.TRUE.equals(hasImage));
+    }
+
+    public static ProductSummary of(Product product) {
+        return new ProductSummary(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getTags(),
+                product.getWeight(),
+                product.getAvailability(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.hasImage());
+    }
+
+    public ProductSummary withTags(List<String> tags) {
+        return new ProductSummary(id, name, description, tags, weight, availability, categoryId, hasImage);
+    }
+}
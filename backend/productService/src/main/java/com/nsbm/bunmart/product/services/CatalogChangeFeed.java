@@ -0,0 +1,136 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.model.CatalogChange;
+import com.nsbm.bunmart.product.model.CatalogVersion;
+import com.nsbm.bunmart.product.repositories.CatalogChangeRepository;
+import com.nsbm.bunmart.product.repositories.CatalogVersionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Versioned log of catalog mutations. Every product or category write stamps its record with the
+ * next catalog version inside the writer's transaction; the version counter row stays locked until
+ * commit, so a consumer reading {@code version > since} never skips a change that commits late.
+ * <p>
+ * Listeners registered with {@link #subscribe(Runnable)} are poked after each committed write and
+ * are expected to re-read the feed themselves; they must not block.
+ */
+@Slf4j
+@Component
+public class CatalogChangeFeed {
+
+    private final CatalogChangeRepository changeRepository;
+    private final CatalogVersionRepository versionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Set<Runnable> listeners = new CopyOnWriteArraySet<>();
+
+    public CatalogChangeFeed(CatalogChangeRepository changeRepository, CatalogVersionRepository versionRepository,
+                             JdbcTemplate jdbcTemplate) {
+        this.changeRepository = changeRepository;
+        this.versionRepository = versionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Records that a product or category was created, updated or deleted. Must run inside the
+     * transaction that performs the write.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long record(CatalogChange.EntityType entityType, String entityId, boolean deleted) {
+        CatalogVersion counter = versionRepository.lockCurrent()
+                .orElseGet(() -> versionRepository.save(new CatalogVersion(CatalogVersion.SINGLETON_ID, 0L)));
+        long version = counter.next();
+        CatalogChange change = changeRepository.findById(CatalogChange.keyOf(entityType, entityId))
+                .orElseGet(() -> new CatalogChange(entityType, entityId));
+        change.setVersion(version);
+        change.setDeleted(deleted);
+        change.setChangedAt(Instant.now());
+        changeRepository.save(change);
+        notifyAfterCommit();
+        return version;
+    }
+
+    /**
+     * Bulk form of {@link #record} for batch writers: one lock, one block of consecutive versions
+     * and a single JDBC batch instead of a lookup and save per record.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(CatalogChange.EntityType entityType, List<String> entityIds, boolean deleted) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        CatalogVersion counter = versionRepository.lockCurrent()
+                .orElseGet(() -> versionRepository.save(new CatalogVersion(CatalogVersion.SINGLETON_ID, 0L)));
+        long first = counter.reserve(entityIds.size());
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(entityIds.size());
+        for (int i = 0; i < entityIds.size(); i++) {
+            String entityId = entityIds.get(i);
+            rows.add(new Object[]{CatalogChange.keyOf(entityType, entityId), entityType.name(), entityId,
+                    first + i, deleted, now});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO catalog_changes (change_key, entity_type, entity_id, version, deleted, changed_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (change_key) DO UPDATE "
+                        + "SET version = EXCLUDED.version, deleted = EXCLUDED.deleted, changed_at = EXCLUDED.changed_at",
+                rows);
+        notifyAfterCommit();
+    }
+
+    /**
+     * Returns up to {@code limit} records changed after {@code since}, oldest first.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<CatalogChange> changesSince(long since, int limit) {
+        return changeRepository.findByVersionGreaterThanOrderByVersionAsc(since, Limit.of(limit));
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public long currentVersion() {
+        return versionRepository.findCurrentVersion().orElse(0L);
+    }
+
+    /**
+     * Registers a listener for committed changes and returns the action that removes it again.
+     */
+    public Runnable subscribe(Runnable listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    private void notifyAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            notifyListeners();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notifyListeners();
+            }
+        });
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("Catalog change listener failed: {}", e.getMessage());
+            }
+        }
+    }
+}
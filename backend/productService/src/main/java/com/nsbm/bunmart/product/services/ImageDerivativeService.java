@@ -0,0 +1,288 @@
+package com.nsbm.bunmart.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nsbm.bunmart.product.errors.ProductNotSavedException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Generates fixed-size derivatives of product images on a bounded worker pool. Each original is
+ * decoded once and every variant is scaled from that single decode. Uploads enqueue work after
+ * commit; a request for a derivative that is not on disk yet starts the job if none is running
+ * and returns at once. Originals that failed are remembered by hash, so an undecodable image is
+ * not retried on every request.
+ */
+@Slf4j
+@Service
+public class ImageDerivativeService {
+
+    /** Images above this many pixels are not decoded at all. */
+    private static final long MAX_SOURCE_PIXELS = 40_000_000L;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    public enum Variant {
+        THUMBNAIL("thumbnail", 160),
+        CARD("card", 480),
+        DETAIL("detail", 1200);
+
+        private final String param;
+        private final int maxDimension;
+
+        Variant(String param, int maxDimension) {
+            this.param = param;
+            this.maxDimension = maxDimension;
+        }
+
+        public String getParam() {
+            return param;
+        }
+
+        public int getMaxDimension() {
+            return maxDimension;
+        }
+
+        public static Optional<Variant> fromParam(String param) {
+            return Arrays.stream(values()).filter(v -> v.param.equalsIgnoreCase(param)).findFirst();
+        }
+    }
+
+    /**
+     * Result of {@link #getDerivative}; {@code file} is only set when the derivative is ready.
+     */
+    public record Derivative(State state, Path file) {
+
+        public enum State {
+            READY,
+            /** Being generated; ask again shortly. */
+            PENDING,
+            /** The original is missing or cannot be resized; serve the original instead. */
+            UNAVAILABLE
+        }
+
+        static final Derivative PENDING = new Derivative(State.PENDING, null);
+        static final Derivative UNAVAILABLE = new Derivative(State.UNAVAILABLE, null);
+    }
+
+    private static final String[] VARIANT_PARAMS = Arrays.stream(Variant.values())
+            .map(Variant::getParam).toArray(String[]::new);
+
+    private final ImageStorageService imageStorageService;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Hash -> reason; images are content-addressed, so a failure holds for the hash until it expires
+    private final Cache<String, String> failures;
+
+    public ImageDerivativeService(ImageStorageService imageStorageService,
+                                  @Value("${product.images.derivatives.threads:2}") int threads,
+                                  @Value("${product.images.derivatives.queue-capacity:200}") int queueCapacity,
+                                  @Value("${product.images.derivatives.failures.max-size:10000}") long failuresMaxSize,
+                                  @Value("${product.images.derivatives.failures.ttl:6h}") Duration failuresTtl) {
+        this.imageStorageService = imageStorageService;
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(failuresMaxSize)
+                .expireAfterWrite(failuresTtl)
+                .build();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivatives-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues derivative generation for an original. When the queue is full the job is dropped;
+     * the derivative is then generated on first request instead.
+     */
+    public void submit(String hash) {
+        try {
+            schedule(hash);
+        } catch (RejectedExecutionException e) {
+            log.warn("Image derivative queue full, {} will be generated on demand", hash);
+        }
+    }
+
+    /**
+     * Returns the derivative if it is on disk. Otherwise starts generating it, unless the original
+     * already failed, and returns without waiting.
+     */
+    public Derivative getDerivative(String hash, Variant variant) {
+        Optional<Path> existing = imageStorageService.findDerivative(hash, variant.getParam());
+        if (existing.isPresent()) {
+            return new Derivative(Derivative.State.READY, existing.get());
+        }
+        if (failures.getIfPresent(hash) != null || imageStorageService.find(hash).isEmpty()) {
+            return Derivative.UNAVAILABLE;
+        }
+        try {
+            schedule(hash);
+        } catch (RejectedExecutionException e) {
+            log.warn("Image derivative queue full, {} for {} not scheduled", variant.getParam(), hash);
+        }
+        return Derivative.PENDING;
+    }
+
+    /**
+     * Deletes an original together with all of its derivatives, unless a pending store or a row
+     * that {@code referenced} finds still uses it.
+     */
+    public boolean deleteIfUnused(String hash, Predicate<String> referenced) {
+        return imageStorageService.deleteIfUnused(hash, referenced, VARIANT_PARAMS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(String hash) {
+        if (failures.getIfPresent(hash) != null || !inFlight.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(hash);
+                } catch (Exception e) {
+                    log.warn("Image derivatives for {} could not be generated: {}", hash, e.getMessage());
+                    failures.put(hash, String.valueOf(e.getMessage()));
+                } finally {
+                    inFlight.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(hash);
+            throw e;
+        }
+    }
+
+    private void generate(String hash) throws IOException, ProductNotSavedException {
+        boolean complete = true;
+        for (Variant variant : Variant.values()) {
+            complete &= imageStorageService.findDerivative(hash, variant.getParam()).isPresent();
+        }
+        if (complete) {
+            return;
+        }
+        Path original = imageStorageService.find(hash)
+                .orElseThrow(() -> new IOException("Original image is missing"));
+        BufferedImage current = decode(original);
+        boolean opaque = !current.getColorModel().hasAlpha();
+        // Largest first, each variant scaled from the previous one rather than from the full original
+        Variant[] bySize = Variant.values().clone();
+        Arrays.sort(bySize, Comparator.comparingInt(Variant::getMaxDimension).reversed());
+        for (Variant variant : bySize) {
+            current = scale(current, variant.getMaxDimension(), opaque);
+            if (!imageStorageService.storeDerivative(hash, variant.getParam(), encode(current, opaque))) {
+                // Deleted while it was being resized
+                return;
+            }
+        }
+    }
+
+    private static BufferedImage decode(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path);
+             ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("No decoder for image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                // Check the header before allocating pixels so a tiny file cannot claim gigabytes
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > MAX_SOURCE_PIXELS) {
+                    throw new IOException("Image is too large to resize (" + pixels + " pixels)");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Fits the image into a {@code maxDimension} square, halving step by step so bilinear
+     * filtering does not alias on large reductions. Never upscales.
+     */
+    private static BufferedImage scale(BufferedImage source, int maxDimension, boolean opaque) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage current = source;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D g = step.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, boolean opaque) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!opaque) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
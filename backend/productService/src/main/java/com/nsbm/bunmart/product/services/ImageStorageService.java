@@ -0,0 +1,261 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.errors.InvalidImageException;
+import com.nsbm.bunmart.product.errors.ProductNotSavedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for product images. Each image is kept once on local disk as raw bytes,
+ * named by the SHA-256 of its content and fanned out into two-character directories.
+ * <p>
+ * Since several products can share one file, a stored hash stays pinned until the caller's write
+ * has committed or rolled back and {@link #release} is called. {@link #deleteIfUnused} never removes
+ * a pinned file, and stores and deletes of the same hash are serialized on a lock stripe, so a
+ * delete cannot land between a store finding the file and its row being committed.
+ */
+@Slf4j
+@Service
+public class ImageStorageService {
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path root;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // Stores not yet committed or rolled back, per hash; guarded by the hash's lock stripe
+    private final Map<String, Integer> pinned = new ConcurrentHashMap<>();
+
+    public ImageStorageService(@Value("${product.images.dir:data/images}") String rootDir) {
+        this.root = Paths.get(rootDir).toAbsolutePath().normalize();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new IllegalStateException("Image directory could not be created: " + root, e);
+        }
+    }
+
+    public StoredImage storeBase64(String imageBase64) throws InvalidImageException, ProductNotSavedException {
+        return store(decodeBase64(imageBase64));
+    }
+
+    /**
+     * Stores the image and pins its hash; the caller must {@link #release} it once the row that
+     * references the hash has been committed or rolled back.
+     */
+    public StoredImage store(byte[] bytes) throws InvalidImageException, ProductNotSavedException {
+        if (bytes == null || bytes.length == 0) {
+            throw new InvalidImageException("Image is empty");
+        }
+        String contentType = detectContentType(bytes);
+        if (contentType == null) {
+            throw new InvalidImageException("Unsupported image format (expected PNG, JPEG, GIF or WEBP)");
+        }
+        String hash = sha256(bytes);
+        Path target = resolve(hash);
+        synchronized (lockFor(hash)) {
+            if (!Files.exists(target)) {
+                try {
+                    Files.createDirectories(target.getParent());
+                    Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+                    Files.write(temp, bytes);
+                    try {
+                        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } catch (IOException e) {
+                    log.error(e.getMessage());
+                    throw new ProductNotSavedException("Product image could not be saved");
+                }
+            }
+            pinned.merge(hash, 1, Integer::sum);
+        }
+        return new StoredImage(hash, contentType, bytes.length);
+    }
+
+    /**
+     * Unpins a hash returned by {@link #store} once the write that references it has finished.
+     */
+    public void release(String hash) {
+        synchronized (lockFor(hash)) {
+            pinned.computeIfPresent(hash, (h, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    public Optional<Path> find(String hash) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = resolve(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    public Optional<byte[]> read(String hash) {
+        return find(hash).map(path -> {
+            try {
+                return Files.readAllBytes(path);
+            } catch (IOException e) {
+                log.error(e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Stores a resized copy of the image {@code hash} next to the original. Derivatives are keyed by
+     * the original's hash, so they never need invalidating. The write holds the hash's lock, so it
+     * cannot land after {@link #deleteIfUnused} removed the original and leave an orphan behind;
+     * returns false without writing when the original is already gone.
+     */
+    public boolean storeDerivative(String hash, String variant, byte[] bytes) throws ProductNotSavedException {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid image hash: " + hash);
+        }
+        Path target = resolve(hash, variant);
+        synchronized (lockFor(hash)) {
+            if (!Files.exists(resolve(hash))) {
+                return false;
+            }
+            try {
+                Files.createDirectories(target.getParent());
+                Path temp = Files.createTempFile(target.getParent(), hash, ".tmp");
+                Files.write(temp, bytes);
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                log.error(e.getMessage());
+                throw new ProductNotSavedException("Product image derivative could not be saved");
+            }
+            return true;
+        }
+    }
+
+    public Optional<Path> findDerivative(String hash, String variant) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = resolve(hash, variant);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * Deletes the image and its derivatives unless a store of it is still pending or
+     * {@code referenced} reports that a committed row points at it. Returns whether it was deleted.
+     */
+    public boolean deleteIfUnused(String hash, Predicate<String> referenced, String... variants) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return false;
+        }
+        synchronized (lockFor(hash)) {
+            if (pinned.containsKey(hash) || referenced.test(hash)) {
+                return false;
+            }
+            deleteFile(resolve(hash));
+            for (String variant : variants) {
+                deleteFile(resolve(hash, variant));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Sniffs the content type of a stored file from its first bytes.
+     */
+    public String contentTypeOf(Path path) {
+        try (var in = Files.newInputStream(path)) {
+            return detectContentType(in.readNBytes(12));
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            return null;
+        }
+    }
+
+    private void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Image file {} could not be deleted: {}", path.getFileName(), e.getMessage());
+        }
+    }
+
+    private Object lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private Path resolve(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path resolve(String hash, String variant) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash + "-" + variant);
+    }
+
+    private static byte[] decodeBase64(String imageBase64) throws InvalidImageException {
+        if (imageBase64 == null || imageBase64.isBlank()) {
+            throw new InvalidImageException("Image is required (base64 encoded)");
+        }
+        String data = imageBase64.trim();
+        // Accept data URLs ("data:image/png;base64,....") as well as bare base64
+        if (data.startsWith("data:")) {
+            int comma = data.indexOf(',');
+            data = comma >= 0 ? data.substring(comma + 1) : "";
+        }
+        try {
+            return Base64.getMimeDecoder().decode(data);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidImageException("Image is not valid base64");
+        }
+    }
+
+    static String detectContentType(byte[] b) {
+        if (b.length >= 8 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') {
+            return "image/png";
+        }
+        if (b.length >= 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8 && (b[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (b.length >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8') {
+            return "image/gif";
+        }
+        if (b.length >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record StoredImage(String hash, String contentType, long size) {
+    }
+}
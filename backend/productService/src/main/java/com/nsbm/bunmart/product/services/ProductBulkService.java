@@ -0,0 +1,564 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.dto.AddProductRequestDTO;
+import com.nsbm.bunmart.product.dto.ProductResponseDTO;
+import com.nsbm.bunmart.product.errors.InvalidImageException;
+import com.nsbm.bunmart.product.errors.ProductNotSavedException;
+import com.nsbm.bunmart.product.events.ProductChangedEvent;
+import com.nsbm.bunmart.product.mappers.rest.ProductMapper;
+import com.nsbm.bunmart.product.model.CatalogChange;
+import com.nsbm.bunmart.product.model.Category;
+import com.nsbm.bunmart.product.repositories.CategoryRepository;
+import com.nsbm.bunmart.product.repositories.projections.ProductCursor;
+import com.nsbm.bunmart.product.repositories.projections.ProductPage;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Streaming bulk import and export of the product catalog as NDJSON (one product object per line,
+ * same fields as {@code POST /api/v1/products}) or CSV with a header row.
+ * <p>
+ * Imports are read row by row and never held in memory as a whole. Valid rows are written with
+ * plain JDBC batches, one transaction per batch, so a bad batch only fails its own rows. Category
+ * existence and name uniqueness are checked against sets loaded once up front instead of one query
+ * per row.
+ */
+@Slf4j
+@Service
+public class ProductBulkService {
+
+    private static final int EXPORT_BATCH_SIZE = 1000;
+    // Tags share one CSV field; a separator or backslash inside a tag is escaped with a backslash
+    private static final char TAG_SEPARATOR = '|';
+    private static final char TAG_ESCAPE = '\\';
+    private static final List<String> CSV_COLUMNS =
+            List.of("name", "categoryId", "description", "tags", "weight", "availability", "hasImage");
+
+    public enum Format {
+        NDJSON("ndjson", "application/x-ndjson"),
+        CSV("csv", "text/csv");
+
+        private final String param;
+        private final String contentType;
+
+        Format(String param, String contentType) {
+            this.param = param;
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Optional<Format> fromParam(String param) {
+            return Arrays.stream(values()).filter(f -> f.param.equalsIgnoreCase(param)).findFirst();
+        }
+
+        public static Optional<Format> fromContentType(String contentType) {
+            if (contentType == null) {
+                return Optional.empty();
+            }
+            String mediaType = contentType.split(";", 2)[0].trim();
+            return Arrays.stream(values()).filter(f -> f.contentType.equalsIgnoreCase(mediaType)).findFirst();
+        }
+    }
+
+    public record RowError(long row, String message) {
+    }
+
+    /**
+     * Outcome of one import. Row numbers are 1-based data rows; a CSV header is not counted.
+     */
+    public record ImportReport(long rows, long imported, long failed, List<RowError> errors, boolean errorsTruncated) {
+    }
+
+    private record PendingRow(long row, String id, AddProductRequestDTO request, ImageStorageService.StoredImage image) {
+    }
+
+    private final CategoryRepository categoryRepository;
+    private final ProductService productService;
+    private final ProductMapper productMapper;
+    private final ImageStorageService imageStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final CatalogChangeFeed changeFeed;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public ProductBulkService(CategoryRepository categoryRepository, ProductService productService,
+                              ProductMapper productMapper, ImageStorageService imageStorageService,
+                              ImageDerivativeService imageDerivativeService, CatalogChangeFeed changeFeed,
+                              ApplicationEventPublisher eventPublisher, JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                              @Value("${product.import.batch-size:500}") int batchSize,
+                              @Value("${product.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.categoryRepository = categoryRepository;
+        this.productService = productService;
+        this.productMapper = productMapper;
+        this.imageStorageService = imageStorageService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.changeFeed = changeFeed;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public ImportReport importProducts(InputStream body, Format format) throws IOException {
+        Import run = new Import();
+        Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8);
+        try {
+            if (format == Format.CSV) {
+                importCsv(new CsvReader(reader), run);
+            } else {
+                importNdjson(new BufferedReader(reader), run);
+            }
+            run.flush();
+        } finally {
+            // A failed read leaves the last batch unwritten; its images must not stay pinned
+            run.discard();
+        }
+        log.info("Product import: {} rows, {} imported, {} failed", run.rows, run.imported, run.failed);
+        return new ImportReport(run.rows, run.imported, run.failed, List.copyOf(run.errors),
+                run.failed > run.errors.size());
+    }
+
+    /**
+     * Writes the whole catalog in id order, one keyset batch at a time. Images are not exported;
+     * {@code hasImage} tells which products have one.
+     */
+    public void exportProducts(OutputStream out, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writeCsvRow(writer, CSV_COLUMNS);
+        }
+        ProductCursor after = null;
+        do {
+            ProductPage page = productService.scanProducts(after, EXPORT_BATCH_SIZE);
+            for (ProductSummary product : page.items()) {
+                ProductResponseDTO dto = productMapper.summaryToProductResponseDTO(product);
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, List.of(
+                            nullToEmpty(dto.getName()),
+                            dto.getCategoryId() != null ? String.valueOf(dto.getCategoryId()) : "",
+                            nullToEmpty(dto.getDescription()),
+                            joinTags(dto.getTags()),
+                            nullToEmpty(dto.getWeight()),
+                            String.valueOf(Boolean.TRUE.equals(dto.getAvailability())),
+                            String.valueOf(dto.isHasImage())));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(dto));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+            after = page.next();
+        } while (after != null);
+    }
+
+    private void importNdjson(BufferedReader reader, Import run) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            long row = ++run.rows;
+            try {
+                run.accept(row, objectMapper.readValue(line, AddProductRequestDTO.class));
+            } catch (JacksonException e) {
+                run.reject(row, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private void importCsv(CsvReader reader, Import run) throws IOException {
+        List<String> header = reader.next();
+        if (header == null) {
+            return;
+        }
+        int[] columns = new int[CSV_COLUMNS.size()];
+        for (int i = 0; i < CSV_COLUMNS.size(); i++) {
+            columns[i] = indexOfIgnoreCase(header, CSV_COLUMNS.get(i));
+        }
+        List<String> fields;
+        while ((fields = reader.next()) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            long row = ++run.rows;
+            AddProductRequestDTO request = new AddProductRequestDTO();
+            request.setName(column(fields, columns[0]));
+            request.setDescription(column(fields, columns[2]));
+            request.setWeight(column(fields, columns[4]));
+            String tags = column(fields, columns[3]);
+            request.setTags(tags == null ? List.of() : splitTags(tags));
+            String categoryId = column(fields, columns[1]);
+            String availability = column(fields, columns[5]);
+            try {
+                request.setCategoryId(categoryId == null ? null : Integer.valueOf(categoryId.trim()));
+            } catch (NumberFormatException e) {
+                run.reject(row, "categoryId is not a number: " + categoryId);
+                continue;
+            }
+            if (availability != null && !availability.isBlank()) {
+                if (!availability.trim().equalsIgnoreCase("true") && !availability.trim().equalsIgnoreCase("false")) {
+                    run.reject(row, "availability must be true or false: " + availability);
+                    continue;
+                }
+                request.setAvailability(Boolean.valueOf(availability.trim()));
+            }
+            run.accept(row, request);
+        }
+    }
+
+    /**
+     * State of one import run. Existing (category, name) pairs are loaded once so duplicate checks,
+     * including duplicates within the file, never hit the database.
+     */
+    private final class Import {
+
+        private final Set<Integer> categoryIds = new HashSet<>();
+        private final Set<String> names = new HashSet<>();
+        private final List<PendingRow> batch = new ArrayList<>(batchSize);
+        private final List<RowError> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long failed;
+
+        Import() {
+            for (Category category : categoryRepository.findAll()) {
+                categoryIds.add(category.getId());
+            }
+            jdbcTemplate.query("SELECT category_id, name FROM products",
+                    rs -> {
+                        names.add(nameKey(rs.getInt(1), rs.getString(2)));
+                    });
+        }
+
+        void accept(long row, AddProductRequestDTO request) {
+            String problem = validate(request);
+            if (problem != null) {
+                reject(row, problem);
+                return;
+            }
+            ImageStorageService.StoredImage image = null;
+            if (request.getImageBase64() != null && !request.getImageBase64().isBlank()) {
+                try {
+                    image = imageStorageService.storeBase64(request.getImageBase64());
+                } catch (InvalidImageException | ProductNotSavedException e) {
+                    reject(row, e.getMessage());
+                    return;
+                }
+            }
+            names.add(nameKey(request.getCategoryId(), request.getName()));
+            batch.add(new PendingRow(row, UUID.randomUUID().toString(), request, image));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new RowError(row, message));
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeBatch(batch));
+                imported += batch.size();
+                for (PendingRow pending : batch) {
+                    if (pending.image() != null) {
+                        imageStorageService.release(pending.image().hash());
+                        imageDerivativeService.submit(pending.image().hash());
+                    }
+                }
+                batch.clear();
+            } catch (DataAccessException e) {
+                log.error("Product import batch failed: {}", e.getMessage());
+                for (PendingRow pending : batch) {
+                    // Never written, so a later row may still use the name
+                    names.remove(nameKey(pending.request().getCategoryId(), pending.request().getName()));
+                    reject(pending.row(), "Batch could not be saved");
+                }
+                discard();
+            }
+        }
+
+        /**
+         * Drops the unwritten batch, deleting images that only its rows would have used.
+         */
+        void discard() {
+            for (PendingRow pending : batch) {
+                if (pending.image() != null) {
+                    imageStorageService.release(pending.image().hash());
+                    imageDerivativeService.deleteIfUnused(pending.image().hash(), ProductBulkService.this::imageInUse);
+                }
+            }
+            batch.clear();
+        }
+
+        private String validate(AddProductRequestDTO request) {
+            if (request.getName() == null || request.getName().isBlank()) {
+                return "name is required";
+            }
+            if (request.getName().length() > 255) {
+                return "name is longer than 255 characters";
+            }
+            if (request.getCategoryId() == null) {
+                return "categoryId is required";
+            }
+            if (!categoryIds.contains(request.getCategoryId())) {
+                return "Category not found for id: " + request.getCategoryId();
+            }
+            if (request.getDescription() != null && request.getDescription().length() > 2000) {
+                return "description is longer than 2000 characters";
+            }
+            if (request.getWeight() != null && request.getWeight().length() > 50) {
+                return "weight is longer than 50 characters";
+            }
+            if (request.getTags() != null && request.getTags().stream().anyMatch(t -> t == null || t.length() > 255)) {
+                return "tags must be non-null and at most 255 characters";
+            }
+            if (names.contains(nameKey(request.getCategoryId(), request.getName()))) {
+                return "A product with the same name already exists in this category";
+            }
+            return null;
+        }
+    }
+
+    private void writeBatch(List<PendingRow> batch) {
+        List<Object[]> products = new ArrayList<>(batch.size());
+        List<Object[]> tags = new ArrayList<>();
+        List<String> ids = new ArrayList<>(batch.size());
+        for (PendingRow pending : batch) {
+            AddProductRequestDTO request = pending.request();
+            ImageStorageService.StoredImage image = pending.image();
+            products.add(new Object[]{
+                    pending.id(), request.getName(), request.getDescription(), request.getWeight(),
+                    request.getAvailability() != null ? request.getAvailability() : true,
+                    request.getCategoryId(),
+                    image != null ? image.hash() : null,
+                    image != null ? image.contentType() : null,
+                    image != null ? image.size() : null});
+            if (request.getTags() != null) {
+                for (String tag : request.getTags()) {
+                    tags.add(new Object[]{pending.id(), tag});
+                }
+            }
+            ids.add(pending.id());
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO products (id, name, description, weight, availability, category_id, "
+                        + "image_hash, image_content_type, image_size) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                products);
+        if (!tags.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO product_tags (product_id, tag) VALUES (?, ?)", tags);
+        }
+        changeFeed.recordAll(CatalogChange.EntityType.PRODUCT, ids, false);
+        // Delivered after commit to the catalog cache and the in-memory indexes
+        for (PendingRow pending : batch) {
+            AddProductRequestDTO request = pending.request();
+            eventPublisher.publishEvent(ProductChangedEvent.upserted(new ProductSummary(
+                    pending.id(), request.getName(), request.getDescription(), request.getTags(),
+                    request.getWeight(), request.getAvailability() != null ? request.getAvailability() : true,
+                    request.getCategoryId(), pending.image() != null)));
+        }
+    }
+
+    private boolean imageInUse(String hash) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM products WHERE image_hash = ?)", Boolean.class, hash));
+    }
+
+    private static String nameKey(Integer categoryId, String name) {
+        return categoryId + ":" + name;
+    }
+
+    private static int indexOfIgnoreCase(List<String> header, String column) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String column(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    static String joinTags(List<String> tags) {
+        StringBuilder joined = new StringBuilder();
+        for (String tag : tags) {
+            if (!joined.isEmpty()) {
+                joined.append(TAG_SEPARATOR);
+            }
+            for (int i = 0; i < tag.length(); i++) {
+                char c = tag.charAt(i);
+                if (c == TAG_SEPARATOR || c == TAG_ESCAPE) {
+                    joined.append(TAG_ESCAPE);
+                }
+                joined.append(c);
+            }
+        }
+        return joined.toString();
+    }
+
+    static List<String> splitTags(String joined) {
+        List<String> tags = new ArrayList<>();
+        StringBuilder tag = new StringBuilder();
+        for (int i = 0; i < joined.length(); i++) {
+            char c = joined.charAt(i);
+            if (c == TAG_ESCAPE && i + 1 < joined.length()) {
+                tag.append(joined.charAt(++i));
+            } else if (c == TAG_SEPARATOR) {
+                addTag(tags, tag);
+            } else {
+                tag.append(c);
+            }
+        }
+        addTag(tags, tag);
+        return tags;
+    }
+
+    private static void addTag(List<String> tags, StringBuilder tag) {
+        String trimmed = tag.toString().trim();
+        if (!trimmed.isEmpty()) {
+            tags.add(trimmed);
+        }
+        tag.setLength(0);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static void writeCsvRow(Writer writer, List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String field = fields.get(i);
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(field.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(field);
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Minimal RFC 4180 reader: quoted fields may contain commas, doubled quotes and line breaks.
+     */
+    static final class CsvReader {
+
+        private final Reader reader;
+        private int pushedBack = -2;
+
+        CsvReader(Reader reader) {
+            this.reader = reader.markSupported() ? reader : new BufferedReader(reader);
+        }
+
+        /**
+         * Returns the fields of the next record, or null at end of input.
+         */
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        break;
+                    }
+                    if (c == '"') {
+                        int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = following;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == -1 || c == '\n') {
+                    break;
+                } else if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        pushedBack = following;
+                    }
+                    break;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.nsbm.bunmart.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nsbm.bunmart.product.events.ProductChangedEvent;
+import com.nsbm.bunmart.product.repositories.projections.ProductPage;
+import com.nsbm.bunmart.product.repositories.projections.ProductPageQuery;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache in front of the catalog read paths: product summaries by id and
+ * listing pages by query. Entries are immutable records, so callers can never mutate cached state.
+ * Writes in {@link ProductService} publish {@link ProductChangedEvent}s, which invalidate the
+ * product and every cached page once the transaction has committed; the TTL only bounds staleness
+ * for changes made outside the service.
+ */
+@Slf4j
+@Component
+public class ProductCatalogCache {
+
+    public static final String PRODUCTS = "products";
+    public static final String PAGES = "pages";
+
+    private final Cache<String, ProductSummary> products;
+    private final Cache<ProductPageQuery, ProductPage> pages;
+
+    public ProductCatalogCache(@Value("${product.cache.products.max-size:10000}") long productsMaxSize,
+                               @Value("${product.cache.pages.max-size:1000}") long pagesMaxSize,
+                               @Value("${product.cache.ttl:10m}") Duration ttl) {
+        this.products = Caffeine.newBuilder()
+                .maximumSize(productsMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(pagesMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public ProductSummary getProduct(String productId, Function<String, ProductSummary> loader) {
+        return products.get(productId, loader);
+    }
+
+    /**
+     * Returns the cached entries for {@code productIds}, loading all misses with one call to
+     * {@code loader}. Ids the loader does not return are absent from the result and not cached.
+     */
+    public Map<String, ProductSummary> getProducts(Collection<String> productIds,
+                                                   Function<Set<? extends String>, Map<String, ProductSummary>> loader) {
+        return products.getAll(productIds, loader);
+    }
+
+    public ProductPage getPage(ProductPageQuery query, Function<ProductPageQuery, ProductPage> loader) {
+        return pages.get(query, loader);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        products.invalidate(event.productId());
+        // Any page may contain the product or shift around it, and pages are cheap to rebuild
+        pages.invalidateAll();
+    }
+
+    public void invalidatePages() {
+        pages.invalidateAll();
+    }
+
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put(PRODUCTS, products.stats());
+        stats.put(PAGES, pages.stats());
+        return stats;
+    }
+
+    public long estimatedSize(String name) {
+        return PRODUCTS.equals(name) ? products.estimatedSize() : pages.estimatedSize();
+    }
+}
@@ -0,0 +1,273 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.events.ProductChangedEvent;
+import com.nsbm.bunmart.product.repositories.projections.ProductFacets;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory bitmap index for faceted browsing. Every product gets a dense ordinal and sets its bit
+ * in one bitmap per tag, per category and for availability, so a filter is a handful of bitmap ANDs
+ * and each facet count is one intersection cardinality; no product is scanned.
+ * <p>
+ * Tags are matched case-insensitively. Like {@link ProductSearchIndex}, the index is rebuilt once
+ * the application is ready and kept current from {@link ProductChangedEvent}s after each commit.
+ */
+@Component
+public class ProductFacetIndex extends ProductIndexSupport<ProductFacetIndex.Index> {
+
+    private static final Comparator<ProductSummary> BY_NAME =
+            Comparator.comparing(ProductSummary::name).thenComparing(ProductSummary::id);
+
+    public ProductFacetIndex(ProductService productService) {
+        super(productService, Index::new);
+    }
+
+    /**
+     * Returns the products carrying every one of {@code tags} (and matching the category and
+     * availability filters), ordered by name, with counts per tag, per category and for
+     * availability. Tag counts are within the full selection so they show how far adding a tag
+     * narrows it; category and availability counts ignore their own filter so the other choices
+     * stay visible.
+     */
+    public ProductFacets browse(Collection<String> tags, Integer categoryId, boolean availableOnly,
+                                int offset, int limit) {
+        Set<String> wanted = normalizeTags(tags);
+        lock.readLock().lock();
+        try {
+            BitSet base = (BitSet) index.live.clone();
+            for (String tag : wanted) {
+                BitSet bits = index.byTag.get(tag);
+                if (bits == null) {
+                    base.clear();
+                    break;
+                }
+                base.and(bits);
+            }
+
+            BitSet scratch = new BitSet(index.ordinals.size());
+            Map<Integer, Integer> categoryCounts = new HashMap<>();
+            BitSet categoryScope = base;
+            if (availableOnly) {
+                categoryScope = (BitSet) base.clone();
+                categoryScope.and(index.available);
+            }
+            for (Map.Entry<Integer, BitSet> entry : index.byCategory.entrySet()) {
+                int count = intersectionCount(scratch, categoryScope, entry.getValue());
+                if (count > 0) {
+                    categoryCounts.put(entry.getKey(), count);
+                }
+            }
+
+            BitSet availabilityScope = base;
+            if (categoryId != null) {
+                BitSet inCategory = index.byCategory.get(categoryId);
+                availabilityScope = (BitSet) base.clone();
+                if (inCategory != null) {
+                    availabilityScope.and(inCategory);
+                } else {
+                    availabilityScope.clear();
+                }
+            }
+            int availableCount = intersectionCount(scratch, availabilityScope, index.available);
+
+            BitSet matches = availabilityScope == base ? (BitSet) base.clone() : availabilityScope;
+            if (availableOnly) {
+                matches.and(index.available);
+            }
+            Map<String, Integer> tagCounts = new HashMap<>();
+            for (Map.Entry<String, BitSet> entry : index.byTag.entrySet()) {
+                int count = intersectionCount(scratch, matches, entry.getValue());
+                if (count > 0) {
+                    tagCounts.put(entry.getKey(), count);
+                }
+            }
+
+            int total = matches.cardinality();
+            List<ProductSummary> products = List.of();
+            if (limit > 0 && offset < total) {
+                // Walks the cached name order, so a page costs no sort
+                List<ProductSummary> page = new ArrayList<>(Math.min(limit, total - offset));
+                int skipped = 0;
+                for (int ordinal : index.nameOrder()) {
+                    if (!matches.get(ordinal)) {
+                        continue;
+                    }
+                    if (skipped < offset) {
+                        skipped++;
+                        continue;
+                    }
+                    page.add(index.documents.get(ordinal));
+                    if (page.size() == limit) {
+                        break;
+                    }
+                }
+                products = List.copyOf(page);
+            }
+            return new ProductFacets(total, products, tagCounts, categoryCounts, availableCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void add(Index index, ProductSummary product) {
+        index.add(product);
+    }
+
+    @Override
+    protected void remove(Index index, String productId) {
+        index.remove(productId);
+    }
+
+    @Override
+    protected String describe(Index index) {
+        return "Product facet index with " + index.ordinals.size() + " products, " + index.byTag.size() + " tags";
+    }
+
+    static String normalizeTag(String tag) {
+        return tag == null ? "" : tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> normalizeTags(Collection<String> tags) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                String value = normalizeTag(tag);
+                if (!value.isEmpty()) {
+                    normalized.add(value);
+                }
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * Cardinality of {@code a AND b}, computed in a reused scratch bitmap so counting many facet
+     * values does not allocate one bitmap per value.
+     */
+    private static int intersectionCount(BitSet scratch, BitSet a, BitSet b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        scratch.clear();
+        scratch.or(a);
+        scratch.and(b);
+        return scratch.cardinality();
+    }
+
+    /**
+     * Live ordinals sorted by name as of one index generation.
+     */
+    private record NameOrder(long generation, int[] ordinals) {
+    }
+
+    /**
+     * Mutable index state; only touched under {@link #lock} once published. Ordinals of removed
+     * products are reused so the bitmaps stay as dense as the catalog.
+     */
+    static final class Index {
+
+        private final Map<String, Integer> ordinals = new HashMap<>();
+        private final List<ProductSummary> documents = new ArrayList<>();
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+        private final BitSet live = new BitSet();
+        private final BitSet available = new BitSet();
+        private final Map<Integer, BitSet> byCategory = new HashMap<>();
+        private final Map<String, BitSet> byTag = new HashMap<>();
+        // Bumped by every write; the name order is rebuilt by the first browse after a change
+        private long generation;
+        private volatile NameOrder nameOrder;
+
+        /**
+         * Live ordinals in name order. Called under the read lock, so concurrent readers may both
+         * build it after a write; the result is the same and either copy may be kept.
+         */
+        int[] nameOrder() {
+            NameOrder order = nameOrder;
+            if (order == null || order.generation() != generation) {
+                int[] ordinals = live.stream().boxed()
+                        .sorted((a, b) -> BY_NAME.compare(documents.get(a), documents.get(b)))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+                order = new NameOrder(generation, ordinals);
+                nameOrder = order;
+            }
+            return order.ordinals();
+        }
+
+        void add(ProductSummary product) {
+            generation++;
+            int ordinal;
+            if (freeOrdinals.isEmpty()) {
+                ordinal = documents.size();
+                documents.add(product);
+            } else {
+                ordinal = freeOrdinals.pop();
+                documents.set(ordinal, product);
+            }
+            ordinals.put(product.id(), ordinal);
+            live.set(ordinal);
+            if (Boolean.TRUE.equals(product.availability())) {
+                available.set(ordinal);
+            }
+            if (product.categoryId() != null) {
+                byCategory.computeIfAbsent(product.categoryId(), k -> new BitSet()).set(ordinal);
+            }
+            for (String tag : normalizeTags(product.tags())) {
+                byTag.computeIfAbsent(tag, k -> new BitSet()).set(ordinal);
+            }
+        }
+
+        void remove(String productId) {
+            Integer ordinal = ordinals.remove(productId);
+            if (ordinal == null) {
+                return;
+            }
+            generation++;
+            ProductSummary product = documents.get(ordinal);
+            documents.set(ordinal, null);
+            freeOrdinals.push(ordinal);
+            live.clear(ordinal);
+            available.clear(ordinal);
+            if (product.categoryId() != null) {
+                clear(byCategory, product.categoryId(), ordinal);
+            }
+            for (String tag : normalizeTags(product.tags())) {
+                clear(byTag, tag, ordinal);
+            }
+        }
+
+        private static <K> void clear(Map<K, BitSet> bitmaps, K key, int ordinal) {
+            BitSet bits = bitmaps.get(key);
+            if (bits != null) {
+                bits.clear(ordinal);
+                if (bits.isEmpty()) {
+                    bitmaps.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.events.ProductChangedEvent;
+import com.nsbm.bunmart.product.repositories.projections.ProductCursor;
+import com.nsbm.bunmart.product.repositories.projections.ProductPage;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Upkeep shared by the in-memory product indexes. The index is rebuilt from a keyset scan of the
+ * catalog once the application is ready, published with one swap, and kept current from
+ * {@link ProductChangedEvent}s after each commit. Subclasses supply the index type and how a
+ * product is added to and removed from it; every access to {@link #index} holds {@link #lock}.
+ *
+ * @param <I> the mutable index state
+ */
+@Slf4j
+abstract class ProductIndexSupport<I> {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductService productService;
+    private final Supplier<I> emptyIndex;
+    private final Set<String> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    protected I index;
+    private volatile boolean rebuilding;
+
+    protected ProductIndexSupport(ProductService productService, Supplier<I> emptyIndex) {
+        this.productService = productService;
+        this.emptyIndex = emptyIndex;
+        this.index = emptyIndex.get();
+    }
+
+    protected abstract void add(I index, ProductSummary product);
+
+    protected abstract void remove(I index, String productId);
+
+    /**
+     * What the index holds, for the rebuild log line; called under the read lock.
+     */
+    protected abstract String describe(I index);
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (rebuilding) {
+            changedDuringRebuild.add(event.productId());
+        }
+        apply(event.productId(), event.product());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        rebuilding = true;
+        changedDuringRebuild.clear();
+        I fresh = emptyIndex.get();
+        try {
+            ProductCursor after = null;
+            do {
+                ProductPage page = productService.scanProducts(after, REBUILD_BATCH_SIZE);
+                page.items().forEach(product -> add(fresh, product));
+                after = page.next();
+            } while (after != null);
+            lock.writeLock().lock();
+            try {
+                index = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            rebuilding = false;
+        }
+        // Batches read before a concurrent commit may hold stale rows; reload those products
+        if (!changedDuringRebuild.isEmpty()) {
+            Set<String> changed = new HashSet<>(changedDuringRebuild);
+            changedDuringRebuild.removeAll(changed);
+            Map<String, ProductSummary> current = productService.getProductSummaries(changed);
+            changed.forEach(id -> apply(id, current.get(id)));
+        }
+        String description;
+        lock.readLock().lock();
+        try {
+            description = describe(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+        log.info("{} built in {} ms", description, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void apply(String productId, ProductSummary product) {
+        lock.writeLock().lock();
+        try {
+            remove(index, productId);
+            if (product != null) {
+                add(index, product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
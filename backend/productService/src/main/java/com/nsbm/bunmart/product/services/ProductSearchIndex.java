@@ -0,0 +1,251 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.events.ProductChangedEvent;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over product name, description and tags. Terms live in a sorted
+ * dictionary so prefix expansion is a range scan; fuzzy matching compares only terms that share
+ * the first character. Scores are field-weighted term frequency times idf.
+ * <p>
+ * The index is rebuilt from the database once the application is ready and kept current from
+ * {@link ProductChangedEvent}s after each commit.
+ */
+@Component
+public class ProductSearchIndex extends ProductIndexSupport<ProductSearchIndex.Index> {
+
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float TAG_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private static final double EXACT_BOOST = 1.0;
+    private static final double PREFIX_BOOST = 0.8;
+    private static final double FUZZY_BOOST = 0.5;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "the", "of", "with", "for", "in", "on", "to");
+
+    public ProductSearchIndex(ProductService productService) {
+        super(productService, Index::new);
+    }
+
+    /**
+     * Returns up to {@code limit} products matching every query term (exactly, as a prefix for the
+     * last term, or within a small edit distance), best match first.
+     */
+    public List<ProductSummary> search(String query, Integer categoryId, boolean availableOnly, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<String, Double> scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean last = i == terms.size() - 1;
+                Map<String, Double> termScores = index.score(terms.get(i), last);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Every term must match, so walk the smaller side of the intersection
+                    Map<String, Double> smaller = scores.size() <= termScores.size() ? scores : termScores;
+                    Map<String, Double> larger = smaller == scores ? termScores : scores;
+                    Map<String, Double> merged = new HashMap<>();
+                    for (Map.Entry<String, Double> entry : smaller.entrySet()) {
+                        Double other = larger.get(entry.getKey());
+                        if (other != null) {
+                            merged.put(entry.getKey(), entry.getValue() + other);
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return scores.entrySet().stream()
+                    .map(entry -> Map.entry(index.documents.get(entry.getKey()), entry.getValue()))
+                    .filter(entry -> categoryId == null || categoryId.equals(entry.getKey().categoryId()))
+                    .filter(entry -> !availableOnly || Boolean.TRUE.equals(entry.getKey().availability()))
+                    .sorted(Map.Entry.<ProductSummary, Double>comparingByValue().reversed()
+                            .thenComparing(entry -> entry.getKey().id(), Comparator.naturalOrder()))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void add(Index index, ProductSummary product) {
+        index.add(product);
+    }
+
+    @Override
+    protected void remove(Index index, String productId) {
+        index.remove(productId);
+    }
+
+    @Override
+    protected String describe(Index index) {
+        return "Product search index with " + index.documents.size() + " products";
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(normalized.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Levenshtein distance with early exit once every cell in a row exceeds {@code max}.
+     */
+    static boolean withinDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return false;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= max;
+    }
+
+    private static int maxEdits(String term) {
+        if (term.length() < 4) {
+            return 0;
+        }
+        return term.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * Mutable index state; only touched under {@link #lock} once published.
+     */
+    static final class Index {
+
+        private final Map<String, ProductSummary> documents = new HashMap<>();
+        private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+        private final Map<String, Set<String>> termsByDocument = new HashMap<>();
+
+        void add(ProductSummary product) {
+            Map<String, Float> weights = new HashMap<>();
+            addField(weights, product.name(), NAME_WEIGHT);
+            addField(weights, product.description(), DESCRIPTION_WEIGHT);
+            for (String tag : product.tags()) {
+                addField(weights, tag, TAG_WEIGHT);
+            }
+            documents.put(product.id(), product);
+            termsByDocument.put(product.id(), weights.keySet());
+            weights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, k -> new HashMap<>()).put(product.id(), weight));
+        }
+
+        void remove(String productId) {
+            documents.remove(productId);
+            Set<String> terms = termsByDocument.remove(productId);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                Map<String, Float> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(productId);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        Map<String, Double> score(String queryTerm, boolean allowPrefix) {
+            Map<String, Double> boosts = new HashMap<>();
+            if (postings.containsKey(queryTerm)) {
+                boosts.put(queryTerm, EXACT_BOOST);
+            }
+            if (allowPrefix) {
+                int expansions = 0;
+                for (String term : postings.subMap(queryTerm, false, queryTerm + Character.MAX_VALUE, false).keySet()) {
+                    if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    boosts.putIfAbsent(term, PREFIX_BOOST);
+                }
+            }
+            int maxEdits = maxEdits(queryTerm);
+            if (maxEdits > 0) {
+                String first = queryTerm.substring(0, 1);
+                for (String term : postings.subMap(first, true, first + Character.MAX_VALUE, false).keySet()) {
+                    if (!boosts.containsKey(term) && withinDistance(queryTerm, term, maxEdits)) {
+                        boosts.put(term, FUZZY_BOOST);
+                    }
+                }
+            }
+
+            Map<String, Double> scores = new HashMap<>();
+            int documentCount = Math.max(documents.size(), 1);
+            boosts.forEach((term, boost) -> {
+                Map<String, Float> posting = postings.get(term);
+                double idf = Math.log(1 + (double) documentCount / posting.size());
+                // A document keeps its best variant of the query term rather than the sum of all
+                posting.forEach((productId, weight) -> scores.merge(productId, boost * weight * idf, Math::max));
+            });
+            return scores;
+        }
+
+        private static void addField(Map<String, Float> weights, String text, float fieldWeight) {
+            for (String token : tokenize(text)) {
+                weights.merge(token, fieldWeight, Float::sum);
+            }
+        }
+    }
+}
@@ -1,44 +1,78 @@
 package com.nsbm.bunmart.product.services;
 
 import com.nsbm.bunmart.product.errors.*;
+import com.nsbm.bunmart.product.events.ProductChangedEvent;
+import com.nsbm.bunmart.product.model.CatalogChange;
 import com.nsbm.bunmart.product.model.Category;
 import com.nsbm.bunmart.product.model.Product;
 import com.nsbm.bunmart.product.repositories.CategoryRepository;
 import com.nsbm.bunmart.product.repositories.ProductRepository;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangeEntry;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangePage;
+import com.nsbm.bunmart.product.repositories.projections.ProductCursor;
+import com.nsbm.bunmart.product.repositories.projections.ProductPage;
+import com.nsbm.bunmart.product.repositories.projections.ProductPageQuery;
+import com.nsbm.bunmart.product.repositories.projections.ProductSortKey;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 @Transactional
 public class ProductService {
 
+    private static final int TAG_QUERY_CHUNK = 1000;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final ImageStorageService imageStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ProductCatalogCache catalogCache;
+    private final CatalogChangeFeed changeFeed;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository) {
+    public ProductService(ProductRepository productRepository, CategoryRepository categoryRepository,
+                          ImageStorageService imageStorageService, ImageDerivativeService imageDerivativeService,
+                          ProductCatalogCache catalogCache, CatalogChangeFeed changeFeed,
+                          ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
+        this.imageStorageService = imageStorageService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.catalogCache = catalogCache;
+        this.changeFeed = changeFeed;
+        this.eventPublisher = eventPublisher;
     }
 
     public Product addProduct(Integer categoryId, String name, String imageBase64, String description,
                               List<String> tags, String weight, Boolean availability)
-            throws CategoryNotFoundException, ProductNotSavedException, DatabaseExceptionException, DuplicateProductException {
+            throws CategoryNotFoundException, ProductNotSavedException, DatabaseExceptionException, DuplicateProductException,
+            InvalidImageException {
         Category category = getCategory(categoryId);
         if (productRepository.existsByCategory_IdAndName(categoryId, name)) {
             throw new DuplicateProductException("A product with the same name already exists in this category");
         }
         Product product = new Product();
         product.setName(name);
-        product.setImageBase64(imageBase64);
+        applyImage(product, storeImage(imageBase64));
         product.setDescription(description);
         product.setTags(tags != null ? tags : new ArrayList<>());
         product.setWeight(weight);
@@ -46,7 +80,9 @@ public class ProductService {
         product.setCategory(category);
 
         try {
-            return productRepository.save(product);
+            Product saved = productRepository.save(product);
+            publishChanged(saved);
+            return saved;
         } catch (DataIntegrityViolationException e) {
             log.error(e.getMessage());
             throw new DatabaseExceptionException("Product could not be created: invalid data");
@@ -81,7 +117,9 @@ public class ProductService {
         }
 
         try {
-            return productRepository.save(product);
+            Product saved = productRepository.save(product);
+            publishChanged(saved);
+            return saved;
         } catch (DataIntegrityViolationException e) {
             log.error(e.getMessage());
             throw new DatabaseExceptionException("Product could not be updated: invalid data");
@@ -92,12 +130,18 @@ public class ProductService {
     }
 
     public Product updateImage(String productId, String imageBase64)
-            throws ProductNotFoundException, ProductNotSavedException, DatabaseExceptionException {
+            throws ProductNotFoundException, ProductNotSavedException, DatabaseExceptionException, InvalidImageException {
         Product product = getProduct(productId);
-        product.setImageBase64(imageBase64);
+        String previousHash = product.getImageHash();
+        applyImage(product, storeImage(imageBase64));
 
         try {
-            return productRepository.save(product);
+            Product saved = productRepository.save(product);
+            publishChanged(saved);
+            if (previousHash != null && !previousHash.equals(saved.getImageHash())) {
+                afterCommit(() -> deleteImageIfUnused(previousHash));
+            }
+            return saved;
         } catch (DataIntegrityViolationException e) {
             log.error(e.getMessage());
             throw new DatabaseExceptionException("Product image could not be updated: invalid data");
@@ -109,12 +153,30 @@ public class ProductService {
 
     public void deleteProduct(String productId) throws ProductNotFoundException, ProductNotSavedException {
         Product product = getProduct(productId);
+        String imageHash = product.getImageHash();
         try {
             productRepository.delete(product);
+            changeFeed.record(CatalogChange.EntityType.PRODUCT, productId, true);
         } catch (DataAccessException e) {
             log.error(e.getMessage());
             throw new ProductNotSavedException("Product could not be deleted");
         }
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(productId));
+        if (imageHash != null) {
+            afterCommit(() -> deleteImageIfUnused(imageHash));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ImageStorageService.StoredImage> getImage(String productId) throws ProductNotFoundException {
+        Product product = getProduct(productId);
+        if (!product.hasImage()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ImageStorageService.StoredImage(
+                product.getImageHash(),
+                product.getImageContentType(),
+                product.getImageSize() != null ? product.getImageSize() : 0L));
     }
 
     public Product getProduct(String productId) throws ProductNotFoundException {
@@ -122,6 +184,47 @@ public class ProductService {
                 .orElseThrow(() -> new ProductNotFoundException("Product not found for id: " + productId));
     }
 
+    /**
+     * Cached read of a single product. Runs without a transaction of its own so a cache hit never
+     * touches the connection pool.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductSummary getProductSummary(String productId) throws ProductNotFoundException {
+        // Loaded through the summary projection: the entity's lazy tags cannot be read here, since
+        // a cache miss may run outside any transaction
+        ProductSummary summary = catalogCache.getProduct(productId,
+                id -> loadProductSummaries(Set.of(id)).get(id));
+        if (summary == null) {
+            throw new ProductNotFoundException("Product not found for id: " + productId);
+        }
+        return summary;
+    }
+
+    /**
+     * Cached batch read. Misses are loaded with one summary query per chunk of ids; ids that do
+     * not exist are simply absent from the returned map.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Map<String, ProductSummary> getProductSummaries(Collection<String> productIds) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return catalogCache.getProducts(productIds, this::loadProductSummaries);
+    }
+
+    private Map<String, ProductSummary> loadProductSummaries(Set<? extends String> productIds) {
+        List<String> ids = List.copyOf(productIds);
+        List<ProductSummary> rows = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += TAG_QUERY_CHUNK) {
+            rows.addAll(productRepository.findSummariesByIdIn(ids.subList(from, Math.min(from + TAG_QUERY_CHUNK, ids.size()))));
+        }
+        Map<String, ProductSummary> loaded = new HashMap<>();
+        for (ProductSummary summary : withTags(rows)) {
+            loaded.put(summary.id(), summary);
+        }
+        return loaded;
+    }
+
     public Product getProductAvailable(String productId) throws ProductNotFoundException {
         return productRepository.findByIdAndAvailabilityTrue(productId)
                 .orElseThrow(() -> new ProductNotFoundException("Product not found or not available for id: " + productId));
@@ -156,6 +259,108 @@ public class ProductService {
         return getProductsByCategory(categoryId, null);
     }
 
+    /**
+     * Returns one keyset page; a cursor is only accepted for the sort it was issued with.
+     * Pages are served from the catalog cache and rebuilt after any product write.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductPage getProductPage(ProductPageQuery query)
+            throws CategoryNotFoundException, InvalidPageRequestException {
+        return catalogCache.getPage(query, this::loadProductPage);
+    }
+
+    /**
+     * Walks the whole catalog in id order, bypassing the page cache. Meant for bulk consumers
+     * that rebuild their own read models.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductPage scanProducts(ProductCursor after, int batchSize) {
+        return loadProductPage(new ProductPageQuery(null, false, ProductSortKey.ID, false, after, batchSize));
+    }
+
+    private ProductPage loadProductPage(ProductPageQuery query) {
+        if (query.categoryId() != null && !categoryRepository.existsById(query.categoryId())) {
+            throw new CategoryNotFoundException("Category not found for id: " + query.categoryId());
+        }
+        ProductCursor after = query.after();
+        if (after != null && (after.sortKey() != query.sortKey() || after.descending() != query.descending())) {
+            throw new InvalidPageRequestException("Cursor does not match the requested sort");
+        }
+        // One extra row tells whether another page exists without a count query
+        ProductPageQuery probe = new ProductPageQuery(query.categoryId(), query.availableOnly(),
+                query.sortKey(), query.descending(), after, query.limit() + 1);
+        List<ProductSummary> rows = productRepository.findSummaryPage(probe);
+        boolean hasMore = rows.size() > query.limit();
+        List<ProductSummary> items = withTags(hasMore ? rows.subList(0, query.limit()) : rows);
+        ProductCursor next = hasMore
+                ? ProductCursor.after(items.get(items.size() - 1), query.sortKey(), query.descending())
+                : null;
+        return new ProductPage(items, next);
+    }
+
+    /**
+     * Returns products and categories changed after {@code since} with their current state.
+     * Payloads are read from the database rather than the catalog cache, which is only invalidated
+     * after commit and could otherwise hand out state older than the version it is reported under.
+     */
+    @Transactional(readOnly = true)
+    public CatalogChangePage getCatalogChanges(long since, int limit) throws InvalidPageRequestException {
+        if (since < 0) {
+            throw new InvalidPageRequestException("since must not be negative");
+        }
+        long current = changeFeed.currentVersion();
+        if (since > current) {
+            throw new InvalidPageRequestException("since " + since + " is ahead of the catalog version " + current
+                    + "; reload the catalog and start again from version 0");
+        }
+        // One extra row tells whether another batch is already waiting
+        List<CatalogChange> changes = changeFeed.changesSince(since, limit + 1);
+        boolean hasMore = changes.size() > limit;
+        if (hasMore) {
+            changes = changes.subList(0, limit);
+        }
+        List<String> productIds = new ArrayList<>();
+        List<Integer> categoryIds = new ArrayList<>();
+        for (CatalogChange change : changes) {
+            if (Boolean.TRUE.equals(change.getDeleted())) {
+                continue;
+            }
+            if (change.getEntityType() == CatalogChange.EntityType.PRODUCT) {
+                productIds.add(change.getEntityId());
+            } else {
+                categoryIds.add(Integer.valueOf(change.getEntityId()));
+            }
+        }
+        Map<String, ProductSummary> products = productIds.isEmpty() ? Map.of() : loadProductSummaries(Set.copyOf(productIds));
+        Map<Integer, Category> categories = new HashMap<>();
+        for (Category category : categoryRepository.findAllById(categoryIds)) {
+            categories.put(category.getId(), category);
+        }
+
+        List<CatalogChangeEntry> entries = new ArrayList<>(changes.size());
+        for (CatalogChange change : changes) {
+            long version = change.getVersion();
+            ProductSummary product = null;
+            Category category = null;
+            if (!Boolean.TRUE.equals(change.getDeleted())) {
+                if (change.getEntityType() == CatalogChange.EntityType.PRODUCT) {
+                    product = products.get(change.getEntityId());
+                } else {
+                    category = categories.get(Integer.valueOf(change.getEntityId()));
+                }
+            }
+            if (product == null && category == null) {
+                // Deleted after this batch was read; the tombstone follows under a later version
+                entries.add(CatalogChangeEntry.deleted(version, change.getEntityType(), change.getEntityId()));
+            } else {
+                entries.add(new CatalogChangeEntry(version, change.getEntityType(), change.getEntityId(), false,
+                        product, category));
+            }
+        }
+        long next = entries.isEmpty() ? since : entries.get(entries.size() - 1).version();
+        return new CatalogChangePage(entries, next, hasMore);
+    }
+
     public Category getCategory(Integer categoryId) throws CategoryNotFoundException {
         return categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new CategoryNotFoundException("Category not found for id: " + categoryId));
@@ -174,7 +379,9 @@ public class ProductService {
         category.setName(name);
         category.setDescription(description);
         try {
-            return categoryRepository.save(category);
+            Category saved = categoryRepository.save(category);
+            changeFeed.record(CatalogChange.EntityType.CATEGORY, String.valueOf(saved.getId()), false);
+            return saved;
         } catch (DataAccessException e) {
             log.error(e.getMessage());
             throw new CategoryNotSavedException("Category could not be saved");
@@ -188,9 +395,88 @@ public class ProductService {
         }
         try {
             categoryRepository.delete(category);
+            changeFeed.record(CatalogChange.EntityType.CATEGORY, String.valueOf(categoryId), true);
         } catch (DataAccessException e) {
             log.error(e.getMessage());
             throw new CategoryNotSavedException("Category could not be deleted");
         }
+        // A cached empty page for this category would otherwise outlive it
+        afterCommit(catalogCache::invalidatePages);
+    }
+
+    private List<ProductSummary> withTags(List<ProductSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return summaries;
+        }
+        Map<String, List<String>> tagsByProduct = new HashMap<>();
+        List<String> ids = summaries.stream().map(ProductSummary::id).toList();
+        for (int from = 0; from < ids.size(); from += TAG_QUERY_CHUNK) {
+            List<String> chunk = ids.subList(from, Math.min(from + TAG_QUERY_CHUNK, ids.size()));
+            for (Object[] row : productRepository.findTagsByProductIdIn(chunk)) {
+                tagsByProduct.computeIfAbsent((String) row[0], k -> new ArrayList<>()).add((String) row[1]);
+            }
+        }
+        return summaries.stream()
+                .map(s -> s.withTags(tagsByProduct.get(s.id())))
+                .toList();
+    }
+
+    private void publishChanged(Product product) {
+        changeFeed.record(CatalogChange.EntityType.PRODUCT, product.getId(), false);
+        eventPublisher.publishEvent(ProductChangedEvent.upserted(ProductSummary.of(product)));
+    }
+
+    private void applyImage(Product product, ImageStorageService.StoredImage image) {
+        product.setImageHash(image.hash());
+        product.setImageContentType(image.contentType());
+        product.setImageSize(image.size());
+        afterCommit(() -> imageDerivativeService.submit(image.hash()));
+    }
+
+    /**
+     * Stores the image and unpins it when this transaction finishes; on rollback the file is
+     * removed again unless another product has come to use it meanwhile.
+     */
+    private ImageStorageService.StoredImage storeImage(String imageBase64)
+            throws InvalidImageException, ProductNotSavedException {
+        ImageStorageService.StoredImage image = imageStorageService.storeBase64(imageBase64);
+        afterCompletion(committed -> {
+            imageStorageService.release(image.hash());
+            if (!committed) {
+                deleteImageIfUnused(image.hash());
+            }
+        });
+        return image;
+    }
+
+    private void deleteImageIfUnused(String imageHash) {
+        // Images are content-addressed, so another product may still point at the same file
+        imageDerivativeService.deleteIfUnused(imageHash, productRepository::existsByImageHash);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
     }
 }
@@ -0,0 +1,175 @@
+package com.nsbm.bunmart.product.grpc;
+
+import com.nsbm.bunmart.product.errors.InvalidProductRequestException;
+import com.nsbm.bunmart.product.errors.ProductNotFoundException;
+import com.nsbm.bunmart.product.mappers.grpc.GRPCMapper;
+import com.nsbm.bunmart.product.repositories.CategoryRepository;
+import com.nsbm.bunmart.product.repositories.ProductRepository;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import com.nsbm.bunmart.product.services.CatalogChangeFeed;
+import com.nsbm.bunmart.product.services.ProductCatalogCache;
+import com.nsbm.bunmart.product.services.ProductService;
+import com.nsbm.bunmart.product.v1.GetProductRequest;
+import com.nsbm.bunmart.product.v1.GetProductResponse;
+import com.nsbm.bunmart.product.v1.GetProductsRequest;
+import com.nsbm.bunmart.product.v1.GetProductsResponse;
+import com.nsbm.bunmart.product.v1.ProductInfo;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GrpcControllerTest {
+
+    private final ProductService productService = mock(ProductService.class);
+    private final GrpcController controller =
+            new GrpcController(productService, new GRPCMapper(), mock(CatalogWatchStreams.class));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getProductsReportsMissingIds() {
+        Map<String, ProductSummary> found = Map.of("a", summary("a"), "c", summary("c"));
+        when(productService.getProductSummaries(List.of("a", "b", "c"))).thenReturn(found);
+        StreamObserver<GetProductsResponse> observer = mock(StreamObserver.class);
+
+        controller.getProducts(GetProductsRequest.newBuilder()
+                .addAllProductIds(List.of("a", "b", "a", " ", "c")).build(), observer);
+
+        ArgumentCaptor<GetProductsResponse> response = ArgumentCaptor.forClass(GetProductsResponse.class);
+        verify(observer).onNext(response.capture());
+        verify(observer).onCompleted();
+        assertEquals(List.of("a", "c"), response.getValue().getProductsList().stream().map(ProductInfo::getProductId).toList());
+        assertEquals(List.of("b"), response.getValue().getMissingProductIdsList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getProductsRejectsOversizedBatches() {
+        List<String> ids = IntStream.range(0, 501).mapToObj(i -> "p-" + i).toList();
+        assertThrows(InvalidProductRequestException.class, () -> controller.getProducts(
+                GetProductsRequest.newBuilder().addAllProductIds(ids).build(), mock(StreamObserver.class)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamProductsOnlyWritesWhileTheClientIsReady() {
+        List<String> ids = IntStream.range(0, 250).mapToObj(i -> "p-" + i).toList();
+        when(productService.getProductSummaries(any())).thenAnswer(invocation -> {
+            Map<String, ProductSummary> found = new HashMap<>();
+            for (String id : (Collection<String>) invocation.getArgument(0)) {
+                found.put(id, summary(id));
+            }
+            return found;
+        });
+        ServerCallStreamObserver<GetProductsResponse> observer = mock(ServerCallStreamObserver.class);
+        AtomicBoolean ready = new AtomicBoolean(true);
+        when(observer.isReady()).thenAnswer(invocation -> ready.get());
+        List<GetProductsResponse> sent = new ArrayList<>();
+        doAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            // The client stops reading after every message
+            ready.set(false);
+            return null;
+        }).when(observer).onNext(any());
+
+        controller.streamProducts(GetProductsRequest.newBuilder().addAllProductIds(ids).build(), observer);
+        ArgumentCaptor<Runnable> onReady = ArgumentCaptor.forClass(Runnable.class);
+        verify(observer).setOnReadyHandler(onReady.capture());
+        // Nothing is written before gRPC reports the call ready
+        verify(observer, never()).onNext(any());
+
+        for (int expected = 1; expected <= 3; expected++) {
+            ready.set(true);
+            onReady.getValue().run();
+            assertEquals(expected, sent.size());
+        }
+        verify(observer, never()).onCompleted();
+        ready.set(true);
+        onReady.getValue().run();
+        verify(observer, times(1)).onCompleted();
+
+        assertEquals(List.of(100, 100, 50), sent.stream().map(GetProductsResponse::getProductsCount).toList());
+        verify(productService, times(3)).getProductSummaries(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cancelledStreamStopsLoading() {
+        ServerCallStreamObserver<GetProductsResponse> observer = mock(ServerCallStreamObserver.class);
+        when(observer.isReady()).thenReturn(true);
+
+        controller.streamProducts(GetProductsRequest.newBuilder().addProductIds("p-1").build(), observer);
+        ArgumentCaptor<Runnable> onCancel = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Runnable> onReady = ArgumentCaptor.forClass(Runnable.class);
+        verify(observer).setOnCancelHandler(onCancel.capture());
+        verify(observer).setOnReadyHandler(onReady.capture());
+        onCancel.getValue().run();
+        onReady.getValue().run();
+
+        verify(productService, never()).getProductSummaries(any());
+        verify(observer, never()).onCompleted();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getProductOnAColdCacheReadsTagsWithoutTheEntity() {
+        ProductRepository repository = mock(ProductRepository.class);
+        // Outside a transaction the entity's lazy tags would throw; the loader must not touch it
+        when(repository.findById(any())).thenThrow(new LazyInitializationException("tags"));
+        when(repository.findSummariesByIdIn(List.of("p-1"))).thenReturn(
+                List.of(new ProductSummary("p-1", "Tea", null, "100g", true, 4, false)));
+        when(repository.findTagsByProductIdIn(List.of("p-1"))).thenReturn(
+                List.of(new Object[]{"p-1", "green"}, new Object[]{"p-1", "loose"}));
+        ProductService service = new ProductService(repository, mock(CategoryRepository.class), null, null,
+                new ProductCatalogCache(100, 100, Duration.ofMinutes(10)), mock(CatalogChangeFeed.class),
+                mock(ApplicationEventPublisher.class));
+        GrpcController cold = new GrpcController(service, new GRPCMapper(), mock(CatalogWatchStreams.class));
+        StreamObserver<GetProductResponse> observer = mock(StreamObserver.class);
+
+        cold.getProduct(GetProductRequest.newBuilder().setProductId("p-1").build(), observer);
+
+        ArgumentCaptor<GetProductResponse> response = ArgumentCaptor.forClass(GetProductResponse.class);
+        verify(observer).onNext(response.capture());
+        verify(observer).onCompleted();
+        assertEquals("Tea", response.getValue().getProduct().getName());
+        assertEquals(List.of("green", "loose"), response.getValue().getProduct().getTagsList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getProductOfAnUnknownIdFails() {
+        ProductRepository repository = mock(ProductRepository.class);
+        ProductService service = new ProductService(repository, mock(CategoryRepository.class), null, null,
+                new ProductCatalogCache(100, 100, Duration.ofMinutes(10)), mock(CatalogChangeFeed.class),
+                mock(ApplicationEventPublisher.class));
+        GrpcController cold = new GrpcController(service, new GRPCMapper(), mock(CatalogWatchStreams.class));
+
+        assertThrows(ProductNotFoundException.class, () -> cold.getProduct(
+                GetProductRequest.newBuilder().setProductId("missing").build(), mock(StreamObserver.class)));
+    }
+
+    private static ProductSummary summary(String id) {
+        return new ProductSummary(id, "Product " + id, null, List.of(), null, true, 1, false);
+    }
+}
@@ -0,0 +1,64 @@
+package com.nsbm.bunmart.product.repositories.projections;
+
+import com.nsbm.bunmart.product.errors.InvalidPageRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductCursorTest {
+
+    private static final ProductSummary LAST =
+            new ProductSummary("p-42", "Tea: green, loose", null, List.of(), null, true, 3, false);
+
+    @Test
+    void cursorRoundTripsForEverySortKey() {
+        for (ProductSortKey key : ProductSortKey.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                ProductCursor cursor = ProductCursor.after(LAST, key, descending);
+                assertEquals(cursor, ProductCursor.decode(cursor.encode()));
+            }
+        }
+    }
+
+    @Test
+    void sortValueMayContainTheSeparator() {
+        ProductCursor cursor = ProductCursor.decode(ProductCursor.after(LAST, ProductSortKey.NAME, false).encode());
+        assertEquals("Tea: green, loose", cursor.sortValue());
+        assertEquals("p-42", cursor.id());
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        assertThrows(InvalidPageRequestException.class, () -> ProductCursor.decode("not base64!"));
+        assertThrows(InvalidPageRequestException.class, () -> ProductCursor.decode(token("v1:name:a:p-1")));
+        assertThrows(InvalidPageRequestException.class, () -> ProductCursor.decode(token("v0:name:a:p-1:x")));
+    }
+
+    @Test
+    void cursorForAColumnOutsideTheWhitelistIsRejected() {
+        assertThrows(InvalidPageRequestException.class,
+                () -> ProductCursor.decode(token("v1:price:a:p-1:10")));
+        assertThrows(InvalidPageRequestException.class,
+                () -> ProductCursor.decode(token("v1:name; drop table products:a:p-1:x")));
+    }
+
+    @Test
+    void sortKeysResolveOnlyFromTheWhitelist() {
+        assertEquals(ProductSortKey.NAME, ProductSortKey.fromParam("NAME").orElseThrow());
+        assertEquals(ProductSortKey.ID, ProductSortKey.fromParam("id").orElseThrow());
+        assertTrue(ProductSortKey.fromParam("p.name").isEmpty());
+        assertTrue(ProductSortKey.fromParam("price").isEmpty());
+        assertTrue(ProductSortKey.fromParam("name desc").isEmpty());
+        assertTrue(ProductSortKey.fromParam(null).isEmpty());
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
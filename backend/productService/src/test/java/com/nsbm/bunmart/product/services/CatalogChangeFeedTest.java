@@ -0,0 +1,166 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.errors.InvalidPageRequestException;
+import com.nsbm.bunmart.product.model.CatalogChange;
+import com.nsbm.bunmart.product.model.CatalogVersion;
+import com.nsbm.bunmart.product.repositories.CatalogChangeRepository;
+import com.nsbm.bunmart.product.repositories.CatalogVersionRepository;
+import com.nsbm.bunmart.product.repositories.CategoryRepository;
+import com.nsbm.bunmart.product.repositories.ProductRepository;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangeEntry;
+import com.nsbm.bunmart.product.repositories.projections.CatalogChangePage;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the change feed and {@link ProductService#getCatalogChanges} against in-memory stand-ins for
+ * the version counter, the change table and the product summaries.
+ */
+class CatalogChangeFeedTest {
+
+    private final CatalogVersion counter = new CatalogVersion(CatalogVersion.SINGLETON_ID, 0L);
+    private final Map<String, CatalogChange> changes = new HashMap<>();
+    private final Map<String, ProductSummary> products = new HashMap<>();
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CatalogChangeFeed feed;
+    private final ProductService productService;
+
+    @SuppressWarnings("unchecked")
+    CatalogChangeFeedTest() {
+        CatalogVersionRepository versionRepository = mock(CatalogVersionRepository.class);
+        when(versionRepository.lockCurrent()).thenReturn(Optional.of(counter));
+        when(versionRepository.findCurrentVersion()).thenAnswer(invocation -> Optional.of(counter.getCurrentVersion()));
+        CatalogChangeRepository changeRepository = mock(CatalogChangeRepository.class);
+        when(changeRepository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(changes.get(invocation.<String>getArgument(0))));
+        when(changeRepository.save(any())).thenAnswer(invocation -> {
+            CatalogChange change = invocation.getArgument(0);
+            changes.put(change.getChangeKey(), change);
+            return change;
+        });
+        when(changeRepository.findByVersionGreaterThanOrderByVersionAsc(anyLong(), any())).thenAnswer(invocation -> {
+            long since = invocation.getArgument(0);
+            Limit limit = invocation.getArgument(1);
+            return changes.values().stream()
+                    .filter(change -> change.getVersion() > since)
+                    .sorted(Comparator.comparing(CatalogChange::getVersion))
+                    .limit(limit.max())
+                    .toList();
+        });
+        when(productRepository.findSummariesByIdIn(any())).thenAnswer(invocation -> ((Collection<String>) invocation.getArgument(0))
+                .stream().map(products::get).filter(p -> p != null).toList());
+        when(productRepository.findTagsByProductIdIn(any())).thenReturn(List.of());
+
+        feed = new CatalogChangeFeed(changeRepository, versionRepository, mock(JdbcTemplate.class));
+        ProductCatalogCache cache = new ProductCatalogCache(100, 100, Duration.ofMinutes(10));
+        productService = new ProductService(productRepository, mock(CategoryRepository.class), null, null,
+                cache, feed, mock(ApplicationEventPublisher.class));
+    }
+
+    @Test
+    void everyWriteGetsAHigherVersion() {
+        long first = upsert("p-1");
+        long second = upsert("p-2");
+        long third = upsert("p-1");
+
+        assertTrue(first < second && second < third);
+        assertEquals(third, feed.currentVersion());
+    }
+
+    @Test
+    void feedKeepsOnlyTheLatestChangePerProduct() {
+        upsert("p-1");
+        upsert("p-2");
+        upsert("p-1");
+
+        CatalogChangePage page = productService.getCatalogChanges(0, 10);
+        assertEquals(List.of("p-2", "p-1"), page.changes().stream().map(CatalogChangeEntry::entityId).toList());
+        assertEquals(3, page.version());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void deletesAreReportedAsTombstones() {
+        upsert("p-1");
+        upsert("p-2");
+        long since = feed.currentVersion();
+        products.remove("p-1");
+        long deleted = feed.record(CatalogChange.EntityType.PRODUCT, "p-1", true);
+
+        CatalogChangePage page = productService.getCatalogChanges(since, 10);
+        assertEquals(1, page.changes().size());
+        CatalogChangeEntry entry = page.changes().get(0);
+        assertEquals("p-1", entry.entityId());
+        assertEquals(deleted, entry.version());
+        assertTrue(entry.deleted());
+        assertNull(entry.product());
+        assertEquals(deleted, page.version());
+    }
+
+    @Test
+    void productDeletedAfterItsChangeWasReadIsReportedDeleted() {
+        upsert("p-1");
+        // Gone from the products table but its tombstone has not been written yet
+        products.remove("p-1");
+
+        CatalogChangeEntry entry = productService.getCatalogChanges(0, 10).changes().get(0);
+        assertTrue(entry.deleted());
+    }
+
+    @Test
+    void pagesResumeFromTheReturnedVersion() {
+        for (int i = 0; i < 5; i++) {
+            upsert("p-" + i);
+        }
+        CatalogChangePage first = productService.getCatalogChanges(0, 3);
+        assertTrue(first.hasMore());
+        CatalogChangePage second = productService.getCatalogChanges(first.version(), 3);
+        assertFalse(second.hasMore());
+        assertEquals(List.of("p-3", "p-4"), second.changes().stream().map(CatalogChangeEntry::entityId).toList());
+        assertEquals(5, second.version());
+    }
+
+    @Test
+    void versionAheadOfTheCatalogIsRejected() {
+        upsert("p-1");
+        assertThrows(InvalidPageRequestException.class, () -> productService.getCatalogChanges(2, 10));
+        assertThrows(InvalidPageRequestException.class, () -> productService.getCatalogChanges(-1, 10));
+    }
+
+    @Test
+    void listenersArePokedForEveryWrite() {
+        AtomicInteger pokes = new AtomicInteger();
+        Runnable unsubscribe = feed.subscribe(pokes::incrementAndGet);
+        upsert("p-1");
+        upsert("p-2");
+        unsubscribe.run();
+        upsert("p-3");
+        assertEquals(2, pokes.get());
+    }
+
+    private long upsert(String id) {
+        products.put(id, new ProductSummary(id, "Product " + id, null, List.of(), null, true, 1, false));
+        return feed.record(CatalogChange.EntityType.PRODUCT, id, false);
+    }
+}
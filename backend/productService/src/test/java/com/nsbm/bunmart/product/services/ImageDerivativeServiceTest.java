@@ -0,0 +1,81 @@
+package com.nsbm.bunmart.product.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageDerivativeServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private ImageDerivativeService derivatives;
+
+    @AfterEach
+    void shutdown() {
+        if (derivatives != null) {
+            derivatives.shutdown();
+        }
+    }
+
+    @Test
+    void undecodableOriginalIsNotRetried() throws Exception {
+        ImageStorageService storage = new ImageStorageService(dir.toString());
+        derivatives = new ImageDerivativeService(storage, 1, 10, 100, Duration.ofHours(1));
+        // A PNG signature followed by garbage passes the upload check but cannot be decoded
+        byte[] broken = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0, 'j', 'u', 'n', 'k'};
+        String hash = storage.store(broken).hash();
+
+        assertEquals(ImageDerivativeService.Derivative.State.PENDING,
+                derivatives.getDerivative(hash, ImageDerivativeService.Variant.CARD).state());
+        ImageDerivativeService.Derivative.State state = awaitSettled(hash);
+
+        assertEquals(ImageDerivativeService.Derivative.State.UNAVAILABLE, state);
+        assertEquals(ImageDerivativeService.Derivative.State.UNAVAILABLE,
+                derivatives.getDerivative(hash, ImageDerivativeService.Variant.THUMBNAIL).state());
+    }
+
+    @Test
+    void derivativeIsServedOnceGenerated() throws Exception {
+        ImageStorageService storage = new ImageStorageService(dir.toString());
+        derivatives = new ImageDerivativeService(storage, 1, 10, 100, Duration.ofHours(1));
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB), "png", png);
+        String hash = storage.store(png.toByteArray()).hash();
+
+        derivatives.getDerivative(hash, ImageDerivativeService.Variant.CARD);
+        assertEquals(ImageDerivativeService.Derivative.State.READY, awaitSettled(hash));
+        ImageDerivativeService.Derivative card = derivatives.getDerivative(hash, ImageDerivativeService.Variant.CARD);
+        assertTrue(card.file().toFile().isFile());
+        assertEquals(480, ImageIO.read(card.file().toFile()).getWidth());
+    }
+
+    @Test
+    void missingOriginalIsUnavailable() {
+        ImageStorageService storage = new ImageStorageService(dir.toString());
+        derivatives = new ImageDerivativeService(storage, 1, 10, 100, Duration.ofHours(1));
+
+        assertEquals(ImageDerivativeService.Derivative.State.UNAVAILABLE,
+                derivatives.getDerivative("ab".repeat(32), ImageDerivativeService.Variant.CARD).state());
+    }
+
+    private ImageDerivativeService.Derivative.State awaitSettled(String hash)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        ImageDerivativeService.Derivative.State state;
+        do {
+            Thread.sleep(20);
+            state = derivatives.getDerivative(hash, ImageDerivativeService.Variant.CARD).state();
+        } while (state == ImageDerivativeService.Derivative.State.PENDING && System.nanoTime() < deadline);
+        return state;
+    }
+}
@@ -0,0 +1,68 @@
+package com.nsbm.bunmart.product.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageStorageServiceTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void pendingStoreIsNotDeletedByAConcurrentDelete() throws Exception {
+        ImageStorageService storage = new ImageStorageService(dir.toString());
+        ImageStorageService.StoredImage first = storage.store(PNG);
+        storage.release(first.hash());
+
+        // A second product stores the same bytes; its row is not committed yet
+        ImageStorageService.StoredImage second = storage.store(PNG);
+        assertEquals(first.hash(), second.hash());
+        assertFalse(storage.deleteIfUnused(first.hash(), hash -> false));
+        assertTrue(storage.find(first.hash()).isPresent());
+
+        storage.release(second.hash());
+        assertTrue(storage.deleteIfUnused(first.hash(), hash -> false));
+        assertTrue(storage.find(first.hash()).isEmpty());
+    }
+
+    @Test
+    void referencedImageIsKept() throws Exception {
+        ImageStorageService storage = new ImageStorageService(dir.toString());
+        ImageStorageService.StoredImage image = storage.store(PNG);
+        storage.release(image.hash());
+
+        assertFalse(storage.deleteIfUnused(image.hash(), hash -> true));
+        assertTrue(storage.find(image.hash()).isPresent());
+    }
+
+    @Test
+    void storeAfterDeleteWritesTheFileAgain() throws Exception {
+        ImageStorageService storage = new ImageStorageService(dir.toString());
+        ImageStorageService.StoredImage image = storage.store(PNG);
+        storage.release(image.hash());
+        storage.deleteIfUnused(image.hash(), hash -> false);
+
+        storage.store(PNG);
+        assertTrue(storage.find(image.hash()).isPresent());
+    }
+
+    @Test
+    void derivativeOfADeletedImageIsNotWritten() throws Exception {
+        ImageStorageService storage = new ImageStorageService(dir.toString());
+        ImageStorageService.StoredImage image = storage.store(PNG);
+        storage.release(image.hash());
+        assertTrue(storage.storeDerivative(image.hash(), "thumbnail", PNG));
+
+        assertTrue(storage.deleteIfUnused(image.hash(), hash -> false, "thumbnail"));
+        assertFalse(storage.storeDerivative(image.hash(), "thumbnail", PNG));
+        assertTrue(storage.findDerivative(image.hash(), "thumbnail").isEmpty());
+    }
+}
@@ -0,0 +1,150 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.model.Category;
+import com.nsbm.bunmart.product.repositories.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductBulkServiceTest {
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void malformedNdjsonRowsAreReportedByRowNumber() throws IOException {
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        ProductBulkService.ImportReport report = service(10).importProducts(body(
+                "{\"name\":\"Tea\",\"categoryId\":1}",
+                "{not json",
+                "{\"name\":\"\",\"categoryId\":1}",
+                "",
+                "{\"name\":\"Coffee\",\"categoryId\":99}",
+                "{\"name\":\"Tea\",\"categoryId\":1}",
+                "{\"name\":\"Milk\",\"categoryId\":1}"), ProductBulkService.Format.NDJSON);
+
+        assertEquals(6, report.rows());
+        assertEquals(2, report.imported());
+        assertEquals(4, report.failed());
+        assertEquals(List.of(2L, 3L, 4L, 5L), report.errors().stream().map(ProductBulkService.RowError::row).toList());
+        assertTrue(report.errors().get(0).message().startsWith("Invalid JSON"));
+        assertEquals("name is required", report.errors().get(1).message());
+        assertEquals("Category not found for id: 99", report.errors().get(2).message());
+        assertEquals("A product with the same name already exists in this category", report.errors().get(3).message());
+        assertFalse(report.errorsTruncated());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void malformedCsvFieldsAreReported() throws IOException {
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        ProductBulkService.ImportReport report = service(10).importProducts(body(
+                "name,categoryId,availability",
+                "Cake,abc,true",
+                "Bun,1,maybe",
+                "\"Scone, plain\",1,false"), ProductBulkService.Format.CSV);
+
+        assertEquals(3, report.rows());
+        assertEquals(1, report.imported());
+        assertEquals(List.of(
+                new ProductBulkService.RowError(1, "categoryId is not a number: abc"),
+                new ProductBulkService.RowError(2, "availability must be true or false: maybe")), report.errors());
+    }
+
+    @Test
+    void errorReportIsTruncatedButCountsEveryFailure() throws IOException {
+        ProductBulkService.ImportReport report = service(1).importProducts(body(
+                "{", "{", "{"), ProductBulkService.Format.NDJSON);
+
+        assertEquals(3, report.failed());
+        assertEquals(1, report.errors().size());
+        assertTrue(report.errorsTruncated());
+    }
+
+    @Test
+    void rowsOfAFailedBatchAreReported() throws IOException {
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(transactionTemplate).executeWithoutResult(any());
+
+        ProductBulkService.ImportReport report = service(10).importProducts(body(
+                "{\"name\":\"Tea\",\"categoryId\":1}",
+                "{\"name\":\"Milk\",\"categoryId\":1}"), ProductBulkService.Format.NDJSON);
+
+        assertEquals(0, report.imported());
+        assertEquals(List.of(
+                new ProductBulkService.RowError(1, "Batch could not be saved"),
+                new ProductBulkService.RowError(2, "Batch could not be saved")), report.errors());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void namesOfAFailedBatchCanBeImportedLater() throws IOException {
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .doAnswer(invocation -> {
+                    invocation.<Consumer<Object>>getArgument(0).accept(null);
+                    return null;
+                })
+                .when(transactionTemplate).executeWithoutResult(any());
+
+        ProductBulkService.ImportReport report = service(10, 1).importProducts(body(
+                "{\"name\":\"Tea\",\"categoryId\":1}",
+                "{\"name\":\"Tea\",\"categoryId\":1}"), ProductBulkService.Format.NDJSON);
+
+        assertEquals(1, report.imported());
+        assertEquals(List.of(new ProductBulkService.RowError(1, "Batch could not be saved")), report.errors());
+    }
+
+    @Test
+    void tagsContainingTheSeparatorSurviveTheCsvRoundTrip() {
+        List<String> tags = List.of("black|white", "C:\\path", "plain");
+
+        String joined = ProductBulkService.joinTags(tags);
+
+        assertEquals("black\\|white|C:\\\\path|plain", joined);
+        assertEquals(tags, ProductBulkService.splitTags(joined));
+        assertEquals(List.of("a", "b"), ProductBulkService.splitTags(" a || b |"));
+    }
+
+    private ProductBulkService service(int maxReportedErrors) {
+        return service(maxReportedErrors, 500);
+    }
+
+    private ProductBulkService service(int maxReportedErrors, int batchSize) {
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll()).thenReturn(List.of(new Category(1, "Drinks", null)));
+        return new ProductBulkService(categoryRepository, mock(ProductService.class), null,
+                mock(ImageStorageService.class), mock(ImageDerivativeService.class), mock(CatalogChangeFeed.class),
+                mock(ApplicationEventPublisher.class), mock(JdbcTemplate.class), transactionTemplate,
+                new ObjectMapper(), batchSize, maxReportedErrors);
+    }
+
+    private static ByteArrayInputStream body(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
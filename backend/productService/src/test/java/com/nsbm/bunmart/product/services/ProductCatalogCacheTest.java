@@ -0,0 +1,88 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.events.ProductChangedEvent;
+import com.nsbm.bunmart.product.repositories.projections.ProductPage;
+import com.nsbm.bunmart.product.repositories.projections.ProductPageQuery;
+import com.nsbm.bunmart.product.repositories.projections.ProductSortKey;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProductCatalogCacheTest {
+
+    private static final ProductPageQuery FIRST_PAGE =
+            new ProductPageQuery(null, false, ProductSortKey.NAME, false, null, 20);
+
+    private final ProductCatalogCache cache = new ProductCatalogCache(100, 100, Duration.ofMinutes(10));
+    private final AtomicInteger productLoads = new AtomicInteger();
+    private final AtomicInteger pageLoads = new AtomicInteger();
+    // What the database would return
+    private final Map<String, String> names = new HashMap<>(Map.of("p-1", "original", "p-2", "original"));
+
+    @Test
+    void changedProductAndAllPagesAreReloaded() {
+        load("p-1");
+        load("p-2");
+        loadPage();
+        assertEquals(2, productLoads.get());
+        assertEquals(1, pageLoads.get());
+
+        names.put("p-1", "renamed");
+        assertEquals("original", load("p-1").name());
+        cache.onProductChanged(ProductChangedEvent.upserted(summary("p-1", "renamed")));
+
+        assertEquals("renamed", load("p-1").name());
+        load("p-2");
+        loadPage();
+        // Only p-1 was reloaded; every page was dropped
+        assertEquals(3, productLoads.get());
+        assertEquals(2, pageLoads.get());
+    }
+
+    @Test
+    void deletedProductIsNotServedFromTheCache() {
+        load("p-1");
+        names.remove("p-1");
+        cache.onProductChanged(ProductChangedEvent.deleted("p-1"));
+
+        assertNull(load("p-1"));
+        assertEquals(2, productLoads.get());
+    }
+
+    @Test
+    void cachedEntriesAreServedWithoutReloading() {
+        load("p-1");
+        load("p-1");
+        loadPage();
+        loadPage();
+        assertEquals(1, productLoads.get());
+        assertEquals(1, pageLoads.get());
+    }
+
+    private ProductSummary load(String id) {
+        return cache.getProduct(id, key -> {
+            productLoads.incrementAndGet();
+            String name = names.get(key);
+            return name != null ? summary(key, name) : null;
+        });
+    }
+
+    private ProductPage loadPage() {
+        return cache.getPage(FIRST_PAGE, query -> {
+            pageLoads.incrementAndGet();
+            return new ProductPage(List.of(), null);
+        });
+    }
+
+    private static ProductSummary summary(String id, String name) {
+        return new ProductSummary(id, name, null, List.of(), null, true, 1, false);
+    }
+}
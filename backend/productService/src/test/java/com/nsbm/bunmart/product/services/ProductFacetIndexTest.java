@@ -0,0 +1,68 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.events.ProductChangedEvent;
+import com.nsbm.bunmart.product.repositories.projections.ProductFacets;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class ProductFacetIndexTest {
+
+    private final ProductFacetIndex index = new ProductFacetIndex(mock(ProductService.class));
+
+    @Test
+    void pagesFollowNameOrderAcrossFilters() {
+        upsert("p-1", "Pear", 1, true, "fruit");
+        upsert("p-2", "Apple", 1, true, "fruit", "red");
+        upsert("p-3", "Cherry", 2, false, "fruit", "red");
+        upsert("p-4", "Bread", 2, true, "bakery");
+
+        assertEquals(List.of("Apple", "Bread", "Cherry", "Pear"), names(index.browse(List.of(), null, false, 0, 10)));
+        assertEquals(List.of("Cherry", "Pear"), names(index.browse(List.of(), null, false, 2, 10)));
+        assertEquals(List.of("Apple", "Cherry"), names(index.browse(List.of("RED"), null, false, 0, 10)));
+        assertEquals(List.of("Cherry"), names(index.browse(List.of("fruit"), 2, false, 0, 10)));
+        assertEquals(List.of("Bread"), names(index.browse(List.of(), null, true, 1, 1)));
+    }
+
+    @Test
+    void orderIsRefreshedAfterWrites() {
+        upsert("p-1", "Banana", 1, true);
+        upsert("p-2", "Cherry", 1, true);
+        assertEquals(List.of("Banana", "Cherry"), names(index.browse(List.of(), null, false, 0, 10)));
+
+        upsert("p-2", "Apricot", 1, true);
+        upsert("p-3", "Avocado", 1, true);
+        assertEquals(List.of("Apricot", "Avocado", "Banana"), names(index.browse(List.of(), null, false, 0, 10)));
+
+        index.onProductChanged(ProductChangedEvent.deleted("p-3"));
+        assertEquals(List.of("Apricot", "Banana"), names(index.browse(List.of(), null, false, 0, 10)));
+    }
+
+    @Test
+    void countsCoverTheWholeSelectionNotJustThePage() {
+        upsert("p-1", "Apple", 1, true, "fruit");
+        upsert("p-2", "Banana", 1, false, "fruit");
+        upsert("p-3", "Cherry", 2, true, "fruit", "red");
+
+        ProductFacets facets = index.browse(List.of("fruit"), null, false, 0, 1);
+        assertEquals(3, facets.total());
+        assertEquals(List.of("Apple"), names(facets));
+        assertEquals(Map.of("fruit", 3, "red", 1), facets.tagCounts());
+        assertEquals(Map.of(1, 2, 2, 1), facets.categoryCounts());
+        assertEquals(2, facets.availableCount());
+    }
+
+    private void upsert(String id, String name, int categoryId, boolean available, String... tags) {
+        index.onProductChanged(ProductChangedEvent.upserted(
+                new ProductSummary(id, name, null, List.of(tags), null, available, categoryId, false)));
+    }
+
+    private static List<String> names(ProductFacets facets) {
+        return facets.products().stream().map(ProductSummary::name).toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.nsbm.bunmart.product.services;
+
+import com.nsbm.bunmart.product.events.ProductChangedEvent;
+import com.nsbm.bunmart.product.repositories.projections.ProductSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex(mock(ProductService.class));
+
+    @Test
+    void tokensAreFoldedToLowerCaseWithoutAccentsOrStopWords() {
+        assertEquals(List.of("creme", "brulee", "buns"), ProductSearchIndex.tokenize("Cr\u00e8me Br\u00fbl\u00e9e & the Buns!"));
+        assertEquals(List.of(), ProductSearchIndex.tokenize(" of the "));
+    }
+
+    @Test
+    void nameMatchesRankAboveDescriptionMatches() {
+        upsert("p-1", "Sourdough", "A bread with rye", true, 1);
+        upsert("p-2", "Rye Bread", null, true, 1);
+        upsert("p-3", "Bagel", null, true, 2, "bread");
+
+        assertEquals(List.of("Rye Bread", "Bagel", "Sourdough"), names(index.search("bread", null, false, 10)));
+        // Every term must match; the last one also as a prefix
+        assertEquals(List.of("Rye Bread", "Sourdough"), names(index.search("rye bre", null, false, 10)));
+        assertEquals(List.of("Sourdough"), names(index.search("sourdogh", null, false, 10)));
+        assertEquals(List.of("Bagel"), names(index.search("bread", 2, false, 10)));
+        assertEquals(List.of(), names(index.search("the", null, false, 10)));
+    }
+
+    @Test
+    void updatesAndDeletesReplaceWhatWasIndexed() {
+        upsert("p-1", "Rye Bread", null, true, 1);
+        upsert("p-2", "Bagel", null, true, 1);
+
+        upsert("p-1", "Spelt Loaf", null, false, 1);
+        assertEquals(List.of(), names(index.search("rye", null, false, 10)));
+        assertEquals(List.of("Spelt Loaf"), names(index.search("spelt", null, false, 10)));
+        assertEquals(List.of(), names(index.search("spelt", null, true, 10)));
+
+        index.onProductChanged(ProductChangedEvent.deleted("p-2"));
+        assertEquals(List.of(), names(index.search("bagel", null, false, 10)));
+        assertEquals(1, index.size());
+    }
+
+    private void upsert(String id, String name, String description, boolean available, int categoryId, String... tags) {
+        index.onProductChanged(ProductChangedEvent.upserted(
+                new ProductSummary(id, name, description, List.of(tags), null, available, categoryId, false)));
+    }
+
+    private static List<String> names(List<ProductSummary> products) {
+        return products.stream().map(ProductSummary::name).toList();
+    }
+}
@@ -2,6 +2,7 @@ import { useState, useEffect, useMemo } from "react";
 import { getProducts } from "@/service/productService";
 import { getPricingProducts } from "@/service/pricingService";
 import type { Product } from "@/model/product";
+import { LoadMoreButton } from "@/components/product";
 import type {
   PricingProduct,
   CreatePricingProductRequest,
@@ -38,6 +39,8 @@ export function PricingProductFormModal(props: PricingProductFormModalProps) {
   const [allProducts, setAllProducts] = useState<Product[]>([]);
   const [pricingProductIds, setPricingProductIds] = useState<Set<string>>(new Set());
   const [productsLoading, setProductsLoading] = useState(false);
+  const [nextCursor, setNextCursor] = useState<string | undefined>();
+  const [loadingMore, setLoadingMore] = useState(false);
   const [selectedProduct, setSelectedProduct] = useState<Product | null>(preselectedProduct ?? null);
   const [searchQuery, setSearchQuery] = useState("");
   const [priceForm, setPriceForm] = useState(emptyPriceForm);
@@ -52,8 +55,9 @@ export function PricingProductFormModal(props: PricingProductFormModalProps) {
       setSearchQuery("");
       setPriceForm(emptyPriceForm);
       Promise.all([getProducts(), getPricingProducts()])
-        .then(([products, pricingProducts]) => {
-          setAllProducts(products);
+        .then(([page, pricingProducts]) => {
+          setAllProducts(page.items);
+          setNextCursor(page.nextCursor);
           setPricingProductIds(new Set(pricingProducts.map((p) => p.id)));
         })
         .catch(() => setError("Failed to load products"))
@@ -62,6 +66,18 @@ export function PricingProductFormModal(props: PricingProductFormModalProps) {
     setError(null);
   }, [isEdit, preselectedProduct]);
 
+  const loadMoreProducts = () => {
+    if (!nextCursor) return;
+    setLoadingMore(true);
+    getProducts(undefined, nextCursor)
+      .then((page) => {
+        setAllProducts((prev) => [...prev, ...page.items]);
+        setNextCursor(page.nextCursor);
+      })
+      .catch(() => setError("Failed to load products"))
+      .finally(() => setLoadingMore(false));
+  };
+
   // Edit mode: init form from existing pricing product
   useEffect(() => {
     if (product) {
@@ -244,9 +260,11 @@ export function PricingProductFormModal(props: PricingProductFormModalProps) {
                       />
                       {filteredProducts.length === 0 ? (
                         <p className="text-muted text-sm">
-                          {productsWithoutPricing.length === 0
-                            ? "All products already have pricing."
-                            : "No products match your search."}
+                          {productsWithoutPricing.length > 0
+                            ? "No loaded products match your search."
+                            : nextCursor
+                              ? "All loaded products already have pricing."
+                              : "All products already have pricing."}
                         </p>
                       ) : (
                         <ul className="max-h-48 overflow-y-auto border border-stone-200 dark:border-stone-700 rounded-lg divide-y divide-stone-200 dark:divide-stone-700">
@@ -264,6 +282,7 @@ export function PricingProductFormModal(props: PricingProductFormModalProps) {
                           ))}
                         </ul>
                       )}
+                      {nextCursor && <LoadMoreButton onClick={loadMoreProducts} loading={loadingMore} className="mt-3" />}
                     </>
                   )}
                   <div className="mt-4 flex justify-end">
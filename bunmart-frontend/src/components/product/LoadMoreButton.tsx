@@ -0,0 +1,21 @@
+interface LoadMoreButtonProps {
+  onClick: () => void;
+  loading: boolean;
+  className?: string;
+}
+
+/** Fetches the next page of a product listing. */
+export function LoadMoreButton({ onClick, loading, className = "" }: LoadMoreButtonProps) {
+  return (
+    <div className={`flex justify-center ${className}`}>
+      <button
+        type="button"
+        onClick={onClick}
+        disabled={loading}
+        className="px-5 py-2.5 rounded-xl bg-primary/10 text-primary font-semibold hover:bg-primary/20 transition-colors disabled:opacity-50"
+      >
+        {loading ? "Loading…" : "Load more"}
+      </button>
+    </div>
+  );
+}
@@ -1,66 +1,40 @@
 import { useState, useEffect } from "react";
-import { getProductImage } from "@/service/productService";
-
-function toDataUrl(base64: string): string {
-  if (base64.startsWith("data:")) return base64;
-  return `data:image/jpeg;base64,${base64}`;
-}
+import { getProductImageUrl, type ProductImageVariant } from "@/service/productService";
 
 export function ProductImage({
   productId,
   hasImage,
   alt,
   className,
+  variant = "thumbnail",
 }: {
   productId: string;
   hasImage: boolean;
   alt: string;
   className?: string;
+  variant?: ProductImageVariant;
 }) {
-  const [dataUrl, setDataUrl] = useState<string | null>(null);
-  const [loading, setLoading] = useState(true);
+  // A resized variant is generated after upload and answers 202 until it is ready, which the
+  // browser treats as a broken image; the original is shown meanwhile, the placeholder only if
+  // that fails as well
+  const [shown, setShown] = useState<ProductImageVariant | null>(variant);
 
   useEffect(() => {
-    if (!hasImage) {
-      setLoading(false);
-      return;
-    }
-    let cancelled = false;
-    getProductImage(productId).then((res) => {
-      if (cancelled) return;
-      setDataUrl(res ? toDataUrl(res.imageBase64) : null);
-      setLoading(false);
-    });
-    return () => {
-      cancelled = true;
-    };
-  }, [productId, hasImage]);
+    setShown(variant);
+  }, [productId, hasImage, variant]);
 
-  if (!hasImage || loading) {
+  if (hasImage && shown) {
     return (
-      <div
+      <img
+        src={getProductImageUrl(productId, shown)}
+        alt={alt}
         className={className}
-        aria-hidden
-        style={{
-          background: "var(--stone-200, #e7e5e4)",
-          display: "flex",
-          alignItems: "center",
-          justifyContent: "center",
-        }}
-      >
-        {loading ? (
-          <span className="material-symbols-outlined text-stone-400 animate-spin">progress_activity</span>
-        ) : (
-          <span className="material-symbols-outlined text-stone-400 text-4xl">bakery_dining</span>
-        )}
-      </div>
+        loading="lazy"
+        onError={() => setShown(shown === "raw" ? null : "raw")}
+      />
     );
   }
 
-  if (dataUrl) {
-    return <img src={dataUrl} alt={alt} className={className} loading="lazy" />;
-  }
-
   return (
     <div
       className={className}
@@ -1,2 +1,3 @@
 export { ProductImage } from "./ProductImage";
 export { ProductCard } from "./ProductCard";
+export { LoadMoreButton } from "./LoadMoreButton";
@@ -0,0 +1,63 @@
+import { useState, useEffect, useCallback, useRef } from "react";
+import { getProducts, type GetProductsParams } from "@/service/productService";
+import type { Product } from "@/model/product";
+
+/**
+ * Catalog listing that fetches the first page up front and further pages on loadMore,
+ * rather than the whole catalog at once. Changing params starts over from the first page.
+ */
+export function useProductPages(params?: GetProductsParams) {
+  const [products, setProducts] = useState<Product[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | undefined>();
+  const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
+  const [error, setError] = useState<string | null>(null);
+  // Bumped on every reload so pages of an older listing are dropped
+  const generation = useRef(0);
+  const key = JSON.stringify(params ?? {});
+
+  const reload = useCallback(async () => {
+    const current = ++generation.current;
+    setLoading(true);
+    setError(null);
+    try {
+      const page = await getProducts(JSON.parse(key) as GetProductsParams);
+      if (current !== generation.current) return;
+      setProducts(page.items);
+      setNextCursor(page.nextCursor);
+    } catch (e) {
+      if (current === generation.current) {
+        setError(e instanceof Error ? e.message : "Failed to load products");
+      }
+    } finally {
+      if (current === generation.current) setLoading(false);
+    }
+  }, [key]);
+
+  const loadMore = useCallback(async () => {
+    if (!nextCursor || loadingMore) return;
+    const current = generation.current;
+    setLoadingMore(true);
+    try {
+      const page = await getProducts(JSON.parse(key) as GetProductsParams, nextCursor);
+      if (current !== generation.current) return;
+      setProducts((prev) => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (e) {
+      if (current === generation.current) {
+        setError(e instanceof Error ? e.message : "Failed to load products");
+      }
+    } finally {
+      setLoadingMore(false);
+    }
+  }, [key, nextCursor, loadingMore]);
+
+  useEffect(() => {
+    reload();
+    return () => {
+      generation.current++;
+    };
+  }, [reload]);
+
+  return { products, hasMore: nextCursor != null, loading, loadingMore, error, loadMore, reload };
+}
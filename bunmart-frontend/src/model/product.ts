@@ -19,6 +19,19 @@ export interface Category {
   description: string | null;
 }
 
+export interface FacetCount {
+  value: string;
+  count: number;
+}
+
+export interface ProductFacets {
+  total: number;
+  availableCount: number;
+  tags: FacetCount[];
+  categories: FacetCount[];
+  products: Product[];
+}
+
 export interface AddProductRequest {
   categoryId: number;
   name: string;
@@ -4,7 +4,7 @@ import { getCartUserId } from "@/service/cartService";
 import { getCart } from "@/service/cartService";
 import { getProfile, addAddress } from "@/service/profileService";
 import { getPricingProducts, calculatePrice } from "@/service/pricingService";
-import { getProducts } from "@/service/productService";
+import { getProductsByIds } from "@/service/productService";
 import { createOrder } from "@/service/orderService";
 import { sendInAppNotification } from "@/service/notificationService";
 import { getStoredUserId } from "@/service/api";
@@ -58,12 +58,14 @@ export function CheckoutPage() {
     setLoading(true);
     setError(null);
     Promise.all([
-      getCart(userId),
+      getCart(userId).then(async (cart) => ({
+        cart,
+        products: await getProductsByIds(cart.cartItems.map((it) => it.productId)),
+      })),
       getProfile(),
       getPricingProducts(),
-      getProducts(),
     ])
-      .then(([cart, profile, , products]) => {
+      .then(([{ cart, products }, profile]) => {
         if (cancelled) return;
         const byId = new Map(products.map((p) => [p.id, p]));
         setUnavailableProductIds(new Set(products.filter((p) => p.availability === false).map((p) => p.id)));
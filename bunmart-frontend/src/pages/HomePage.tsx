@@ -1,31 +1,26 @@
 import { useState, useEffect, useMemo } from "react";
 import { useSearchParams } from "react-router-dom";
 import { Link } from "react-router-dom";
-import { getProducts, getCategories } from "@/service/productService";
+import { getCategories, getProductFacets, searchProducts } from "@/service/productService";
 import { getPricingProducts } from "@/service/pricingService";
 import type { Product } from "@/model/product";
 import type { Category } from "@/model/product";
 import type { PricingProduct } from "@/model/pricing";
-import { ProductCard } from "@/components/product";
-
-function matchSearch(product: Product, q: string): boolean {
-  if (!q.trim()) return true;
-  const lower = q.trim().toLowerCase();
-  const name = (product.name ?? "").toLowerCase();
-  const desc = (product.description ?? "").toLowerCase();
-  const tags = (product.tags ?? []).join(" ").toLowerCase();
-  return name.includes(lower) || desc.includes(lower) || tags.includes(lower);
-}
+import { ProductCard, LoadMoreButton } from "@/components/product";
+import { useProductPages } from "@/hooks/useProductPages";
+
+const SEARCH_LIMIT = 100;
 
 export function HomePage() {
   const [searchParams, setSearchParams] = useSearchParams();
   const q = searchParams.get("q") ?? "";
   const categoryParam = searchParams.get("category") ?? "";
 
-  const [products, setProducts] = useState<Product[]>([]);
+  const [searchResults, setSearchResults] = useState<Product[] | null>(null);
   const [categories, setCategories] = useState<Category[]>([]);
   const [pricing, setPricing] = useState<PricingProduct[]>([]);
-  const [loading, setLoading] = useState(true);
+  const [categoryCounts, setCategoryCounts] = useState<Map<string, number>>(new Map());
+  const [metaLoading, setMetaLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [searchInput, setSearchInput] = useState(q);
 
@@ -37,36 +32,66 @@ export function HomePage() {
           return Number.isNaN(n) ? null : n;
         })();
 
+  // The category filter is applied by the server so each page holds only matching products
+  const {
+    products,
+    hasMore,
+    loading: productsLoading,
+    loadingMore,
+    error: productsError,
+    loadMore,
+  } = useProductPages({ availableOnly: false, categoryId: categoryIdFilter ?? undefined });
+  const loading = metaLoading || productsLoading;
+
   useEffect(() => {
     setSearchInput(q);
   }, [q]);
 
   useEffect(() => {
     let cancelled = false;
-    setLoading(true);
+    setMetaLoading(true);
     setError(null);
     Promise.all([
-      getProducts({ availableOnly: false }),
       getCategories(),
       getPricingProducts(),
+      getProductFacets({ limit: 0 }),
     ])
-      .then(([prods, cats, prices]) => {
+      .then(([cats, prices, facets]) => {
         if (cancelled) return;
-        setProducts(prods);
         setCategories(cats);
         setPricing(prices);
+        setCategoryCounts(new Map(facets.categories.map((f) => [f.value, f.count])));
       })
       .catch((e) => {
         if (!cancelled) setError(e instanceof Error ? e.message : "Failed to load products");
       })
       .finally(() => {
-        if (!cancelled) setLoading(false);
+        if (!cancelled) setMetaLoading(false);
       });
     return () => {
       cancelled = true;
     };
   }, []);
 
+  useEffect(() => {
+    const query = q.trim();
+    if (!query) {
+      setSearchResults(null);
+      return;
+    }
+    let cancelled = false;
+    searchProducts(query, { limit: SEARCH_LIMIT })
+      .then((results) => {
+        if (!cancelled) setSearchResults(results);
+      })
+      .catch((e) => {
+        if (!cancelled) setError(e instanceof Error ? e.message : "Search failed");
+      });
+    return () => {
+      cancelled = true;
+    };
+  }, [q]);
+
   const pricingByProductId = useMemo(() => {
     const map = new Map<string, PricingProduct>();
     pricing.forEach((p) => map.set(p.id, p));
@@ -74,13 +99,16 @@ export function HomePage() {
   }, [pricing]);
 
   const filteredProducts = useMemo(() => {
-    return products.filter((p) => {
-      if (!matchSearch(p, q)) return false;
+    // Search results arrive ranked by relevance, so keep their order
+    return (searchResults ?? products).filter((p) => {
       if (categoryIdFilter != null && p.categoryId !== categoryIdFilter) return false;
       if (!pricingByProductId.has(p.id)) return false;
       return true;
     });
-  }, [products, q, categoryIdFilter, pricingByProductId]);
+  }, [products, searchResults, categoryIdFilter, pricingByProductId]);
+
+  // Search results come back whole; only the catalog listing has further pages
+  const canLoadMore = searchResults == null && hasMore;
 
   const handleSearchSubmit = (e: React.FormEvent) => {
     e.preventDefault();
@@ -149,9 +177,9 @@ export function HomePage() {
 
       {/* Main content */}
       <section className="max-w-6xl mx-auto px-6 md:px-10 lg:px-24 py-8 md:py-10 w-full flex-1">
-        {error && (
+        {(error ?? productsError) && (
           <div className="mb-6 p-4 rounded-xl bg-red-50 dark:bg-red-900/20 border border-red-200 dark:border-red-800 text-red-600 dark:text-red-400">
-            {error}
+            {error ?? productsError}
           </div>
         )}
 
@@ -186,13 +214,17 @@ export function HomePage() {
                     }`}
                   >
                     {cat.name}
+                    {categoryCounts.has(String(cat.id)) && (
+                      <span className="ml-1.5 opacity-70">{categoryCounts.get(String(cat.id))}</span>
+                    )}
                   </button>
                 ))}
               </div>
             </div>
             {!loading && (
               <p className="text-sm text-stone-500 dark:text-stone-400">
-                {filteredProducts.length} product{filteredProducts.length !== 1 ? "s" : ""} found
+                {filteredProducts.length}
+                {canLoadMore ? "+" : ""} product{filteredProducts.length !== 1 ? "s" : ""} found
               </p>
             )}
           </div>
@@ -203,7 +235,7 @@ export function HomePage() {
             <span className="material-symbols-outlined text-5xl text-primary animate-spin">progress_activity</span>
             <p className="mt-5 text-muted text-lg">Loading products…</p>
           </div>
-        ) : filteredProducts.length === 0 ? (
+        ) : filteredProducts.length === 0 && !canLoadMore ? (
           <div className="py-20 text-center rounded-2xl border border-dashed border-stone-300 dark:border-stone-700 bg-stone-50/50 dark:bg-stone-900/30">
             <span className="material-symbols-outlined text-5xl text-stone-300 dark:text-stone-600">inventory_2</span>
             <p className="mt-4 text-lg font-medium text-stone-600 dark:text-stone-400">No products match your search.</p>
@@ -221,15 +253,18 @@ export function HomePage() {
             </button>
           </div>
         ) : (
-          <div className="grid grid-cols-1 sm:grid-cols-2 lg:grid-cols-3 gap-6 md:gap-8">
-            {filteredProducts.map((product) => (
-              <ProductCard
-                key={product.id}
-                product={product}
-                pricing={pricingByProductId.get(product.id) ?? null}
-              />
-            ))}
-          </div>
+          <>
+            <div className="grid grid-cols-1 sm:grid-cols-2 lg:grid-cols-3 gap-6 md:gap-8">
+              {filteredProducts.map((product) => (
+                <ProductCard
+                  key={product.id}
+                  product={product}
+                  pricing={pricingByProductId.get(product.id) ?? null}
+                />
+              ))}
+            </div>
+            {canLoadMore && <LoadMoreButton onClick={loadMore} loading={loadingMore} className="mt-10" />}
+          </>
         )}
       </section>
     </div>
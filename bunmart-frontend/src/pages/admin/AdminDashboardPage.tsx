@@ -1,7 +1,7 @@
 import { useState, useEffect } from "react";
 import { Link } from "react-router-dom";
 import { getOrders, type OrderPage } from "@/service/orderService";
-import { getProducts } from "@/service/productService";
+import { getProductFacets } from "@/service/productService";
 import { getAllShippingPackages } from "@/service/shippingService";
 import { getUserStats } from "@/service/userManagementService";
 import { getApiErrorMessage } from "@/utils/apiError";
@@ -43,18 +43,18 @@ export function AdminDashboardPage() {
     Promise.all([
       getOrders({ page: 0, size: 1 }),
       getOrders({ page: 0, size: 5, sort: "createdAt,desc" }),
-      getProducts(),
+      getProductFacets({ limit: 0 }),
       getAllShippingPackages(),
       getUserStats(),
       ...ORDER_STATUS_CONFIG.map((c) =>
         getOrders({ status: c.status, page: 0, size: 1 })
       ),
     ])
-      .then(([totalPage, recentPage, products, packages, stats, ...statusPages]) => {
+      .then(([totalPage, recentPage, productFacets, packages, stats, ...statusPages]) => {
         if (cancelled) return;
         setTotalOrders((totalPage as OrderPage).totalElements ?? 0);
         setRecentOrders((recentPage as OrderPage).content ?? []);
-        setProductCount(products?.length ?? 0);
+        setProductCount(productFacets?.total ?? 0);
         setShippingTotal(packages?.length ?? 0);
         setShippingInTransit(
           (packages ?? []).filter((p: { status: string }) => p.status === "IN_TRANSIT").length
@@ -1,5 +1,5 @@
-import { useState, useEffect } from "react";
-import { getProducts } from "@/service/productService";
+import { useState, useEffect, useMemo } from "react";
+import { getProductsByIds } from "@/service/productService";
 import {
   getPricingProducts,
   getDiscounts,
@@ -33,13 +33,24 @@ import {
   ConfirmModal,
 } from "@/components/admin";
 import { ProductImage } from "@/components/product/ProductImage";
+import { LoadMoreButton } from "@/components/product";
+import { useProductPages } from "@/hooks/useProductPages";
 
 export function AdminPricingPage() {
-  const [allProducts, setAllProducts] = useState<Product[]>([]);
+  const {
+    products: allProducts,
+    hasMore,
+    loading: productsLoading,
+    loadingMore,
+    error: productsError,
+    loadMore,
+  } = useProductPages();
+  // Products that have discounts, looked up by id so their names show whatever pages are loaded
+  const [discountProducts, setDiscountProducts] = useState<Map<string, Product>>(new Map());
   const [pricingProducts, setPricingProducts] = useState<PricingProduct[]>([]);
   const [discounts, setDiscounts] = useState<Discount[]>([]);
   const [coupons, setCoupons] = useState<Coupon[]>([]);
-  const [loading, setLoading] = useState(true);
+  const [pricingLoading, setPricingLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [activeTab, setActiveTab] = useState<"products" | "discounts" | "coupons">("products");
   const [saving, setSaving] = useState(false);
@@ -57,24 +68,26 @@ export function AdminPricingPage() {
   const [editingCoupon, setEditingCoupon] = useState<Coupon | null>(null);
   const [deleteCouponItem, setDeleteCouponItem] = useState<Coupon | null>(null);
 
+  const loading = productsLoading || pricingLoading;
+
   const load = async () => {
-    setLoading(true);
+    setPricingLoading(true);
     setError(null);
     try {
-      const [products, pricing, disc, coup] = await Promise.all([
-        getProducts(),
+      const [pricing, disc, coup] = await Promise.all([
         getPricingProducts(),
         getDiscounts(),
         getCoupons(),
       ]);
-      setAllProducts(products);
+      const discounted = await getProductsByIds(disc.map((d) => d.productId));
       setPricingProducts(pricing);
       setDiscounts(disc);
+      setDiscountProducts(new Map(discounted.map((p) => [p.id, p])));
       setCoupons(coup);
     } catch (e) {
       setError(e instanceof Error ? e.message : "Failed to load pricing data");
     } finally {
-      setLoading(false);
+      setPricingLoading(false);
     }
   };
 
@@ -82,6 +95,12 @@ export function AdminPricingPage() {
     load();
   }, []);
 
+  // The discount form lists the loaded pages, plus the product of a discount being edited
+  const productChoices = useMemo(() => {
+    const loaded = new Set(allProducts.map((p) => p.id));
+    return [...allProducts, ...[...discountProducts.values()].filter((p) => !loaded.has(p.id))];
+  }, [allProducts, discountProducts]);
+
   const handleCreateProduct = () => {
     setEditingProduct(null);
     setPreselectedProduct(null);
@@ -248,9 +267,9 @@ export function AdminPricingPage() {
         Pricing
       </h1>
 
-      {error && (
+      {(error ?? productsError) && (
         <div className="mb-4 p-4 rounded-lg bg-red-50 dark:bg-red-900/20 border border-red-200 dark:border-red-800 text-red-600 dark:text-red-400 text-sm">
-          {error}
+          {error ?? productsError}
         </div>
       )}
 
@@ -356,6 +375,7 @@ export function AdminPricingPage() {
               </table>
             )}
           </div>
+          {hasMore && <LoadMoreButton onClick={loadMore} loading={loadingMore} className="p-4 border-t border-stone-200 dark:border-stone-800" />}
         </div>
       )}
 
@@ -374,9 +394,7 @@ export function AdminPricingPage() {
           </div>
           <div className="overflow-x-auto">
             {(() => {
-              const discountsForCurrentProducts = discounts.filter((d) =>
-                allProducts.some((p) => p.id === d.productId)
-              );
+              const discountsForCurrentProducts = discounts.filter((d) => discountProducts.has(d.productId));
               return discountsForCurrentProducts.length === 0 ? (
                 <div className="p-12 text-center text-muted">
                   No products with discounts yet. Add a discount for a product above.
@@ -395,7 +413,7 @@ export function AdminPricingPage() {
                 </thead>
                 <tbody>
                   {discountsForCurrentProducts.map((d) => {
-                    const product = allProducts.find((p) => p.id === d.productId);
+                    const product = discountProducts.get(d.productId);
                     const productLabel = product ? product.name : d.productId;
                     return (
                     <tr key={d.id} className="border-b border-stone-100 dark:border-stone-800">
@@ -483,7 +501,7 @@ export function AdminPricingPage() {
       {discountFormOpen && (
         <DiscountFormModal
           discount={editingDiscount}
-          products={allProducts}
+          products={productChoices}
           preselectedProduct={null}
           onClose={handleCloseDiscountForm}
           onSubmitCreate={handleSubmitCreateDiscount}
@@ -513,7 +531,7 @@ export function AdminPricingPage() {
       {deleteDiscountItem && (
         <ConfirmModal
           title="Delete discount"
-          message={<>Are you sure you want to delete this discount for {allProducts.find((p) => p.id === deleteDiscountItem.productId)?.name ?? deleteDiscountItem.productId} (min qty {deleteDiscountItem.minQuantity})?</>}
+          message={<>Are you sure you want to delete this discount for {discountProducts.get(deleteDiscountItem.productId)?.name ?? deleteDiscountItem.productId} (min qty {deleteDiscountItem.minQuantity})?</>}
           confirmLabel="Delete"
           onClose={() => setDeleteDiscountItem(null)}
           onConfirm={handleConfirmDeleteDiscount}
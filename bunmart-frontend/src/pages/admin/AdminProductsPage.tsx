@@ -2,7 +2,6 @@ import { useState, useEffect } from "react";
 import type { Product, Category } from "@/model/product";
 import type { AddProductRequest, UpdateProductRequest } from "@/model/product";
 import {
-  getProducts,
   getCategories,
   addProduct,
   updateProduct,
@@ -10,11 +9,21 @@ import {
   updateProductImage,
 } from "@/service/productService";
 import { ProductFormModal, ProductTable, DeleteConfirmModal, AddCategoryModal } from "@/components/admin";
+import { LoadMoreButton } from "@/components/product";
+import { useProductPages } from "@/hooks/useProductPages";
 
 export function AdminProductsPage() {
-  const [products, setProducts] = useState<Product[]>([]);
+  const {
+    products,
+    hasMore,
+    loading: productsLoading,
+    loadingMore,
+    error: productsError,
+    loadMore,
+    reload: reloadProducts,
+  } = useProductPages();
   const [categories, setCategories] = useState<Category[]>([]);
-  const [loading, setLoading] = useState(true);
+  const [categoriesLoading, setCategoriesLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [formOpen, setFormOpen] = useState(false);
   const [editingProduct, setEditingProduct] = useState<Product | null>(null);
@@ -22,22 +31,27 @@ export function AdminProductsPage() {
   const [saving, setSaving] = useState(false);
   const [categoryModalOpen, setCategoryModalOpen] = useState(false);
 
-  const load = async () => {
-    setLoading(true);
+  const loading = productsLoading || categoriesLoading;
+
+  const loadCategories = async () => {
+    setCategoriesLoading(true);
     setError(null);
     try {
-      const [prods, cats] = await Promise.all([getProducts(), getCategories()]);
-      setProducts(prods);
-      setCategories(cats);
+      setCategories(await getCategories());
     } catch (e) {
-      setError(e instanceof Error ? e.message : "Failed to load products");
+      setError(e instanceof Error ? e.message : "Failed to load categories");
     } finally {
-      setLoading(false);
+      setCategoriesLoading(false);
     }
   };
 
+  // Edits can move a product within the listing order, so start over from the first page
+  const load = async () => {
+    await Promise.all([reloadProducts(), loadCategories()]);
+  };
+
   useEffect(() => {
-    load();
+    loadCategories();
   }, []);
 
   const handleCreate = () => {
@@ -142,9 +156,9 @@ export function AdminProductsPage() {
         </div>
       </div>
 
-      {error && (
+      {(error ?? productsError) && (
         <div className="mb-4 p-4 rounded-lg bg-red-50 dark:bg-red-900/20 border border-red-200 dark:border-red-800 text-red-600 dark:text-red-400 text-sm">
-          {error}
+          {error ?? productsError}
         </div>
       )}
 
@@ -154,6 +168,7 @@ export function AdminProductsPage() {
         onEdit={handleEdit}
         onDelete={handleDeleteClick}
       />
+      {hasMore && <LoadMoreButton onClick={loadMore} loading={loadingMore} className="mt-6" />}
 
       {formOpen && (
         <ProductFormModal
@@ -179,7 +194,7 @@ export function AdminProductsPage() {
         <AddCategoryModal
           onClose={() => setCategoryModalOpen(false)}
           onAdded={() => {
-            load();
+            loadCategories();
             setCategoryModalOpen(false);
           }}
         />
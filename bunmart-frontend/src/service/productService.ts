@@ -1,7 +1,9 @@
 import api from "./api";
+import { apiGatewayUrl, apiPaths } from "@/config/api";
 import type {
   Product,
   Category,
+  ProductFacets,
   AddProductRequest,
   UpdateProductRequest,
   UpdateImageRequest,
@@ -15,8 +17,75 @@ export interface GetProductsParams {
   sort?: string;
 }
 
-export async function getProducts(params?: GetProductsParams): Promise<Product[]> {
-  const { data } = await api.get<Product[]>(`${prefix}/products`, { params });
+/** Header carrying the opaque cursor of the next page; absent on the last page. */
+const NEXT_CURSOR_HEADER = "x-next-cursor";
+const PAGE_SIZE = 50;
+/** Most ids the server resolves in one by-ids request. */
+const MAX_IDS_PER_REQUEST = 200;
+
+export interface ProductPage {
+  items: Product[];
+  /** Pass back to getProducts for the following page; absent on the last page. */
+  nextCursor?: string;
+}
+
+/** One page of the catalog in the requested order; call again with nextCursor for more. */
+export async function getProducts(params?: GetProductsParams, cursor?: string): Promise<ProductPage> {
+  const { data, headers } = await api.get<Product[]>(`${prefix}/products`, {
+    params: { ...params, limit: PAGE_SIZE, cursor },
+  });
+  return { items: data, nextCursor: headers[NEXT_CURSOR_HEADER] || undefined };
+}
+
+/** The given products, e.g. those in a cart; ids that no longer exist are left out. */
+export async function getProductsByIds(ids: string[]): Promise<Product[]> {
+  const unique = [...new Set(ids)];
+  const chunks: string[][] = [];
+  for (let i = 0; i < unique.length; i += MAX_IDS_PER_REQUEST) {
+    chunks.push(unique.slice(i, i + MAX_IDS_PER_REQUEST));
+  }
+  const pages = await Promise.all(
+    chunks.map((chunk) =>
+      api
+        .get<Product[]>(`${prefix}/products/by-ids`, {
+          params: { ids: chunk },
+          paramsSerializer: { indexes: null },
+        })
+        .then(({ data }) => data)
+    )
+  );
+  return pages.flat();
+}
+
+export interface SearchProductsParams {
+  categoryId?: number;
+  availableOnly?: boolean;
+  limit?: number;
+}
+
+/** Server-side full-text search over name, description and tags; best match first. */
+export async function searchProducts(q: string, params?: SearchProductsParams): Promise<Product[]> {
+  const { data } = await api.get<Product[]>(`${prefix}/products/search`, {
+    params: { ...params, q },
+  });
+  return data;
+}
+
+export interface GetProductFacetsParams {
+  tags?: string[];
+  categoryId?: number;
+  availableOnly?: boolean;
+  offset?: number;
+  /** 0 returns counts only. */
+  limit?: number;
+}
+
+/** Tag/category/availability counts (and optionally a slice of matching products) from the server's facet index. */
+export async function getProductFacets(params?: GetProductFacetsParams): Promise<ProductFacets> {
+  const { data } = await api.get<ProductFacets>(`${prefix}/products/facets`, {
+    params,
+    paramsSerializer: { indexes: null },
+  });
   return data;
 }
 
@@ -69,3 +138,11 @@ export async function getProductImage(productId: string): Promise<ProductImageRe
     return null;
   }
 }
+
+/** Pre-resized variants served by the product service; "raw" is the original upload. */
+export type ProductImageVariant = "thumbnail" | "card" | "detail" | "raw";
+
+/** URL of the image bytes; usable directly as an <img> src so the browser can cache it by ETag. */
+export function getProductImageUrl(productId: string, variant: ProductImageVariant = "raw"): string {
+  return `${apiGatewayUrl}${apiPaths.product}/products/${encodeURIComponent(productId)}/image/${variant}`;
+}
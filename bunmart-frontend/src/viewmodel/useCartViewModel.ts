@@ -1,7 +1,7 @@
 import { useState, useEffect, useCallback } from "react";
 import type { Cart, CartItem } from "@/model/cart";
 import * as cartService from "@/service/cartService";
-import { getProducts } from "@/service/productService";
+import { getProductsByIds } from "@/service/productService";
 
 export function useCartViewModel() {
   const [cart, setCart] = useState<Cart | null>(null);
@@ -29,7 +29,7 @@ export function useCartViewModel() {
       }));
       if (productIds.length > 0) {
         try {
-          const products = await getProducts();
+          const products = await getProductsByIds(productIds);
           const byId = new Map(products.map((p) => [p.id, p]));
           enriched = data.cartItems.map((it) => {
             const p = byId.get(it.productId);